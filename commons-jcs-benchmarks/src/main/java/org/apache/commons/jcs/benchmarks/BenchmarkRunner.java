@@ -0,0 +1,64 @@
+package org.apache.commons.jcs.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once for each thread count. The arguments are the usual JMH options; the
+ * thread counts come from the system property jcs.benchmark.threads, a comma separated list. Without
+ * it the benchmarks run once with the JMH options as given.
+ */
+public class BenchmarkRunner
+{
+    /** The system property with the thread counts. */
+    public static final String THREADS_PROPERTY = "jcs.benchmark.threads";
+
+    /**
+     * @param args JMH command line options
+     * @throws CommandLineOptionException if the options are not valid
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main( String[] args )
+        throws CommandLineOptionException, RunnerException
+    {
+        CommandLineOptions commandLine = new CommandLineOptions( args );
+        String threads = System.getProperty( THREADS_PROPERTY );
+        if ( threads == null || threads.trim().length() == 0 )
+        {
+            new Runner( commandLine ).run();
+            return;
+        }
+
+        for ( String count : threads.split( "," ) )
+        {
+            Options options = new OptionsBuilder()
+                .parent( commandLine )
+                .threads( Integer.parseInt( count.trim() ) )
+                .build();
+            new Runner( options ).run();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.apache.commons.jcs.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.jcs.JCS;
+import org.apache.commons.jcs.access.CacheAccess;
+import org.apache.commons.jcs.engine.control.CompositeCacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CacheAccess get and put on a memory only region. Run with several threads to see the effect of
+ * contention; the mixed group reads with three threads while a fourth one writes.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CacheAccessBenchmark
+{
+    /** The region under test. */
+    private static final String REGION = "benchmark";
+
+    /** How the keys are picked. */
+    @Param( { "UNIFORM", "ZIPFIAN" } )
+    KeyDistribution distribution;
+
+    /** Number of distinct keys. */
+    @Param( { "10000", "1000000" } )
+    int keySpace;
+
+    /** Capacity of the memory cache. */
+    @Param( { "100000" } )
+    int maxObjects;
+
+    /** The memory cache implementation. */
+    @Param( { "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache" } )
+    String memoryCacheName;
+
+    /** The keys, boxed once. */
+    Integer[] keys;
+
+    /** The region. */
+    CacheAccess<Integer, Integer> cache;
+
+    /**
+     * Configures the region and fills it as far as it goes.
+     */
+    @Setup
+    public void setUp()
+    {
+        Properties props = new Properties();
+        props.put( "jcs.default", "" );
+        props.put( "jcs.default.cacheattributes", "org.apache.commons.jcs.engine.CompositeCacheAttributes" );
+        props.put( "jcs.default.cacheattributes.MaxObjects", String.valueOf( maxObjects ) );
+        props.put( "jcs.default.cacheattributes.MemoryCacheName", memoryCacheName );
+        props.put( "jcs.default.cacheattributes.UseMemoryShrinker", "false" );
+        props.put( "jcs.default.elementattributes", "org.apache.commons.jcs.engine.ElementAttributes" );
+        props.put( "jcs.default.elementattributes.IsEternal", "true" );
+        JCS.setConfigProperties( props );
+
+        cache = JCS.getInstance( REGION );
+        keys = new Integer[keySpace];
+        for ( int i = 0; i < keySpace; i++ )
+        {
+            keys[i] = Integer.valueOf( i );
+            cache.put( keys[i], keys[i] );
+        }
+    }
+
+    /**
+     * Shuts the cache down.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        CompositeCacheManager.getInstance().shutDown();
+    }
+
+    /** The keys of one thread. */
+    @State( Scope.Thread )
+    public static class Keys
+    {
+        /** Next key to access. */
+        KeyCursor cursor;
+
+        /**
+         * @param benchmark the shared state
+         */
+        @Setup
+        public void setUp( CacheAccessBenchmark benchmark )
+        {
+            cursor = new KeyCursor( benchmark.distribution, benchmark.keySpace );
+        }
+    }
+
+    /**
+     * @param keys
+     * @return the value
+     */
+    @Benchmark
+    public Integer get( Keys keys )
+    {
+        return cache.get( this.keys[keys.cursor.next()] );
+    }
+
+    /**
+     * @param keys
+     */
+    @Benchmark
+    public void put( Keys keys )
+    {
+        Integer key = this.keys[keys.cursor.next()];
+        cache.put( key, key );
+    }
+
+    /**
+     * @param keys
+     * @return the value
+     */
+    @Benchmark
+    @Group( "mixed" )
+    @GroupThreads( 3 )
+    public Integer mixedGet( Keys keys )
+    {
+        return get( keys );
+    }
+
+    /**
+     * @param keys
+     */
+    @Benchmark
+    @Group( "mixed" )
+    @GroupThreads( 1 )
+    public void mixedPut( Keys keys )
+    {
+        put( keys );
+    }
+}
@@ -0,0 +1,288 @@
+package org.apache.commons.jcs.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.jcs.auxiliary.disk.block.BlockDiskCache;
+import org.apache.commons.jcs.auxiliary.disk.block.BlockDiskCacheAttributes;
+import org.apache.commons.jcs.auxiliary.disk.indexed.IndexedDiskCache;
+import org.apache.commons.jcs.auxiliary.disk.indexed.IndexedDiskCacheAttributes;
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads and writes of the indexed and the block disk cache. The benchmark calls the disk directly,
+ * bypassing the purgatory and the event queue, so a write is measured until it is on disk.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class DiskCacheBenchmark
+{
+    /** The region under test. */
+    private static final String REGION = "disk";
+
+    /** The disk cache implementation. */
+    @Param( { "INDEXED", "BLOCK" } )
+    DiskCacheType diskCacheType;
+
+    /** How the keys are picked. */
+    @Param( { "UNIFORM", "ZIPFIAN" } )
+    KeyDistribution distribution;
+
+    /** Number of distinct keys. */
+    @Param( { "10000" } )
+    int keySpace;
+
+    /** Size of a value in bytes. */
+    @Param( { "128", "4096" } )
+    int valueSize;
+
+    /** One element per key. */
+    ICacheElement<Integer, byte[]>[] elements;
+
+    /** The directory of the cache files. */
+    File directory;
+
+    /** The disk cache. */
+    DiskAccess disk;
+
+    /** The disk caches under test. */
+    public enum DiskCacheType
+    {
+        /** IndexedDiskCache */
+        INDEXED,
+
+        /** BlockDiskCache */
+        BLOCK
+    }
+
+    /** The protected methods of a disk cache that the benchmark calls. */
+    interface DiskAccess
+    {
+        /**
+         * @param key
+         * @return the element, null if not on disk
+         * @throws IOException
+         */
+        ICacheElement<Integer, byte[]> read( Integer key )
+            throws IOException;
+
+        /**
+         * @param element
+         * @throws IOException
+         */
+        void write( ICacheElement<Integer, byte[]> element )
+            throws IOException;
+
+        /**
+         * Closes the files.
+         * <p>
+         * @throws IOException
+         */
+        void dispose()
+            throws IOException;
+    }
+
+    /** Opens the processing methods of the indexed disk cache. */
+    static class IndexedDiskAccess
+        extends IndexedDiskCache<Integer, byte[]>
+        implements DiskAccess
+    {
+        /**
+         * @param cattr
+         */
+        IndexedDiskAccess( IndexedDiskCacheAttributes cattr )
+        {
+            super( cattr );
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ICacheElement<Integer, byte[]> read( Integer key )
+        {
+            return processGet( key );
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void write( ICacheElement<Integer, byte[]> element )
+        {
+            processUpdate( element );
+        }
+    }
+
+    /** Opens the processing methods of the block disk cache. */
+    static class BlockDiskAccess
+        extends BlockDiskCache<Integer, byte[]>
+        implements DiskAccess
+    {
+        /**
+         * @param cattr
+         */
+        BlockDiskAccess( BlockDiskCacheAttributes cattr )
+        {
+            super( cattr );
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ICacheElement<Integer, byte[]> read( Integer key )
+        {
+            return processGet( key );
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void write( ICacheElement<Integer, byte[]> element )
+        {
+            processUpdate( element );
+        }
+    }
+
+    /**
+     * Creates the disk cache in a fresh directory and writes every key.
+     * <p>
+     * @throws IOException
+     */
+    @Setup
+    @SuppressWarnings("unchecked") // No generic arrays in java
+    public void setUp()
+        throws IOException
+    {
+        directory = File.createTempFile( "jcs-benchmark", "" );
+        if ( !directory.delete() || !directory.mkdir() )
+        {
+            throw new IOException( "Could not create directory " + directory );
+        }
+
+        switch ( diskCacheType )
+        {
+            case INDEXED:
+                IndexedDiskCacheAttributes icattr = new IndexedDiskCacheAttributes();
+                icattr.setCacheName( REGION );
+                icattr.setDiskPath( directory );
+                icattr.setMaxKeySize( keySpace * 2 );
+                disk = new IndexedDiskAccess( icattr );
+                break;
+            case BLOCK:
+            default:
+                BlockDiskCacheAttributes bcattr = new BlockDiskCacheAttributes();
+                bcattr.setCacheName( REGION );
+                bcattr.setDiskPath( directory );
+                bcattr.setMaxKeySize( keySpace * 2 );
+                disk = new BlockDiskAccess( bcattr );
+                break;
+        }
+
+        Random random = new Random( 42 );
+        ElementAttributes attr = new ElementAttributes();
+        attr.setIsEternal( true );
+        elements = new ICacheElement[keySpace];
+        for ( int i = 0; i < keySpace; i++ )
+        {
+            byte[] value = new byte[valueSize];
+            random.nextBytes( value );
+            elements[i] = new CacheElement<Integer, byte[]>( REGION, Integer.valueOf( i ), value, attr );
+            disk.write( elements[i] );
+        }
+    }
+
+    /**
+     * Closes the disk cache and removes its files.
+     * <p>
+     * @throws IOException
+     */
+    @TearDown
+    public void tearDown()
+        throws IOException
+    {
+        disk.dispose();
+        File[] files = directory.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /** The keys of one thread. */
+    @State( Scope.Thread )
+    public static class Keys
+    {
+        /** Next key to access. */
+        KeyCursor cursor;
+
+        /**
+         * @param benchmark the shared state
+         */
+        @Setup
+        public void setUp( DiskCacheBenchmark benchmark )
+        {
+            cursor = new KeyCursor( benchmark.distribution, benchmark.keySpace );
+        }
+    }
+
+    /**
+     * @param keys
+     * @return the element
+     * @throws IOException
+     */
+    @Benchmark
+    public ICacheElement<Integer, byte[]> read( Keys keys )
+        throws IOException
+    {
+        return disk.read( elements[keys.cursor.next()].getKey() );
+    }
+
+    /**
+     * @param keys
+     * @throws IOException
+     */
+    @Benchmark
+    public void write( Keys keys )
+        throws IOException
+    {
+        disk.write( elements[keys.cursor.next()] );
+    }
+}
@@ -0,0 +1,149 @@
+package org.apache.commons.jcs.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Get and put through the JCache facade, to compare with {@link CacheAccessBenchmark}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class JCacheBenchmark
+{
+    /** The provider of JCS. */
+    private static final String PROVIDER = "org.apache.commons.jcs.jcache.JCSCachingProvider";
+
+    /** The cache under test. */
+    private static final String CACHE = "jcache";
+
+    /** How the keys are picked. */
+    @Param( { "UNIFORM", "ZIPFIAN" } )
+    KeyDistribution distribution;
+
+    /** Number of distinct keys. */
+    @Param( { "10000" } )
+    int keySpace;
+
+    /** Whether the cache copies keys and values. */
+    @Param( { "true", "false" } )
+    boolean storeByValue;
+
+    /** The keys, boxed once. */
+    Integer[] keys;
+
+    /** The provider. */
+    CachingProvider provider;
+
+    /** The cache manager. */
+    CacheManager cacheManager;
+
+    /** The cache. */
+    Cache<Integer, Integer> cache;
+
+    /**
+     * Creates the cache and fills it.
+     */
+    @Setup
+    public void setUp()
+    {
+        provider = Caching.getCachingProvider( PROVIDER );
+        cacheManager = provider.getCacheManager();
+        cache = cacheManager.createCache( CACHE, new MutableConfiguration<Integer, Integer>()
+            .setTypes( Integer.class, Integer.class ).setStoreByValue( storeByValue ) );
+
+        keys = new Integer[keySpace];
+        for ( int i = 0; i < keySpace; i++ )
+        {
+            keys[i] = Integer.valueOf( i );
+            cache.put( keys[i], keys[i] );
+        }
+    }
+
+    /**
+     * Closes the cache manager and the provider.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        cacheManager.close();
+        provider.close();
+    }
+
+    /** The keys of one thread. */
+    @State( Scope.Thread )
+    public static class Keys
+    {
+        /** Next key to access. */
+        KeyCursor cursor;
+
+        /**
+         * @param benchmark the shared state
+         */
+        @Setup
+        public void setUp( JCacheBenchmark benchmark )
+        {
+            cursor = new KeyCursor( benchmark.distribution, benchmark.keySpace );
+        }
+    }
+
+    /**
+     * @param keys
+     * @return the value
+     */
+    @Benchmark
+    public Integer get( Keys keys )
+    {
+        return cache.get( this.keys[keys.cursor.next()] );
+    }
+
+    /**
+     * @param keys
+     */
+    @Benchmark
+    public void put( Keys keys )
+    {
+        Integer key = this.keys[keys.cursor.next()];
+        cache.put( key, key );
+    }
+}
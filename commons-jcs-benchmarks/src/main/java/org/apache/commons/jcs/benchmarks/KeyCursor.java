@@ -0,0 +1,58 @@
+package org.apache.commons.jcs.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Walks a pre drawn sequence of key indexes. Each thread of a benchmark owns one cursor, so the
+ * cursor needs no synchronization.
+ */
+public class KeyCursor
+{
+    /** Gives every cursor of a run a different sequence. */
+    private static final AtomicLong SEEDS = new AtomicLong( 42 );
+
+    /** Wraps the position around the sequence. */
+    private static final int MASK = KeyDistribution.SEQUENCE_LENGTH - 1;
+
+    /** The key indexes. */
+    private final int[] indexes;
+
+    /** Position of the next index. */
+    private int position;
+
+    /**
+     * @param distribution how the keys are picked
+     * @param keySpace number of distinct keys
+     */
+    public KeyCursor( KeyDistribution distribution, int keySpace )
+    {
+        this.indexes = distribution.sequence( keySpace, SEEDS.getAndIncrement() );
+    }
+
+    /**
+     * @return the index of the next key to access
+     */
+    public int next()
+    {
+        return indexes[position++ & MASK];
+    }
+}
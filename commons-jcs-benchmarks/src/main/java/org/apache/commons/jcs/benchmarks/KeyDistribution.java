@@ -0,0 +1,120 @@
+package org.apache.commons.jcs.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * How the benchmarks pick the keys they access. The indexes are drawn up front so that the random
+ * number generator is not part of the measurement.
+ */
+public enum KeyDistribution
+{
+    /** Every key is equally likely. */
+    UNIFORM
+    {
+        @Override
+        protected int[] draw( int keySpace, int count, Random random )
+        {
+            int[] indexes = new int[count];
+            for ( int i = 0; i < count; i++ )
+            {
+                indexes[i] = random.nextInt( keySpace );
+            }
+            return indexes;
+        }
+    },
+
+    /**
+     * The key of rank n is picked with a probability proportional to 1 / n^0.99, the skew usually
+     * seen in front of web applications. The hot keys are spread over the key space.
+     */
+    ZIPFIAN
+    {
+        @Override
+        protected int[] draw( int keySpace, int count, Random random )
+        {
+            double[] cumulative = new double[keySpace];
+            double sum = 0;
+            for ( int i = 0; i < keySpace; i++ )
+            {
+                sum += 1 / Math.pow( i + 1, ZIPF_EXPONENT );
+                cumulative[i] = sum;
+            }
+
+            // a multiplier with no common factor with the key space spreads the ranks over it
+            long multiplier = 0x9E3779B1L;
+            while ( gcd( multiplier, keySpace ) != 1 )
+            {
+                multiplier += 2;
+            }
+
+            int[] indexes = new int[count];
+            for ( int i = 0; i < count; i++ )
+            {
+                int rank = Arrays.binarySearch( cumulative, random.nextDouble() * sum );
+                if ( rank < 0 )
+                {
+                    rank = -rank - 1;
+                }
+                rank = Math.min( rank, keySpace - 1 );
+                indexes[i] = (int) ( rank * multiplier % keySpace );
+            }
+            return indexes;
+        }
+    };
+
+    /** The skew of the zipfian distribution. */
+    static final double ZIPF_EXPONENT = 0.99;
+
+    /** Length of a sequence, a power of two so that it can wrap with a mask. */
+    public static final int SEQUENCE_LENGTH = 1 << 16;
+
+    /**
+     * Draws a sequence of key indexes.
+     * <p>
+     * @param keySpace number of distinct keys
+     * @param seed seed of the sequence, use a different one per thread
+     * @return SEQUENCE_LENGTH indexes between 0 and keySpace - 1
+     */
+    public int[] sequence( int keySpace, long seed )
+    {
+        return draw( keySpace, SEQUENCE_LENGTH, new Random( seed ) );
+    }
+
+    /**
+     * @param keySpace number of distinct keys
+     * @param count number of indexes
+     * @param random source of randomness
+     * @return the indexes
+     */
+    protected abstract int[] draw( int keySpace, int count, Random random );
+
+    /**
+     * @param a
+     * @param b
+     * @return the greatest common divisor
+     */
+    private static long gcd( long a, long b )
+    {
+        return b == 0 ? a : gcd( b, a % b );
+    }
+}
@@ -0,0 +1,165 @@
+package org.apache.commons.jcs.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.CompositeCacheAttributes;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.CompositeCacheManager;
+import org.apache.commons.jcs.engine.memory.behavior.IMemoryCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Get and update on each memory cache implementation, without the region around it. The elements
+ * are created up front, so the update measures the bookkeeping of the memory cache only.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class MemoryCacheBenchmark
+{
+    /** The region under test. */
+    private static final String REGION = "memory";
+
+    /** The memory cache implementation. */
+    @Param( { "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache",
+              "org.apache.commons.jcs.engine.memory.lru.LHMLRUMemoryCache",
+              "org.apache.commons.jcs.engine.memory.mru.MRUMemoryCache",
+              "org.apache.commons.jcs.engine.memory.fifo.FIFOMemoryCache",
+              "org.apache.commons.jcs.engine.memory.sampled.SampledLRUMemoryCache",
+              "org.apache.commons.jcs.engine.memory.tinylfu.TinyLFUMemoryCache" } )
+    String memoryCacheName;
+
+    /** How the keys are picked. */
+    @Param( { "UNIFORM", "ZIPFIAN" } )
+    KeyDistribution distribution;
+
+    /** Number of distinct keys. */
+    @Param( { "200000" } )
+    int keySpace;
+
+    /** Capacity of the memory cache, below the key space so that the cache evicts. */
+    @Param( { "100000" } )
+    int maxObjects;
+
+    /** One element per key. */
+    ICacheElement<Integer, Integer>[] elements;
+
+    /** The memory cache. */
+    IMemoryCache<Integer, Integer> memoryCache;
+
+    /**
+     * Creates the region and fills the memory cache.
+     * <p>
+     * @throws IOException
+     */
+    @Setup
+    @SuppressWarnings("unchecked") // No generic arrays in java
+    public void setUp()
+        throws IOException
+    {
+        CompositeCacheManager manager = CompositeCacheManager.getUnconfiguredInstance();
+        manager.configure( new Properties() );
+
+        CompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setMemoryCacheName( memoryCacheName );
+        cattr.setMaxObjects( maxObjects );
+        cattr.setUseMemoryShrinker( false );
+        memoryCache = manager.<Integer, Integer>getCache( REGION, cattr ).getMemoryCache();
+
+        ElementAttributes attr = new ElementAttributes();
+        attr.setIsEternal( true );
+        elements = new ICacheElement[keySpace];
+        for ( int i = 0; i < keySpace; i++ )
+        {
+            Integer key = Integer.valueOf( i );
+            elements[i] = new CacheElement<Integer, Integer>( REGION, key, key, attr );
+            memoryCache.update( elements[i] );
+        }
+    }
+
+    /**
+     * Shuts the cache down.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        CompositeCacheManager.getUnconfiguredInstance().shutDown();
+    }
+
+    /** The keys of one thread. */
+    @State( Scope.Thread )
+    public static class Keys
+    {
+        /** Next key to access. */
+        KeyCursor cursor;
+
+        /**
+         * @param benchmark the shared state
+         */
+        @Setup
+        public void setUp( MemoryCacheBenchmark benchmark )
+        {
+            cursor = new KeyCursor( benchmark.distribution, benchmark.keySpace );
+        }
+    }
+
+    /**
+     * @param keys
+     * @return the element, null on a miss
+     * @throws IOException
+     */
+    @Benchmark
+    public ICacheElement<Integer, Integer> get( Keys keys )
+        throws IOException
+    {
+        return memoryCache.get( elements[keys.cursor.next()].getKey() );
+    }
+
+    /**
+     * @param keys
+     * @throws IOException
+     */
+    @Benchmark
+    public void update( Keys keys )
+        throws IOException
+    {
+        memoryCache.update( elements[keys.cursor.next()] );
+    }
+}
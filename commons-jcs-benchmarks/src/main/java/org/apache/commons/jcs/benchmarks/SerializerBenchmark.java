@@ -0,0 +1,156 @@
+package org.apache.commons.jcs.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.utils.serialization.BinarySerializer;
+import org.apache.commons.jcs.utils.serialization.CompressingSerializer;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializes and deserializes a cache element the way the disk and the remote caches do. The
+ * value is text, so the compressing serializers have something to work with.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class SerializerBenchmark
+{
+    /** The serializer. */
+    @Param( { "STANDARD", "BINARY", "DEFLATE", "LZ4" } )
+    SerializerType serializerType;
+
+    /** Length of the value in characters. */
+    @Param( { "100", "10000" } )
+    int valueSize;
+
+    /** The serializer under test. */
+    IElementSerializer serializer;
+
+    /** The element to serialize. */
+    ICacheElement<String, String> element;
+
+    /** The serialized element. */
+    byte[] serialized;
+
+    /** The serializers under test. */
+    public enum SerializerType
+    {
+        /** StandardSerializer */
+        STANDARD,
+
+        /** BinarySerializer */
+        BINARY,
+
+        /** CompressingSerializer with the deflate codec */
+        DEFLATE,
+
+        /** CompressingSerializer with the lz4 codec */
+        LZ4
+    }
+
+    /**
+     * Creates the serializer and the element.
+     * <p>
+     * @throws IOException
+     */
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        switch ( serializerType )
+        {
+            case STANDARD:
+                serializer = new StandardSerializer();
+                break;
+            case BINARY:
+                serializer = new BinarySerializer();
+                break;
+            case DEFLATE:
+                CompressingSerializer deflate = new CompressingSerializer();
+                deflate.setCodec( "deflate" );
+                serializer = deflate;
+                break;
+            case LZ4:
+            default:
+                CompressingSerializer lz4 = new CompressingSerializer();
+                lz4.setCodec( "lz4" );
+                serializer = lz4;
+                break;
+        }
+
+        // words drawn from a small vocabulary compress about as well as markup
+        String[] words = { "cache", "region", "element", "key", "value", "memory", "disk", "remote" };
+        Random random = new Random( 42 );
+        StringBuilder value = new StringBuilder( valueSize + 10 );
+        while ( value.length() < valueSize )
+        {
+            value.append( words[random.nextInt( words.length )] ).append( ' ' );
+        }
+        value.setLength( valueSize );
+
+        element = new CacheElement<String, String>( "serializer", "key", value.toString(), new ElementAttributes() );
+        serialized = serializer.serialize( element );
+    }
+
+    /**
+     * @return the bytes
+     * @throws IOException
+     */
+    @Benchmark
+    public byte[] serialize()
+        throws IOException
+    {
+        return serializer.serialize( element );
+    }
+
+    /**
+     * @return the element
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    @Benchmark
+    public ICacheElement<String, String> deSerialize()
+        throws IOException, ClassNotFoundException
+    {
+        return serializer.deSerialize( serialized, null );
+    }
+}
@@ -184,12 +184,62 @@ public class CacheAccess<K, V>
     @Override
     public void putSafe( K key, V value )
     {
-        if ( this.getCacheControl().get( key ) != null )
+        if ( putIfAbsent( key, value ) != null )
         {
             throw new ObjectExistsException( "putSafe failed.  Object exists in the cache for key [" + key
                 + "].  Remove first or use a non-safe put to override the value." );
         }
-        put( key, value );
+    }
+
+    /**
+     * Place a new object in the cache unless an object is already associated with the key. The
+     * check and the put are one atomic operation.
+     * <p>
+     * @param key Key object will be stored with
+     * @param value Object to store
+     * @return the object already in the cache, or null if the given one was stored
+     */
+    @Override
+    public V putIfAbsent( K key, V value )
+    {
+        try
+        {
+            ICacheElement<K, V> existing = this.getCacheControl().putIfAbsent(
+                createElement( key, value, this.getCacheControl().getElementAttributes() ) );
+            return existing != null ? existing.getVal() : null;
+        }
+        catch ( IOException e )
+        {
+            throw new CacheException( e );
+        }
+    }
+
+    /**
+     * Replace the object associated with the key only if it equals the expected one. The check and
+     * the put are one atomic operation.
+     * <p>
+     * @param key Key of the object to replace
+     * @param oldValue the object expected in the cache
+     * @param newValue Object to store
+     * @return true if the object was replaced
+     */
+    @Override
+    public boolean replace( K key, V oldValue, V newValue )
+    {
+        if ( oldValue == null )
+        {
+            throw new InvalidArgumentException( "Old value must not be null" );
+        }
+
+        try
+        {
+            return this.getCacheControl().replace(
+                createElement( key, newValue, this.getCacheControl().getElementAttributes() ), oldValue );
+        }
+        catch ( IOException e )
+        {
+            throw new CacheException( e );
+        }
     }
 
     /**
@@ -217,6 +267,29 @@ public class CacheAccess<K, V>
      */
     @Override
     public void put( K key, V val, IElementAttributes attr )
+    {
+        // Create the element and update. This may throw an IOException which
+        // should be wrapped by cache access.
+        try
+        {
+            this.getCacheControl().update( createElement( key, val, attr ) );
+        }
+        catch ( IOException e )
+        {
+            throw new CacheException( e );
+        }
+    }
+
+    /**
+     * Wraps the key and the value in a cache element of this region.
+     * <p>
+     * @param key
+     * @param val
+     * @param attr
+     * @return the element
+     * @throws InvalidArgumentException if the key or the value is null
+     */
+    private CacheElement<K, V> createElement( K key, V val, IElementAttributes attr )
     {
         if ( key == null )
         {
@@ -228,21 +301,9 @@ public class CacheAccess<K, V>
             throw new InvalidArgumentException( "Value must not be null" );
         }
 
-        // Create the element and update. This may throw an IOException which
-        // should be wrapped by cache access.
-        try
-        {
-            CacheElement<K, V> ce = new CacheElement<K, V>( this.getCacheControl().getCacheName(), key,
-                                                val );
-
-            ce.setElementAttributes( attr );
-
-            this.getCacheControl().update( ce );
-        }
-        catch ( IOException e )
-        {
-            throw new CacheException( e );
-        }
+        CacheElement<K, V> ce = new CacheElement<K, V>( this.getCacheControl().getCacheName(), key, val );
+        ce.setElementAttributes( attr );
+        return ce;
     }
 
     /**
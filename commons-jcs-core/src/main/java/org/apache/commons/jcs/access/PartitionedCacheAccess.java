@@ -144,6 +144,61 @@ public class PartitionedCacheAccess<K extends Serializable, V extends Serializab
         partitions[partition].putSafe( key, object );
     }
 
+    /**
+     * Puts in the partition of the key if an item does not exist with the name in that region.
+     * <p>
+     * @param key
+     * @param object
+     * @return the item already cached, or null if object was put
+     * @throws CacheException
+     */
+    @Override
+    public V putIfAbsent( K key, V object )
+        throws CacheException
+    {
+        if ( key == null || object == null )
+        {
+            log.warn( "Bad input key [" + key + "].  Cannot putIfAbsent null into the cache." );
+            return null;
+        }
+
+        if (!ensureInit())
+        {
+            return null;
+        }
+
+        int partition = getPartitionNumberForKey( key );
+        return partitions[partition].putIfAbsent( key, object );
+    }
+
+    /**
+     * Replaces the item in the partition of the key if it equals oldObject.
+     * <p>
+     * @param key
+     * @param oldObject
+     * @param newObject
+     * @return true if the item was replaced
+     * @throws CacheException
+     */
+    @Override
+    public boolean replace( K key, V oldObject, V newObject )
+        throws CacheException
+    {
+        if ( key == null || oldObject == null || newObject == null )
+        {
+            log.warn( "Bad input key [" + key + "].  Cannot replace null in the cache." );
+            return false;
+        }
+
+        if (!ensureInit())
+        {
+            return false;
+        }
+
+        int partition = getPartitionNumberForKey( key );
+        return partitions[partition].replace( key, oldObject, newObject );
+    }
+
     /**
      * Puts the value into the appropriate cache partition.
      * <p>
@@ -58,6 +58,31 @@ public interface ICacheAccess<K, V>
     void putSafe( K name, V obj )
         throws CacheException;
 
+    /**
+     * Puts in cache if an item does not exist with the name in that region, as one atomic
+     * operation.
+     * <p>
+     * @param name
+     * @param obj
+     * @return the item already cached, or null if obj was put
+     * @throws CacheException
+     */
+    V putIfAbsent( K name, V obj )
+        throws CacheException;
+
+    /**
+     * Puts newObj in cache only if the item cached with the name equals oldObj, as one atomic
+     * operation.
+     * <p>
+     * @param name
+     * @param oldObj
+     * @param newObj
+     * @return true if the item was replaced
+     * @throws CacheException
+     */
+    boolean replace( K name, V oldObj, V newObj )
+        throws CacheException;
+
     /**
      * Puts and/or overrides an element with the name in that region.
      * <p>
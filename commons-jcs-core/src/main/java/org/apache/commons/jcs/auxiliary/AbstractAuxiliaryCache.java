@@ -28,6 +28,9 @@ import org.apache.commons.jcs.engine.match.KeyMatcherPatternImpl;
 import org.apache.commons.jcs.engine.match.behavior.IKeyMatcher;
 import org.apache.commons.jcs.utils.serialization.StandardSerializer;
 
+import java.io.IOException;
+import java.util.List;
+
 /** This holds convenience methods used by most auxiliary caches. */
 public abstract class AbstractAuxiliaryCache<K, V>
     implements AuxiliaryCache<K, V>
@@ -41,6 +44,38 @@ public abstract class AbstractAuxiliaryCache<K, V>
     /** Key matcher used by the getMatching API */
     private IKeyMatcher<K> keyMatcher = new KeyMatcherPatternImpl<K>();
 
+    /**
+     * Puts the elements one at a time. Auxiliaries that can send them together override this.
+     * <p>
+     * @param items the elements to put
+     * @throws IOException
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> items )
+        throws IOException
+    {
+        for ( ICacheElement<K, V> item : items )
+        {
+            update( item );
+        }
+    }
+
+    /**
+     * Removes the keys one at a time. Auxiliaries that can send them together override this.
+     * <p>
+     * @param keys the keys to remove
+     * @throws IOException
+     */
+    @Override
+    public void removeMultiple( List<K> keys )
+        throws IOException
+    {
+        for ( K key : keys )
+        {
+            remove( key );
+        }
+    }
+
     /**
      * Logs an event if an event logger is configured.
      * <p>
@@ -42,6 +42,15 @@ public abstract class AbstractAuxiliaryCacheAttributes
     /** Named when pooled */
     private String eventQueuePoolName;
 
+    /** The default number of events sent together. */
+    private static final int DEFAULT_EVENT_QUEUE_MAX_BATCH_SIZE = 100;
+
+    /** The most puts or removes the event queue sends together */
+    private int eventQueueMaxBatchSize = DEFAULT_EVENT_QUEUE_MAX_BATCH_SIZE;
+
+    /** How long the event queue waits to fill a batch, in microseconds */
+    private int eventQueueMaxBatchDelayMicros = 0;
+
     /**
      * @param name
      */
@@ -127,4 +136,44 @@ public abstract class AbstractAuxiliaryCacheAttributes
     {
         return eventQueuePoolName;
     }
+
+    /**
+     * Runs of puts or removes waiting in the event queue are sent with one call, up to this many.
+     * <p>
+     * @param maxBatchSize the most events sent together, 1 turns batching off
+     */
+    @Override
+    public void setEventQueueMaxBatchSize( int maxBatchSize )
+    {
+        this.eventQueueMaxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @return the most events sent together
+     */
+    @Override
+    public int getEventQueueMaxBatchSize()
+    {
+        return eventQueueMaxBatchSize;
+    }
+
+    /**
+     * How long the event queue waits for more events to fill a batch.
+     * <p>
+     * @param maxBatchDelayMicros microseconds, 0 only batches what is already waiting
+     */
+    @Override
+    public void setEventQueueMaxBatchDelayMicros( int maxBatchDelayMicros )
+    {
+        this.eventQueueMaxBatchDelayMicros = maxBatchDelayMicros;
+    }
+
+    /**
+     * @return microseconds the event queue waits to fill a batch
+     */
+    @Override
+    public int getEventQueueMaxBatchDelayMicros()
+    {
+        return eventQueueMaxBatchDelayMicros;
+    }
 }
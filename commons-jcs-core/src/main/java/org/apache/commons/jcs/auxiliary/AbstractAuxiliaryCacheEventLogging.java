@@ -25,6 +25,8 @@ import org.apache.commons.jcs.engine.logging.behavior.ICacheEventLogger;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -79,6 +81,61 @@ public abstract class AbstractAuxiliaryCacheEventLogging<K, V>
     protected abstract void processUpdate( ICacheElement<K, V> cacheElement )
         throws IOException;
 
+    /**
+     * Puts the items into the cache.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        updateMultipleWithEventLogging( cacheElements );
+    }
+
+    /**
+     * Puts the items into the cache. Wrapped in logging, one event per item.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    protected final void updateMultipleWithEventLogging( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        List<ICacheEvent<K>> cacheEvents = new ArrayList<ICacheEvent<K>>( cacheElements.size() );
+        for ( ICacheElement<K, V> cacheElement : cacheElements )
+        {
+            cacheEvents.add( createICacheEvent( cacheElement, ICacheEventLogger.UPDATE_EVENT ) );
+        }
+        try
+        {
+            processUpdateMultiple( cacheElements );
+        }
+        finally
+        {
+            for ( ICacheEvent<K> cacheEvent : cacheEvents )
+            {
+                logICacheEvent( cacheEvent );
+            }
+        }
+    }
+
+    /**
+     * Implementation of put for several items. By default this calls processUpdate for each.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    protected void processUpdateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        for ( ICacheElement<K, V> cacheElement : cacheElements )
+        {
+            processUpdate( cacheElement );
+        }
+    }
+
     /**
      * Gets the item from the cache.
      * <p>
@@ -272,6 +329,61 @@ public abstract class AbstractAuxiliaryCacheEventLogging<K, V>
     protected abstract boolean processRemove( K key )
         throws IOException;
 
+    /**
+     * Removes the items from the cache.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    public void removeMultiple( List<K> keys )
+        throws IOException
+    {
+        removeMultipleWithEventLogging( keys );
+    }
+
+    /**
+     * Removes the items from the cache. Wrapped in logging, one event per key.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    protected final void removeMultipleWithEventLogging( List<K> keys )
+        throws IOException
+    {
+        List<ICacheEvent<K>> cacheEvents = new ArrayList<ICacheEvent<K>>( keys.size() );
+        for ( K key : keys )
+        {
+            cacheEvents.add( createICacheEvent( getCacheName(), key, ICacheEventLogger.REMOVE_EVENT ) );
+        }
+        try
+        {
+            processRemoveMultiple( keys );
+        }
+        finally
+        {
+            for ( ICacheEvent<K> cacheEvent : cacheEvents )
+            {
+                logICacheEvent( cacheEvent );
+            }
+        }
+    }
+
+    /**
+     * Implementation of remove for several keys. By default this calls processRemove for each.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    protected void processRemoveMultiple( List<K> keys )
+        throws IOException
+    {
+        for ( K key : keys )
+        {
+            processRemove( key );
+        }
+    }
+
     /**
      * Removes all from the region. Wraps the removeAll in event logs.
      * <p>
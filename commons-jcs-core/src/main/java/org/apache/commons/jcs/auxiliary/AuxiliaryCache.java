@@ -20,11 +20,13 @@ package org.apache.commons.jcs.auxiliary;
  */
 
 import org.apache.commons.jcs.engine.behavior.ICache;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs.engine.logging.behavior.ICacheEventLogger;
 import org.apache.commons.jcs.engine.stats.behavior.IStats;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -36,6 +38,24 @@ import java.util.Set;
 public interface AuxiliaryCache<K, V>
     extends ICache<K, V>
 {
+    /**
+     * Puts the elements into the cache, in order. Remote and lateral caches send them to the other
+     * side together.
+     * <p>
+     * @param items the elements to put
+     * @throws IOException if access to the auxiliary cache fails
+     */
+    void updateMultiple( List<ICacheElement<K, V>> items ) throws IOException;
+
+    /**
+     * Removes the keys from the cache, in order. Remote and lateral caches send them to the other
+     * side together.
+     * <p>
+     * @param keys the keys to remove
+     * @throws IOException if access to the auxiliary cache fails
+     */
+    void removeMultiple( List<K> keys ) throws IOException;
+
     /**
      * Get a set of the keys for all elements in the auxiliary cache.
      * <p>
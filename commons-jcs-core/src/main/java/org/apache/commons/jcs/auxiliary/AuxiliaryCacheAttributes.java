@@ -86,6 +86,32 @@ public interface AuxiliaryCacheAttributes
      */
     String getEventQueuePoolName();
 
+    /**
+     * Runs of puts or removes waiting in the event queue are sent with one call, up to this many.
+     * 1 sends every event on its own.
+     * <p>
+     * @param maxBatchSize the most events sent together
+     */
+    void setEventQueueMaxBatchSize( int maxBatchSize );
+
+    /**
+     * @return the most events sent together
+     */
+    int getEventQueueMaxBatchSize();
+
+    /**
+     * How long the event queue waits for more events to fill a batch. 0, the default, only batches
+     * what is already waiting.
+     * <p>
+     * @param maxBatchDelayMicros microseconds
+     */
+    void setEventQueueMaxBatchDelayMicros( int maxBatchDelayMicros );
+
+    /**
+     * @return microseconds the event queue waits to fill a batch
+     */
+    int getEventQueueMaxBatchDelayMicros();
+
     /**
      * Clones
      * <p>
@@ -40,6 +40,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -329,7 +330,8 @@ public abstract class AbstractDiskCache<K, V>
     }
 
     /**
-     * Gets multiple items from the cache based on the given set of keys.
+     * Gets multiple items from the cache based on the given set of keys. Purgatory is checked for
+     * all the keys under one lock; the rest are read from disk together.
      * <p>
      * @param keys
      * @return a map of K key to ICacheElement<K, V> element, or an empty map if there is no
@@ -340,17 +342,73 @@ public abstract class AbstractDiskCache<K, V>
     {
         Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
 
-        if ( keys != null && !keys.isEmpty() )
+        if ( keys == null || keys.isEmpty() || !alive )
+        {
+            return elements;
+        }
+
+        Set<K> diskKeys = new HashSet<K>();
+        synchronized ( purgatory )
         {
             for (K key : keys)
             {
-                ICacheElement<K, V> element = get( key );
+                PurgatoryElement<K, V> pe = purgatory.get( key );
+                if ( pe != null )
+                {
+                    purgHits++;
+                    elements.put( key, pe.getCacheElement() );
+                }
+                else
+                {
+                    diskKeys.add( key );
+                }
+            }
+        }
 
-                if ( element != null )
+        if ( !diskKeys.isEmpty() )
+        {
+            try
+            {
+                Map<K, ICacheElement<K, V>> fromDisk = processGetMultipleFromDisk( diskKeys );
+                if ( fromDisk != null )
                 {
-                    elements.put( key, element );
+                    elements.putAll( fromDisk );
                 }
             }
+            catch ( Exception e )
+            {
+                log.error( e );
+
+                cacheEventQueue.destroy();
+            }
+        }
+
+        return elements;
+    }
+
+    /**
+     * Reads the items for the keys from the persistent store. None of the keys are in purgatory.
+     * <p>
+     * This calls processGet for each key. Children that can read several items for less than the
+     * cost of as many single reads should override it.
+     * <p>
+     * @param keys
+     * @return a map of K key to ICacheElement<K, V> element for the keys found
+     * @throws IOException
+     */
+    protected Map<K, ICacheElement<K, V>> processGetMultipleFromDisk( Set<K> keys )
+        throws IOException
+    {
+        Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
+
+        for (K key : keys)
+        {
+            ICacheElement<K, V> element = processGet( key );
+
+            if ( element != null )
+            {
+                elements.put( key, element );
+            }
         }
 
         return elements;
@@ -364,6 +422,38 @@ public abstract class AbstractDiskCache<K, V>
     @Override
     public abstract Set<K> getKeySet() throws IOException;
 
+    /**
+     * Each element goes through purgatory like a single update.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    @Override
+    public final void updateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        for ( ICacheElement<K, V> cacheElement : cacheElements )
+        {
+            update( cacheElement );
+        }
+    }
+
+    /**
+     * Each key is removed like a single remove.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    public final void removeMultiple( List<K> keys )
+        throws IOException
+    {
+        for ( K key : keys )
+        {
+            remove( key );
+        }
+    }
+
     /**
      * Removes are not queued. A call to remove is immediate.
      * <p>
@@ -715,6 +805,39 @@ public abstract class AbstractDiskCache<K, V>
             }
         }
 
+        /**
+         * Spools the elements one after the other.
+         * <p>
+         * @param elements
+         * @throws IOException
+         * @see ICacheListener#handlePutMultiple
+         */
+        @Override
+        public void handlePutMultiple( List<ICacheElement<K, V>> elements )
+            throws IOException
+        {
+            for ( ICacheElement<K, V> element : elements )
+            {
+                handlePut( element );
+            }
+        }
+
+        /**
+         * @param cacheName
+         * @param keys
+         * @throws IOException
+         * @see ICacheListener#handleRemoveMultiple
+         */
+        @Override
+        public void handleRemoveMultiple( String cacheName, List<K> keys )
+            throws IOException
+        {
+            for ( K key : keys )
+            {
+                handleRemove( cacheName, key );
+            }
+        }
+
         /**
          * @param cacheName
          * @throws IOException
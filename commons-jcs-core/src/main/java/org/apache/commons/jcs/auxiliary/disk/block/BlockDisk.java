@@ -19,7 +19,6 @@ package org.apache.commons.jcs.auxiliary.disk.block;
  * under the License.
  */
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -27,12 +26,14 @@ import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.BitSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.io.ByteBufferOutputStream;
+import org.apache.commons.jcs.io.ByteBufferPool;
 import org.apache.commons.jcs.utils.serialization.StandardSerializer;
-import org.apache.commons.jcs.utils.struct.SingleLinkedList;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -64,11 +65,14 @@ public class BlockDisk
     private final AtomicInteger numberOfBlocks = new AtomicInteger(0);
 
     /** Empty blocks that can be reused. */
-    private final SingleLinkedList<Integer> emptyBlocks = new SingleLinkedList<Integer>();
+    private final FreeBlockBitmap emptyBlocks = new FreeBlockBitmap();
 
     /** The serializer. */
     private final IElementSerializer elementSerializer;
 
+    /** Buffers for serialized records */
+    private final ByteBufferPool bufferPool = ByteBufferPool.getInstance();
+
     /** Location of the spot on disk */
     private final String filepath;
 
@@ -142,15 +146,15 @@ public class BlockDisk
         assert numBlocksNeeded >= 1;
 
         int[] blocks = new int[numBlocksNeeded];
-        // get them from the empty list or take the next one
+        // get them from the empty set or take the next one
         for (int i = 0; i < numBlocksNeeded; i++)
         {
-            Integer emptyBlock = emptyBlocks.takeFirst();
-            if (emptyBlock == null)
+            int emptyBlock = emptyBlocks.allocate();
+            if (emptyBlock < 0)
             {
-                emptyBlock = Integer.valueOf(numberOfBlocks.getAndIncrement());
+                emptyBlock = numberOfBlocks.getAndIncrement();
             }
-            blocks[i] = emptyBlock.intValue();
+            blocks[i] = emptyBlock;
         }
 
         return blocks;
@@ -176,56 +180,92 @@ public class BlockDisk
     protected int[] write( Serializable object )
         throws IOException
     {
-        // serialize the object
-        byte[] data = elementSerializer.serialize(object);
-
-        if ( log.isDebugEnabled() )
+        // serialize the object behind room for the header of the first block
+        ByteBufferOutputStream out = new ByteBufferOutputStream( bufferPool, blockSizeBytes );
+        try
         {
-            log.debug( "write, total pre-chunking data.length = " + data.length );
-        }
-
-        this.putBytes.addAndGet(data.length);
-        this.putCount.incrementAndGet();
+            out.writeInt( 0 );
+            elementSerializer.serializeTo( object, out );
+            int dataLength = out.size() - HEADER_SIZE_BYTES;
 
-        // figure out how many blocks we need.
-        int numBlocksNeeded = calculateTheNumberOfBlocksNeeded(data);
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "write, total pre-chunking data.length = " + dataLength );
+            }
 
-        if ( log.isDebugEnabled() )
-        {
-            log.debug( "numBlocksNeeded = " + numBlocksNeeded );
-        }
+            this.putBytes.addAndGet(dataLength);
+            this.putCount.incrementAndGet();
 
-        // allocate blocks
-        int[] blocks = allocateBlocks(numBlocksNeeded);
+            // figure out how many blocks we need.
+            int numBlocksNeeded = calculateTheNumberOfBlocksNeeded(dataLength);
 
-        int offset = 0;
-        final int maxChunkSize = blockSizeBytes - HEADER_SIZE_BYTES;
-        ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE_BYTES);
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "numBlocksNeeded = " + numBlocksNeeded );
+            }
 
-        for (int i = 0; i < numBlocksNeeded; i++)
-        {
-            headerBuffer.clear();
-            int length = Math.min(maxChunkSize, data.length - offset);
-            headerBuffer.putInt(length);
+            // allocate blocks
+            int[] blocks = allocateBlocks(numBlocksNeeded);
 
-            ByteBuffer dataBuffer = ByteBuffer.wrap(data, offset, length);
+            if ( numBlocksNeeded == 1 )
+            {
+                // header and data are already in place
+                out.putInt( 0, dataLength );
+                writeFully( out.getByteBuffer(), calculateByteOffsetForBlock( blocks[0] ) );
+                return blocks;
+            }
 
-            long position = calculateByteOffsetForBlock(blocks[i]);
-            // write the header
-            headerBuffer.flip();
-            int written = fc.write(headerBuffer, position);
-            assert written == HEADER_SIZE_BYTES;
+            ByteBuffer data = out.getByteBuffer();
+            data.position( HEADER_SIZE_BYTES );
+            final int end = data.limit();
+            final int maxChunkSize = blockSizeBytes - HEADER_SIZE_BYTES;
+            ByteBuffer blockBuffer = bufferPool.acquire( blockSizeBytes );
+            try
+            {
+                for (int i = 0; i < numBlocksNeeded; i++)
+                {
+                    int length = Math.min(maxChunkSize, data.remaining());
+                    blockBuffer.clear();
+                    blockBuffer.putInt(length);
+                    data.limit( data.position() + length );
+                    blockBuffer.put( data );
+                    blockBuffer.flip();
+
+                    writeFully( blockBuffer, calculateByteOffsetForBlock( blocks[i] ) );
+
+                    data.limit( end );
+                }
+            }
+            finally
+            {
+                bufferPool.release( blockBuffer );
+            }
 
-            //write the data
-            written = fc.write(dataBuffer, position + HEADER_SIZE_BYTES);
-            assert written == length;
+            //fc.force(false);
 
-            offset += length;
+            return blocks;
         }
+        finally
+        {
+            out.release();
+        }
+    }
 
-        //fc.force(false);
-
-        return blocks;
+    /**
+     * Writes all remaining bytes of the buffer.
+     * <p>
+     * @param buffer
+     * @param position the file position
+     * @throws IOException
+     */
+    private void writeFully( ByteBuffer buffer, long position )
+        throws IOException
+    {
+        long pos = position;
+        while ( buffer.hasRemaining() )
+        {
+            pos += fc.write( buffer, pos );
+        }
     }
 
     /**
@@ -276,45 +316,40 @@ public class BlockDisk
     protected <T extends Serializable> T read( int[] blockNumbers )
         throws IOException, ClassNotFoundException
     {
-        byte[] data = null;
-
-        if ( blockNumbers.length == 1 )
-        {
-            data = readBlock( blockNumbers[0] );
-        }
-        else
+        ByteBuffer data = bufferPool.acquire( blockNumbers.length * ( blockSizeBytes - HEADER_SIZE_BYTES ) );
+        try
         {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream(getBlockSizeBytes());
             // get all the blocks into data
             for ( short i = 0; i < blockNumbers.length; i++ )
             {
-                byte[] chunk = readBlock( blockNumbers[i] );
-                baos.write(chunk);
+                readBlock( blockNumbers[i], data );
             }
+            data.flip();
 
-            data = baos.toByteArray();
-            baos.close();
-        }
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "read, total post combination data.length = " + data.remaining() );
+            }
 
-        if ( log.isDebugEnabled() )
+            return elementSerializer.deSerializeFrom( data, null );
+        }
+        finally
         {
-            log.debug( "read, total post combination data.length = " + data.length );
+            bufferPool.release( data );
         }
-
-        return elementSerializer.deSerialize( data, null );
     }
 
     /**
-     * This reads the occupied data in a block.
+     * This reads the occupied data in a block and appends it to the buffer.
      * <p>
-     * The first four bytes of the record should tell us how long it is. The data is read into a
-     * byte array and then an object is constructed from the byte array.
+     * The first four bytes of the record should tell us how long it is. The header is read into
+     * the free space of the buffer and then overwritten by the data.
      * <p>
-     * @return byte[]
      * @param block
+     * @param data receives the data, must have room for a full block
      * @throws IOException
      */
-    private byte[] readBlock( int block )
+    private void readBlock( int block, ByteBuffer data )
         throws IOException
     {
         int datalen = 0;
@@ -324,22 +359,20 @@ public class BlockDisk
         long fileLength = fc.size();
 
         int position = calculateByteOffsetForBlock( block );
-//        if ( position > fileLength )
-//        {
-//            corrupted = true;
-//            message = "Record " + position + " starts past EOF.";
-//        }
-//        else
+        int start = data.position();
+        data.limit( start + HEADER_SIZE_BYTES );
+        readFully( data, position );
+        datalen = data.getInt( start );
+        data.position( start );
+        if ( datalen < 0 || datalen > blockSizeBytes - HEADER_SIZE_BYTES )
         {
-            ByteBuffer datalength = ByteBuffer.allocate(HEADER_SIZE_BYTES);
-            fc.read(datalength, position);
-            datalength.flip();
-            datalen = datalength.getInt();
-            if ( position + datalen > fileLength )
-            {
-                corrupted = true;
-                message = "Record " + position + " exceeds file length.";
-            }
+            corrupted = true;
+            message = "Record " + position + " has an invalid length " + datalen + ".";
+        }
+        else if ( position + datalen > fileLength )
+        {
+            corrupted = true;
+            message = "Record " + position + " exceeds file length.";
         }
 
         if ( corrupted )
@@ -348,15 +381,35 @@ public class BlockDisk
             throw new IOException( "The File Is Corrupt, need to reset" );
         }
 
-        ByteBuffer data = ByteBuffer.allocate(datalen);
-        fc.read(data, position + HEADER_SIZE_BYTES);
-        data.flip();
+        data.limit( start + datalen );
+        readFully( data, position + HEADER_SIZE_BYTES );
+        data.limit( data.capacity() );
+    }
 
-        return data.array();
+    /**
+     * Fills the remaining space of the buffer from the file.
+     * <p>
+     * @param buffer
+     * @param position the file position
+     * @throws IOException
+     */
+    private void readFully( ByteBuffer buffer, long position )
+        throws IOException
+    {
+        long pos = position;
+        while ( buffer.hasRemaining() )
+        {
+            int read = fc.read( buffer, pos );
+            if ( read < 0 )
+            {
+                throw new IOException( "The File Is Corrupt, need to reset" );
+            }
+            pos += read;
+        }
     }
 
     /**
-     * Add these blocks to the emptyBlock list.
+     * Add these blocks to the emptyBlock set. Safe to call concurrently with writes.
      * <p>
      * @param blocksToFree
      */
@@ -364,11 +417,45 @@ public class BlockDisk
     {
         if ( blocksToFree != null )
         {
-            for ( short i = 0; i < blocksToFree.length; i++ )
+            for ( int i = 0; i < blocksToFree.length; i++ )
+            {
+                if ( !emptyBlocks.free( blocksToFree[i] ) )
+                {
+                    log.warn( "Block " + blocksToFree[i] + " of [" + filepath + "] was freed twice" );
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the allocation state after the keys were loaded from disk. New blocks are taken
+     * after the highest block in use, and the unused blocks below it are free.
+     * <p>
+     * @param usedBlocks the blocks of all loaded keys
+     */
+    protected void initFreeBlocks( Iterable<int[]> usedBlocks )
+    {
+        BitSet used = new BitSet();
+        for ( int[] blocks : usedBlocks )
+        {
+            for ( int i = 0; i < blocks.length; i++ )
             {
-                emptyBlocks.addLast( Integer.valueOf( blocksToFree[i] ) );
+                used.set( blocks[i] );
             }
         }
+
+        emptyBlocks.clear();
+        int length = used.length();
+        for ( int block = used.nextClearBit( 0 ); block < length; block = used.nextClearBit( block + 1 ) )
+        {
+            emptyBlocks.free( block );
+        }
+        numberOfBlocks.set( length );
+
+        if ( log.isInfoEnabled() )
+        {
+            log.info( "Loaded " + used.cardinality() + " used blocks, " + emptyBlocks.size() + " empty blocks" );
+        }
     }
 
     /**
@@ -390,8 +477,17 @@ public class BlockDisk
      */
     protected int calculateTheNumberOfBlocksNeeded( byte[] data )
     {
-        int dataLength = data.length;
+        return calculateTheNumberOfBlocksNeeded( data.length );
+    }
 
+    /**
+     * The number of blocks needed.
+     * <p>
+     * @param dataLength
+     * @return the number of blocks needed to store that many bytes
+     */
+    protected int calculateTheNumberOfBlocksNeeded( int dataLength )
+    {
         int oneBlock = blockSizeBytes - HEADER_SIZE_BYTES;
 
         // takes care of 0 = HEADER_SIZE_BYTES + blockSizeBytes
@@ -31,6 +31,7 @@ import org.apache.commons.jcs.engine.stats.StatElement;
 import org.apache.commons.jcs.engine.stats.Stats;
 import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
 import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.struct.StripedLock;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -38,13 +39,17 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -77,12 +82,18 @@ public class BlockDiskCache<K, V>
     /** Store, loads, and persists the keys */
     private BlockDiskKeyStore<K> keyStore;
 
+    /** How often a get reads again after the blocks of the key were reused while reading. */
+    private static final int MAX_READ_ATTEMPTS = 3;
+
     /**
-     * Use this lock to synchronize reads and writes to the underlying storage mechanism. We don't
-     * need a reentrant lock, since we only lock one level.
+     * Element operations hold the read lock, so they run concurrently. Operations on the whole
+     * store, like reset and dispose, hold the write lock.
      */
     private final ReentrantReadWriteLock storageLock = new ReentrantReadWriteLock();
 
+    /** Orders updates and removes of the same key. */
+    private final StripedLock elementLocks = new StripedLock();
+
     /**
      * Constructs the BlockDisk after setting up the root directory.
      * <p>
@@ -141,6 +152,15 @@ public class BlockDiskCache<K, V>
             {
                 this.reset();
             }
+            else
+            {
+                List<int[]> usedBlocks = new ArrayList<int[]>( keyStore.size() );
+                for ( Map.Entry<K, int[]> entry : keyStore.entrySet() )
+                {
+                    usedBlocks.add( entry.getValue() );
+                }
+                this.dataFile.initFreeBlocks( usedBlocks );
+            }
 
             // Initialization finished successfully, so set alive to true.
             alive = true;
@@ -303,8 +323,11 @@ public class BlockDiskCache<K, V>
      * <ol>
      * <li>Make sure the disk cache is alive.</li> <li>Get a read lock.</li> <li>See if the key is
      * in the key store.</li> <li>If we found a key, ask the BlockDisk for the object at the
-     * blocks..</li> <li>Release the lock.</li>
+     * blocks..</li> <li>Check that the key still maps to the same blocks, otherwise they may have
+     * been reused while reading and we read again.</li> <li>Release the lock.</li>
      * </ol>
+     * Blocks are only freed after the key no longer maps to them, so an unchanged mapping after
+     * the read means the data read was intact.
      * (non-Javadoc)
      * @param key
      * @return ICacheElement
@@ -334,11 +357,7 @@ public class BlockDiskCache<K, V>
         {
             storageLock.readLock().lock();
             try {
-                int[] ded = this.keyStore.get( key );
-                if ( ded != null )
-                {
-                    object = this.dataFile.read( ded );
-                }
+                object = readElement( key );
             } finally {
                 storageLock.readLock().unlock();
             }
@@ -356,14 +375,139 @@ public class BlockDiskCache<K, V>
         return object;
     }
 
+    /**
+     * Reads the element for the key, reading again if the blocks were reused while reading. The
+     * caller holds the read lock.
+     * <p>
+     * @param key
+     * @return ICacheElement or null
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private ICacheElement<K, V> readElement( K key )
+        throws IOException, ClassNotFoundException
+    {
+        ICacheElement<K, V> object = null;
+
+        for ( int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++ )
+        {
+            int[] ded = this.keyStore.get( key );
+            if ( ded == null )
+            {
+                break;
+            }
+
+            try
+            {
+                object = this.dataFile.read( ded );
+            }
+            catch ( IOException e )
+            {
+                if ( this.keyStore.getQuiet( key ) == ded )
+                {
+                    throw e;
+                }
+            }
+            catch ( ClassNotFoundException e )
+            {
+                if ( this.keyStore.getQuiet( key ) == ded )
+                {
+                    throw e;
+                }
+            }
+
+            if ( this.keyStore.getQuiet( key ) == ded )
+            {
+                break;
+            }
+            // the key was updated or removed while reading
+            object = null;
+        }
+
+        return object;
+    }
+
+    /**
+     * Reads the elements for the keys under a single read lock, in the order of their first block
+     * so that the reads move forward through the file.
+     * <p>
+     * @param keys
+     * @return a map of K key to ICacheElement<K, V> element for the keys found
+     * @see AbstractDiskCache#processGetMultipleFromDisk
+     */
+    @Override
+    protected Map<K, ICacheElement<K, V>> processGetMultipleFromDisk( Set<K> keys )
+    {
+        Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
+
+        if ( !alive )
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( logCacheName + "No longer alive so returning nothing for keys = " + keys );
+            }
+            return elements;
+        }
+
+        try
+        {
+            storageLock.readLock().lock();
+            try
+            {
+                List<K> sortedKeys = new ArrayList<K>( keys.size() );
+                final Map<K, Integer> firstBlocks = new HashMap<K, Integer>();
+                for (K key : keys)
+                {
+                    int[] ded = this.keyStore.getQuiet( key );
+                    if ( ded != null && ded.length > 0 )
+                    {
+                        sortedKeys.add( key );
+                        firstBlocks.put( key, Integer.valueOf( ded[0] ) );
+                    }
+                }
+                Collections.sort( sortedKeys, new Comparator<K>()
+                {
+                    @Override
+                    public int compare( K k1, K k2 )
+                    {
+                        return firstBlocks.get( k1 ).compareTo( firstBlocks.get( k2 ) );
+                    }
+                } );
+
+                for (K key : sortedKeys)
+                {
+                    ICacheElement<K, V> element = readElement( key );
+                    if ( element != null )
+                    {
+                        elements.put( key, element );
+                    }
+                }
+            }
+            finally
+            {
+                storageLock.readLock().unlock();
+            }
+        }
+        catch ( IOException ioe )
+        {
+            log.error( logCacheName + "Failure getting from disk--IOException, keys = " + keys, ioe );
+            reset();
+        }
+        catch ( Exception e )
+        {
+            log.error( logCacheName + "Failure getting from disk, keys = " + keys, e );
+        }
+        return elements;
+    }
+
     /**
      * Writes an element to disk. The program flow is as follows:
      * <ol>
-     * <li>Acquire write lock.</li> <li>See id an item exists for this key.</li> <li>If an item
-     * already exists, add its blocks to the remove list.</li> <li>Have the Block disk write the
-     * item.</li> <li>Create a descriptor and add it to the key map.</li> <li>Release the write
-     * lock.</li>
+     * <li>Acquire the read lock and the lock of the key.</li> <li>Have the Block disk write the
+     * item.</li> <li>Put the blocks in the key map.</li> <li>If an item already existed, add its
+     * blocks to the free set.</li> <li>Release the locks.</li>
      * </ol>
+     * Writers of different keys only share the read lock.
      * @param element
      * @see org.apache.commons.jcs.auxiliary.disk.AbstractDiskCache#doUpdate(org.apache.commons.jcs.engine.behavior.ICacheElement)
      */
@@ -381,22 +525,22 @@ public class BlockDiskCache<K, V>
 
         int[] old = null;
 
-        // make sure this only locks for one particular cache region
-        storageLock.writeLock().lock();
+        Lock elementLock = elementLocks.getLock( element.getKey() );
+        storageLock.readLock().lock();
+        elementLock.lock();
 
         try
         {
-            old = this.keyStore.get( element.getKey() );
+            int[] blocks = this.dataFile.write( element );
+
+            old = this.keyStore.put( element.getKey(), blocks );
 
+            // free only now, readers of the old blocks check the key map after reading
             if ( old != null )
             {
                 this.dataFile.freeBlocks( old );
             }
 
-            int[] blocks = this.dataFile.write( element );
-
-            this.keyStore.put( element.getKey(), blocks );
-
             if ( log.isDebugEnabled() )
             {
                 log.debug( logCacheName + "Put to file [" + fileName + "] key [" + element.getKey() + "]" );
@@ -408,7 +552,8 @@ public class BlockDiskCache<K, V>
         }
         finally
         {
-            storageLock.writeLock().unlock();
+            elementLock.unlock();
+            storageLock.readLock().unlock();
         }
 
         if ( log.isDebugEnabled() )
@@ -441,26 +586,18 @@ public class BlockDiskCache<K, V>
         boolean reset = false;
         boolean removed = false;
 
-        storageLock.writeLock().lock();
+        storageLock.readLock().lock();
 
         try
         {
             if ( key instanceof String && key.toString().endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
             {
                 // remove all keys of the same name group.
-                Iterator<Map.Entry<K, int[]>> iter = this.keyStore.entrySet().iterator();
-
-                while ( iter.hasNext() )
+                for ( K k : new HashSet<K>( this.keyStore.keySet() ) )
                 {
-                    Map.Entry<K, int[]> entry = iter.next();
-                    K k = entry.getKey();
-
                     if ( k instanceof String && k.toString().startsWith( key.toString() ) )
                     {
-                        int[] ded = this.keyStore.get( key );
-                        this.dataFile.freeBlocks( ded );
-                        iter.remove();
-                        removed = true;
+                        removed |= removeKey( k );
                         // TODO this needs to update the remove count separately
                     }
                 }
@@ -468,31 +605,19 @@ public class BlockDiskCache<K, V>
             else if ( key instanceof GroupAttrName && ((GroupAttrName<?>)key).attrName == null )
             {
                 // remove all keys of the same name hierarchy.
-                Iterator<Map.Entry<K, int[]>> iter = this.keyStore.entrySet().iterator();
-                while ( iter.hasNext() )
+                for ( K k : new HashSet<K>( this.keyStore.keySet() ) )
                 {
-                    Map.Entry<K, int[]> entry = iter.next();
-                    K k = entry.getKey();
-
                     if ( k instanceof GroupAttrName &&
                         ((GroupAttrName<?>)k).groupId.equals(((GroupAttrName<?>)key).groupId))
                     {
-                        int[] ded = this.keyStore.get( key );
-                        this.dataFile.freeBlocks( ded );
-                        iter.remove();
-                        removed = true;
+                        removed |= removeKey( k );
                     }
                 }
             }
             else
             {
                 // remove single item.
-                int[] ded = this.keyStore.remove( key );
-                removed = ded != null;
-                if ( removed )
-                {
-                    this.dataFile.freeBlocks( ded );
-                }
+                removed = removeKey( key );
 
                 if ( log.isDebugEnabled() )
                 {
@@ -508,7 +633,7 @@ public class BlockDiskCache<K, V>
         }
         finally
         {
-            storageLock.writeLock().unlock();
+            storageLock.readLock().unlock();
         }
 
         if ( reset )
@@ -519,6 +644,33 @@ public class BlockDiskCache<K, V>
         return removed;
     }
 
+    /**
+     * Removes the key from the key store and frees its blocks, holding the lock of the key. The
+     * caller holds the read lock.
+     * <p>
+     * @param key
+     * @return true if the key was present
+     */
+    private boolean removeKey( K key )
+    {
+        Lock elementLock = elementLocks.getLock( key );
+        elementLock.lock();
+        try
+        {
+            int[] ded = this.keyStore.remove( key );
+            if ( ded != null )
+            {
+                this.dataFile.freeBlocks( ded );
+                return true;
+            }
+            return false;
+        }
+        finally
+        {
+            elementLock.unlock();
+        }
+    }
+
     /**
      * Resets the keyfile, the disk file, and the memory key map.
      * <p>
@@ -0,0 +1,672 @@
+package org.apache.commons.jcs.auxiliary.disk.block;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.jcs.auxiliary.disk.behavior.IDiskCacheAttributes.DiskLimitType;
+
+/**
+ * The key to blocks index of the block disk cache. It is an open addressed hash table with linear
+ * probing, held in a few parallel arrays, so there is no entry object per key. A bounded index also
+ * keeps its least recently used order as a doubly linked list of slot numbers in two int arrays.
+ * <p>
+ * Removal shifts the following entries of the probe run back, so the table never fills up with
+ * tombstones. Eviction callbacks are made after the lock is released.
+ */
+class BlockDiskKeyIndex<K>
+{
+    /** Marks the end of the recency list. */
+    private static final int NONE = -1;
+
+    /** The smallest table. */
+    private static final int MIN_CAPACITY = 16;
+
+    /** The largest table. */
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    /** The keys, null for empty slots. */
+    private Object[] keys;
+
+    /** The blocks of the key in the same slot. */
+    private int[][] values;
+
+    /** The spread hash of the key in the same slot. */
+    private int[] hashes;
+
+    /** The next more recently used slot, only for a bounded index. */
+    private int[] newer;
+
+    /** The next less recently used slot, only for a bounded index. */
+    private int[] older;
+
+    /** The most recently used slot. */
+    private int head = NONE;
+
+    /** The least recently used slot. */
+    private int tail = NONE;
+
+    /** The number of keys. */
+    private int size;
+
+    /** Sum of the content sizes in kB, as the old size limited map kept it. */
+    private long contentSize;
+
+    /** The limit, less than one for none. */
+    private final int maxKeySize;
+
+    /** Whether the limit is on the key count or on the content size in kB. */
+    private final DiskLimitType diskLimitType;
+
+    /** Used to compute the content size. */
+    private final int blockSize;
+
+    /** Guards the arrays. */
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * @param maxKeySize the limit, less than one for an unbounded index
+     * @param diskLimitType what the limit applies to
+     * @param blockSize the size of a block in bytes
+     */
+    BlockDiskKeyIndex( int maxKeySize, DiskLimitType diskLimitType, int blockSize )
+    {
+        this.maxKeySize = maxKeySize;
+        this.diskLimitType = diskLimitType;
+        this.blockSize = blockSize;
+        allocate( MIN_CAPACITY );
+    }
+
+    /**
+     * Gets the blocks for the key and marks it as the most recently used.
+     * <p>
+     * @param key
+     * @return the blocks, or null
+     */
+    int[] get( Object key )
+    {
+        int hash = spread( key.hashCode() );
+        lock.lock();
+        try
+        {
+            int slot = find( key, hash );
+            if ( slot < 0 )
+            {
+                return null;
+            }
+            moveToHead( slot );
+            return values[slot];
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the blocks for the key without touching the recency order.
+     * <p>
+     * @param key
+     * @return the blocks, or null
+     */
+    int[] getQuiet( Object key )
+    {
+        int hash = spread( key.hashCode() );
+        lock.lock();
+        try
+        {
+            int slot = find( key, hash );
+            return slot < 0 ? null : values[slot];
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores the blocks for the key and evicts least recently used keys while over the limit.
+     * <p>
+     * @param key
+     * @param blocks
+     * @return the blocks previously stored for the key, or null
+     */
+    int[] put( K key, int[] blocks )
+    {
+        int hash = spread( key.hashCode() );
+        int[] old = null;
+        List<Object> evicted = null;
+
+        lock.lock();
+        try
+        {
+            int slot = find( key, hash );
+            if ( slot >= 0 )
+            {
+                old = values[slot];
+                values[slot] = blocks;
+                contentSize += weigh( blocks ) - weigh( old );
+                moveToHead( slot );
+            }
+            else
+            {
+                if ( size + 1 > threshold() )
+                {
+                    resize( keys.length * 2 );
+                    slot = find( key, hash );
+                }
+                slot = -slot - 1;
+                keys[slot] = key;
+                values[slot] = blocks;
+                hashes[slot] = hash;
+                size++;
+                contentSize += weigh( blocks );
+                if ( newer != null )
+                {
+                    linkAtHead( slot );
+                }
+            }
+
+            while ( shouldEvict() )
+            {
+                if ( evicted == null )
+                {
+                    evicted = new ArrayList<Object>( 2 );
+                }
+                evicted.add( keys[tail] );
+                evicted.add( values[tail] );
+                removeSlot( tail );
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        if ( evicted != null )
+        {
+            for ( int i = 0; i < evicted.size(); i += 2 )
+            {
+                @SuppressWarnings("unchecked") // only keys of type K are stored
+                K evictedKey = (K) evicted.get( i );
+                processRemovedLRU( evictedKey, (int[]) evicted.get( i + 1 ) );
+            }
+        }
+        return old;
+    }
+
+    /**
+     * Removes the key.
+     * <p>
+     * @param key
+     * @return the blocks that were stored for the key, or null
+     */
+    int[] remove( Object key )
+    {
+        int hash = spread( key.hashCode() );
+        lock.lock();
+        try
+        {
+            int slot = find( key, hash );
+            if ( slot < 0 )
+            {
+                return null;
+            }
+            int[] old = values[slot];
+            removeSlot( slot );
+            return old;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of keys
+     */
+    int size()
+    {
+        lock.lock();
+        try
+        {
+            return size;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all keys and shrinks the table. No callbacks are made.
+     */
+    void clear()
+    {
+        lock.lock();
+        try
+        {
+            allocate( MIN_CAPACITY );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies the keys and blocks into two dense arrays. A bounded index lists them from the least
+     * to the most recently used, so putting them back in that order restores the recency order.
+     * <p>
+     * @return the copy
+     */
+    Snapshot<K> snapshot()
+    {
+        lock.lock();
+        try
+        {
+            Object[] keyCopy = new Object[size];
+            int[][] valueCopy = new int[size][];
+            int n = 0;
+            if ( newer != null )
+            {
+                for ( int slot = tail; slot != NONE; slot = newer[slot] )
+                {
+                    keyCopy[n] = keys[slot];
+                    valueCopy[n++] = values[slot];
+                }
+            }
+            else
+            {
+                for ( int slot = 0; slot < keys.length; slot++ )
+                {
+                    if ( keys[slot] != null )
+                    {
+                        keyCopy[n] = keys[slot];
+                        valueCopy[n++] = values[slot];
+                    }
+                }
+            }
+            return new Snapshot<K>( keyCopy, valueCopy );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called after a key was evicted to make room. Does nothing by default.
+     * <p>
+     * @param key
+     * @param blocks
+     */
+    protected void processRemovedLRU( K key, int[] blocks )
+    {
+        // nothing by default
+    }
+
+    /**
+     * @return true if the index is over its limit
+     */
+    private boolean shouldEvict()
+    {
+        if ( maxKeySize <= 0 || size == 0 )
+        {
+            return false;
+        }
+        if ( diskLimitType == DiskLimitType.SIZE )
+        {
+            return contentSize > maxKeySize && size > 1;
+        }
+        return size > maxKeySize;
+    }
+
+    /**
+     * @param blocks
+     * @return the content size in kB
+     */
+    private long weigh( int[] blocks )
+    {
+        return blocks == null ? 0 : (long) Math.ceil( blocks.length * (double) blockSize / 1024.0 );
+    }
+
+    /**
+     * @return the size at which the table grows
+     */
+    private int threshold()
+    {
+        return keys.length == MAX_CAPACITY ? Integer.MAX_VALUE : keys.length - ( keys.length >>> 2 );
+    }
+
+    /**
+     * Finds the slot of the key.
+     * <p>
+     * @param key
+     * @param hash
+     * @return the slot, or minus one minus the empty slot where the key would go
+     */
+    private int find( Object key, int hash )
+    {
+        int mask = keys.length - 1;
+        int slot = hash & mask;
+        while ( true )
+        {
+            Object k = keys[slot];
+            if ( k == null )
+            {
+                return -slot - 1;
+            }
+            if ( hashes[slot] == hash && ( k == key || k.equals( key ) ) )
+            {
+                return slot;
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+    }
+
+    /**
+     * Empties the slot and moves later entries of the probe run back into the gap.
+     * <p>
+     * @param slot
+     */
+    private void removeSlot( int slot )
+    {
+        if ( newer != null )
+        {
+            unlink( slot );
+        }
+        contentSize -= weigh( values[slot] );
+        size--;
+        clearSlot( slot );
+
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = ( gap + 1 ) & mask;
+        while ( keys[next] != null )
+        {
+            int home = hashes[next] & mask;
+            // the entry may move back unless its home lies cyclically within (gap, next]
+            boolean stays = gap <= next ? ( gap < home && home <= next ) : ( gap < home || home <= next );
+            if ( !stays )
+            {
+                moveSlot( next, gap );
+                gap = next;
+            }
+            next = ( next + 1 ) & mask;
+        }
+    }
+
+    /**
+     * Moves an entry to an empty slot, fixing its neighbours in the recency list.
+     * <p>
+     * @param from
+     * @param to
+     */
+    private void moveSlot( int from, int to )
+    {
+        keys[to] = keys[from];
+        values[to] = values[from];
+        hashes[to] = hashes[from];
+        if ( newer != null )
+        {
+            int n = newer[from];
+            int o = older[from];
+            newer[to] = n;
+            older[to] = o;
+            if ( n == NONE )
+            {
+                head = to;
+            }
+            else
+            {
+                older[n] = to;
+            }
+            if ( o == NONE )
+            {
+                tail = to;
+            }
+            else
+            {
+                newer[o] = to;
+            }
+        }
+        clearSlot( from );
+    }
+
+    /**
+     * @param slot
+     */
+    private void clearSlot( int slot )
+    {
+        keys[slot] = null;
+        values[slot] = null;
+        hashes[slot] = 0;
+    }
+
+    /**
+     * @param slot
+     */
+    private void moveToHead( int slot )
+    {
+        if ( newer != null && slot != head )
+        {
+            unlink( slot );
+            linkAtHead( slot );
+        }
+    }
+
+    /**
+     * @param slot
+     */
+    private void linkAtHead( int slot )
+    {
+        newer[slot] = NONE;
+        older[slot] = head;
+        if ( head == NONE )
+        {
+            tail = slot;
+        }
+        else
+        {
+            newer[head] = slot;
+        }
+        head = slot;
+    }
+
+    /**
+     * @param slot
+     */
+    private void unlink( int slot )
+    {
+        int n = newer[slot];
+        int o = older[slot];
+        if ( n == NONE )
+        {
+            head = o;
+        }
+        else
+        {
+            older[n] = o;
+        }
+        if ( o == NONE )
+        {
+            tail = n;
+        }
+        else
+        {
+            newer[o] = n;
+        }
+    }
+
+    /**
+     * Creates empty arrays of the given capacity.
+     * <p>
+     * @param capacity a power of two
+     */
+    private void allocate( int capacity )
+    {
+        keys = new Object[capacity];
+        values = new int[capacity][];
+        hashes = new int[capacity];
+        if ( maxKeySize > 0 )
+        {
+            newer = new int[capacity];
+            older = new int[capacity];
+        }
+        head = NONE;
+        tail = NONE;
+        size = 0;
+        contentSize = 0;
+    }
+
+    /**
+     * Rehashes into a larger table, keeping the recency order.
+     * <p>
+     * @param capacity a power of two
+     */
+    private void resize( int capacity )
+    {
+        if ( capacity > MAX_CAPACITY )
+        {
+            throw new IllegalStateException( "Key index is full." );
+        }
+
+        Object[] oldKeys = keys;
+        int[][] oldValues = values;
+        int[] oldHashes = hashes;
+        int[] oldNewer = newer;
+        int oldTail = tail;
+        long oldContentSize = contentSize;
+        int oldSize = size;
+
+        allocate( capacity );
+
+        if ( oldNewer != null )
+        {
+            for ( int slot = oldTail; slot != NONE; slot = oldNewer[slot] )
+            {
+                insertFresh( oldKeys[slot], oldValues[slot], oldHashes[slot] );
+            }
+        }
+        else
+        {
+            for ( int slot = 0; slot < oldKeys.length; slot++ )
+            {
+                if ( oldKeys[slot] != null )
+                {
+                    insertFresh( oldKeys[slot], oldValues[slot], oldHashes[slot] );
+                }
+            }
+        }
+        size = oldSize;
+        contentSize = oldContentSize;
+    }
+
+    /**
+     * Inserts a key known to be absent, used while rehashing.
+     * <p>
+     * @param key
+     * @param blocks
+     * @param hash
+     */
+    private void insertFresh( Object key, int[] blocks, int hash )
+    {
+        int mask = keys.length - 1;
+        int slot = hash & mask;
+        while ( keys[slot] != null )
+        {
+            slot = ( slot + 1 ) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = blocks;
+        hashes[slot] = hash;
+        if ( newer != null )
+        {
+            linkAtHead( slot );
+        }
+    }
+
+    /**
+     * Scrambles the hash code, the table uses the low bits.
+     * <p>
+     * @param h
+     * @return the spread hash
+     */
+    private static int spread( int h )
+    {
+        h ^= ( h >>> 16 );
+        h *= 0x85ebca6b;
+        h ^= ( h >>> 13 );
+        return h;
+    }
+
+    /**
+     * A dense copy of the index.
+     */
+    static final class Snapshot<K>
+    {
+        /** The keys. */
+        private final Object[] keys;
+
+        /** The blocks of the key at the same position. */
+        private final int[][] values;
+
+        /**
+         * @param keys
+         * @param values
+         */
+        Snapshot( Object[] keys, int[][] values )
+        {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        /**
+         * @return the number of keys
+         */
+        int size()
+        {
+            return keys.length;
+        }
+
+        /**
+         * @param i
+         * @return the key at the position
+         */
+        @SuppressWarnings("unchecked") // only keys of type K are stored
+        K getKey( int i )
+        {
+            return (K) keys[i];
+        }
+
+        /**
+         * @param i
+         * @return the blocks at the position
+         */
+        int[] getBlocks( int i )
+        {
+            return values[i];
+        }
+    }
+}
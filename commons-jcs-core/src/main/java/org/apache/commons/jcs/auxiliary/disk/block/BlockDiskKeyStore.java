@@ -19,33 +19,41 @@ package org.apache.commons.jcs.auxiliary.disk.block;
  * under the License.
  */
 
-import org.apache.commons.jcs.auxiliary.disk.LRUMapJCS;
 import org.apache.commons.jcs.auxiliary.disk.behavior.IDiskCacheAttributes.DiskLimitType;
-import org.apache.commons.jcs.auxiliary.disk.indexed.IndexedDiskElementDescriptor;
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs.io.ObjectInputStreamClassLoaderAware;
-import org.apache.commons.jcs.utils.struct.AbstractLRUMap;
-import org.apache.commons.jcs.utils.struct.LRUMap;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
 import org.apache.commons.jcs.utils.timing.ElapsedTimer;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.HashMap;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This is responsible for storing the keys.
  * <p>
+ * The keys are held in a {@link BlockDiskKeyIndex}, which needs no object per key beyond the key
+ * itself and its block array. The key file is binary: a header followed by one record per key
+ * holding the key and its block numbers, written and read sequentially through a file channel.
+ * String keys are stored as UTF-8, other keys are serialized. Key files in the old object stream
+ * format are still read, and are replaced on the next save.
+ * <p>
  * @author Aaron Smuts
  */
 public class BlockDiskKeyStore<K>
@@ -53,11 +61,32 @@ public class BlockDiskKeyStore<K>
     /** The logger */
     private static final Log log = LogFactory.getLog( BlockDiskKeyStore.class );
 
+    /** Starts a binary key file. */
+    private static final int MAGIC = 0x4A43534B;
+
+    /** The version of the binary key file. */
+    private static final int VERSION = 1;
+
+    /** Record type for a String key. */
+    private static final byte STRING_KEY = 0;
+
+    /** Record type for a serialized key. */
+    private static final byte SERIALIZED_KEY = 1;
+
+    /** Record type of the trailer, followed by the record count. */
+    private static final byte END = -1;
+
+    /** Size of the read and write buffers. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** For String keys */
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
     /** Attributes governing the behavior of the block disk cache. */
     private final BlockDiskCacheAttributes blockDiskCacheAttributes;
 
     /** The key to block map */
-    private Map<K, int[]> keyHash;
+    private BlockDiskKeyIndex<K> keyHash;
 
     /** The file where we persist the keys */
     private final File keyFile;
@@ -78,6 +107,15 @@ public class BlockDiskKeyStore<K>
 
     private int blockSize;
 
+    /** Serializes keys that are not Strings. Independent of the cache's serializer on purpose. */
+    private final IElementSerializer keySerializer = new StandardSerializer();
+
+    /** Counts changes to the keys. */
+    private final AtomicLong modifications = new AtomicLong();
+
+    /** The value of modifications when the key file was last written or read. */
+    private volatile long savedModifications = -1;
+
     /**
      * Set the configuration options.
      * <p>
@@ -121,57 +159,151 @@ public class BlockDiskKeyStore<K>
     }
 
     /**
-     * Saves key file to disk. This gets the LRUMap entry set and write the entries out one by one
-     * after putting them in a wrapper.
+     * Saves key file to disk. The keys are copied out of the index and streamed to a temporary
+     * file, which then replaces the key file. Nothing is written if the keys have not changed since
+     * the last save or load.
      */
     protected void saveKeys()
     {
-        try
+        synchronized (keyFile)
         {
-            ElapsedTimer timer = new ElapsedTimer();
-            int numKeys = keyHash.size();
-            if ( log.isInfoEnabled() )
+            long modificationsAtStart = modifications.get();
+            if ( modificationsAtStart == savedModifications && keyFile.exists() )
             {
-                log.info( logCacheName + "Saving keys to [" + this.keyFile.getAbsolutePath() + "], key count ["
-                    + numKeys + "]" );
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( logCacheName + "Keys unchanged, not saving." );
+                }
+                return;
             }
 
-            synchronized (keyFile)
+            try
+            {
+                ElapsedTimer timer = new ElapsedTimer();
+                BlockDiskKeyIndex.Snapshot<K> snapshot = keyHash.snapshot();
+                int numKeys = snapshot.size();
+                if ( log.isInfoEnabled() )
+                {
+                    log.info( logCacheName + "Saving keys to [" + this.keyFile.getAbsolutePath() + "], key count ["
+                        + numKeys + "]" );
+                }
+
+                File tempFile = new File( keyFile.getParentFile(), keyFile.getName() + ".tmp" );
+                writeKeys( tempFile, snapshot );
+
+                if ( !tempFile.renameTo( keyFile ) )
+                {
+                    // some platforms do not rename over an existing file
+                    if ( keyFile.exists() && !keyFile.delete() || !tempFile.renameTo( keyFile ) )
+                    {
+                        throw new IOException( "Could not rename [" + tempFile + "] to [" + keyFile + "]" );
+                    }
+                }
+                savedModifications = modificationsAtStart;
+
+                if ( log.isInfoEnabled() )
+                {
+                    log.info( logCacheName + "Finished saving keys. It took " + timer.getElapsedTimeString() + " to store "
+                        + numKeys + " keys.  Key file length [" + keyFile.length() + "]" );
+                }
+            }
+            catch ( IOException e )
             {
-                FileOutputStream fos = new FileOutputStream( keyFile );
-                BufferedOutputStream bos = new BufferedOutputStream( fos, 65536 );
-                ObjectOutputStream oos = new ObjectOutputStream( bos );
-                try
+                log.error( logCacheName + "Problem storing keys.", e );
+            }
+        }
+    }
+
+    /**
+     * Writes the keys in the binary format.
+     * <p>
+     * @param file
+     * @param snapshot
+     * @throws IOException
+     */
+    private void writeKeys( File file, BlockDiskKeyIndex.Snapshot<K> snapshot )
+        throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        try
+        {
+            raf.setLength( 0 );
+            FileChannel channel = raf.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate( BUFFER_SIZE );
+            buffer.putInt( MAGIC );
+            buffer.putInt( VERSION );
+
+            for ( int i = 0; i < snapshot.size(); i++ )
+            {
+                K key = snapshot.getKey( i );
+                int[] blocks = snapshot.getBlocks( i );
+
+                byte type;
+                byte[] keyBytes;
+                if ( key instanceof String )
+                {
+                    type = STRING_KEY;
+                    keyBytes = ( (String) key ).getBytes( UTF8 );
+                }
+                else
                 {
-                    // don't need to synchronize, since the underlying collection makes a copy
-                    for (Map.Entry<K, int[]> entry : keyHash.entrySet())
+                    type = SERIALIZED_KEY;
+                    keyBytes = keySerializer.serialize( key );
+                }
+
+                int recordSize = 1 + 4 + keyBytes.length + 4 + 4 * blocks.length;
+                if ( recordSize > buffer.remaining() )
+                {
+                    flush( channel, buffer );
+                    if ( recordSize > buffer.capacity() )
                     {
-                        BlockDiskElementDescriptor<K> descriptor = new BlockDiskElementDescriptor<K>();
-                        descriptor.setKey( entry.getKey() );
-                        descriptor.setBlocks( entry.getValue() );
-                        // stream these out in the loop.
-                        oos.writeObject( descriptor );
+                        buffer = ByteBuffer.allocate( recordSize );
                     }
                 }
-                finally
+
+                buffer.put( type );
+                buffer.putInt( keyBytes.length );
+                buffer.put( keyBytes );
+                buffer.putInt( blocks.length );
+                for ( int block : blocks )
                 {
-                    oos.flush();
-                    oos.close();
+                    buffer.putInt( block );
                 }
             }
 
-            if ( log.isInfoEnabled() )
+            if ( buffer.remaining() < 5 )
             {
-                log.info( logCacheName + "Finished saving keys. It took " + timer.getElapsedTimeString() + " to store "
-                    + numKeys + " keys.  Key file length [" + keyFile.length() + "]" );
+                flush( channel, buffer );
             }
+            buffer.put( END );
+            buffer.putInt( snapshot.size() );
+            flush( channel, buffer );
+            channel.force( false );
         }
-        catch ( IOException e )
+        finally
         {
-            log.error( logCacheName + "Problem storing keys.", e );
+            raf.close();
         }
     }
 
+    /**
+     * Writes out and clears the buffer.
+     * <p>
+     * @param channel
+     * @param buffer
+     * @throws IOException
+     */
+    private static void flush( FileChannel channel, ByteBuffer buffer )
+        throws IOException
+    {
+        buffer.flip();
+        while ( buffer.hasRemaining() )
+        {
+            channel.write( buffer );
+        }
+        buffer.clear();
+    }
+
     /**
      * Resets the file and creates a new key map.
      */
@@ -191,6 +323,7 @@ public class BlockDiskKeyStore<K>
     protected void clearMemoryMap()
     {
         this.keyHash.clear();
+        modifications.incrementAndGet();
     }
 
     /**
@@ -198,14 +331,9 @@ public class BlockDiskKeyStore<K>
      */
     private void initKeyMap()
     {
-        keyHash = null;
+        keyHash = new KeyIndex( maxKeySize, diskLimitType, blockSize );
         if ( maxKeySize >= 0 )
         {
-            if (this.diskLimitType.equals(DiskLimitType.SIZE)) {
-                keyHash = new LRUMapSizeLimited(maxKeySize);
-            } else {
-                keyHash = new LRUMapCountLimited( maxKeySize );
-            }
             if ( log.isInfoEnabled() )
             {
                 log.info( logCacheName + "Set maxKeySize to: '" + maxKeySize + "'" );
@@ -213,9 +341,6 @@ public class BlockDiskKeyStore<K>
         }
         else
         {
-            // If no max size, use a plain map for memory and processing efficiency.
-            keyHash = new HashMap<K, int[]>();
-            // keyHash = Collections.synchronizedMap( new HashMap() );
             if ( log.isInfoEnabled() )
             {
                 log.info( logCacheName + "Set maxKeySize to unlimited'" );
@@ -224,8 +349,7 @@ public class BlockDiskKeyStore<K>
     }
 
     /**
-     * Loads the keys from the .key file. The keys are stored individually on disk. They are added
-     * one by one to an LRUMap..
+     * Loads the keys from the .key file. The records are read one by one and added to the index.
      */
     protected void loadKeys()
     {
@@ -239,42 +363,32 @@ public class BlockDiskKeyStore<K>
             // create a key map to use.
             initKeyMap();
 
-            HashMap<K, int[]> keys = new HashMap<K, int[]>();
-
+            int count;
             synchronized (keyFile)
             {
-                FileInputStream fis = new FileInputStream( keyFile );
-                BufferedInputStream bis = new BufferedInputStream( fis );
-                ObjectInputStream ois = new ObjectInputStreamClassLoaderAware( bis , null);
-                try
+                long modificationsAtStart = modifications.get();
+                if ( isBinaryKeyFile() )
                 {
-                    while ( true )
+                    count = readKeys();
+                    if ( modifications.get() == modificationsAtStart )
                     {
-                        @SuppressWarnings("unchecked") // Need to cast from Object
-                        BlockDiskElementDescriptor<K> descriptor = (BlockDiskElementDescriptor<K>) ois.readObject();
-                        if ( descriptor != null )
-                        {
-                            keys.put( descriptor.getKey(), descriptor.getBlocks() );
-                        }
+                        // nothing fell off the LRU while loading, so the file matches memory
+                        savedModifications = modificationsAtStart;
                     }
                 }
-                catch ( EOFException eof )
-                {
-                    // nothing
-                }
-                finally
+                else
                 {
-                    ois.close();
+                    // written by an older version, the next save replaces it
+                    count = readLegacyKeys();
+                    modifications.incrementAndGet();
                 }
             }
 
-            if ( !keys.isEmpty() )
+            if ( count > 0 )
             {
-                keyHash.putAll( keys );
-
                 if ( log.isDebugEnabled() )
                 {
-                    log.debug( logCacheName + "Found " + keys.size() + " in keys file." );
+                    log.debug( logCacheName + "Found " + count + " in keys file." );
                 }
 
                 if ( log.isInfoEnabled() )
@@ -291,23 +405,261 @@ public class BlockDiskKeyStore<K>
     }
 
     /**
-     * Gets the entry set.
+     * @return true if the key file starts with the binary header
+     * @throws IOException
+     */
+    private boolean isBinaryKeyFile()
+        throws IOException
+    {
+        if ( keyFile.length() < 8 )
+        {
+            return false;
+        }
+        RandomAccessFile raf = new RandomAccessFile( keyFile, "r" );
+        try
+        {
+            return raf.readInt() == MAGIC;
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    /**
+     * Reads the binary key file into the index. A truncated file yields the complete records.
+     * <p>
+     * @return the number of records read
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private int readKeys()
+        throws IOException, ClassNotFoundException
+    {
+        RandomAccessFile raf = new RandomAccessFile( keyFile, "r" );
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate( BUFFER_SIZE );
+            buffer.flip();
+
+            buffer = fill( channel, buffer, 8 );
+            buffer.getInt();
+            int version = buffer.getInt();
+            if ( version != VERSION )
+            {
+                throw new IOException( "Unknown key file version " + version );
+            }
+
+            int count = 0;
+            while ( true )
+            {
+                buffer = fill( channel, buffer, 5 );
+                if ( buffer.remaining() < 5 )
+                {
+                    log.warn( logCacheName + "Key file is truncated, loaded " + count + " keys." );
+                    return count;
+                }
+
+                byte type = buffer.get();
+                int length = buffer.getInt();
+                if ( type == END )
+                {
+                    if ( length != count )
+                    {
+                        log.warn( logCacheName + "Key file should hold " + length + " keys, found " + count );
+                    }
+                    return count;
+                }
+
+                if ( type != STRING_KEY && type != SERIALIZED_KEY )
+                {
+                    throw new IOException( "Corrupt key file, unknown record type " + type );
+                }
+
+                buffer = fill( channel, buffer, length + 4 );
+                if ( buffer.remaining() < length + 4 )
+                {
+                    log.warn( logCacheName + "Key file is truncated, loaded " + count + " keys." );
+                    return count;
+                }
+                byte[] keyBytes = new byte[length];
+                buffer.get( keyBytes );
+                int blockCount = buffer.getInt();
+
+                buffer = fill( channel, buffer, 4 * blockCount );
+                if ( buffer.remaining() < 4 * blockCount )
+                {
+                    log.warn( logCacheName + "Key file is truncated, loaded " + count + " keys." );
+                    return count;
+                }
+                int[] blocks = new int[blockCount];
+                buffer.asIntBuffer().get( blocks );
+                buffer.position( buffer.position() + 4 * blockCount );
+
+                K key;
+                if ( type == STRING_KEY )
+                {
+                    @SuppressWarnings("unchecked") // String keys were written as such
+                    K stringKey = (K) new String( keyBytes, UTF8 );
+                    key = stringKey;
+                }
+                else
+                {
+                    key = keySerializer.deSerialize( keyBytes, null );
+                }
+                keyHash.put( key, blocks );
+                count++;
+            }
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    /**
+     * Makes sure the buffer holds at least the given number of bytes, unless the file ends first.
+     * <p>
+     * @param channel
+     * @param buffer in read mode
+     * @param needed
+     * @return the buffer, a larger one if needed
+     * @throws IOException
+     */
+    private static ByteBuffer fill( FileChannel channel, ByteBuffer buffer, int needed )
+        throws IOException
+    {
+        if ( buffer.remaining() >= needed )
+        {
+            return buffer;
+        }
+        if ( needed < 0 )
+        {
+            throw new IOException( "Corrupt key file, record length " + needed );
+        }
+
+        ByteBuffer target = buffer;
+        if ( needed > buffer.capacity() )
+        {
+            target = ByteBuffer.allocate( needed );
+            target.put( buffer );
+        }
+        else
+        {
+            target.compact();
+        }
+
+        while ( target.position() < needed )
+        {
+            if ( channel.read( target ) < 0 )
+            {
+                break;
+            }
+        }
+        target.flip();
+        return target;
+    }
+
+    /**
+     * Reads a key file written with object streams by older versions.
+     * <p>
+     * @return the number of keys read
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private int readLegacyKeys()
+        throws IOException, ClassNotFoundException
+    {
+        int count = 0;
+        FileInputStream fis = new FileInputStream( keyFile );
+        BufferedInputStream bis = new BufferedInputStream( fis );
+        ObjectInputStream ois = new ObjectInputStreamClassLoaderAware( bis , null);
+        try
+        {
+            while ( true )
+            {
+                @SuppressWarnings("unchecked") // Need to cast from Object
+                BlockDiskElementDescriptor<K> descriptor = (BlockDiskElementDescriptor<K>) ois.readObject();
+                if ( descriptor != null )
+                {
+                    keyHash.put( descriptor.getKey(), descriptor.getBlocks() );
+                    count++;
+                }
+            }
+        }
+        catch ( EOFException eof )
+        {
+            // nothing
+        }
+        finally
+        {
+            ois.close();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the entry set. This is a copy, taken when called.
      * <p>
      * @return entry set.
      */
     public Set<Map.Entry<K, int[]>> entrySet()
     {
-        return this.keyHash.entrySet();
+        final BlockDiskKeyIndex.Snapshot<K> snapshot = keyHash.snapshot();
+        return new AbstractSet<Map.Entry<K, int[]>>()
+        {
+            @Override
+            public Iterator<Map.Entry<K, int[]>> iterator()
+            {
+                return new SnapshotIterator<Map.Entry<K, int[]>>( snapshot )
+                {
+                    @Override
+                    protected Map.Entry<K, int[]> get( int i )
+                    {
+                        return new AbstractMap.SimpleImmutableEntry<K, int[]>( snapshot.getKey( i ),
+                            snapshot.getBlocks( i ) );
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return snapshot.size();
+            }
+        };
     }
 
     /**
-     * Gets the key set.
+     * Gets the key set. This is a copy, taken when called.
      * <p>
      * @return key set.
      */
     public Set<K> keySet()
     {
-        return this.keyHash.keySet();
+        final BlockDiskKeyIndex.Snapshot<K> snapshot = keyHash.snapshot();
+        return new AbstractSet<K>()
+        {
+            @Override
+            public Iterator<K> iterator()
+            {
+                return new SnapshotIterator<K>( snapshot )
+                {
+                    @Override
+                    protected K get( int i )
+                    {
+                        return snapshot.getKey( i );
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return snapshot.size();
+            }
+        };
     }
 
     /**
@@ -331,15 +683,28 @@ public class BlockDiskKeyStore<K>
         return this.keyHash.get( key );
     }
 
+    /**
+     * Gets the blocks for the key without counting it as a use.
+     * <p>
+     * @param key
+     * @return the blocks, or null
+     */
+    public int[] getQuiet( K key )
+    {
+        return this.keyHash.getQuiet( key );
+    }
+
     /**
      * Puts a int[] in the keyStore.
      * <p>
      * @param key
      * @param value
+     * @return the blocks previously stored for the key, or null
      */
-    public void put( K key, int[] value )
+    public int[] put( K key, int[] value )
     {
-        this.keyHash.put( key, value );
+        modifications.incrementAndGet();
+        return this.keyHash.put( key, value );
     }
 
     /**
@@ -350,110 +715,82 @@ public class BlockDiskKeyStore<K>
      */
     public int[] remove( K key )
     {
-        return this.keyHash.remove( key );
+        int[] removed = this.keyHash.remove( key );
+        if ( removed != null )
+        {
+            modifications.incrementAndGet();
+        }
+        return removed;
     }
 
-
     /**
-     * Class for recycling and lru. This implements the LRU size overflow callback, so we can mark the
-     * blocks as free.
+     * Iterates over a snapshot.
      */
+    private abstract static class SnapshotIterator<T>
+        implements Iterator<T>
+    {
+        /** The copy */
+        private final BlockDiskKeyIndex.Snapshot<?> snapshot;
 
-    public class LRUMapSizeLimited
-    	extends AbstractLRUMap<K, int[]>
+        /** The next position */
+        private int next = 0;
 
-    {
-        /**
-         * <code>tag</code> tells us which map we are working on.
-         */
-        public String tag = "orig-lru-size";
-        // size of the content in kB
-        private AtomicInteger contentSize = new AtomicInteger();
-        private int maxSize = -1;
         /**
-         * Default
+         * @param snapshot
          */
-        public LRUMapSizeLimited()
+        SnapshotIterator( BlockDiskKeyIndex.Snapshot<?> snapshot )
         {
-            super();
+            this.snapshot = snapshot;
         }
 
-        /**
-         * @param maxKeySize
-         */
-        public LRUMapSizeLimited( int maxKeySize )
+        @Override
+        public boolean hasNext()
         {
-            super();
-            this.maxSize = maxKeySize;
+            return next < snapshot.size();
         }
 
         @Override
-        public int[] put(K key, int[] value) {
-            try {
-                return super.put(key, value);
-            } finally {
-                // keep the content size in kB, so 2^31 kB is reasonable value
-                contentSize.addAndGet((int) Math.ceil(value.length * blockSize / 1024.0));
+        public T next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
             }
+            return get( next++ );
         }
 
         @Override
-        public int[] remove(Object key ) {
-            int[] value = null;
-
-            try {
-                value = super.remove(key);
-                return value;
-            } finally {
-                if (value != null) {
-                    // keep the content size in kB, so 2^31 kB is reasonable value
-                    contentSize.addAndGet((int) ((Math.ceil(value.length * blockSize / 1024.0)) * -1));
-                }
-            }
+        public void remove()
+        {
+            throw new UnsupportedOperationException( "The snapshot cannot be changed." );
         }
 
         /**
-         * This is called when the may key size is reached. The least recently used item will be
-         * passed here. We will store the position and size of the spot on disk in the recycle bin.
-         * <p>
-         * @param key
-         * @param value
+         * @param i
+         * @return the element at the position
          */
-        protected void processRemovedLRU( K key, int[] value )
-        {
-            blockDiskCache.freeBlocks( value );
-            if ( log.isDebugEnabled() )
-            {
-                log.debug( logCacheName + "Removing key: [" + key + "] from key store." );
-                log.debug( logCacheName + "Key store size: [" + super.size() + "]." );
-            }
-        }
-        @Override
-        protected boolean shouldRemove() {
-            return maxSize > 0 && contentSize.intValue() > maxSize && this.size() > 1;
-        }
+        protected abstract T get( int i );
     }
+
     /**
-     * Class for recycling and lru. This implements the LRU overflow callback, so we can mark the
-     * blocks as free.
+     * The index, freeing the blocks of keys that fall off the LRU.
      */
-    public class LRUMapCountLimited
-    extends LRUMap<K, int[]>
-    // implements Serializable
+    private class KeyIndex
+        extends BlockDiskKeyIndex<K>
     {
         /**
-         * <code>tag</code> tells us which map we are working on.
+         * @param maxKeySize
+         * @param diskLimitType
+         * @param blockSize
          */
-        public String tag = "orig-lru-count";
-
-        public LRUMapCountLimited(int maxKeySize) {
-            super(maxKeySize);
+        KeyIndex( int maxKeySize, DiskLimitType diskLimitType, int blockSize )
+        {
+            super( maxKeySize, diskLimitType, blockSize );
         }
 
-
         /**
-         * This is called when the may key size is reached. The least recently used item will be
-         * passed here. We will store the position and size of the spot on disk in the recycle bin.
+         * This is called when the max key size is reached. The least recently used item will be
+         * passed here. We will mark its blocks as free.
          * <p>
          * @param key
          * @param value
@@ -461,11 +798,15 @@ public class BlockDiskKeyStore<K>
         @Override
         protected void processRemovedLRU( K key, int[] value )
         {
-            blockDiskCache.freeBlocks( value );
+            modifications.incrementAndGet();
+            if ( blockDiskCache != null )
+            {
+                blockDiskCache.freeBlocks( value );
+            }
             if ( log.isDebugEnabled() )
             {
                 log.debug( logCacheName + "Removing key: [" + key + "] from key store." );
-                log.debug( logCacheName + "Key store size: [" + super.size() + "]." );
+                log.debug( logCacheName + "Key store size: [" + size() + "]." );
             }
         }
     }
@@ -0,0 +1,207 @@
+package org.apache.commons.jcs.auxiliary.disk.block;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The set of free blocks of a block disk as a bitmap, one bit per block. Blocks are taken and
+ * returned with compare and set operations on the words of the bitmap, so allocating writers do not
+ * serialize on a lock, and no object is created per free block.
+ * <p>
+ * The bitmap is split into pages that are created when a block in their range is first freed.
+ * Allocation prefers low block numbers, which keeps the data file compact.
+ */
+class FreeBlockBitmap
+{
+    /** Bits per word. */
+    private static final int WORD_BITS = 64;
+
+    /** Words per page, a page covers 64k blocks. */
+    private static final int PAGE_WORDS = 1024;
+
+    /** Enough pages to cover every positive int block number. */
+    private static final int MAX_PAGES = (int) ( ( 1L << 31 ) / ( (long) PAGE_WORDS * WORD_BITS ) );
+
+    /** The pages, null until needed. */
+    private volatile AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<AtomicLongArray>( MAX_PAGES );
+
+    /** The number of free blocks. Never larger than the number of set bits. */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /** Where allocation starts looking. Only a hint, the search wraps around. */
+    private final AtomicInteger lowestWord = new AtomicInteger();
+
+    /** No word at or above this one ever had a set bit. */
+    private final AtomicInteger wordLimit = new AtomicInteger();
+
+    /**
+     * Takes a free block.
+     * <p>
+     * @return the block number, or -1 if there are no free blocks
+     */
+    int allocate()
+    {
+        // reserve one of the free blocks first, then find it
+        int available;
+        do
+        {
+            available = count.get();
+            if ( available <= 0 )
+            {
+                return -1;
+            }
+        }
+        while ( !count.compareAndSet( available, available - 1 ) );
+
+        AtomicReferenceArray<AtomicLongArray> current = pages;
+        while ( true )
+        {
+            int start = lowestWord.get();
+            int limit = wordLimit.get();
+            for ( int i = 0; i < limit; i++ )
+            {
+                // start at the hint and wrap around
+                int word = start + i < limit ? start + i : start + i - limit;
+                AtomicLongArray page = current.get( word / PAGE_WORDS );
+                if ( page == null )
+                {
+                    continue;
+                }
+                int offset = word % PAGE_WORDS;
+                long bits = page.get( offset );
+                while ( bits != 0 )
+                {
+                    long lowest = bits & -bits;
+                    if ( page.compareAndSet( offset, bits, bits & ~lowest ) )
+                    {
+                        if ( bits == lowest && word == start )
+                        {
+                            // the word is empty now
+                            lowestWord.compareAndSet( start, start + 1 );
+                        }
+                        return word * WORD_BITS + Long.numberOfTrailingZeros( lowest );
+                    }
+                    bits = page.get( offset );
+                }
+            }
+            if ( current != pages )
+            {
+                // reset while allocating, the reservation is gone
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Returns a block to the free set.
+     * <p>
+     * @param block
+     * @return false if the block was already free
+     */
+    boolean free( int block )
+    {
+        int word = block / WORD_BITS;
+        long bit = 1L << ( block % WORD_BITS );
+        AtomicLongArray page = getOrCreatePage( word / PAGE_WORDS );
+        int offset = word % PAGE_WORDS;
+
+        long bits;
+        do
+        {
+            bits = page.get( offset );
+            if ( ( bits & bit ) != 0 )
+            {
+                return false;
+            }
+        }
+        while ( !page.compareAndSet( offset, bits, bits | bit ) );
+
+        raise( wordLimit, word + 1 );
+        lower( lowestWord, word );
+        count.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return the number of free blocks
+     */
+    int size()
+    {
+        return count.get();
+    }
+
+    /**
+     * Forgets all free blocks. Must not run concurrently with allocate or free.
+     */
+    void clear()
+    {
+        pages = new AtomicReferenceArray<AtomicLongArray>( MAX_PAGES );
+        count.set( 0 );
+        lowestWord.set( 0 );
+        wordLimit.set( 0 );
+    }
+
+    /**
+     * @param index
+     * @return the page, created if necessary
+     */
+    private AtomicLongArray getOrCreatePage( int index )
+    {
+        AtomicReferenceArray<AtomicLongArray> current = pages;
+        AtomicLongArray page = current.get( index );
+        if ( page == null )
+        {
+            current.compareAndSet( index, null, new AtomicLongArray( PAGE_WORDS ) );
+            page = current.get( index );
+        }
+        return page;
+    }
+
+    /**
+     * @param value
+     * @param atLeast
+     */
+    private static void raise( AtomicInteger value, int atLeast )
+    {
+        int current;
+        do
+        {
+            current = value.get();
+        }
+        while ( current < atLeast && !value.compareAndSet( current, atLeast ) );
+    }
+
+    /**
+     * @param value
+     * @param atMost
+     */
+    private static void lower( AtomicInteger value, int atMost )
+    {
+        int current;
+        do
+        {
+            current = value.get();
+        }
+        while ( current > atMost && !value.compareAndSet( current, atMost ) );
+    }
+}
@@ -25,9 +25,13 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.io.ByteBufferOutputStream;
+import org.apache.commons.jcs.io.ByteBufferPool;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -37,9 +41,15 @@ class IndexedDisk
     /** The size of the header that indicates the amount of data stored in an occupied block. */
     public static final byte HEADER_SIZE_BYTES = 4;
 
+    /** The size of the memory mapped segments used for reads. */
+    public static final int DEFAULT_MAPPED_SEGMENT_SIZE = 256 * 1024 * 1024;
+
     /** The serializer. */
     private final IElementSerializer elementSerializer;
 
+    /** Buffers for serialized records */
+    private final ByteBufferPool bufferPool = ByteBufferPool.getInstance();
+
     /** The logger */
     private static final Log log = LogFactory.getLog( IndexedDisk.class );
 
@@ -49,6 +59,15 @@ class IndexedDisk
     /** The data file. */
     private final FileChannel fc;
 
+    /** The size of the mapped segments, 0 if reads go through the channel. */
+    private final int mappedSegmentSize;
+
+    /** Read only views of the file. An entry is null until a record in its range is read. */
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /** Number of map calls, for testing. */
+    private volatile int mappingCount = 0;
+
     /**
      * Constructor for the Disk object
      * <p>
@@ -58,9 +77,30 @@ class IndexedDisk
      */
     public IndexedDisk( File file, IElementSerializer elementSerializer )
         throws FileNotFoundException
+    {
+        this( file, elementSerializer, 0 );
+    }
+
+    /**
+     * Constructor for the Disk object
+     * <p>
+     * If the segment size is greater than 0, records are read from memory mapped segments of the
+     * file instead of with a read call per record. Segments are mapped lazily. The segment at the
+     * end of the file is remapped each time the file doubled its share of it, and records written
+     * since the last mapping are read from the channel meanwhile, so appends don't cost a mapping
+     * each. Records that cross a segment boundary are read from the channel.
+     * <p>
+     * @param file
+     * @param elementSerializer
+     * @param mappedSegmentSize 0 to read through the channel
+     * @throws FileNotFoundException
+     */
+    public IndexedDisk( File file, IElementSerializer elementSerializer, int mappedSegmentSize )
+        throws FileNotFoundException
     {
         this.filepath = file.getAbsolutePath();
         this.elementSerializer = elementSerializer;
+        this.mappedSegmentSize = mappedSegmentSize;
         RandomAccessFile raf = new RandomAccessFile( filepath, "rw" );
         this.fc = raf.getChannel();
     }
@@ -79,6 +119,15 @@ class IndexedDisk
     protected <T extends Serializable> T readObject( IndexedDiskElementDescriptor ded )
         throws IOException, ClassNotFoundException
     {
+        if ( mappedSegmentSize > 0 )
+        {
+            ByteBuffer record = getMappedRecord( ded );
+            if ( record != null )
+            {
+                return elementSerializer.deSerializeFrom( record, null );
+            }
+        }
+
         String message = null;
         boolean corrupted = false;
         long fileLength = fc.size();
@@ -111,11 +160,156 @@ class IndexedDisk
             throw new IOException( "The File Is Corrupt, need to reset" );
         }
 
-        ByteBuffer data = ByteBuffer.allocate(ded.len);
-        fc.read(data, ded.pos + HEADER_SIZE_BYTES);
-        data.flip();
+        ByteBuffer data = bufferPool.acquire( ded.len );
+        try
+        {
+            long pos = ded.pos + HEADER_SIZE_BYTES;
+            while ( data.hasRemaining() && fc.read( data, pos + data.position() ) >= 0 )
+            {
+                // keep reading
+            }
+            data.flip();
+
+            return elementSerializer.deSerializeFrom( data, null );
+        }
+        finally
+        {
+            bufferPool.release( data );
+        }
+    }
+
+    /**
+     * Returns a view of the record's data in the mapped file. The header is checked against the
+     * descriptor.
+     * <p>
+     * @param ded
+     * @return the data of the record, or null if it cannot be read from the mapping. The caller
+     *         should then fall back to the channel, which also reports corruption.
+     * @throws IOException
+     */
+    private ByteBuffer getMappedRecord( IndexedDiskElementDescriptor ded )
+        throws IOException
+    {
+        if ( ded.pos < 0 || ded.len < 0 )
+        {
+            return null;
+        }
+
+        int index = (int) ( ded.pos / mappedSegmentSize );
+        int offset = (int) ( ded.pos % mappedSegmentSize );
+        long end = (long) offset + HEADER_SIZE_BYTES + ded.len;
+        if ( end > mappedSegmentSize )
+        {
+            // crosses a segment boundary
+            return null;
+        }
+
+        MappedByteBuffer segment = getSegment( index, (int) end );
+        if ( segment == null )
+        {
+            return null;
+        }
+
+        ByteBuffer record = segment.duplicate();
+        record.limit( (int) end );
+        record.position( offset );
+        if ( record.getInt() != ded.len )
+        {
+            return null;
+        }
+        return record;
+    }
+
+    /**
+     * Gets the mapped segment, mapping or remapping it if it does not reach the required limit
+     * yet. Segments are never mapped past the end of the file, since mapping would extend it.
+     * <p>
+     * @param index the number of the segment
+     * @param requiredLimit the offset in the segment that must be mapped
+     * @return the segment, or null if the record should be read from the channel
+     * @throws IOException
+     */
+    private MappedByteBuffer getSegment( int index, int requiredLimit )
+        throws IOException
+    {
+        MappedByteBuffer[] current = segments;
+        MappedByteBuffer mapped = index < current.length ? current[index] : null;
+        if ( mapped != null && mapped.limit() >= requiredLimit )
+        {
+            return mapped;
+        }
+
+        long base = (long) index * mappedSegmentSize;
+        if ( !isWorthMapping( mapped, base, requiredLimit ) )
+        {
+            return null;
+        }
+
+        synchronized ( this )
+        {
+            current = segments;
+            mapped = index < current.length ? current[index] : null;
+            if ( mapped != null && mapped.limit() >= requiredLimit )
+            {
+                return mapped;
+            }
+            if ( !isWorthMapping( mapped, base, requiredLimit ) )
+            {
+                return null;
+            }
+
+            int size = (int) Math.min( mappedSegmentSize, fc.size() - base );
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "Mapping segment " + index + " of [" + filepath + "] with " + size + " bytes" );
+            }
+            MappedByteBuffer segment = fc.map( FileChannel.MapMode.READ_ONLY, base, size );
+            mappingCount++;
+
+            MappedByteBuffer[] next = Arrays.copyOf( current, Math.max( current.length, index + 1 ) );
+            next[index] = segment;
+            segments = next;
+            return segment;
+        }
+    }
+
+    /**
+     * A segment is mapped once the file reaches the required limit in it. A mapped segment that
+     * falls short is remapped when it can be mapped whole, or when the file holds twice as much of
+     * it as the current mapping.
+     * <p>
+     * @param mapped the current mapping, may be null
+     * @param base the file position of the segment
+     * @param requiredLimit the offset in the segment that must be mapped
+     * @return whether to map the segment again
+     * @throws IOException
+     */
+    private boolean isWorthMapping( MappedByteBuffer mapped, long base, int requiredLimit )
+        throws IOException
+    {
+        long available = Math.min( mappedSegmentSize, fc.size() - base );
+        if ( available < requiredLimit )
+        {
+            return false;
+        }
+        return mapped == null || available == mappedSegmentSize || available >= 2L * mapped.limit();
+    }
+
+    /**
+     * @return the number of times a segment was mapped
+     */
+    protected int getMappingCount()
+    {
+        return mappingCount;
+    }
 
-        return elementSerializer.deSerialize( data.array(), null );
+    /**
+     * Drops the mapped segments. Must be called when the file shrinks, since reading a mapping past
+     * the end of the file crashes the VM. The caller must make sure no reads are in progress.
+     */
+    private synchronized void unmapSegments()
+    {
+        segments = new MappedByteBuffer[0];
     }
 
     /**
@@ -188,14 +382,92 @@ class IndexedDisk
             throw new IOException( "Mismatched descriptor and data lengths" );
         }
 
-        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE_BYTES + data.length);
-        buffer.putInt(data.length);
-        buffer.put(data);
-        buffer.flip();
-        int written = fc.write(buffer, pos);
-        //fc.force(true);
+        ByteBuffer buffer = bufferPool.acquire( HEADER_SIZE_BYTES + data.length );
+        try
+        {
+            buffer.putInt( data.length );
+            buffer.put( data );
+            buffer.flip();
+            return writeFully( buffer, pos );
+        }
+        finally
+        {
+            bufferPool.release( buffer );
+        }
+    }
 
-        return written == data.length;
+    /**
+     * Writes a record produced by {@link #serializeRecord(Serializable)}, header included, at the
+     * position of the descriptor.
+     * <p>
+     * @param ded the descriptor, its length must match the data length of the record
+     * @param record the header and the data
+     * @return true if we wrote successfully
+     * @throws IOException
+     */
+    protected boolean write( IndexedDiskElementDescriptor ded, ByteBuffer record )
+        throws IOException
+    {
+        if ( record.remaining() - HEADER_SIZE_BYTES != ded.len )
+        {
+            throw new IOException( "Mismatched descriptor and data lengths" );
+        }
+        if ( log.isTraceEnabled() )
+        {
+            log.trace( "write> pos=" + ded.pos );
+            log.trace( fc + " -- data.length = " + ded.len );
+        }
+        return writeFully( record, ded.pos );
+    }
+
+    /**
+     * Serializes the object into a pooled buffer, preceded by the record header. The caller writes
+     * it with {@link #write(IndexedDiskElementDescriptor, ByteBuffer)} and releases it.
+     * <p>
+     * @param obj the object
+     * @return the record, its size minus the header size is the data length
+     * @throws IOException
+     */
+    protected ByteBufferOutputStream serializeRecord( Serializable obj )
+        throws IOException
+    {
+        ByteBufferOutputStream out = new ByteBufferOutputStream( bufferPool, 1024 );
+        boolean done = false;
+        try
+        {
+            out.writeInt( 0 );
+            elementSerializer.serializeTo( obj, out );
+            out.putInt( 0, out.size() - HEADER_SIZE_BYTES );
+            done = true;
+            return out;
+        }
+        finally
+        {
+            if ( !done )
+            {
+                out.release();
+            }
+        }
+    }
+
+    /**
+     * Writes all remaining bytes of the buffer.
+     * <p>
+     * @param buffer
+     * @param pos the file position
+     * @return true
+     * @throws IOException
+     */
+    private boolean writeFully( ByteBuffer buffer, long pos )
+        throws IOException
+    {
+        long position = pos;
+        while ( buffer.hasRemaining() )
+        {
+            position += fc.write( buffer, position );
+        }
+        //fc.force(true);
+        return true;
     }
 
     /**
@@ -210,8 +482,15 @@ class IndexedDisk
     protected boolean writeObject( Serializable obj, long pos )
         throws IOException
     {
-        byte[] data = elementSerializer.serialize( obj );
-        write( new IndexedDiskElementDescriptor( pos, data.length ), data );
+        ByteBufferOutputStream record = serializeRecord( obj );
+        try
+        {
+            write( new IndexedDiskElementDescriptor( pos, record.size() - HEADER_SIZE_BYTES ), record.getByteBuffer() );
+        }
+        finally
+        {
+            record.release();
+        }
         return true;
     }
 
@@ -235,6 +514,7 @@ class IndexedDisk
     protected void close()
         throws IOException
     {
+        unmapSegments();
         fc.close();
     }
 
@@ -250,6 +530,7 @@ class IndexedDisk
         {
             log.debug( "Resetting Indexed File [" + filepath + "]" );
         }
+        unmapSegments();
         fc.truncate(0);
         fc.force(true);
     }
@@ -267,6 +548,7 @@ class IndexedDisk
         {
             log.info( "Truncating file [" + filepath + "] to " + length );
         }
+        unmapSegments();
         fc.truncate( length );
     }
 
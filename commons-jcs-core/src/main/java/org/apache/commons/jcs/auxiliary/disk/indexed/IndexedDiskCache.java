@@ -33,6 +33,7 @@ import org.apache.commons.jcs.engine.stats.StatElement;
 import org.apache.commons.jcs.engine.stats.Stats;
 import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
 import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.io.ByteBufferOutputStream;
 import org.apache.commons.jcs.utils.struct.AbstractLRUMap;
 import org.apache.commons.jcs.utils.struct.LRUMap;
 import org.apache.commons.jcs.utils.struct.SortedPreferentialArray;
@@ -55,6 +56,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -144,6 +147,21 @@ public class IndexedDiskCache<K, V>
      */
     protected ReentrantReadWriteLock storageLock = new ReentrantReadWriteLock();
 
+    /** The journal of key changes, if journaling is on. Guarded by the write lock. */
+    private IndexedDiskKeyJournal journal;
+
+    /** The generation of the current journal. Guarded by the write lock. */
+    private long journalGeneration = 0;
+
+    /** Journal records applied on startup. */
+    private int replayedJournalRecords = 0;
+
+    /** Set when a journal write failed. Forces a checkpoint. */
+    private volatile boolean journalFailed = false;
+
+    /** Serializes checkpoints and resets. Taken before the storage lock. */
+    private final Object checkpointLock = new Object();
+
     /**
      * Constructor for the DiskCache object.
      * <p>
@@ -179,9 +197,15 @@ public class IndexedDiskCache<K, V>
         {
             initializeFileSystem( cattr );
 
+            // keys that fall off the LRU while loading go to the recycle bin
+            initializeRecycleBin();
+
             initializeKeysAndData( cattr );
 
-            initializeRecycleBin();
+            if ( cattr.isJournalKeys() )
+            {
+                initializeJournal();
+            }
 
             // Initialization finished successfully, so set alive to true.
             alive = true;
@@ -218,6 +242,19 @@ public class IndexedDiskCache<K, V>
         }
     }
 
+    /**
+     * Opens the data file, memory mapped for reads if configured.
+     * <p>
+     * @return the data file
+     * @throws FileNotFoundException
+     */
+    private IndexedDisk createDataFile()
+        throws FileNotFoundException
+    {
+        int mappedSegmentSize = cattr.isMemoryMappedReads() ? IndexedDisk.DEFAULT_MAPPED_SEGMENT_SIZE : 0;
+        return new IndexedDisk( new File( rafDir, fileName + ".data" ), getElementSerializer(), mappedSegmentSize );
+    }
+
     /**
      * Creates the key and data disk caches.
      * <p>
@@ -231,8 +268,19 @@ public class IndexedDiskCache<K, V>
     private void initializeKeysAndData( IndexedDiskCacheAttributes cattr )
         throws FileNotFoundException, IOException, InterruptedException
     {
-        this.dataFile = new IndexedDisk( new File( rafDir, fileName + ".data" ), getElementSerializer() );
-        this.keyFile = new IndexedDisk( new File( rafDir, fileName + ".key" ), getElementSerializer() );
+        this.dataFile = createDataFile();
+
+        File keyFilePath = new File( rafDir, fileName + ".key" );
+        File checkpointFile = new File( rafDir, fileName + ".key.tmp" );
+        if ( cattr.isJournalKeys() && !keyFilePath.exists() && checkpointFile.exists() )
+        {
+            // the last checkpoint was written, but not yet renamed
+            if ( !checkpointFile.renameTo( keyFilePath ) )
+            {
+                log.warn( logCacheName + "Could not rename checkpoint " + checkpointFile );
+            }
+        }
+        this.keyFile = new IndexedDisk( keyFilePath, getElementSerializer() );
 
         if ( cattr.isClearDiskOnStartup() )
         {
@@ -242,7 +290,8 @@ public class IndexedDiskCache<K, V>
             }
             initializeEmptyStore();
         }
-        else if ( keyFile.length() > 0 )
+        else if ( keyFile.length() > 0
+            || cattr.isJournalKeys() && !IndexedDiskKeyJournal.findJournals( rafDir, fileName ).isEmpty() )
         {
             // If the key file has contents, try to initialize the keys
             // from it. In no keys are loaded reset the data file.
@@ -329,9 +378,27 @@ public class IndexedDiskCache<K, V>
             // create a key map to use.
             initializeKeyMap();
 
-            HashMap<K, IndexedDiskElementDescriptor> keys =
-                keyFile.readObject( new IndexedDiskElementDescriptor( 0, (int) keyFile.length()
-                - IndexedDisk.HEADER_SIZE_BYTES ) );
+            HashMap<K, IndexedDiskElementDescriptor> keys = null;
+            if ( keyFile.length() > 0 )
+            {
+                keys = keyFile.readObject( new IndexedDiskElementDescriptor( 0, (int) keyFile.length()
+                    - IndexedDisk.HEADER_SIZE_BYTES ) );
+            }
+
+            if ( cattr.isJournalKeys() )
+            {
+                long checkpointGeneration = 0;
+                if ( keys instanceof IndexedDiskKeyCheckpoint )
+                {
+                    checkpointGeneration = ( (IndexedDiskKeyCheckpoint<K>) keys ).getGeneration();
+                }
+                else if ( keys == null )
+                {
+                    keys = new HashMap<K, IndexedDiskElementDescriptor>();
+                }
+                // replay into the plain map, the LRU would evict in a different order
+                replayJournals( checkpointGeneration, keys );
+            }
 
             if ( keys != null )
             {
@@ -459,6 +526,12 @@ public class IndexedDiskCache<K, V>
      */
     protected void saveKeys()
     {
+        if ( cattr.isJournalKeys() )
+        {
+            checkpoint();
+            return;
+        }
+
         try
         {
             if ( log.isInfoEnabled() )
@@ -488,6 +561,350 @@ public class IndexedDiskCache<K, V>
         }
     }
 
+    /**
+     * Applies the journals that are not part of the key file.
+     * <p>
+     * After an optimization was started the positions in the journal no longer hold, so all keys
+     * are dropped. The data of the last put may not have been written, so it is read back.
+     * <p>
+     * @param checkpointGeneration the generation recorded in the key file
+     * @param keys the keys of the key file
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void replayJournals( long checkpointGeneration, Map<K, IndexedDiskElementDescriptor> keys )
+        throws IOException, ClassNotFoundException
+    {
+        ElapsedTimer timer = new ElapsedTimer();
+        SortedMap<Long, File> journals = IndexedDiskKeyJournal.findJournals( rafDir, fileName );
+        boolean optimizing = false;
+        K lastPutKey = null;
+
+        journalGeneration = checkpointGeneration;
+        for ( Map.Entry<Long, File> entry : journals.tailMap( Long.valueOf( checkpointGeneration ) ).entrySet() )
+        {
+            IndexedDiskKeyJournal.Replay<K> replay =
+                IndexedDiskKeyJournal.replay( entry.getValue(), keys, getElementSerializer() );
+            replayedJournalRecords += replay.records;
+            optimizing |= replay.optimizing;
+            if ( replay.records > 0 )
+            {
+                lastPutKey = replay.lastPutKey;
+            }
+        }
+        if ( !journals.isEmpty() )
+        {
+            journalGeneration = Math.max( journalGeneration, journals.lastKey().longValue() );
+        }
+
+        if ( optimizing )
+        {
+            log.warn( logCacheName + "The journal ends in an optimization, dropping the keys." );
+            keys.clear();
+            return;
+        }
+
+        if ( lastPutKey != null )
+        {
+            IndexedDiskElementDescriptor ded = keys.get( lastPutKey );
+            boolean written = false;
+            try
+            {
+                ICacheElement<K, V> element = dataFile.readObject( ded );
+                written = element != null && lastPutKey.equals( element.getKey() );
+            }
+            catch ( Exception e )
+            {
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( logCacheName + "Could not read the last journaled put.", e );
+                }
+            }
+            if ( !written )
+            {
+                log.warn( logCacheName + "The data of the last journaled put was not written, dropping key ["
+                    + lastPutKey + "]" );
+                keys.remove( lastPutKey );
+            }
+        }
+
+        if ( log.isInfoEnabled() )
+        {
+            log.info( logCacheName + "Replayed " + replayedJournalRecords + " journal records in "
+                + timer.getElapsedTimeString() );
+        }
+    }
+
+    /**
+     * Starts journaling after the keys were loaded. If journal records were replayed, they are
+     * folded into a checkpoint right away.
+     */
+    private void initializeJournal()
+    {
+        storageLock.writeLock().lock();
+        try
+        {
+            if ( keyHash.size() == 0 )
+            {
+                // nothing was recovered, and the data file is empty
+                keyFile.reset();
+                deleteJournals( Long.MAX_VALUE );
+            }
+            openJournal( journalGeneration + 1 );
+        }
+        catch ( IOException e )
+        {
+            log.error( logCacheName + "Failure starting the key journal.", e );
+        }
+        finally
+        {
+            storageLock.writeLock().unlock();
+        }
+
+        if ( replayedJournalRecords > 0 )
+        {
+            checkpoint();
+        }
+        else
+        {
+            deleteJournals( journalGeneration );
+        }
+    }
+
+    /**
+     * Opens a new journal. On failure journaling stops until the next checkpoint.
+     * <p>
+     * The caller holds the write lock.
+     * <p>
+     * @param generation
+     */
+    private void openJournal( long generation )
+    {
+        journalGeneration = generation;
+        try
+        {
+            journal = new IndexedDiskKeyJournal( rafDir, fileName, generation, getElementSerializer() );
+            journalFailed = false;
+        }
+        catch ( IOException e )
+        {
+            log.error( logCacheName + "Failure opening the key journal.", e );
+            journal = null;
+            journalFailed = true;
+        }
+    }
+
+    /**
+     * Closes the journal.
+     */
+    private void closeJournal()
+    {
+        storageLock.writeLock().lock();
+        try
+        {
+            if ( journal != null )
+            {
+                journal.close();
+                journal = null;
+            }
+        }
+        catch ( IOException e )
+        {
+            log.error( logCacheName + "Failure closing the key journal.", e );
+        }
+        finally
+        {
+            storageLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the journal files older than the generation.
+     * <p>
+     * @param generation
+     */
+    private void deleteJournals( long generation )
+    {
+        for ( Map.Entry<Long, File> entry : IndexedDiskKeyJournal.findJournals( rafDir, fileName ).entrySet() )
+        {
+            if ( entry.getKey().longValue() < generation && !entry.getValue().delete() )
+            {
+                log.warn( logCacheName + "Could not delete journal " + entry.getValue() );
+            }
+        }
+    }
+
+    /**
+     * Journals a put. The caller holds the write lock.
+     * <p>
+     * @param key
+     * @param ded
+     */
+    private void journalPut( K key, IndexedDiskElementDescriptor ded )
+    {
+        if ( journal != null )
+        {
+            try
+            {
+                journal.put( key, ded );
+            }
+            catch ( IOException e )
+            {
+                log.error( logCacheName + "Failure journaling put, key: " + key, e );
+                journalFailed = true;
+            }
+        }
+    }
+
+    /**
+     * Journals a removal. The caller holds the write lock.
+     * <p>
+     * @param key
+     */
+    private void journalRemove( K key )
+    {
+        if ( journal != null )
+        {
+            try
+            {
+                journal.remove( key );
+            }
+            catch ( IOException e )
+            {
+                log.error( logCacheName + "Failure journaling remove, key: " + key, e );
+                journalFailed = true;
+            }
+        }
+    }
+
+    /**
+     * Journals the start of an optimization. The caller holds the write lock.
+     */
+    private void journalOptimizing()
+    {
+        if ( journal != null )
+        {
+            try
+            {
+                journal.optimizing();
+            }
+            catch ( IOException e )
+            {
+                log.error( logCacheName + "Failure journaling optimization.", e );
+                journalFailed = true;
+            }
+        }
+    }
+
+    /**
+     * Checkpoints if the journal is long enough or broken.
+     */
+    private void checkpointIfNeeded()
+    {
+        if ( cattr.isJournalKeys() && alive )
+        {
+            IndexedDiskKeyJournal current = journal;
+            if ( journalFailed
+                || current != null && current.getRecordCount() >= cattr.getJournalCheckpointRecords() )
+            {
+                checkpoint();
+            }
+        }
+    }
+
+    /**
+     * Writes all keys to the key file and starts a new journal. The keys are copied and the journal
+     * switched under the write lock, the key file is written outside of it. Journals older than the
+     * checkpoint are deleted once it is in place.
+     */
+    private void checkpoint()
+    {
+        synchronized ( checkpointLock )
+        {
+            ElapsedTimer timer = new ElapsedTimer();
+            IndexedDiskKeyCheckpoint<K> keys;
+
+            storageLock.writeLock().lock();
+            try
+            {
+                if ( keyFile == null )
+                {
+                    // disposed
+                    return;
+                }
+                keys = new IndexedDiskKeyCheckpoint<K>( journalGeneration + 1 );
+                for ( Map.Entry<K, IndexedDiskElementDescriptor> entry : keyHash.entrySet() )
+                {
+                    // copies, the defragmentation moves descriptors by reference
+                    IndexedDiskElementDescriptor ded = entry.getValue();
+                    keys.put( entry.getKey(), new IndexedDiskElementDescriptor( ded.pos, ded.len ) );
+                }
+
+                if ( journal != null )
+                {
+                    journal.close();
+                    journal = null;
+                }
+                openJournal( keys.getGeneration() );
+            }
+            catch ( IOException e )
+            {
+                log.error( logCacheName + "Failure switching the key journal.", e );
+                return;
+            }
+            finally
+            {
+                storageLock.writeLock().unlock();
+            }
+
+            try
+            {
+                File checkpointFile = new File( rafDir, fileName + ".key.tmp" );
+                IndexedDisk checkpointDisk = new IndexedDisk( checkpointFile, getElementSerializer() );
+                try
+                {
+                    checkpointDisk.reset();
+                    checkpointDisk.writeObject( keys, 0 );
+                }
+                finally
+                {
+                    checkpointDisk.close();
+                }
+
+                File keyFilePath = new File( rafDir, fileName + ".key" );
+                keyFile.close();
+                try
+                {
+                    if ( !checkpointFile.renameTo( keyFilePath ) )
+                    {
+                        // some platforms do not rename over an existing file
+                        if ( keyFilePath.exists() && !keyFilePath.delete() || !checkpointFile.renameTo( keyFilePath ) )
+                        {
+                            throw new IOException( "Could not rename [" + checkpointFile + "] to [" + keyFilePath
+                                + "]" );
+                        }
+                    }
+                }
+                finally
+                {
+                    keyFile = new IndexedDisk( keyFilePath, getElementSerializer() );
+                }
+
+                deleteJournals( keys.getGeneration() );
+
+                if ( log.isInfoEnabled() )
+                {
+                    log.info( logCacheName + "Checkpointed " + keys.size() + " keys in " + timer.getElapsedTimeString()
+                        + ", journal generation " + keys.getGeneration() );
+                }
+            }
+            catch ( IOException e )
+            {
+                log.error( logCacheName + "Problem writing the key checkpoint.", e );
+            }
+        }
+    }
+
     /**
      * Update the disk cache. Called from the Queue. Makes sure the Item has not been retrieved from
      * purgatory while in queue for disk. Remove items from purgatory when they go to disk.
@@ -513,9 +930,11 @@ public class IndexedDiskCache<K, V>
         // old element with same key
         IndexedDiskElementDescriptor old = null;
 
+        ByteBufferOutputStream record = null;
         try
         {
-            byte[] data = getElementSerializer().serialize( ce );
+            record = dataFile.serializeRecord( ce );
+            int length = record.size() - IndexedDisk.HEADER_SIZE_BYTES;
 
             // make sure this only locks for one particular cache region
             storageLock.writeLock().lock();
@@ -525,17 +944,17 @@ public class IndexedDiskCache<K, V>
 
                 // Item with the same key already exists in file.
                 // Try to reuse the location if possible.
-                if ( old != null && data.length <= old.len )
+                if ( old != null && length <= old.len )
                 {
                     // Reuse the old ded. The defrag relies on ded updates by reference, not
                     // replacement.
                     ded = old;
-                    ded.len = data.length;
+                    ded.len = length;
                 }
                 else
                 {
                     // we need this to compare in the recycle bin
-                    ded = new IndexedDiskElementDescriptor( dataFile.length(), data.length );
+                    ded = new IndexedDiskElementDescriptor( dataFile.length(), length );
 
                     if ( doRecycle )
                     {
@@ -544,7 +963,7 @@ public class IndexedDiskCache<K, V>
                         if ( rep != null )
                         {
                             ded = rep;
-                            ded.len = data.length;
+                            ded.len = length;
                             recycleCnt++;
                             this.adjustBytesFree( ded, false );
                             if ( log.isDebugEnabled() )
@@ -574,13 +993,17 @@ public class IndexedDiskCache<K, V>
                     }
                 }
 
-                dataFile.write( ded, data );
+                // journaled before the write, so a torn write is the last record on recovery
+                journalPut( ce.getKey(), ded );
+                dataFile.write( ded, record.getByteBuffer() );
             }
             finally
             {
                 storageLock.writeLock().unlock();
             }
 
+            checkpointIfNeeded();
+
             if ( log.isDebugEnabled() )
             {
                 log.debug( logCacheName + "Put to file: " + fileName + ", key: " + ce.getKey() + ", position: "
@@ -601,6 +1024,13 @@ public class IndexedDiskCache<K, V>
         {
             log.error( logCacheName + "Failure updating element, key: " + ce.getKey() + " old: " + old, e );
         }
+        finally
+        {
+            if ( record != null )
+            {
+                record.release();
+            }
+        }
     }
 
     /**
@@ -654,6 +1084,69 @@ public class IndexedDiskCache<K, V>
         return object;
     }
 
+    /**
+     * Gets the keys, then reads the objects from disk in file order under a single read lock.
+     * <p>
+     * @param keys
+     * @return a map of K key to ICacheElement<K, V> element for the keys found
+     * @see AbstractDiskCache#processGetMultipleFromDisk
+     */
+    @Override
+    protected Map<K, ICacheElement<K, V>> processGetMultipleFromDisk( Set<K> keys )
+    {
+        Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
+
+        if ( !alive )
+        {
+            log.error( logCacheName + "No longer alive so returning nothing for keys = " + keys );
+            return elements;
+        }
+
+        try
+        {
+            storageLock.readLock().lock();
+            try
+            {
+                // sorting by position turns random reads into a forward scan of the file
+                Map<IndexedDiskElementDescriptor, K> found =
+                    new TreeMap<IndexedDiskElementDescriptor, K>( new PositionComparator() );
+                for (K key : keys)
+                {
+                    IndexedDiskElementDescriptor ded = keyHash.get( key );
+                    if ( ded != null )
+                    {
+                        found.put( ded, key );
+                    }
+                }
+
+                for (Map.Entry<IndexedDiskElementDescriptor, K> entry : found.entrySet())
+                {
+                    ICacheElement<K, V> element = readElement( entry.getValue(), entry.getKey() );
+                    if ( element != null )
+                    {
+                        elements.put( entry.getValue(), element );
+                    }
+                }
+            }
+            finally
+            {
+                storageLock.readLock().unlock();
+            }
+
+            hitCount.addAndGet( elements.size() );
+        }
+        catch ( IOException ioe )
+        {
+            log.error( logCacheName + "Failure getting from disk, keys = " + keys, ioe );
+            reset();
+        }
+        catch ( Exception e )
+        {
+            log.error( logCacheName + "Failure getting from disk, keys = " + keys, e );
+        }
+        return elements;
+    }
+
     /**
      * Gets matching items from the cache.
      * <p>
@@ -706,9 +1199,21 @@ public class IndexedDiskCache<K, V>
     private ICacheElement<K, V> readElement( K key )
         throws IOException
     {
-        ICacheElement<K, V> object = null;
+        return readElement( key, keyHash.get( key ) );
+    }
 
-        IndexedDiskElementDescriptor ded = keyHash.get( key );
+    /**
+     * Reads the item at the descriptor from disk.
+     * <p>
+     * @param key
+     * @param ded the descriptor for the key, may be null
+     * @return ICacheElement
+     * @throws IOException
+     */
+    private ICacheElement<K, V> readElement( K key, IndexedDiskElementDescriptor ded )
+        throws IOException
+    {
+        ICacheElement<K, V> object = null;
 
         if ( ded != null )
         {
@@ -816,6 +1321,8 @@ public class IndexedDiskCache<K, V>
             reset();
         }
 
+        checkpointIfNeeded();
+
         // this increments the remove count.
         // there is no reason to call this if an item was not removed.
         if ( removed )
@@ -916,6 +1423,10 @@ public class IndexedDiskCache<K, V>
         IndexedDiskElementDescriptor ded = keyHash.remove( key );
         removed = ded != null;
         addToRecycleBin( ded );
+        if ( removed )
+        {
+            journalRemove( key );
+        }
 
         if ( log.isDebugEnabled() )
         {
@@ -958,6 +1469,18 @@ public class IndexedDiskCache<K, V>
             log.warn( logCacheName + "Reseting cache" );
         }
 
+        synchronized ( checkpointLock )
+        {
+            resetInternal();
+        }
+    }
+
+    /**
+     * Does the reset. The caller holds the checkpoint lock, so no checkpoint can bring back the old
+     * keys.
+     */
+    private void resetInternal()
+    {
         try
         {
             storageLock.writeLock().lock();
@@ -984,12 +1507,28 @@ public class IndexedDiskCache<K, V>
                 log.debug("Could not delete file " + keyFileTemp);
             }
 
-            dataFile = new IndexedDisk( new File( rafDir, fileName + ".data" ), getElementSerializer() );
+            dataFile = createDataFile();
             keyFile = new IndexedDisk( new File( rafDir, fileName + ".key" ), getElementSerializer() );
 
             initializeRecycleBin();
 
             initializeKeyMap();
+
+            if ( cattr.isJournalKeys() )
+            {
+                if ( journal != null )
+                {
+                    journal.close();
+                    journal = null;
+                }
+                File checkpointFile = new File( rafDir, fileName + ".key.tmp" );
+                if ( checkpointFile.exists() && !checkpointFile.delete() )
+                {
+                    log.warn( logCacheName + "Could not delete file " + checkpointFile );
+                }
+                deleteJournals( Long.MAX_VALUE );
+                openJournal( journalGeneration + 1 );
+            }
         }
         catch ( IOException e )
         {
@@ -1128,6 +1667,7 @@ public class IndexedDiskCache<K, V>
             {
                 log.debug( logCacheName + "Closing files, base filename: " + fileName );
             }
+            closeJournal();
             dataFile.close();
             dataFile = null;
             keyFile.close();
@@ -1259,6 +1799,8 @@ public class IndexedDiskCache<K, V>
             queueInput = true;
             // shut off recycle while we're optimizing,
             doRecycle = false;
+            // moves are not journaled, the journal is useless until the next checkpoint
+            journalOptimizing();
             defragList = createPositionSortedDescriptorList();
         }
         finally
@@ -1316,6 +1858,12 @@ public class IndexedDiskCache<K, V>
             log.info( logCacheName + "Finished #" + timesOptimized + " Optimization took "
                 + timer.getElapsedTimeString() );
         }
+
+        // on shutdown the keys are saved next anyway
+        if ( alive && cattr.isJournalKeys() )
+        {
+            checkpoint();
+        }
     }
 
     /**
@@ -1585,6 +2133,12 @@ public class IndexedDiskCache<K, V>
         elems.add(new StatElement<Integer>( "Recycle Count", Integer.valueOf(this.recycleCnt) ) );
         elems.add(new StatElement<Integer>( "Recycle Bin Size", Integer.valueOf(this.recycle.size()) ) );
         elems.add(new StatElement<Integer>( "Startup Size", Integer.valueOf(this.startupSize) ) );
+        if ( cattr.isJournalKeys() )
+        {
+            elems.add(new StatElement<Integer>( "Replayed Journal Records",
+                    Integer.valueOf(this.replayedJournalRecords) ) );
+            elems.add(new StatElement<Long>( "Journal Generation", Long.valueOf(this.journalGeneration) ) );
+        }
 
         // get the stats from the super too
         IStats sStats = super.getStatistics();
@@ -1723,6 +2277,7 @@ public class IndexedDiskCache<K, V>
                 contentSize.addAndGet((int) ((Math.ceil(value.len / 1024.0)) * -1));
             }
             addToRecycleBin( value );
+            journalRemove( key );
             if ( log.isDebugEnabled() )
             {
                 log.debug( logCacheName + "Removing key: [" + key + "] from key store." );
@@ -1761,6 +2316,7 @@ public class IndexedDiskCache<K, V>
         protected void processRemovedLRU(K key, IndexedDiskElementDescriptor value )
         {
             addToRecycleBin( value );
+            journalRemove( key );
             if ( log.isDebugEnabled() )
             {
                 log.debug( logCacheName + "Removing key: [" + key + "] from key store." );
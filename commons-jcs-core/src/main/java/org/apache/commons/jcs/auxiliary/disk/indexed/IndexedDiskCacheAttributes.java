@@ -60,6 +60,24 @@ public class IndexedDiskCacheAttributes
     /** Should we clear the disk on startup. If true the congtents of disk are cleared. */
     private boolean clearDiskOnStartup = DEFAULT_CLEAR_DISK_ON_STARTUP;
 
+    /** Should we read the data file through memory mapping. */
+    public static final boolean DEFAULT_MEMORY_MAPPED_READS = false;
+
+    /** Should we read the data file through memory mapping. */
+    private boolean memoryMappedReads = DEFAULT_MEMORY_MAPPED_READS;
+
+    /** Should we journal the changes to the keys. */
+    public static final boolean DEFAULT_JOURNAL_KEYS = false;
+
+    /** Should we journal the changes to the keys, so they survive a crash. */
+    private boolean journalKeys = DEFAULT_JOURNAL_KEYS;
+
+    /** default value */
+    public static final int DEFAULT_JOURNAL_CHECKPOINT_RECORDS = 100000;
+
+    /** The number of journal records after which the keys are checkpointed. */
+    private int journalCheckpointRecords = DEFAULT_JOURNAL_CHECKPOINT_RECORDS;
+
     private DiskLimitType diskLimitType = DiskLimitType.COUNT;
 
     /**
@@ -167,6 +185,54 @@ public class IndexedDiskCacheAttributes
         return clearDiskOnStartup;
     }
 
+    /**
+     * @param memoryMappedReads the memoryMappedReads to set
+     */
+    public void setMemoryMappedReads( boolean memoryMappedReads )
+    {
+        this.memoryMappedReads = memoryMappedReads;
+    }
+
+    /**
+     * @return the memoryMappedReads
+     */
+    public boolean isMemoryMappedReads()
+    {
+        return memoryMappedReads;
+    }
+
+    /**
+     * @param journalKeys the journalKeys to set
+     */
+    public void setJournalKeys( boolean journalKeys )
+    {
+        this.journalKeys = journalKeys;
+    }
+
+    /**
+     * @return the journalKeys
+     */
+    public boolean isJournalKeys()
+    {
+        return journalKeys;
+    }
+
+    /**
+     * @param journalCheckpointRecords the journalCheckpointRecords to set
+     */
+    public void setJournalCheckpointRecords( int journalCheckpointRecords )
+    {
+        this.journalCheckpointRecords = journalCheckpointRecords;
+    }
+
+    /**
+     * @return the journalCheckpointRecords
+     */
+    public int getJournalCheckpointRecords()
+    {
+        return journalCheckpointRecords;
+    }
+
     /**
      * Returns a copy of the attributes.
      * <p>
@@ -204,6 +270,9 @@ public class IndexedDiskCacheAttributes
         str.append( "\n shutdownSpoolTimeLimit  = " + super.getShutdownSpoolTimeLimit() );
         str.append( "\n optimizeOnShutdown  = " + optimizeOnShutdown );
         str.append( "\n clearDiskOnStartup  = " + clearDiskOnStartup );
+        str.append( "\n memoryMappedReads  = " + memoryMappedReads );
+        str.append( "\n journalKeys  = " + journalKeys );
+        str.append( "\n journalCheckpointRecords  = " + journalCheckpointRecords );
         return str.toString();
     }
 }
@@ -0,0 +1,53 @@
+package org.apache.commons.jcs.auxiliary.disk.indexed;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+
+/**
+ * The keys written to the key file by a checkpoint of the key journal. It is still the map older
+ * versions read, it only adds the generation of the first journal that is not part of it.
+ */
+public class IndexedDiskKeyCheckpoint<K>
+    extends HashMap<K, IndexedDiskElementDescriptor>
+{
+    /** Don't change */
+    private static final long serialVersionUID = 4139232618459743120L;
+
+    /** Journals of this and later generations must be replayed on top. */
+    private final long generation;
+
+    /**
+     * @param generation the generation of the journal started with this checkpoint
+     */
+    public IndexedDiskKeyCheckpoint( long generation )
+    {
+        super();
+        this.generation = generation;
+    }
+
+    /**
+     * @return the generation of the journal started with this checkpoint
+     */
+    public long getGeneration()
+    {
+        return generation;
+    }
+}
@@ -0,0 +1,405 @@
+package org.apache.commons.jcs.auxiliary.disk.indexed;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An append only log of the changes to the keys of an indexed disk cache since the last
+ * checkpoint. Every checkpoint starts a journal of the next generation in a new file, named
+ * <code>name.generation.keylog</code>, and records its generation in the key file. On startup the
+ * journals of that generation and later are replayed over the keys of the key file.
+ * <p>
+ * Each record is written straight to the file channel, so it survives a crash of the process. A
+ * record carries its length and a checksum, a torn record at the end of a journal is ignored.
+ */
+class IndexedDiskKeyJournal
+{
+    /** The logger. */
+    private static final Log log = LogFactory.getLog( IndexedDiskKeyJournal.class );
+
+    /** The suffix of journal files. */
+    static final String SUFFIX = ".keylog";
+
+    /** Starts a journal file. */
+    private static final int MAGIC = 0x4A43534A;
+
+    /** Size of the file header: magic and generation. */
+    private static final int FILE_HEADER_SIZE = 12;
+
+    /** Size of the record header: length and checksum. */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    /** The key now has the descriptor. */
+    private static final byte PUT = 1;
+
+    /** The key was removed. */
+    private static final byte REMOVE = 2;
+
+    /** An optimization started moving records, the positions of the journal no longer hold. */
+    private static final byte OPTIMIZE = 3;
+
+    /** The file. */
+    private final File file;
+
+    /** The generation. */
+    private final long generation;
+
+    /** Serializes the keys. */
+    private final IElementSerializer elementSerializer;
+
+    /** The file, kept open for appending. */
+    private final RandomAccessFile raf;
+
+    /** The channel of the file. */
+    private final FileChannel fc;
+
+    /** For the record checksums. */
+    private final CRC32 crc = new CRC32();
+
+    /** Records written. */
+    private int recordCount = 0;
+
+    /**
+     * Creates an empty journal, replacing any file of the same generation.
+     * <p>
+     * @param directory
+     * @param name the file name of the cache
+     * @param generation
+     * @param elementSerializer serializes the keys
+     * @throws IOException
+     */
+    IndexedDiskKeyJournal( File directory, String name, long generation, IElementSerializer elementSerializer )
+        throws IOException
+    {
+        this.file = getFile( directory, name, generation );
+        this.generation = generation;
+        this.elementSerializer = elementSerializer;
+        this.raf = new RandomAccessFile( file, "rw" );
+        this.fc = raf.getChannel();
+
+        fc.truncate( 0 );
+        ByteBuffer header = ByteBuffer.allocate( FILE_HEADER_SIZE );
+        header.putInt( MAGIC );
+        header.putLong( generation );
+        header.flip();
+        writeFully( header );
+    }
+
+    /**
+     * Records that the key now has the descriptor.
+     * <p>
+     * @param key
+     * @param ded
+     * @throws IOException
+     */
+    void put( Object key, IndexedDiskElementDescriptor ded )
+        throws IOException
+    {
+        byte[] keyBytes = elementSerializer.serialize( key );
+        ByteBuffer payload = ByteBuffer.allocate( 1 + 4 + keyBytes.length + 8 + 4 );
+        payload.put( PUT );
+        payload.putInt( keyBytes.length );
+        payload.put( keyBytes );
+        payload.putLong( ded.pos );
+        payload.putInt( ded.len );
+        append( payload );
+    }
+
+    /**
+     * Records that the key was removed.
+     * <p>
+     * @param key
+     * @throws IOException
+     */
+    void remove( Object key )
+        throws IOException
+    {
+        byte[] keyBytes = elementSerializer.serialize( key );
+        ByteBuffer payload = ByteBuffer.allocate( 1 + 4 + keyBytes.length );
+        payload.put( REMOVE );
+        payload.putInt( keyBytes.length );
+        payload.put( keyBytes );
+        append( payload );
+    }
+
+    /**
+     * Records that an optimization started. Until the next checkpoint the journal cannot be
+     * replayed.
+     * <p>
+     * @throws IOException
+     */
+    void optimizing()
+        throws IOException
+    {
+        ByteBuffer payload = ByteBuffer.allocate( 1 );
+        payload.put( OPTIMIZE );
+        append( payload );
+    }
+
+    /**
+     * Writes a record.
+     * <p>
+     * @param payload filled
+     * @throws IOException
+     */
+    private void append( ByteBuffer payload )
+        throws IOException
+    {
+        crc.reset();
+        crc.update( payload.array(), 0, payload.position() );
+
+        ByteBuffer record = ByteBuffer.allocate( RECORD_HEADER_SIZE + payload.position() );
+        record.putInt( payload.position() );
+        record.putInt( (int) crc.getValue() );
+        record.put( payload.array(), 0, payload.position() );
+        record.flip();
+        writeFully( record );
+        recordCount++;
+    }
+
+    /**
+     * @param buffer
+     * @throws IOException
+     */
+    private void writeFully( ByteBuffer buffer )
+        throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            fc.write( buffer );
+        }
+    }
+
+    /**
+     * @return the number of records written
+     */
+    int getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * @return the generation
+     */
+    long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Closes the file.
+     * <p>
+     * @throws IOException
+     */
+    void close()
+        throws IOException
+    {
+        raf.close();
+    }
+
+    /**
+     * @param directory
+     * @param name the file name of the cache
+     * @param generation
+     * @return the journal file of the generation
+     */
+    static File getFile( File directory, String name, long generation )
+    {
+        return new File( directory, name + "." + generation + SUFFIX );
+    }
+
+    /**
+     * Finds the journal files of a cache.
+     * <p>
+     * @param directory
+     * @param name the file name of the cache
+     * @return the files by generation
+     */
+    static SortedMap<Long, File> findJournals( File directory, String name )
+    {
+        SortedMap<Long, File> journals = new TreeMap<Long, File>();
+        String prefix = name + ".";
+        File[] files = directory.listFiles();
+        if ( files != null )
+        {
+            for ( File candidate : files )
+            {
+                String fileName = candidate.getName();
+                if ( fileName.length() > prefix.length() + SUFFIX.length() && fileName.startsWith( prefix )
+                    && fileName.endsWith( SUFFIX ) )
+                {
+                    String generation = fileName.substring( prefix.length(), fileName.length() - SUFFIX.length() );
+                    if ( generation.matches( "[0-9]+" ) )
+                    {
+                        journals.put( Long.valueOf( generation ), candidate );
+                    }
+                }
+            }
+        }
+        return journals;
+    }
+
+    /**
+     * Applies the records of a journal file to the keys.
+     * <p>
+     * @param journalFile
+     * @param keys the map to apply the changes to
+     * @param elementSerializer deserializes the keys
+     * @return what was found
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    static <K> Replay<K> replay( File journalFile, Map<K, IndexedDiskElementDescriptor> keys,
+        IElementSerializer elementSerializer )
+        throws IOException, ClassNotFoundException
+    {
+        Replay<K> replay = new Replay<K>();
+        RandomAccessFile raf = new RandomAccessFile( journalFile, "r" );
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if ( size < FILE_HEADER_SIZE )
+            {
+                return replay;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate( FILE_HEADER_SIZE );
+            readFully( channel, header, 0 );
+            header.flip();
+            if ( header.getInt() != MAGIC )
+            {
+                throw new IOException( "Not a key journal: " + journalFile );
+            }
+            header.getLong();
+
+            CRC32 checksum = new CRC32();
+            ByteBuffer recordHeader = ByteBuffer.allocate( RECORD_HEADER_SIZE );
+            long pos = FILE_HEADER_SIZE;
+            while ( pos + RECORD_HEADER_SIZE <= size )
+            {
+                recordHeader.clear();
+                readFully( channel, recordHeader, pos );
+                recordHeader.flip();
+                int length = recordHeader.getInt();
+                int expected = recordHeader.getInt();
+                if ( length <= 0 || pos + RECORD_HEADER_SIZE + length > size )
+                {
+                    break;
+                }
+
+                ByteBuffer payload = ByteBuffer.allocate( length );
+                readFully( channel, payload, pos + RECORD_HEADER_SIZE );
+                checksum.reset();
+                checksum.update( payload.array(), 0, length );
+                if ( (int) checksum.getValue() != expected )
+                {
+                    break;
+                }
+                payload.flip();
+                pos += RECORD_HEADER_SIZE + length;
+
+                byte type = payload.get();
+                replay.lastPutKey = null;
+                if ( type == OPTIMIZE )
+                {
+                    replay.optimizing = true;
+                }
+                else
+                {
+                    byte[] keyBytes = new byte[payload.getInt()];
+                    payload.get( keyBytes );
+                    K key = elementSerializer.deSerialize( keyBytes, null );
+                    if ( type == PUT )
+                    {
+                        long dataPos = payload.getLong();
+                        int dataLen = payload.getInt();
+                        keys.put( key, new IndexedDiskElementDescriptor( dataPos, dataLen ) );
+                        replay.lastPutKey = key;
+                    }
+                    else
+                    {
+                        keys.remove( key );
+                    }
+                }
+                replay.records++;
+            }
+
+            if ( pos < size )
+            {
+                log.warn( "Ignoring " + ( size - pos ) + " bytes of torn records at the end of " + journalFile );
+            }
+        }
+        finally
+        {
+            raf.close();
+        }
+        return replay;
+    }
+
+    /**
+     * @param channel
+     * @param buffer
+     * @param position
+     * @throws IOException
+     */
+    private static void readFully( FileChannel channel, ByteBuffer buffer, long position )
+        throws IOException
+    {
+        long pos = position;
+        while ( buffer.hasRemaining() )
+        {
+            int read = channel.read( buffer, pos );
+            if ( read < 0 )
+            {
+                throw new IOException( "Unexpected end of journal" );
+            }
+            pos += read;
+        }
+    }
+
+    /**
+     * The outcome of replaying a journal.
+     */
+    static class Replay<K>
+    {
+        /** Records applied. */
+        int records = 0;
+
+        /** Whether an optimization was started. */
+        boolean optimizing = false;
+
+        /** The key of the last record if that was a put. Its data may not have been written. */
+        K lastPutKey = null;
+    }
+}
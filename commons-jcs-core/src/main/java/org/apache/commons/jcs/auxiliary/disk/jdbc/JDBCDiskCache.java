@@ -25,6 +25,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -99,6 +100,9 @@ public class JDBCDiskCache<K, V>
     /** if count % interval == 0 then log */
     private static final int LOG_INTERVAL = 100;
 
+    /** The most keys bound into the in list of one getMultiple select. */
+    private static final int MAX_KEYS_PER_SELECT = 100;
+
     /** db connection pool */
     private JDBCDiskCachePoolAccess poolAccess = null;
 
@@ -551,6 +555,143 @@ public class JDBCDiskCache<K, V>
         return obj;
     }
 
+    /**
+     * Queries the database for the values with an in list instead of one select per key. Large key
+     * sets are split into several selects of at most MAX_KEYS_PER_SELECT keys, all on one
+     * connection.
+     * <p>
+     * @param keys
+     * @return a map of K key to ICacheElement<K, V> element for the keys found
+     * @see org.apache.commons.jcs.auxiliary.disk.AbstractDiskCache#processGetMultipleFromDisk(Set)
+     */
+    @Override
+    protected Map<K, ICacheElement<K, V>> processGetMultipleFromDisk( Set<K> keys )
+    {
+        incrementGetCount();
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Getting [" + keys + "] from disk" );
+        }
+
+        Map<K, ICacheElement<K, V>> results = new HashMap<K, ICacheElement<K, V>>();
+
+        if ( !alive )
+        {
+            return results;
+        }
+
+        // the table stores the string form of the key
+        Map<String, K> keysByString = new HashMap<String, K>();
+        for (K key : keys)
+        {
+            keysByString.put( key.toString(), key );
+        }
+        List<String> stringKeys = new ArrayList<String>( keysByString.keySet() );
+
+        try
+        {
+            Connection con = getPoolAccess().getConnection();
+            try
+            {
+                for ( int start = 0; start < stringKeys.size(); start += MAX_KEYS_PER_SELECT )
+                {
+                    List<String> chunk =
+                        stringKeys.subList( start, Math.min( start + MAX_KEYS_PER_SELECT, stringKeys.size() ) );
+                    selectMultiple( con, chunk, keysByString, results );
+                }
+            }
+            finally
+            {
+                if ( con != null )
+                {
+                    con.close();
+                }
+            }
+        }
+        catch ( SQLException sqle )
+        {
+            log.error( "Caught a SQL exception trying to get the items for keys [" + keys + "]", sqle );
+        }
+
+        return results;
+    }
+
+    /**
+     * Runs one in list select and adds the deserialized values to the results.
+     * <p>
+     * @param con
+     * @param stringKeys the string forms of the keys to select
+     * @param keysByString maps the string form back to the key
+     * @param results
+     * @throws SQLException
+     */
+    private void selectMultiple( Connection con, List<String> stringKeys, Map<String, K> keysByString,
+                                 Map<K, ICacheElement<K, V>> results )
+        throws SQLException
+    {
+        StringBuilder selectString = new StringBuilder( "select CACHE_KEY, ELEMENT from " );
+        selectString.append( getJdbcDiskCacheAttributes().getTableName() );
+        selectString.append( " where REGION = ? and CACHE_KEY in (" );
+        for ( int i = 0; i < stringKeys.size(); i++ )
+        {
+            selectString.append( i == 0 ? "?" : ", ?" );
+        }
+        selectString.append( ")" );
+
+        PreparedStatement psSelect = null;
+        try
+        {
+            psSelect = con.prepareStatement( selectString.toString() );
+            psSelect.setString( 1, this.getCacheName() );
+            for ( int i = 0; i < stringKeys.size(); i++ )
+            {
+                psSelect.setString( i + 2, stringKeys.get( i ) );
+            }
+
+            ResultSet rs = psSelect.executeQuery();
+            try
+            {
+                while ( rs.next() )
+                {
+                    String stringKey = rs.getString( 1 );
+                    byte[] data = rs.getBytes( 2 );
+                    if ( data != null )
+                    {
+                        try
+                        {
+                            // USE THE SERIALIZER
+                            ICacheElement<K, V> value = getElementSerializer().deSerialize( data, null );
+                            results.put( keysByString.get( stringKey ), value );
+                        }
+                        catch ( IOException ioe )
+                        {
+                            log.error( "Problem getting item for key [" + stringKey + "]", ioe );
+                        }
+                        catch ( Exception e )
+                        {
+                            log.error( "Problem getting item for key [" + stringKey + "]", e );
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                if ( rs != null )
+                {
+                    rs.close();
+                }
+            }
+        }
+        finally
+        {
+            if ( psSelect != null )
+            {
+                psSelect.close();
+            }
+        }
+    }
+
     /**
      * This will run a like query. It will try to construct a usable query but different
      * implementations will be needed to adjust the syntax.
@@ -0,0 +1,304 @@
+package org.apache.commons.jcs.auxiliary.disk.logstructured;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * One file of the log. Records are only ever appended. Each record is laid out as
+ * <p>
+ * <code>int length of the rest | byte type | int key length | key bytes | element bytes</code>
+ * <p>
+ * A remove is recorded as a record of type {@link #TYPE_REMOVE} without element bytes, so the
+ * index can be rebuilt by replaying the segments in order.
+ * <p>
+ * Appends are serialized by the cache. Reads use positional reads and may run concurrently with
+ * appends.
+ */
+class LogSegment
+{
+    /** The logger */
+    private static final Log log = LogFactory.getLog( LogSegment.class );
+
+    /** The length, type and key length fields. */
+    static final int RECORD_HEADER_SIZE = 4 + 1 + 4;
+
+    /** A record holding an element. */
+    static final byte TYPE_PUT = 1;
+
+    /** A record marking the removal of a key. */
+    static final byte TYPE_REMOVE = 2;
+
+    /** The id, segments are replayed in id order. */
+    private final int id;
+
+    /** The file. */
+    private final File file;
+
+    /** The data file. */
+    private final FileChannel fc;
+
+    /** The position of the next append. */
+    private volatile long size;
+
+    /** Bytes of records that were replaced or removed. */
+    private final AtomicLong deadBytes = new AtomicLong();
+
+    /**
+     * Opens the segment, keeping anything already in the file.
+     * <p>
+     * @param file
+     * @param id
+     * @throws IOException
+     */
+    LogSegment( File file, int id )
+        throws IOException
+    {
+        this.file = file;
+        this.id = id;
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        this.fc = raf.getChannel();
+        this.size = fc.size();
+    }
+
+    /**
+     * Builds a record.
+     * <p>
+     * @param type TYPE_PUT or TYPE_REMOVE
+     * @param key the serialized key
+     * @param value the serialized element, null for a remove
+     * @return a buffer ready to be appended
+     */
+    static ByteBuffer createRecord( byte type, byte[] key, byte[] value )
+    {
+        int valueLength = value == null ? 0 : value.length;
+        ByteBuffer record = ByteBuffer.allocate( RECORD_HEADER_SIZE + key.length + valueLength );
+        record.putInt( record.capacity() - 4 );
+        record.put( type );
+        record.putInt( key.length );
+        record.put( key );
+        if ( value != null )
+        {
+            record.put( value );
+        }
+        record.flip();
+        return record;
+    }
+
+    /**
+     * @param record a whole record
+     * @return the type of the record
+     */
+    static byte getType( ByteBuffer record )
+    {
+        return record.get( 4 );
+    }
+
+    /**
+     * @param record a whole record
+     * @return a view of the key bytes
+     */
+    static ByteBuffer getKey( ByteBuffer record )
+    {
+        ByteBuffer key = record.duplicate();
+        key.position( RECORD_HEADER_SIZE );
+        key.limit( RECORD_HEADER_SIZE + record.getInt( 5 ) );
+        return key;
+    }
+
+    /**
+     * @param record a whole record
+     * @return a view of the element bytes
+     */
+    static ByteBuffer getValue( ByteBuffer record )
+    {
+        ByteBuffer value = record.duplicate();
+        value.position( RECORD_HEADER_SIZE + record.getInt( 5 ) );
+        return value;
+    }
+
+    /**
+     * Appends the record. The caller must make sure appends do not run concurrently.
+     * <p>
+     * @param record
+     * @return the position of the record
+     * @throws IOException
+     */
+    long append( ByteBuffer record )
+        throws IOException
+    {
+        long pos = size;
+        long writePos = pos;
+        while ( record.hasRemaining() )
+        {
+            writePos += fc.write( record, writePos );
+        }
+        size = writePos;
+        return pos;
+    }
+
+    /**
+     * Reads the bytes of a record.
+     * <p>
+     * @param pos
+     * @param len
+     * @return a buffer holding the record
+     * @throws IOException if the file ends before the record
+     */
+    ByteBuffer read( long pos, int len )
+        throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( len );
+        long readPos = pos;
+        while ( buffer.hasRemaining() )
+        {
+            int read = fc.read( buffer, readPos );
+            if ( read < 0 )
+            {
+                throw new EOFException( "Segment [" + file + "] ends before the record at " + pos );
+            }
+            readPos += read;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads the record starting at the given position, when scanning the segment.
+     * <p>
+     * @param pos
+     * @return the record, or null if the record is incomplete, for instance after a crash during an
+     *         append
+     * @throws IOException
+     */
+    ByteBuffer readRecord( long pos )
+        throws IOException
+    {
+        long end = size;
+        if ( pos + RECORD_HEADER_SIZE > end )
+        {
+            return null;
+        }
+        int length = read( pos, 4 ).getInt();
+        if ( length < RECORD_HEADER_SIZE - 4 || pos + 4 + length > end )
+        {
+            return null;
+        }
+        ByteBuffer record = read( pos, 4 + length );
+        int keyLength = record.getInt( 5 );
+        if ( keyLength < 0 || RECORD_HEADER_SIZE + keyLength > record.limit() )
+        {
+            return null;
+        }
+        return record;
+    }
+
+    /**
+     * Cuts off an incomplete record at the end.
+     * <p>
+     * @param length
+     * @throws IOException
+     */
+    void truncate( long length )
+        throws IOException
+    {
+        if ( log.isInfoEnabled() )
+        {
+            log.info( "Truncating segment [" + file + "] to " + length );
+        }
+        fc.truncate( length );
+        size = length;
+    }
+
+    /**
+     * @param bytes size of a record that is no longer needed
+     */
+    void addDeadBytes( long bytes )
+    {
+        deadBytes.addAndGet( bytes );
+    }
+
+    /**
+     * @return the size of the records that are no longer needed
+     */
+    long getDeadBytes()
+    {
+        return deadBytes.get();
+    }
+
+    /**
+     * @return the length of the segment
+     */
+    long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * @return the id
+     */
+    int getId()
+    {
+        return id;
+    }
+
+    /**
+     * @return the file
+     */
+    File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Closes the file.
+     * <p>
+     * @throws IOException
+     */
+    void close()
+        throws IOException
+    {
+        fc.close();
+    }
+
+    /**
+     * Closes and deletes the file.
+     * <p>
+     * @throws IOException
+     */
+    void delete()
+        throws IOException
+    {
+        close();
+        if ( !file.delete() && file.exists() )
+        {
+            log.warn( "Could not delete segment [" + file + "]" );
+        }
+    }
+}
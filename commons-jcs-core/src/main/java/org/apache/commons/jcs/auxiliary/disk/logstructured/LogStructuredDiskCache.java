@@ -0,0 +1,937 @@
+package org.apache.commons.jcs.auxiliary.disk.logstructured;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.jcs.auxiliary.AuxiliaryCacheAttributes;
+import org.apache.commons.jcs.auxiliary.disk.AbstractDiskCache;
+import org.apache.commons.jcs.engine.CacheConstants;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.engine.behavior.IRequireScheduler;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.stats.StatElement;
+import org.apache.commons.jcs.engine.stats.Stats;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A disk cache that never writes in place. Every put and remove is appended to the current
+ * segment file, and an in memory index maps each key to its latest record. Once a segment reaches
+ * its maximum size a new one is started.
+ * <p>
+ * Replaced and removed records are counted per segment. Sealed segments where these dead bytes
+ * reach the configured share are compacted in the background: the live records are appended to
+ * the current segment and the old file is deleted. Reads take no lock. A read that races with the
+ * deletion of a compacted segment simply looks the key up again.
+ * <p>
+ * The index is rebuilt on startup by replaying the segments in order, so there is no key file.
+ */
+public class LogStructuredDiskCache<K, V>
+    extends AbstractDiskCache<K, V>
+    implements IRequireScheduler
+{
+    /** The logger. */
+    private static final Log log = LogFactory.getLog( LogStructuredDiskCache.class );
+
+    /** Suffix of the segment files. */
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /** How often a read retries after the segment was compacted away. */
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    /** The name to prefix all log messages with. */
+    private final String logCacheName;
+
+    /** The prefix of the segment file names. */
+    private final String fileName;
+
+    /** Attributes governing the behavior of the cache. */
+    private final LogStructuredDiskCacheAttributes logStructuredDiskCacheAttributes;
+
+    /** The directory for the segments. */
+    private final File rootDirectory;
+
+    /** Key to the latest record. Only changed while holding the append lock. */
+    private final ConcurrentMap<K, LogStructuredElementDescriptor> index =
+        new ConcurrentHashMap<K, LogStructuredElementDescriptor>();
+
+    /** The segments by id. */
+    private final ConcurrentMap<Integer, LogSegment> segments = new ConcurrentHashMap<Integer, LogSegment>();
+
+    /** The segment appended to. */
+    private volatile LogSegment activeSegment;
+
+    /** Serializes the appends and keeps the log order in line with the index. */
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    /** Only one compaction at a time. */
+    private final ReentrantLock compactionLock = new ReentrantLock();
+
+    /** Number of segments compacted. */
+    private final AtomicInteger compactionCount = new AtomicInteger();
+
+    /**
+     * Constructs the cache and replays the existing segments.
+     * <p>
+     * @param cacheAttributes
+     */
+    public LogStructuredDiskCache( LogStructuredDiskCacheAttributes cacheAttributes )
+    {
+        this( cacheAttributes, null );
+    }
+
+    /**
+     * Constructs the cache and replays the existing segments.
+     * <p>
+     * @param cacheAttributes
+     * @param elementSerializer used if supplied, the super's super will not set a null
+     */
+    public LogStructuredDiskCache( LogStructuredDiskCacheAttributes cacheAttributes, IElementSerializer elementSerializer )
+    {
+        super( cacheAttributes );
+        setElementSerializer( elementSerializer );
+
+        this.logStructuredDiskCacheAttributes = cacheAttributes;
+        this.logCacheName = "Region [" + getCacheName() + "] ";
+
+        if ( log.isInfoEnabled() )
+        {
+            log.info( logCacheName + "Constructing LogStructuredDiskCache with attributes " + cacheAttributes );
+        }
+
+        // Make a clean file name
+        this.fileName = getCacheName().replaceAll("[^a-zA-Z0-9-_\\.]", "_");
+        this.rootDirectory = cacheAttributes.getDiskPath();
+
+        try
+        {
+            loadSegments();
+        }
+        catch ( Exception e )
+        {
+            log.error( logCacheName + "Failure replaying segments in root directory: " + rootDirectory
+                + ", resetting", e );
+            reset();
+        }
+
+        if ( activeSegment != null )
+        {
+            // Initialization finished successfully, so set alive to true.
+            alive = true;
+            if ( log.isInfoEnabled() )
+            {
+                log.info( logCacheName + "Log Structured Disk Cache is alive with " + index.size() + " keys." );
+            }
+        }
+    }
+
+    /**
+     * @see org.apache.commons.jcs.engine.behavior.IRequireScheduler#setScheduledExecutorService(java.util.concurrent.ScheduledExecutorService)
+     */
+    @Override
+    public void setScheduledExecutorService( ScheduledExecutorService scheduledExecutor )
+    {
+        if ( this.logStructuredDiskCacheAttributes.getCompactionIntervalSeconds() > 0 )
+        {
+            scheduledExecutor.scheduleWithFixedDelay(
+                    new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            compact();
+                        }
+                    },
+                    this.logStructuredDiskCacheAttributes.getCompactionIntervalSeconds(),
+                    this.logStructuredDiskCacheAttributes.getCompactionIntervalSeconds(),
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Opens the segment files of this region in id order and replays them into the index.
+     * <p>
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void loadSegments()
+        throws IOException, ClassNotFoundException
+    {
+        List<Integer> ids = new ArrayList<Integer>();
+        String[] names = rootDirectory.list();
+        if ( names != null )
+        {
+            for ( String name : names )
+            {
+                if ( name.startsWith( fileName + "." ) && name.endsWith( SEGMENT_SUFFIX ) )
+                {
+                    String id = name.substring( fileName.length() + 1, name.length() - SEGMENT_SUFFIX.length() );
+                    try
+                    {
+                        ids.add( Integer.valueOf( id ) );
+                    }
+                    catch ( NumberFormatException e )
+                    {
+                        // belongs to another region
+                    }
+                }
+            }
+        }
+        Collections.sort( ids );
+
+        for ( Integer id : ids )
+        {
+            LogSegment segment = new LogSegment( getSegmentFile( id.intValue() ), id.intValue() );
+            segments.put( id, segment );
+            replay( segment );
+            activeSegment = segment;
+        }
+
+        if ( activeSegment == null )
+        {
+            activeSegment = createSegment( 0 );
+        }
+    }
+
+    /**
+     * Applies the records of the segment to the index. An incomplete record at the end is cut off.
+     * <p>
+     * @param segment
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void replay( LogSegment segment )
+        throws IOException, ClassNotFoundException
+    {
+        long pos = 0;
+        while ( pos < segment.getSize() )
+        {
+            ByteBuffer record = segment.readRecord( pos );
+            if ( record == null )
+            {
+                log.warn( logCacheName + "Incomplete record at " + pos + " in segment [" + segment.getFile() + "]" );
+                segment.truncate( pos );
+                break;
+            }
+
+            K key = getElementSerializer().deSerializeFrom( LogSegment.getKey( record ), null );
+            LogStructuredElementDescriptor old;
+            if ( LogSegment.getType( record ) == LogSegment.TYPE_PUT )
+            {
+                old = index.put( key, new LogStructuredElementDescriptor( segment.getId(), pos, record.limit() ) );
+            }
+            else
+            {
+                old = index.remove( key );
+                segment.addDeadBytes( record.limit() );
+            }
+            if ( old != null )
+            {
+                markDead( old );
+            }
+            pos += record.limit();
+        }
+    }
+
+    /**
+     * @param id
+     * @return the file of the segment
+     */
+    private File getSegmentFile( int id )
+    {
+        return new File( rootDirectory, fileName + "." + id + SEGMENT_SUFFIX );
+    }
+
+    /**
+     * Creates and registers an empty segment.
+     * <p>
+     * @param id
+     * @return the segment
+     * @throws IOException
+     */
+    private LogSegment createSegment( int id )
+        throws IOException
+    {
+        LogSegment segment = new LogSegment( getSegmentFile( id ), id );
+        if ( segment.getSize() > 0 )
+        {
+            segment.truncate( 0 );
+        }
+        segments.put( Integer.valueOf( id ), segment );
+        return segment;
+    }
+
+    /**
+     * Appends a record to the active segment, starting a new segment if the record does not fit.
+     * The caller must hold the append lock.
+     * <p>
+     * @param record
+     * @return where the record was written
+     * @throws IOException
+     */
+    private LogStructuredElementDescriptor append( ByteBuffer record )
+        throws IOException
+    {
+        LogSegment segment = activeSegment;
+        int len = record.remaining();
+        if ( segment.getSize() > 0
+            && segment.getSize() + len > logStructuredDiskCacheAttributes.getSegmentSizeBytes() )
+        {
+            segment = createSegment( segment.getId() + 1 );
+            activeSegment = segment;
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( logCacheName + "Started segment " + segment.getId() );
+            }
+        }
+
+        long pos = segment.append( record );
+        return new LogStructuredElementDescriptor( segment.getId(), pos, len );
+    }
+
+    /**
+     * Counts the record as dead in its segment.
+     * <p>
+     * @param ded
+     */
+    private void markDead( LogStructuredElementDescriptor ded )
+    {
+        LogSegment segment = segments.get( Integer.valueOf( ded.segmentId ) );
+        if ( segment != null )
+        {
+            segment.addDeadBytes( ded.len );
+        }
+    }
+
+    /**
+     * Return the keys in this cache.
+     * <p>
+     * @see org.apache.commons.jcs.auxiliary.disk.AbstractDiskCache#getKeySet()
+     */
+    @Override
+    public Set<K> getKeySet() throws IOException
+    {
+        return new HashSet<K>( index.keySet() );
+    }
+
+    /**
+     * Gets matching items from the cache.
+     * <p>
+     * @param pattern
+     * @return a map of K key to ICacheElement<K, V> element, or an empty map if there is no
+     *         data in cache matching keys
+     */
+    @Override
+    public Map<K, ICacheElement<K, V>> processGetMatching( String pattern )
+    {
+        Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
+
+        Set<K> matchingKeys = getKeyMatcher().getMatchingKeysFromArray( pattern, new HashSet<K>( index.keySet() ) );
+
+        for (K key : matchingKeys)
+        {
+            ICacheElement<K, V> element = processGet( key );
+            if ( element != null )
+            {
+                elements.put( key, element );
+            }
+        }
+
+        return elements;
+    }
+
+    /**
+     * Returns the number of keys.
+     * <p>
+     * @see org.apache.commons.jcs.auxiliary.disk.AbstractDiskCache#getSize()
+     */
+    @Override
+    public int getSize()
+    {
+        return index.size();
+    }
+
+    /**
+     * Looks up the record of the key and reads it with one positional read. No lock is taken. If
+     * the segment was compacted away in the meantime, the key is looked up again.
+     * <p>
+     * @param key
+     * @return ICacheElement
+     * @see org.apache.commons.jcs.auxiliary.disk.AbstractDiskCache#doGet(java.io.Serializable)
+     */
+    @Override
+    protected ICacheElement<K, V> processGet( K key )
+    {
+        if ( !alive )
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( logCacheName + "No longer alive so returning null for key = " + key );
+            }
+            return null;
+        }
+
+        try
+        {
+            for ( int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++ )
+            {
+                LogStructuredElementDescriptor ded = index.get( key );
+                if ( ded == null )
+                {
+                    return null;
+                }
+
+                LogSegment segment = segments.get( Integer.valueOf( ded.segmentId ) );
+                if ( segment != null )
+                {
+                    try
+                    {
+                        ByteBuffer record = segment.read( ded.pos, ded.len );
+                        return getElementSerializer().deSerializeFrom( LogSegment.getValue( record ), null );
+                    }
+                    catch ( ClosedChannelException e )
+                    {
+                        if ( !alive )
+                        {
+                            return null;
+                        }
+                        // compacted while reading, look again
+                    }
+                }
+            }
+            log.warn( logCacheName + "Record kept moving, giving up reading key = " + key );
+        }
+        catch ( IOException ioe )
+        {
+            log.error( logCacheName + "Failure getting from disk--IOException, key = " + key, ioe );
+        }
+        catch ( Exception e )
+        {
+            log.error( logCacheName + "Failure getting from disk, key = " + key, e );
+        }
+        return null;
+    }
+
+    /**
+     * Serializes the element outside of any lock, then appends it and points the index at it.
+     * <p>
+     * @param element
+     * @see org.apache.commons.jcs.auxiliary.disk.AbstractDiskCache#doUpdate(org.apache.commons.jcs.engine.behavior.ICacheElement)
+     */
+    @Override
+    protected void processUpdate( ICacheElement<K, V> element )
+    {
+        if ( !alive )
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( logCacheName + "No longer alive; aborting put of key = " + element.getKey() );
+            }
+            return;
+        }
+
+        try
+        {
+            ByteBuffer record = LogSegment.createRecord( LogSegment.TYPE_PUT,
+                getElementSerializer().serialize( element.getKey() ), getElementSerializer().serialize( element ) );
+
+            appendLock.lock();
+            try
+            {
+                LogStructuredElementDescriptor old = index.put( element.getKey(), append( record ) );
+                if ( old != null )
+                {
+                    markDead( old );
+                }
+            }
+            finally
+            {
+                appendLock.unlock();
+            }
+
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( logCacheName + "Put to file [" + fileName + "] key [" + element.getKey() + "]" );
+            }
+        }
+        catch ( IOException e )
+        {
+            log.error( logCacheName + "Failure updating element, key: " + element.getKey(), e );
+        }
+    }
+
+    /**
+     * Removes the key, or all the keys of a name hierarchy or group. A removal record is appended
+     * for each key so the removal survives a restart.
+     * <p>
+     * @param key
+     * @return true if removed anything
+     * @see org.apache.commons.jcs.auxiliary.disk.AbstractDiskCache#doRemove(java.io.Serializable)
+     */
+    @Override
+    protected boolean processRemove( K key )
+    {
+        if ( !alive )
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( logCacheName + "No longer alive so returning false for key = " + key );
+            }
+            return false;
+        }
+
+        boolean removed = false;
+
+        try
+        {
+            if ( key instanceof String && key.toString().endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+            {
+                // remove all keys of the same name group.
+                for ( K k : index.keySet() )
+                {
+                    if ( k instanceof String && k.toString().startsWith( key.toString() ) )
+                    {
+                        removed |= removeKey( k );
+                    }
+                }
+            }
+            else if ( key instanceof GroupAttrName && ((GroupAttrName<?>)key).attrName == null )
+            {
+                // remove all keys of the same name hierarchy.
+                for ( K k : index.keySet() )
+                {
+                    if ( k instanceof GroupAttrName &&
+                        ((GroupAttrName<?>)k).groupId.equals(((GroupAttrName<?>)key).groupId))
+                    {
+                        removed |= removeKey( k );
+                    }
+                }
+            }
+            else
+            {
+                // remove single item.
+                removed = removeKey( key );
+
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( logCacheName + "Disk removal: Removed from index, key [" + key + "] removed = "
+                        + removed );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            log.error( logCacheName + "Problem removing element.", e );
+        }
+
+        return removed;
+    }
+
+    /**
+     * Removes a single key and appends the removal record.
+     * <p>
+     * @param key
+     * @return true if the key was present
+     * @throws IOException
+     */
+    private boolean removeKey( K key )
+        throws IOException
+    {
+        if ( !index.containsKey( key ) )
+        {
+            return false;
+        }
+
+        ByteBuffer record = LogSegment.createRecord( LogSegment.TYPE_REMOVE, getElementSerializer().serialize( key ), null );
+
+        appendLock.lock();
+        try
+        {
+            LogStructuredElementDescriptor old = index.remove( key );
+            if ( old == null )
+            {
+                return false;
+            }
+            markDead( old );
+            markDead( append( record ) );
+            return true;
+        }
+        finally
+        {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes all the segments and clears the index.
+     * <p>
+     * @see org.apache.commons.jcs.auxiliary.disk.AbstractDiskCache#doRemoveAll()
+     */
+    @Override
+    protected void processRemoveAll()
+    {
+        reset();
+    }
+
+    /**
+     * Compacts the sealed segments whose share of dead bytes reached the threshold. Runs in the
+     * background; if a compaction is already running this returns at once.
+     */
+    public void compact()
+    {
+        if ( !alive || !compactionLock.tryLock() )
+        {
+            return;
+        }
+
+        try
+        {
+            List<LogSegment> candidates = new ArrayList<LogSegment>();
+            for ( LogSegment segment : segments.values() )
+            {
+                if ( segment != activeSegment
+                    && segment.getDeadBytes() * 100 >= segment.getSize()
+                        * logStructuredDiskCacheAttributes.getCompactionThresholdPercent() )
+                {
+                    candidates.add( segment );
+                }
+            }
+            Collections.sort( candidates, new Comparator<LogSegment>()
+            {
+                @Override
+                public int compare( LogSegment s1, LogSegment s2 )
+                {
+                    return s1.getId() < s2.getId() ? -1 : ( s1.getId() == s2.getId() ? 0 : 1 );
+                }
+            } );
+
+            for ( LogSegment segment : candidates )
+            {
+                if ( !alive || !compactSegment( segment ) )
+                {
+                    break;
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            log.error( logCacheName + "Problem compacting segments.", e );
+        }
+        finally
+        {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Copies the live records of the segment to the active segment and deletes it. Each record is
+     * copied while holding the append lock, so puts and removes interleave with the compaction.
+     * <p>
+     * A removal record is only copied if the key was not put again, and is dropped if no older
+     * segment exists that could still hold a put for the key.
+     * <p>
+     * @param source
+     * @return false if the cache was reset while compacting
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private boolean compactSegment( LogSegment source )
+        throws IOException, ClassNotFoundException
+    {
+        Integer sourceId = Integer.valueOf( source.getId() );
+        boolean oldest = true;
+        for ( Integer id : segments.keySet() )
+        {
+            if ( id.intValue() < source.getId() )
+            {
+                oldest = false;
+            }
+        }
+
+        int moved = 0;
+        long pos = 0;
+        long end = source.getSize();
+        while ( pos < end )
+        {
+            ByteBuffer record = source.readRecord( pos );
+            if ( record == null )
+            {
+                break;
+            }
+
+            K key = getElementSerializer().deSerializeFrom( LogSegment.getKey( record ), null );
+            boolean put = LogSegment.getType( record ) == LogSegment.TYPE_PUT;
+
+            appendLock.lock();
+            try
+            {
+                if ( segments.get( sourceId ) != source )
+                {
+                    return false;
+                }
+
+                LogStructuredElementDescriptor ded = index.get( key );
+                if ( put )
+                {
+                    if ( ded != null && ded.segmentId == source.getId() && ded.pos == pos )
+                    {
+                        index.put( key, append( record ) );
+                        moved++;
+                    }
+                }
+                else if ( ded == null && !oldest )
+                {
+                    markDead( append( record ) );
+                }
+            }
+            finally
+            {
+                appendLock.unlock();
+            }
+
+            pos += record.limit();
+        }
+
+        appendLock.lock();
+        try
+        {
+            if ( !segments.remove( sourceId, source ) )
+            {
+                return false;
+            }
+            source.delete();
+        }
+        finally
+        {
+            appendLock.unlock();
+        }
+
+        compactionCount.incrementAndGet();
+        if ( log.isInfoEnabled() )
+        {
+            log.info( logCacheName + "Compacted segment " + source.getId() + ", moved " + moved + " records" );
+        }
+        return true;
+    }
+
+    /**
+     * Dispose of the disk cache in a background thread. Joins against this thread to put a cap on
+     * the disposal time.
+     */
+    @Override
+    public void processDispose()
+    {
+        Runnable disR = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                disposeInternal();
+            }
+        };
+        Thread t = new Thread( disR, "LogStructuredDiskCache-DisposalThread" );
+        t.start();
+        // wait up to 60 seconds for dispose and then quit if not done.
+        try
+        {
+            t.join( 60 * 1000 );
+        }
+        catch ( InterruptedException ex )
+        {
+            log.error( logCacheName + "Interrupted while waiting for disposal thread to finish.", ex );
+        }
+    }
+
+    /**
+     * Internal method that handles the disposal.
+     */
+    protected void disposeInternal()
+    {
+        if ( !alive )
+        {
+            log.error( logCacheName + "Not alive and dispose was called, filename: " + fileName );
+            return;
+        }
+
+        compactionLock.lock();
+        appendLock.lock();
+        try
+        {
+            // Prevents any interaction with the cache while we're shutting down.
+            alive = false;
+
+            for ( LogSegment segment : segments.values() )
+            {
+                try
+                {
+                    segment.close();
+                }
+                catch ( IOException e )
+                {
+                    log.error( logCacheName + "Failure closing segment [" + segment.getFile() + "]", e );
+                }
+            }
+        }
+        finally
+        {
+            appendLock.unlock();
+            compactionLock.unlock();
+        }
+
+        if ( log.isInfoEnabled() )
+        {
+            log.info( logCacheName + "Shutdown complete." );
+        }
+    }
+
+    /**
+     * Returns the attributes.
+     * <p>
+     * @see org.apache.commons.jcs.auxiliary.AuxiliaryCache#getAuxiliaryCacheAttributes()
+     */
+    @Override
+    public AuxiliaryCacheAttributes getAuxiliaryCacheAttributes()
+    {
+        return this.logStructuredDiskCacheAttributes;
+    }
+
+    /**
+     * Reset effectively clears the disk cache, deleting the segments and the index. The new segment
+     * gets a fresh id, so a read holding a descriptor from before the reset can't find a record of
+     * another key at its position.
+     * <p>
+     * It can be used to handle errors by last resort, force content update, or removeall.
+     */
+    private void reset()
+    {
+        if ( log.isWarnEnabled() )
+        {
+            log.warn( logCacheName + "Resetting cache" );
+        }
+
+        appendLock.lock();
+        try
+        {
+            int nextId = activeSegment == null ? 0 : activeSegment.getId() + 1;
+            index.clear();
+            for ( LogSegment segment : segments.values() )
+            {
+                try
+                {
+                    segment.delete();
+                }
+                catch ( IOException e )
+                {
+                    log.error( logCacheName + "Failure deleting segment [" + segment.getFile() + "]", e );
+                }
+            }
+            segments.clear();
+            activeSegment = createSegment( nextId );
+        }
+        catch ( IOException e )
+        {
+            log.error( logCacheName + "Failure resetting state", e );
+        }
+        finally
+        {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Gets basic stats for the disk cache.
+     * <p>
+     * @return String
+     */
+    @Override
+    public String getStats()
+    {
+        return getStatistics().toString();
+    }
+
+    /**
+     * Returns info about the disk cache.
+     * <p>
+     * @see org.apache.commons.jcs.auxiliary.AuxiliaryCache#getStatistics()
+     */
+    @Override
+    public IStats getStatistics()
+    {
+        IStats stats = new Stats();
+        stats.setTypeName( "Log Structured Disk Cache" );
+
+        ArrayList<IStatElement<?>> elems = new ArrayList<IStatElement<?>>();
+
+        long totalBytes = 0;
+        long deadBytes = 0;
+        for ( LogSegment segment : segments.values() )
+        {
+            totalBytes += segment.getSize();
+            deadBytes += segment.getDeadBytes();
+        }
+
+        elems.add(new StatElement<Boolean>( "Is Alive", Boolean.valueOf(alive) ) );
+        elems.add(new StatElement<Integer>( "Key Map Size", Integer.valueOf(index.size()) ) );
+        elems.add(new StatElement<Integer>( "Segments", Integer.valueOf(segments.size()) ) );
+        elems.add(new StatElement<Long>( "Data File Length", Long.valueOf(totalBytes) ) );
+        elems.add(new StatElement<Long>( "Dead Bytes", Long.valueOf(deadBytes) ) );
+        elems.add(new StatElement<Integer>( "Compactions", Integer.valueOf(compactionCount.get()) ) );
+
+        // get the stats from the super too
+        IStats sStats = super.getStatistics();
+        elems.addAll(sStats.getStatElements());
+
+        stats.setStatElements( elems );
+
+        return stats;
+    }
+
+    /**
+     * This is used by the event logging.
+     * <p>
+     * @return the location of the disk, either path or ip.
+     */
+    @Override
+    protected String getDiskLocation()
+    {
+        return rootDirectory.getAbsolutePath();
+    }
+}
@@ -0,0 +1,116 @@
+package org.apache.commons.jcs.auxiliary.disk.logstructured;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.jcs.auxiliary.disk.AbstractDiskCacheAttributes;
+
+/**
+ * This holds attributes for Log Structured Disk Cache configuration.
+ */
+public class LogStructuredDiskCacheAttributes
+    extends AbstractDiskCacheAttributes
+{
+    /** Don't change */
+    private static final long serialVersionUID = 2816453987530741923L;
+
+    /** Default size at which a new segment is started. */
+    private static final int DEFAULT_SEGMENT_SIZE_BYTES = 64 * 1024 * 1024;
+
+    /** A new segment is started once the current one reaches this size. */
+    private int segmentSizeBytes = DEFAULT_SEGMENT_SIZE_BYTES;
+
+    /** Default share of dead bytes that makes a segment worth compacting. */
+    private static final int DEFAULT_COMPACTION_THRESHOLD_PERCENT = 50;
+
+    /** Segments with at least this percentage of replaced or removed records are compacted. */
+    private int compactionThresholdPercent = DEFAULT_COMPACTION_THRESHOLD_PERCENT;
+
+    /** How often should we look for segments to compact. */
+    private static final long DEFAULT_COMPACTION_INTERVAL_SECONDS = 60;
+
+    /** The segments will be checked at this interval. -1 means never. */
+    private long compactionIntervalSeconds = DEFAULT_COMPACTION_INTERVAL_SECONDS;
+
+    /**
+     * @param segmentSizeBytes The segmentSizeBytes to set.
+     */
+    public void setSegmentSizeBytes( int segmentSizeBytes )
+    {
+        this.segmentSizeBytes = segmentSizeBytes;
+    }
+
+    /**
+     * @return Returns the segmentSizeBytes.
+     */
+    public int getSegmentSizeBytes()
+    {
+        return segmentSizeBytes;
+    }
+
+    /**
+     * @param compactionThresholdPercent The compactionThresholdPercent to set.
+     */
+    public void setCompactionThresholdPercent( int compactionThresholdPercent )
+    {
+        this.compactionThresholdPercent = compactionThresholdPercent;
+    }
+
+    /**
+     * @return Returns the compactionThresholdPercent.
+     */
+    public int getCompactionThresholdPercent()
+    {
+        return compactionThresholdPercent;
+    }
+
+    /**
+     * @param compactionIntervalSeconds The compactionIntervalSeconds to set.
+     */
+    public void setCompactionIntervalSeconds( long compactionIntervalSeconds )
+    {
+        this.compactionIntervalSeconds = compactionIntervalSeconds;
+    }
+
+    /**
+     * @return Returns the compactionIntervalSeconds.
+     */
+    public long getCompactionIntervalSeconds()
+    {
+        return compactionIntervalSeconds;
+    }
+
+    /**
+     * Write out the values for debugging purposes.
+     * <p>
+     * @return String
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder str = new StringBuilder();
+        str.append( "\nLogStructuredDiskAttributes " );
+        str.append( "\n DiskPath [" + this.getDiskPath() + "]" );
+        str.append( "\n MaxPurgatorySize [" + this.getMaxPurgatorySize() + "]" );
+        str.append( "\n SegmentSizeBytes [" + this.getSegmentSizeBytes() + "]" );
+        str.append( "\n CompactionThresholdPercent [" + this.getCompactionThresholdPercent() + "]" );
+        str.append( "\n CompactionIntervalSeconds [" + this.getCompactionIntervalSeconds() + "]" );
+        return str.toString();
+    }
+}
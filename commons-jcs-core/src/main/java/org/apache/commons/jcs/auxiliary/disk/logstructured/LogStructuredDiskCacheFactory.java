@@ -0,0 +1,65 @@
+package org.apache.commons.jcs.auxiliary.disk.logstructured;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.jcs.auxiliary.AbstractAuxiliaryCacheFactory;
+import org.apache.commons.jcs.auxiliary.AuxiliaryCacheAttributes;
+import org.apache.commons.jcs.engine.behavior.ICompositeCacheManager;
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.engine.logging.behavior.ICacheEventLogger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Creates log structured disk cache instances.
+ */
+public class LogStructuredDiskCacheFactory
+    extends AbstractAuxiliaryCacheFactory
+{
+    /** The logger */
+    private static final Log log = LogFactory.getLog( LogStructuredDiskCacheFactory.class );
+
+    /**
+     * Create an instance of the LogStructuredDiskCache.
+     * <p>
+     * @param iaca the cache attributes for this cache
+     * @param cacheMgr This allows auxiliaries to reference the manager without assuming that it is
+     *            a singleton.
+     * @param cacheEventLogger
+     * @param elementSerializer
+     * @return LogStructuredDiskCache
+     */
+    @Override
+    public <K, V> LogStructuredDiskCache<K, V> createCache( AuxiliaryCacheAttributes iaca, ICompositeCacheManager cacheMgr,
+                                       ICacheEventLogger cacheEventLogger, IElementSerializer elementSerializer )
+    {
+        LogStructuredDiskCacheAttributes idca = (LogStructuredDiskCacheAttributes) iaca;
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Creating DiskCache for attributes = " + idca );
+        }
+
+        // the serializer is needed to replay the segments in the constructor
+        LogStructuredDiskCache<K, V> cache = new LogStructuredDiskCache<K, V>( idca, elementSerializer );
+        cache.setCacheEventLogger( cacheEventLogger );
+
+        return cache;
+    }
+}
@@ -0,0 +1,58 @@
+package org.apache.commons.jcs.auxiliary.disk.logstructured;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * The location of the latest record for a key: the segment, the position of the record in the
+ * segment, and the length of the whole record. Descriptors are immutable, a record that moves gets
+ * a new descriptor.
+ */
+class LogStructuredElementDescriptor
+{
+    /** The id of the segment holding the record. */
+    final int segmentId;
+
+    /** The position of the record in the segment. */
+    final long pos;
+
+    /** The length of the record including its header. */
+    final int len;
+
+    /**
+     * @param segmentId
+     * @param pos
+     * @param len
+     */
+    LogStructuredElementDescriptor( int segmentId, long pos, int len )
+    {
+        this.segmentId = segmentId;
+        this.pos = pos;
+        this.len = len;
+    }
+
+    /**
+     * @return segment, position and length
+     */
+    @Override
+    public String toString()
+    {
+        return "[segment = " + segmentId + ", pos = " + pos + ", len = " + len + "]";
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.commons.logging.LogFactory;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -117,6 +118,26 @@ public class LateralCache<K, V>
         }
     }
 
+    /**
+     * Sends the elements to the lateral with one call.
+     * <p>
+     * @param ces
+     * @throws IOException
+     */
+    @Override
+    protected void processUpdateMultiple( List<ICacheElement<K, V>> ces )
+        throws IOException
+    {
+        try
+        {
+            lateralCacheService.updateMultiple( ces, CacheInfo.listenerId );
+        }
+        catch ( Exception ex )
+        {
+            handleException( ex, "Failed to put " + ces.size() + " items to " + cacheName + "@" + lateralCacheAttributes );
+        }
+    }
+
     /**
      * The performance costs are too great. It is not recommended that you enable lateral gets.
      * <p>
@@ -250,6 +271,26 @@ public class LateralCache<K, V>
         return false;
     }
 
+    /**
+     * Sends the removes to the lateral with one call.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    protected void processRemoveMultiple( List<K> keys )
+        throws IOException
+    {
+        try
+        {
+            lateralCacheService.removeMultiple( cacheName, keys, CacheInfo.listenerId );
+        }
+        catch ( Exception ex )
+        {
+            handleException( ex, "Failed to remove " + keys.size() + " keys from " + cacheName + "@" + lateralCacheAttributes );
+        }
+    }
+
     /**
      * Synchronously removeAll from the remote cache; if failed, replace the remote handle with a
      * zombie.
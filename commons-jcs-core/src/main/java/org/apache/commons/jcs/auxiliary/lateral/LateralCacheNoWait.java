@@ -86,7 +86,8 @@ public class LateralCacheNoWait<K, V>
         CacheEventQueueFactory<K, V> fact = new CacheEventQueueFactory<K, V>();
         this.eventQueue = fact.createCacheEventQueue( new CacheAdaptor<K, V>( cache ), CacheInfo.listenerId, cache
             .getCacheName(), cache.getAuxiliaryCacheAttributes().getEventQueuePoolName(), cache
-            .getAuxiliaryCacheAttributes().getEventQueueType() );
+            .getAuxiliaryCacheAttributes().getEventQueueType(), cache.getAuxiliaryCacheAttributes()
+            .getEventQueueMaxBatchSize(), cache.getAuxiliaryCacheAttributes().getEventQueueMaxBatchDelayMicros() );
 
         // need each no wait to handle each of its real updates and removes,
         // since there may
@@ -363,7 +364,8 @@ public class LateralCacheNoWait<K, V>
         CacheEventQueueFactory<K, V> fact = new CacheEventQueueFactory<K, V>();
         this.eventQueue = fact.createCacheEventQueue( new CacheAdaptor<K, V>( cache ), CacheInfo.listenerId, cache
             .getCacheName(), cache.getAuxiliaryCacheAttributes().getEventQueuePoolName(), cache
-            .getAuxiliaryCacheAttributes().getEventQueueType() );
+            .getAuxiliaryCacheAttributes().getEventQueueType(), cache.getAuxiliaryCacheAttributes()
+            .getEventQueueMaxBatchSize(), cache.getAuxiliaryCacheAttributes().getEventQueueMaxBatchDelayMicros() );
     }
 
     /**
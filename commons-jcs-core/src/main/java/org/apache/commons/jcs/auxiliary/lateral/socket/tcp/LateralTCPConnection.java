@@ -0,0 +1,545 @@
+package org.apache.commons.jcs.auxiliary.lateral.socket.tcp;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One non-blocking lateral connection, used on both ends. Messages are length prefixed frames:
+ * <pre>
+ * int   length of the rest of the frame
+ * byte  type
+ * int   request id, 0 if no response is expected
+ * byte[] payload
+ * </pre>
+ * Any thread may queue frames. They are written by the selector thread, which coalesces
+ * consecutive messages into one batch frame and writes everything queued with one gathering
+ * write, so a burst of updates costs one system call instead of one per update.
+ */
+abstract class LateralTCPConnection
+    implements LateralTCPSelector.SelectionHandler
+{
+    /** The logger */
+    private static final Log log = LogFactory.getLog( LateralTCPConnection.class );
+
+    /** A single descriptor, no response. */
+    static final byte MESSAGE = 1;
+
+    /** A count followed by length prefixed descriptors, no response. */
+    static final byte BATCH = 2;
+
+    /** A descriptor that expects a response with the same request id. */
+    static final byte REQUEST = 3;
+
+    /** The answer to a request. */
+    static final byte RESPONSE = 4;
+
+    /** Length, type and request id. */
+    static final int HEADER_LENGTH = 9;
+
+    /** Frames larger than this are treated as a corrupt stream. */
+    private static final int MAX_FRAME_LENGTH = 256 * 1024 * 1024;
+
+    /** Messages are batched up to this size. */
+    private static final int MAX_BATCH_LENGTH = 64 * 1024;
+
+    /** Initial size of the read buffer. */
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    /** Most buffers passed to one gathering write. */
+    private static final int MAX_GATHER = 64;
+
+    /** The channel */
+    protected final SocketChannel channel;
+
+    /** The thread that reads and writes the channel. */
+    protected final LateralTCPSelector selector;
+
+    /** Frames queued by any thread, not yet encoded. */
+    private final Queue<Outgoing> outgoing = new ConcurrentLinkedQueue<Outgoing>();
+
+    /** Encoded frames, only used on the selector thread. */
+    private final ArrayDeque<ByteBuffer> writing = new ArrayDeque<ByteBuffer>();
+
+    /** Bytes queued and not yet written. */
+    private final AtomicLong queuedBytes = new AtomicLong();
+
+    /** Whether a flush task is queued on the selector. */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /** Encodes and writes the queued frames. */
+    private final Runnable flushTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            flushScheduled.set( false );
+            try
+            {
+                flush();
+            }
+            catch ( IOException e )
+            {
+                close( e );
+            }
+        }
+    };
+
+    /** The selection key, set on the selector thread. */
+    private SelectionKey key;
+
+    /** Bytes read and not yet parsed. */
+    private ByteBuffer input = ByteBuffer.allocate( READ_BUFFER_SIZE );
+
+    /** Set once the connection is closed. */
+    private volatile boolean closed = false;
+
+    /** Whether the channel is read, cleared while the receiver is behind. Selector thread only. */
+    private boolean reading = true;
+
+    /**
+     * @param channel a connected channel
+     * @param selector the selector thread
+     * @throws IOException if the channel cannot be made non-blocking
+     */
+    LateralTCPConnection( SocketChannel channel, LateralTCPSelector selector )
+        throws IOException
+    {
+        this.channel = channel;
+        this.selector = selector;
+        channel.configureBlocking( false );
+        channel.socket().setTcpNoDelay( true );
+    }
+
+    /**
+     * Registers the channel for reading.
+     */
+    void start()
+    {
+        selector.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    key = selector.register( channel, SelectionKey.OP_READ, LateralTCPConnection.this );
+                    flush();
+                }
+                catch ( IOException e )
+                {
+                    close( e );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Called on the selector thread for every complete frame.
+     * <p>
+     * @param type the frame type
+     * @param requestId the request id
+     * @param payload the payload
+     * @throws IOException closes the connection
+     */
+    protected abstract void frameReceived( byte type, int requestId, byte[] payload )
+        throws IOException;
+
+    /**
+     * Called once when the connection is closed.
+     * <p>
+     * @param cause the error, null if closed on purpose
+     */
+    protected abstract void closed( IOException cause );
+
+    /**
+     * Queues a frame for writing.
+     * <p>
+     * @param type MESSAGE, BATCH, REQUEST or RESPONSE
+     * @param requestId the request id
+     * @param payload the payload
+     * @throws IOException if the connection is closed
+     */
+    void enqueue( byte type, int requestId, byte[] payload )
+        throws IOException
+    {
+        if ( closed )
+        {
+            throw new IOException( "Connection to " + channel.socket().getRemoteSocketAddress() + " is closed" );
+        }
+        queuedBytes.addAndGet( HEADER_LENGTH + payload.length );
+        outgoing.add( new Outgoing( type, requestId, payload ) );
+        if ( flushScheduled.compareAndSet( false, true ) )
+        {
+            selector.execute( flushTask );
+        }
+    }
+
+    /**
+     * @return bytes queued and not yet written
+     */
+    long getQueuedBytes()
+    {
+        return queuedBytes.get();
+    }
+
+    /**
+     * @return true once closed
+     */
+    boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Stops or resumes reading from the channel. Frames already read are still passed on. Must be
+     * called on the selector thread.
+     * <p>
+     * @param reading false to stop reading until called again with true
+     */
+    protected void setReading( boolean reading )
+    {
+        this.reading = reading;
+        updateInterestOps();
+    }
+
+    /**
+     * Called after bytes were written, on the selector thread.
+     */
+    protected void written()
+    {
+        // NO OP
+    }
+
+    /**
+     * Reads and writes as the key is ready.
+     * <p>
+     * @param readyKey the key
+     * @throws IOException closes the connection
+     */
+    @Override
+    public void handle( SelectionKey readyKey )
+        throws IOException
+    {
+        if ( readyKey.isReadable() )
+        {
+            read();
+        }
+        if ( readyKey.isValid() && readyKey.isWritable() )
+        {
+            flush();
+        }
+    }
+
+    /**
+     * Reads what is available and passes on the complete frames.
+     * <p>
+     * @throws IOException on a closed or corrupt stream
+     */
+    private void read()
+        throws IOException
+    {
+        if ( channel.read( input ) < 0 )
+        {
+            throw new EOFException( "Connection closed by " + channel.socket().getRemoteSocketAddress() );
+        }
+
+        input.flip();
+        while ( input.remaining() >= 4 )
+        {
+            int length = input.getInt( input.position() );
+            if ( length < HEADER_LENGTH - 4 || length > MAX_FRAME_LENGTH )
+            {
+                throw new IOException( "Corrupt frame length " + length );
+            }
+            if ( input.remaining() < 4 + length )
+            {
+                if ( input.capacity() < 4 + length )
+                {
+                    ByteBuffer larger = ByteBuffer.allocate( 4 + length );
+                    larger.put( input );
+                    input = larger;
+                    return;
+                }
+                break;
+            }
+
+            input.getInt();
+            byte type = input.get();
+            int requestId = input.getInt();
+            byte[] payload = new byte[length - ( HEADER_LENGTH - 4 )];
+            input.get( payload );
+            frameReceived( type, requestId, payload );
+        }
+        input.compact();
+
+        if ( input.capacity() > READ_BUFFER_SIZE && input.position() == 0 )
+        {
+            input = ByteBuffer.allocate( READ_BUFFER_SIZE );
+        }
+    }
+
+    /**
+     * Encodes the queued frames and writes as much as the socket takes.
+     * <p>
+     * @throws IOException on a write error
+     */
+    private void flush()
+        throws IOException
+    {
+        if ( key == null || closed )
+        {
+            return;
+        }
+
+        encode();
+
+        ByteBuffer[] buffers = new ByteBuffer[Math.min( writing.size(), MAX_GATHER )];
+        while ( !writing.isEmpty() )
+        {
+            int count = 0;
+            for ( ByteBuffer buffer : writing )
+            {
+                if ( count == buffers.length )
+                {
+                    break;
+                }
+                buffers[count++] = buffer;
+            }
+            long written = channel.write( buffers, 0, count );
+            queuedBytes.addAndGet( -written );
+            while ( !writing.isEmpty() && !writing.peekFirst().hasRemaining() )
+            {
+                writing.removeFirst();
+            }
+            if ( written == 0 )
+            {
+                break;
+            }
+        }
+        written();
+
+        updateInterestOps();
+    }
+
+    /**
+     * Asks for reads unless reading is stopped, and for writes while there is something to write.
+     */
+    private void updateInterestOps()
+    {
+        if ( key != null && key.isValid() )
+        {
+            key.interestOps( ( reading ? SelectionKey.OP_READ : 0 )
+                | ( writing.isEmpty() ? 0 : SelectionKey.OP_WRITE ) );
+        }
+    }
+
+    /**
+     * Turns the queued frames into buffers. Runs of messages become batch frames.
+     */
+    private void encode()
+    {
+        Outgoing frame;
+        while ( ( frame = outgoing.poll() ) != null )
+        {
+            if ( frame.type != MESSAGE || outgoing.peek() == null || outgoing.peek().type != MESSAGE )
+            {
+                writing.addLast( encode( frame.type, frame.requestId, frame.payload ) );
+                continue;
+            }
+
+            // a run of messages
+            Queue<Outgoing> batch = new ArrayDeque<Outgoing>();
+            batch.add( frame );
+            int length = 4 + 4 + frame.payload.length;
+            long accounted = HEADER_LENGTH + frame.payload.length;
+            while ( outgoing.peek() != null && outgoing.peek().type == MESSAGE
+                && length + 4 + outgoing.peek().payload.length <= MAX_BATCH_LENGTH )
+            {
+                Outgoing next = outgoing.poll();
+                batch.add( next );
+                length += 4 + next.payload.length;
+                accounted += HEADER_LENGTH + next.payload.length;
+            }
+
+            if ( batch.size() == 1 )
+            {
+                writing.addLast( encode( frame.type, frame.requestId, frame.payload ) );
+                continue;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate( HEADER_LENGTH + length );
+            buffer.putInt( HEADER_LENGTH - 4 + length );
+            buffer.put( BATCH );
+            buffer.putInt( 0 );
+            buffer.putInt( batch.size() );
+            for ( Outgoing message : batch )
+            {
+                buffer.putInt( message.payload.length );
+                buffer.put( message.payload );
+            }
+            buffer.flip();
+            queuedBytes.addAndGet( buffer.remaining() - accounted );
+            writing.addLast( buffer );
+        }
+    }
+
+    /**
+     * @param type the frame type
+     * @param requestId the request id
+     * @param payload the payload
+     * @return the frame, ready to write
+     */
+    private static ByteBuffer encode( byte type, int requestId, byte[] payload )
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( HEADER_LENGTH + payload.length );
+        buffer.putInt( HEADER_LENGTH - 4 + payload.length );
+        buffer.put( type );
+        buffer.putInt( requestId );
+        buffer.put( payload );
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Builds the payload of a batch frame.
+     * <p>
+     * @param payloads the payloads of the messages
+     * @return the batch payload
+     */
+    static byte[] joinBatch( List<byte[]> payloads )
+    {
+        int length = 4;
+        for ( byte[] payload : payloads )
+        {
+            length += 4 + payload.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate( length );
+        buffer.putInt( payloads.size() );
+        for ( byte[] payload : payloads )
+        {
+            buffer.putInt( payload.length );
+            buffer.put( payload );
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Splits the payload of a batch frame.
+     * <p>
+     * @param payload the batch payload
+     * @return the payloads of the messages
+     * @throws IOException if the batch is corrupt
+     */
+    static byte[][] splitBatch( byte[] payload )
+        throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap( payload );
+        int count = buffer.getInt();
+        if ( count < 0 || count > payload.length / 4 )
+        {
+            throw new IOException( "Corrupt batch of " + count + " messages" );
+        }
+        byte[][] messages = new byte[count][];
+        for ( int i = 0; i < count; i++ )
+        {
+            int length = buffer.getInt();
+            if ( length < 0 || length > buffer.remaining() )
+            {
+                throw new IOException( "Corrupt batch message length " + length );
+            }
+            messages[i] = new byte[length];
+            buffer.get( messages[i] );
+        }
+        return messages;
+    }
+
+    /**
+     * Closes the channel. Safe to call more than once and from any thread.
+     * <p>
+     * @param cause the error, null if closed on purpose
+     */
+    @Override
+    public void close( IOException cause )
+    {
+        synchronized ( this )
+        {
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
+        }
+
+        if ( cause != null && log.isInfoEnabled() )
+        {
+            log.info( "Closing connection to " + channel.socket().getRemoteSocketAddress() + ": " + cause );
+        }
+        try
+        {
+            channel.close();
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not close channel", e );
+        }
+        outgoing.clear();
+        queuedBytes.set( 0 );
+        closed( cause );
+    }
+
+    /** A frame queued for writing. */
+    private static final class Outgoing
+    {
+        /** Frame type */
+        final byte type;
+
+        /** Request id */
+        final int requestId;
+
+        /** Payload */
+        final byte[] payload;
+
+        /**
+         * @param type frame type
+         * @param requestId request id
+         * @param payload payload
+         */
+        Outgoing( byte type, int requestId, byte[] payload )
+        {
+            this.type = type;
+            this.requestId = requestId;
+            this.payload = payload;
+        }
+    }
+}
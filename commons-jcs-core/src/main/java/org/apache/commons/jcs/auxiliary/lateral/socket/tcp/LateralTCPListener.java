@@ -29,29 +29,35 @@ import org.apache.commons.jcs.engine.behavior.ICompositeCacheManager;
 import org.apache.commons.jcs.engine.behavior.IShutdownObserver;
 import org.apache.commons.jcs.engine.control.CompositeCache;
 import org.apache.commons.jcs.engine.control.CompositeCacheManager;
-import org.apache.commons.jcs.io.ObjectInputStreamClassLoaderAware;
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
 import org.apache.commons.jcs.utils.threadpool.DaemonThreadFactory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketTimeoutException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Listens for connections from other TCP lateral caches and handles them. The initialization method
- * starts a listening thread, which creates a socket server. When messages are received they are
- * passed to a pooled executor which then calls the appropriate handle method.
+ * opens a non-blocking server socket and starts a selector thread, which accepts the connections and
+ * reads the frames of all of them. Received frames are passed to a pooled executor which then calls
+ * the appropriate handle method. The frames of one connection are handled one at a time and in
+ * order, so a connection only occupies a pool thread while it has work.
  */
 public class LateralTCPListener<K, V>
     implements ILateralCacheListener<K, V>, IShutdownObserver
@@ -59,9 +65,6 @@ public class LateralTCPListener<K, V>
     /** The logger */
     private static final Log log = LogFactory.getLog( LateralTCPListener.class );
 
-    /** How long the server will block on an accept(). 0 is infinite. */
-    private static final int acceptTimeOut = 1000;
-
     /** The CacheHub this listener is associated with */
     private transient ICompositeCacheManager cacheManager;
 
@@ -69,8 +72,11 @@ public class LateralTCPListener<K, V>
     private static final HashMap<String, ILateralCacheListener<?, ?>> instances =
         new HashMap<String, ILateralCacheListener<?, ?>>();
 
-    /** The socket listener */
-    private ListenerThread receiver;
+    /** Accepts and reads the connections. */
+    private LateralTCPSelector receiver;
+
+    /** Descriptors and responses are serialized with this. */
+    private final IElementSerializer serializer = new StandardSerializer();
 
     /** Configuration attributes */
     private ITCPLateralCacheAttributes tcpLateralCacheAttributes;
@@ -160,11 +166,27 @@ public class LateralTCPListener<K, V>
 
             log.info( "Listening on port " + port );
 
-            ServerSocket serverSocket = new ServerSocket( port );
-            serverSocket.setSoTimeout( acceptTimeOut );
+            final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+            serverChannel.socket().setReuseAddress( true );
+            serverChannel.socket().bind( new InetSocketAddress( port ) );
+            serverChannel.configureBlocking( false );
 
-            receiver = new ListenerThread(serverSocket);
-            receiver.setDaemon( true );
+            receiver = new LateralTCPSelector( "JCS-LateralTCPListener-" + port );
+            receiver.execute( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        receiver.register( serverChannel, SelectionKey.OP_ACCEPT, new Acceptor( serverChannel ) );
+                    }
+                    catch ( IOException e )
+                    {
+                        log.error( "Could not register server socket", e );
+                    }
+                }
+            } );
             receiver.start();
         }
         catch ( Exception ex )
@@ -269,6 +291,37 @@ public class LateralTCPListener<K, V>
         getCache( cacheName ).localRemove( key );
     }
 
+    /**
+     * Calls handlePut for each element.
+     * <p>
+     * @see org.apache.commons.jcs.engine.behavior.ICacheListener#handlePutMultiple(java.util.List)
+     */
+    @Override
+    public void handlePutMultiple( List<ICacheElement<K, V>> elements )
+        throws IOException
+    {
+        for ( ICacheElement<K, V> element : elements )
+        {
+            handlePut( element );
+        }
+    }
+
+    /**
+     * Calls handleRemove for each key.
+     * <p>
+     * @see org.apache.commons.jcs.engine.behavior.ICacheListener#handleRemoveMultiple(java.lang.String,
+     *      java.util.List)
+     */
+    @Override
+    public void handleRemoveMultiple( String cacheName, List<K> keys )
+        throws IOException
+    {
+        for ( K key : keys )
+        {
+            handleRemove( cacheName, key );
+        }
+    }
+
     /**
      * Gets the cache that was injected by the lateral factory. Calls removeAll on the cache.
      * <p>
@@ -383,6 +436,7 @@ public class LateralTCPListener<K, V>
         terminated = true;
         notify();
 
+        receiver.shutdown();
         pooledExecutor.shutdownNow();
     }
 
@@ -479,271 +533,407 @@ public class LateralTCPListener<K, V>
     }
 
     /**
-     * Processes commands from the server socket. There should be one listener for each configured
-     * TCP lateral.
+     * This calls the appropriate method, based on the command sent in the Lateral element
+     * descriptor.
+     * <p>
+     * @param led
+     * @return the response to a get, null otherwise
+     * @throws IOException
      */
-    public class ListenerThread
-        extends Thread
+    private Serializable handle( LateralElementDescriptor<K, V> led )
+        throws IOException
     {
-        /** The socket listener */
-        private final ServerSocket serverSocket;
+        String cacheName = led.ce.getCacheName();
+        K key = led.ce.getKey();
+        Serializable obj = null;
 
-        /**
-         * Constructor
-         *
-         * @param serverSocket
-         */
-        public ListenerThread(ServerSocket serverSocket)
+        switch (led.command)
         {
-            super();
-            this.serverSocket = serverSocket;
-        }
-
-        /** Main processing method for the ListenerThread object */
-        @SuppressWarnings("synthetic-access")
-        @Override
-        public void run()
-        {
-            try
-            {
-                ConnectionHandler handler;
-
-                outer: while ( true )
+            case UPDATE:
+                handlePut( led.ce );
+                break;
+
+            case REMOVE:
+                // if a hashcode was given and filtering is on
+                // check to see if they are the same
+                // if so, then don't remove, otherwise issue a remove
+                if ( led.valHashCode != -1 )
                 {
-                    if ( log.isDebugEnabled() )
-                    {
-                        log.debug( "Waiting for clients to connect " );
-                    }
-
-                    Socket socket = null;
-                    inner: while (true)
+                    if ( getTcpLateralCacheAttributes().isFilterRemoveByHashCode() )
                     {
-                        // Check to see if we've been asked to exit, and exit
-                        synchronized (LateralTCPListener.this)
+                        ICacheElement<K, V> test = getCache( cacheName ).localGet( key );
+                        if ( test != null )
                         {
-                            if (terminated)
+                            if ( test.getVal().hashCode() == led.valHashCode )
                             {
-                                if (log.isDebugEnabled())
+                                if ( log.isDebugEnabled() )
                                 {
-                                    log.debug("Thread terminated, exiting gracefully");
+                                    log.debug( "Filtering detected identical hashCode [" + led.valHashCode
+                                        + "], not issuing a remove for led " + led );
+                                }
+                                return null;
+                            }
+                            else
+                            {
+                                if ( log.isDebugEnabled() )
+                                {
+                                    log.debug( "Different hashcodes, in cache [" + test.getVal().hashCode()
+                                        + "] sent [" + led.valHashCode + "]" );
                                 }
-                                break outer;
                             }
-                        }
-                        try
-                        {
-                            socket = serverSocket.accept();
-                            break inner;
-                        }
-                        catch (SocketTimeoutException e)
-                        {
-                            // No problem! We loop back up!
-                            continue inner;
                         }
                     }
+                }
+                handleRemove( cacheName, key );
+                break;
+
+            case REMOVEALL:
+                handleRemoveAll( cacheName );
+                break;
+
+            case GET:
+                obj = handleGet( cacheName, key );
+                break;
+
+            case GET_MATCHING:
+                obj = (Serializable) handleGetMatching( cacheName, (String) key );
+                break;
+
+            case GET_KEYSET:
+            	obj = (Serializable) handleGetKeySet(cacheName);
+                break;
+
+            default: break;
+        }
+
+        return obj;
+    }
 
-                    if ( socket != null && log.isDebugEnabled() )
+    /**
+     * Accepts connections from other TCP laterals on the selector thread.
+     */
+    private class Acceptor
+        implements LateralTCPSelector.SelectionHandler
+    {
+        /** The server socket */
+        private final ServerSocketChannel serverChannel;
+
+        /**
+         * @param serverChannel the server socket
+         */
+        Acceptor( ServerSocketChannel serverChannel )
+        {
+            this.serverChannel = serverChannel;
+        }
+
+        /**
+         * Accepts the waiting connections.
+         * <p>
+         * @param key the ready key
+         * @throws IOException closes the server socket
+         */
+        @Override
+        @SuppressWarnings("synthetic-access")
+        public void handle( SelectionKey key )
+            throws IOException
+        {
+            synchronized ( LateralTCPListener.this )
+            {
+                if ( terminated )
+                {
+                    if ( log.isDebugEnabled() )
                     {
-                        InetAddress inetAddress = socket.getInetAddress();
-                        log.debug( "Connected to client at " + inetAddress );
+                        log.debug( "Listener terminated, no longer accepting connections" );
                     }
+                    close( null );
+                    return;
+                }
+            }
 
-                    handler = new ConnectionHandler( socket );
-                    pooledExecutor.execute( handler );
+            SocketChannel channel;
+            while ( ( channel = serverChannel.accept() ) != null )
+            {
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( "Connected to client at " + channel.socket().getInetAddress() );
+                }
+                try
+                {
+                    new ServerConnection( channel ).start();
+                }
+                catch ( IOException e )
+                {
+                    log.error( "Could not set up connection from " + channel.socket().getInetAddress(), e );
+                    channel.close();
                 }
             }
-            catch ( IOException e )
+        }
+
+        /**
+         * Closes the server socket.
+         * <p>
+         * @param cause the error, null on shutdown
+         */
+        @Override
+        public void close( IOException cause )
+        {
+            if ( cause != null )
             {
-                log.error( "Exception caught in TCP listener", e );
+                log.error( "Exception caught in TCP listener", cause );
             }
-            finally
+            try
             {
-            	if (serverSocket != null)
-            	{
-            		try
-            		{
-						serverSocket.close();
-					}
-            		catch (IOException e)
-            		{
-                        log.error( "Exception caught closing socket", e );
-					}
-            	}
+                serverChannel.close();
+            }
+            catch ( IOException e )
+            {
+                log.error( "Exception caught closing socket", e );
             }
         }
     }
 
     /**
-     * A Separate thread that runs when a command comes into the LateralTCPReceiver.
+     * The listener side of a connection. Frames are read on the selector thread and handled on the
+     * pooled executor, one at a time per connection.
      */
-    public class ConnectionHandler
-        implements Runnable
+    private class ServerConnection
+        extends LateralTCPConnection
     {
-        /** The socket connection, passed in via constructor */
-        private final Socket socket;
+        /** Reading stops when this many payload bytes wait in the inbox. */
+        private static final long MAX_INBOX_BYTES = 8 * 1024 * 1024;
+
+        /** Reading resumes when the inbox is down to this many payload bytes. */
+        private static final long RESUME_INBOX_BYTES = MAX_INBOX_BYTES / 2;
+
+        /** Frames waiting to be handled. */
+        private final Queue<Object[]> inbox = new ConcurrentLinkedQueue<Object[]>();
+
+        /** Payload bytes of the frames in the inbox. */
+        private final AtomicLong inboxBytes = new AtomicLong();
+
+        /** Whether reading is stopped because the inbox is full. */
+        private final AtomicBoolean readPaused = new AtomicBoolean();
+
+        /** Resumes reading, on the selector thread. */
+        private final Runnable resumeTask = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                setReading( true );
+            }
+        };
+
+        /** Whether a task of this connection is queued on or running in the executor. */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /** Handles the inbox until it is empty. */
+        private final Runnable drainTask = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                drain();
+            }
+        };
 
         /**
-         * Construct for a given socket
-         * @param socket
+         * @param channel the accepted channel
+         * @throws IOException
          */
-        public ConnectionHandler( Socket socket )
+        @SuppressWarnings("synthetic-access")
+        ServerConnection( SocketChannel channel )
+            throws IOException
         {
-            this.socket = socket;
+            super( channel, receiver );
         }
 
         /**
-         * Main processing method for the LateralTCPReceiverConnection object
+         * Queues the frame for the executor. Reading stops while the inbox is full, so a slow
+         * handler pushes back on the peer through TCP instead of filling the heap.
+         * <p>
+         * @param type the frame type
+         * @param requestId the request id
+         * @param payload the payload
          */
         @Override
-        @SuppressWarnings({"unchecked", // Need to cast from Object
-            "synthetic-access" })
-        public void run()
+        @SuppressWarnings("synthetic-access")
+        protected void frameReceived( byte type, int requestId, byte[] payload )
         {
-            ObjectInputStream ois;
-
-            try
+            inbox.add( new Object[] { Byte.valueOf( type ), Integer.valueOf( requestId ), payload } );
+            if ( inboxBytes.addAndGet( payload.length ) >= MAX_INBOX_BYTES && readPaused.compareAndSet( false, true ) )
             {
-                ois = new ObjectInputStreamClassLoaderAware( socket.getInputStream(), null );
+                setReading( false );
+                // the inbox may have drained before the flag was set
+                if ( inboxBytes.get() <= RESUME_INBOX_BYTES && readPaused.compareAndSet( true, false ) )
+                {
+                    setReading( true );
+                }
             }
-            catch ( Exception e )
+            if ( scheduled.compareAndSet( false, true ) )
             {
-                log.error( "Could not open ObjectInputStream on " + socket, e );
-
-                return;
+                pooledExecutor.execute( drainTask );
             }
+        }
 
-            LateralElementDescriptor<K, V> led;
+        /**
+         * Takes the next frame out of the inbox and resumes reading once enough room is free.
+         * <p>
+         * @return the frame, or null if the inbox is empty
+         */
+        private Object[] poll()
+        {
+            Object[] frame = inbox.poll();
+            if ( frame != null
+                && inboxBytes.addAndGet( -( (byte[]) frame[2] ).length ) <= RESUME_INBOX_BYTES
+                && readPaused.compareAndSet( true, false ) )
+            {
+                selector.execute( resumeTask );
+            }
+            return frame;
+        }
 
-            try
+        /**
+         * Handles the queued frames in order.
+         */
+        @SuppressWarnings("synthetic-access")
+        private void drain()
+        {
+            do
             {
-                while ( true )
+                Object[] frame;
+                while ( ( frame = poll() ) != null )
                 {
-                    led = (LateralElementDescriptor<K, V>) ois.readObject();
-
-                    if ( led == null )
+                    byte type = ( (Byte) frame[0] ).byteValue();
+                    int requestId = ( (Integer) frame[1] ).intValue();
+                    try
                     {
-                        log.debug( "LateralElementDescriptor is null" );
-                        continue;
+                        process( type, requestId, (byte[]) frame[2] );
                     }
-                    if ( led.requesterId == getListenerId() )
+                    catch ( IOException e )
                     {
-                        log.debug( "from self" );
+                        close( e );
+                        inbox.clear();
+                        inboxBytes.set( 0 );
                     }
-                    else
+                    catch ( ClassNotFoundException e )
                     {
-                        if ( log.isDebugEnabled() )
-                        {
-                            log.debug( "receiving LateralElementDescriptor from another" + "led = " + led
-                                + ", led.command = " + led.command + ", led.ce = " + led.ce );
-                        }
-
-                        handle( led );
+                        log.error( "Could not read descriptor from " + channel.socket().getInetAddress(), e );
+                        answerFailedRequest( type, requestId );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        log.error( "Unexpected exception.", e );
+                        answerFailedRequest( type, requestId );
                     }
                 }
+                scheduled.set( false );
             }
-            catch ( java.io.EOFException e )
-            {
-                log.info( "Caught java.io.EOFException closing connection." + e.getMessage() );
-            }
-            catch ( java.net.SocketException e )
-            {
-                log.info( "Caught java.net.SocketException closing connection." + e.getMessage() );
-            }
-            catch ( Exception e )
+            // a frame may have come in after the poll, before the flag was cleared
+            while ( !inbox.isEmpty() && scheduled.compareAndSet( false, true ) );
+        }
+
+        /**
+         * Sends a null response to a request that could not be handled, so the caller does not
+         * wait until its socket timeout.
+         * <p>
+         * @param type the frame type
+         * @param requestId the request id
+         */
+        @SuppressWarnings("synthetic-access")
+        private void answerFailedRequest( byte type, int requestId )
+        {
+            if ( type != REQUEST )
             {
-                log.error( "Unexpected exception.", e );
+                return;
             }
-
             try
             {
-                ois.close();
+                enqueue( RESPONSE, requestId, serializer.serialize( null ) );
             }
             catch ( IOException e )
             {
-                log.error( "Could not close object input stream.", e );
+                close( e );
+                inbox.clear();
+                inboxBytes.set( 0 );
             }
         }
 
         /**
-         * This calls the appropriate method, based on the command sent in the Lateral element
-         * descriptor.
+         * Reads the descriptors of the frame, handles them and sends the response to a request.
          * <p>
-         * @param led
+         * @param type the frame type
+         * @param requestId the request id
+         * @param payload the payload
          * @throws IOException
+         * @throws ClassNotFoundException
          */
-        @SuppressWarnings("synthetic-access")
-        private void handle( LateralElementDescriptor<K, V> led )
-            throws IOException
+        @SuppressWarnings({"unchecked", // Need to cast from Object
+            "synthetic-access" })
+        private void process( byte type, int requestId, byte[] payload )
+            throws IOException, ClassNotFoundException
         {
-            String cacheName = led.ce.getCacheName();
-            K key = led.ce.getKey();
-            Serializable obj = null;
-
-            switch (led.command)
+            switch ( type )
             {
-                case UPDATE:
-                    handlePut( led.ce );
+                case MESSAGE:
+                    receive( (LateralElementDescriptor<K, V>) serializer.deSerialize( payload, null ) );
                     break;
 
-                case REMOVE:
-                    // if a hashcode was given and filtering is on
-                    // check to see if they are the same
-                    // if so, then don't remove, otherwise issue a remove
-                    if ( led.valHashCode != -1 )
+                case BATCH:
+                    for ( byte[] message : splitBatch( payload ) )
                     {
-                        if ( getTcpLateralCacheAttributes().isFilterRemoveByHashCode() )
-                        {
-                            ICacheElement<K, V> test = getCache( cacheName ).localGet( key );
-                            if ( test != null )
-                            {
-                                if ( test.getVal().hashCode() == led.valHashCode )
-                                {
-                                    if ( log.isDebugEnabled() )
-                                    {
-                                        log.debug( "Filtering detected identical hashCode [" + led.valHashCode
-                                            + "], not issuing a remove for led " + led );
-                                    }
-                                    return;
-                                }
-                                else
-                                {
-                                    if ( log.isDebugEnabled() )
-                                    {
-                                        log.debug( "Different hashcodes, in cache [" + test.getVal().hashCode()
-                                            + "] sent [" + led.valHashCode + "]" );
-                                    }
-                                }
-                            }
-                        }
+                        receive( (LateralElementDescriptor<K, V>) serializer.deSerialize( message, null ) );
                     }
-                    handleRemove( cacheName, key );
                     break;
 
-                case REMOVEALL:
-                    handleRemoveAll( cacheName );
+                case REQUEST:
+                    Serializable response =
+                        receive( (LateralElementDescriptor<K, V>) serializer.deSerialize( payload, null ) );
+                    enqueue( RESPONSE, requestId, serializer.serialize( response ) );
                     break;
 
-                case GET:
-                    obj = handleGet( cacheName, key );
-                    break;
-
-                case GET_MATCHING:
-                    obj = (Serializable) handleGetMatching( cacheName, (String) key );
-                    break;
-
-                case GET_KEYSET:
-                	obj = (Serializable) handleGetKeySet(cacheName);
-                    break;
+                default:
+                    throw new IOException( "Unexpected frame type " + type );
+            }
+        }
 
-                default: break;
+        /**
+         * Handles a descriptor unless it came from this listener.
+         * <p>
+         * @param led the descriptor
+         * @return the response to a get, null otherwise
+         * @throws IOException
+         */
+        @SuppressWarnings("synthetic-access")
+        private Serializable receive( LateralElementDescriptor<K, V> led )
+            throws IOException
+        {
+            if ( led == null )
+            {
+                log.debug( "LateralElementDescriptor is null" );
+                return null;
+            }
+            if ( led.requesterId == getListenerId() )
+            {
+                log.debug( "from self" );
+                return null;
             }
 
-            if (obj != null)
+            if ( log.isDebugEnabled() )
             {
-                ObjectOutputStream oos = new ObjectOutputStream( socket.getOutputStream() );
-                oos.writeObject( obj );
-                oos.flush();
+                log.debug( "receiving LateralElementDescriptor from another" + "led = " + led
+                    + ", led.command = " + led.command + ", led.ce = " + led.ce );
             }
+            return LateralTCPListener.this.handle( led );
+        }
+
+        /**
+         * @param cause the error, null if closed on purpose
+         */
+        @Override
+        protected void closed( IOException cause )
+        {
+            // the peer reconnects on its own
         }
     }
 
@@ -761,7 +951,7 @@ public class LateralTCPListener<K, V>
             {
                 log.info( "Shutting down TCP Lateral receiver." );
             }
-            receiver.interrupt();
+            receiver.shutdown();
         }
         else
         {
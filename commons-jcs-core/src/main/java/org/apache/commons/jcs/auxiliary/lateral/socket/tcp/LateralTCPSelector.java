@@ -0,0 +1,208 @@
+package org.apache.commons.jcs.auxiliary.lateral.socket.tcp;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A thread that owns a selector and drives the non-blocking channels registered with it. Other
+ * threads hand work to it with {@link #execute(Runnable)}, which wakes the selector up. Channels are
+ * only registered and written on this thread.
+ */
+class LateralTCPSelector
+    extends Thread
+{
+    /** The logger */
+    private static final Log log = LogFactory.getLog( LateralTCPSelector.class );
+
+    /** Called by the selector thread when a registered channel is ready. */
+    interface SelectionHandler
+    {
+        /**
+         * @param key the ready key
+         * @throws IOException closes the handler
+         */
+        void handle( SelectionKey key )
+            throws IOException;
+
+        /**
+         * Closes the channel after an error or on shutdown.
+         * <p>
+         * @param cause the error, null on shutdown
+         */
+        void close( IOException cause );
+    }
+
+    /** The selector */
+    private final Selector selector;
+
+    /** Work for the selector thread. */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+    /** Cleared to stop the thread. */
+    private volatile boolean running = true;
+
+    /**
+     * Opens the selector. The thread is a daemon and has to be started.
+     * <p>
+     * @param name the thread name
+     * @throws IOException if the selector cannot be opened
+     */
+    LateralTCPSelector( String name )
+        throws IOException
+    {
+        super( name );
+        setDaemon( true );
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Runs the task on the selector thread.
+     * <p>
+     * @param task the task
+     */
+    void execute( Runnable task )
+    {
+        tasks.add( task );
+        selector.wakeup();
+    }
+
+    /**
+     * Registers the channel. Must be called on the selector thread.
+     * <p>
+     * @param channel a non-blocking channel
+     * @param ops the interest set
+     * @param handler the handler
+     * @return the key
+     * @throws ClosedChannelException if the channel is closed
+     */
+    SelectionKey register( SelectableChannel channel, int ops, SelectionHandler handler )
+        throws ClosedChannelException
+    {
+        return channel.register( selector, ops, handler );
+    }
+
+    /**
+     * Closes all channels and stops the thread.
+     */
+    void shutdown()
+    {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * @return true until shut down
+     */
+    boolean isRunning()
+    {
+        return running;
+    }
+
+    /**
+     * Selects and dispatches until shut down.
+     */
+    @Override
+    public void run()
+    {
+        try
+        {
+            while ( running )
+            {
+                selector.select();
+                runTasks();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while ( it.hasNext() )
+                {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    SelectionHandler handler = (SelectionHandler) key.attachment();
+                    try
+                    {
+                        if ( key.isValid() )
+                        {
+                            handler.handle( key );
+                        }
+                    }
+                    catch ( IOException e )
+                    {
+                        handler.close( e );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        log.error( "Unexpected error in " + getName(), e );
+                        handler.close( new IOException( e.getMessage() ) );
+                    }
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            log.error( "Selector of " + getName() + " failed", e );
+        }
+        finally
+        {
+            running = false;
+            runTasks();
+            for ( SelectionKey key : selector.keys() )
+            {
+                ( (SelectionHandler) key.attachment() ).close( null );
+            }
+            try
+            {
+                selector.close();
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Could not close the selector of " + getName(), e );
+            }
+        }
+    }
+
+    /**
+     * Runs the queued tasks.
+     */
+    private void runTasks()
+    {
+        Runnable task;
+        while ( ( task = tasks.poll() ) != null )
+        {
+            try
+            {
+                task.run();
+            }
+            catch ( RuntimeException e )
+            {
+                log.error( "Task failed in " + getName(), e );
+            }
+        }
+    }
+}
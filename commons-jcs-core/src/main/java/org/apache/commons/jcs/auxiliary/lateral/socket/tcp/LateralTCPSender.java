@@ -21,41 +21,67 @@ package org.apache.commons.jcs.auxiliary.lateral.socket.tcp;
 
 import org.apache.commons.jcs.auxiliary.lateral.LateralElementDescriptor;
 import org.apache.commons.jcs.auxiliary.lateral.socket.tcp.behavior.ITCPLateralCacheAttributes;
-import org.apache.commons.jcs.io.ObjectInputStreamClassLoaderAware;
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * This class is based on the log4j SocketAppender class. I'm using a different repair structure, so
- * it is significantly different.
+ * Sends lateral element descriptors to one {@link LateralTCPListener} over a non-blocking
+ * connection. All senders of the JVM share one selector thread, which writes queued descriptors
+ * in batches.
+ * <p>
+ * Sends do not wait for the network. Gets are tagged with a request id and wait only for their own
+ * response, so several gets can be in flight on the connection at the same time.
  */
 public class LateralTCPSender
 {
     /** The logger */
     private static final Log log = LogFactory.getLog( LateralTCPSender.class );
 
+    /** Senders wait for the queue to drain when this many bytes are not yet written. */
+    private static final long MAX_QUEUED_BYTES = 16 * 1024 * 1024;
+
+    /** The selector thread shared by all senders. */
+    private static LateralTCPSelector sharedSelector;
+
     /** Config */
     private int socketOpenTimeOut;
     private int socketSoTimeOut;
 
-    /** The stream from the server connection. */
-    private ObjectOutputStream oos;
+    /** The connection with the server. */
+    private Connection connection;
+
+    /** Descriptors and responses are serialized with this. */
+    private final IElementSerializer serializer = new StandardSerializer();
+
+    /** Source of request ids. */
+    private final AtomicInteger requestIds = new AtomicInteger();
+
+    /** Requests waiting for a response, by request id. */
+    private final ConcurrentMap<Integer, PendingResponse> pending =
+        new ConcurrentHashMap<Integer, PendingResponse>();
+
+    /** Senders waiting for the queue to drain wait on this. */
+    private final Object queueLock = new Object();
 
-    /** The socket connection with the server. */
-    private Socket socket;
+    /** Set while a sender waits on the queue lock. */
+    private volatile boolean queueWaiting = false;
 
     /** how many messages sent */
     private int sendCnt = 0;
 
-    /** Use to synchronize multiple threads that may be trying to get. */
-    private final Object getLock = new int[0];
-
     /**
      * Constructor for the LateralTCPSender object.
      * <p>
@@ -90,6 +116,21 @@ public class LateralTCPSender
         init( h2, po );
     }
 
+    /**
+     * @return the selector thread of all senders, started on first use
+     * @throws IOException if the selector cannot be opened
+     */
+    private static synchronized LateralTCPSelector getSharedSelector()
+        throws IOException
+    {
+        if ( sharedSelector == null || !sharedSelector.isRunning() )
+        {
+            sharedSelector = new LateralTCPSelector( "JCS-LateralTCPSender" );
+            sharedSelector.start();
+        }
+        return sharedSelector;
+    }
+
     /**
      * Creates a connection to a TCP server.
      * <p>
@@ -107,27 +148,24 @@ public class LateralTCPSender
                 log.info( "Attempting connection to [" + host + "]" );
             }
 
-            // have time out socket open do this for us
+            // connect blocking with a time out, then hand the channel to the selector
+            SocketChannel channel = SocketChannel.open();
             try
             {
-                socket = new Socket();
-                socket.connect( new InetSocketAddress( host, port ), this.socketOpenTimeOut );
+                channel.socket().connect( new InetSocketAddress( host, port ), this.socketOpenTimeOut );
             }
             catch ( IOException ioe )
             {
-                if (socket != null)
-                {
-                    socket.close();
-                }
-
+                channel.close();
                 throw new IOException( "Cannot connect to " + host + ":" + port, ioe );
             }
 
-            socket.setSoTimeout( socketSoTimeOut );
+            Connection c = new Connection( channel, getSharedSelector() );
             synchronized ( this )
             {
-                oos = new ObjectOutputStream( socket.getOutputStream() );
+                connection = c;
             }
+            c.start();
         }
         catch ( java.net.ConnectException e )
         {
@@ -142,10 +180,12 @@ public class LateralTCPSender
     }
 
     /**
-     * Sends commands to the lateral cache listener.
+     * Queues a command for the lateral cache listener. It is written with the commands queued at
+     * the same time. If too much is queued already, this waits up to the socket time out for the
+     * connection to catch up.
      * <p>
      * @param led
-     * @throws IOException
+     * @throws IOException if the connection is closed or does not catch up
      */
     public <K, V> void send( LateralElementDescriptor<K, V> led )
         throws IOException
@@ -153,7 +193,7 @@ public class LateralTCPSender
         sendCnt++;
         if ( log.isInfoEnabled() && sendCnt % 100 == 0 )
         {
-            log.info( "Send Count (port " + socket.getPort() + ") = " + sendCnt );
+            log.info( "Send Count (port " + getRemotePort() + ") = " + sendCnt );
         }
 
         if ( log.isDebugEnabled() )
@@ -166,27 +206,54 @@ public class LateralTCPSender
             return;
         }
 
-        if ( oos == null )
+        Connection c = getConnection();
+        awaitCapacity( c );
+        c.enqueue( LateralTCPConnection.MESSAGE, 0, serializer.serialize( led ) );
+    }
+
+    /**
+     * Queues several commands for the lateral cache listener as one batch frame.
+     * <p>
+     * @param leds the commands, in order
+     * @throws IOException if the connection is closed or does not catch up
+     */
+    public <K, V> void send( List<LateralElementDescriptor<K, V>> leds )
+        throws IOException
+    {
+        if ( leds.isEmpty() )
+        {
+            return;
+        }
+        if ( leds.size() == 1 )
+        {
+            send( leds.get( 0 ) );
+            return;
+        }
+
+        sendCnt += leds.size();
+        if ( log.isDebugEnabled() )
         {
-            throw new IOException( "No remote connection is available for LateralTCPSender." );
+            log.debug( "sending " + leds.size() + " LateralElementDescriptors in one batch" );
         }
 
-        synchronized ( this.getLock )
+        List<byte[]> payloads = new ArrayList<byte[]>( leds.size() );
+        for ( LateralElementDescriptor<K, V> led : leds )
         {
-            oos.writeUnshared( led );
-            oos.flush();
+            payloads.add( serializer.serialize( led ) );
         }
+
+        Connection c = getConnection();
+        awaitCapacity( c );
+        c.enqueue( LateralTCPConnection.BATCH, 0, LateralTCPConnection.joinBatch( payloads ) );
     }
 
     /**
-     * Sends commands to the lateral cache listener and gets a response. I'm afraid that we could
-     * get into a pretty bad blocking situation here. This needs work. I just wanted to get some
-     * form of get working. However, get is not recommended for performance reasons. If you have 10
-     * laterals, then you have to make 10 failed gets to find out none of the caches have the item.
+     * Sends a command to the lateral cache listener and waits up to the socket time out for the
+     * response. Other gets and sends can use the connection in the meantime.
      * <p>
      * @param led
-     * @return ICacheElement
-     * @throws IOException
+     * @return the response, may be null
+     * @throws IOException on a connection error or if the response does not come in time
      */
     public <K, V> Object sendAndReceive( LateralElementDescriptor<K, V> led )
         throws IOException
@@ -196,59 +263,75 @@ public class LateralTCPSender
             return null;
         }
 
-        if ( oos == null )
-        {
-            throw new IOException( "No remote connection is available for LateralTCPSender." );
-        }
-
-        Object response = null;
+        List<LateralElementDescriptor<K, V>> leds = Collections.singletonList( led );
+        return sendAndReceive( leds ).get( 0 );
+    }
 
-        // Synchronized to insure that the get requests to server from this
-        // sender and the responses are processed in order, else you could
-        // return the wrong item from the cache.
-        // This is a big block of code. May need to re-think this strategy.
-        // This may not be necessary.
-        // Normal puts, etc to laterals do not have to be synchronized.
-        synchronized ( this.getLock )
+    /**
+     * Sends all commands before waiting for the first response, so they cost one round trip
+     * instead of one each. The whole call waits at most the socket time out.
+     * <p>
+     * @param leds the commands
+     * @return the responses, in the order of the commands
+     * @throws IOException on a connection error or if the responses do not come in time
+     */
+    public <K, V> List<Object> sendAndReceive( List<LateralElementDescriptor<K, V>> leds )
+        throws IOException
+    {
+        Connection c = getConnection();
+        int[] ids = new int[leds.size()];
+        PendingResponse[] responses = new PendingResponse[leds.size()];
+        try
         {
-            try
+            for ( int i = 0; i < ids.length; i++ )
             {
-                // clean up input stream, nothing should be there yet.
-                if ( socket.getInputStream().available() > 0 )
-                {
-                    socket.getInputStream().read( new byte[socket.getInputStream().available()] );
-                }
+                ids[i] = nextRequestId();
+                responses[i] = new PendingResponse();
+                pending.put( Integer.valueOf( ids[i] ), responses[i] );
+                awaitCapacity( c );
+                c.enqueue( LateralTCPConnection.REQUEST, ids[i], serializer.serialize( leds.get( i ) ) );
             }
-            catch ( IOException ioe )
-            {
-                log.error( "Problem cleaning socket before send " + socket, ioe );
-                throw ioe;
-            }
-
-            // write object to listener
-            oos.writeUnshared( led );
-            oos.flush();
 
-            try
-            {
-                socket.setSoTimeout( socketSoTimeOut );
-                ObjectInputStream ois = new ObjectInputStreamClassLoaderAware( socket.getInputStream(), null );
-                response = ois.readObject();
-            }
-            catch ( IOException ioe )
+            long deadline = System.currentTimeMillis() + socketSoTimeOut;
+            List<Object> result = new ArrayList<Object>( responses.length );
+            for ( int i = 0; i < responses.length; i++ )
             {
-                String message = "Could not open ObjectInputStream to " + socket;
-                message += " SoTimeout [" + socket.getSoTimeout() + "] Connected [" + socket.isConnected() + "]";
-                log.error( message, ioe );
-                throw ioe;
+                byte[] payload = responses[i].await( Math.max( 1, deadline - System.currentTimeMillis() ) );
+                try
+                {
+                    result.add( serializer.deSerialize( payload, null ) );
+                }
+                catch ( ClassNotFoundException e )
+                {
+                    log.error( e );
+                    result.add( null );
+                }
             }
-            catch ( Exception e )
+            return result;
+        }
+        finally
+        {
+            for ( int i = 0; i < ids.length; i++ )
             {
-                log.error( e );
+                if ( responses[i] != null )
+                {
+                    pending.remove( Integer.valueOf( ids[i] ) );
+                }
             }
         }
+    }
 
-        return response;
+    /**
+     * @return a request id other than 0, which marks frames without response
+     */
+    private int nextRequestId()
+    {
+        int requestId = requestIds.incrementAndGet();
+        while ( requestId == 0 )
+        {
+            requestId = requestIds.incrementAndGet();
+        }
+        return requestId;
     }
 
     /**
@@ -266,7 +349,220 @@ public class LateralTCPSender
             log.info( "Dispose called" );
         }
         // WILL CLOSE CONNECTION USED BY ALL
-        oos.close();
-        socket.close();
+        getConnection().close( null );
+    }
+
+    /**
+     * @return the connection
+     * @throws IOException if there is none
+     */
+    private synchronized Connection getConnection()
+        throws IOException
+    {
+        if ( connection == null )
+        {
+            throw new IOException( "No remote connection is available for LateralTCPSender." );
+        }
+        return connection;
+    }
+
+    /**
+     * @return the port of the server, -1 if not connected
+     */
+    private synchronized int getRemotePort()
+    {
+        return connection == null ? -1 : connection.getPort();
+    }
+
+    /**
+     * Waits for the queue of the connection to drop below the limit.
+     * <p>
+     * @param c the connection
+     * @throws IOException if it does not drop within the socket time out
+     */
+    private void awaitCapacity( Connection c )
+        throws IOException
+    {
+        if ( c.getQueuedBytes() < MAX_QUEUED_BYTES )
+        {
+            return;
+        }
+
+        long deadline = System.currentTimeMillis() + socketSoTimeOut;
+        synchronized ( queueLock )
+        {
+            while ( true )
+            {
+                // set before the check, so the selector thread cannot miss the waiter
+                queueWaiting = true;
+                if ( c.getQueuedBytes() < MAX_QUEUED_BYTES || c.isClosed() )
+                {
+                    return;
+                }
+                long wait = deadline - System.currentTimeMillis();
+                if ( wait <= 0 )
+                {
+                    throw new SocketTimeoutException( "Send queue to port " + c.getPort() + " did not drain within "
+                        + socketSoTimeOut + " ms" );
+                }
+                try
+                {
+                    queueLock.wait( wait );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException( "Interrupted waiting for the send queue", e );
+                }
+            }
+        }
+    }
+
+    /**
+     * The sender side of the connection. Hands responses to the waiting requests.
+     */
+    private class Connection
+        extends LateralTCPConnection
+    {
+        /**
+         * @param channel the connected channel
+         * @param selector the selector thread
+         * @throws IOException
+         */
+        Connection( SocketChannel channel, LateralTCPSelector selector )
+            throws IOException
+        {
+            super( channel, selector );
+        }
+
+        /**
+         * @return the port of the server
+         */
+        int getPort()
+        {
+            return channel.socket().getPort();
+        }
+
+        /**
+         * Completes the request with the response.
+         * <p>
+         * @param type the frame type
+         * @param requestId the request id
+         * @param payload the serialized response
+         * @throws IOException on an unexpected frame
+         */
+        @Override
+        protected void frameReceived( byte type, int requestId, byte[] payload )
+            throws IOException
+        {
+            if ( type != RESPONSE )
+            {
+                throw new IOException( "Unexpected frame type " + type );
+            }
+            PendingResponse response = pending.get( Integer.valueOf( requestId ) );
+            if ( response != null )
+            {
+                response.complete( payload, null );
+            }
+            else if ( log.isDebugEnabled() )
+            {
+                log.debug( "Dropping late response to request " + requestId );
+            }
+        }
+
+        /**
+         * Wakes up senders waiting for the queue to drain.
+         */
+        @Override
+        protected void written()
+        {
+            if ( queueWaiting && getQueuedBytes() < MAX_QUEUED_BYTES )
+            {
+                synchronized ( queueLock )
+                {
+                    queueWaiting = false;
+                    queueLock.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Fails the waiting requests.
+         * <p>
+         * @param cause the error, null if closed on purpose
+         */
+        @Override
+        protected void closed( IOException cause )
+        {
+            IOException failure = cause != null ? cause : new IOException( "Connection closed" );
+            for ( PendingResponse response : pending.values() )
+            {
+                response.complete( null, failure );
+            }
+            synchronized ( queueLock )
+            {
+                queueLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * A response that is waited for.
+     */
+    private static final class PendingResponse
+    {
+        /** The serialized response. */
+        private byte[] payload;
+
+        /** Set if the connection failed. */
+        private IOException failure;
+
+        /** Set once completed. */
+        private boolean done = false;
+
+        /**
+         * @param payload the serialized response
+         * @param failure the connection error
+         */
+        synchronized void complete( byte[] payload, IOException failure )
+        {
+            this.payload = payload;
+            this.failure = failure;
+            this.done = true;
+            notifyAll();
+        }
+
+        /**
+         * @param timeout most milliseconds to wait
+         * @return the serialized response
+         * @throws IOException on a connection error or time out
+         */
+        synchronized byte[] await( long timeout )
+            throws IOException
+        {
+            long deadline = System.currentTimeMillis() + timeout;
+            while ( !done )
+            {
+                long wait = deadline - System.currentTimeMillis();
+                if ( wait <= 0 )
+                {
+                    throw new SocketTimeoutException( "No response within " + timeout + " ms" );
+                }
+                try
+                {
+                    wait( wait );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException( "Interrupted waiting for a response", e );
+                }
+            }
+            if ( failure != null )
+            {
+                throw new IOException( "Connection failed before the response", failure );
+            }
+            return payload;
+        }
     }
 }
@@ -32,8 +32,10 @@ import org.apache.commons.logging.LogFactory;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -113,13 +115,53 @@ public class LateralTCPService<K, V>
     @Override
     public void update( ICacheElement<K, V> item, long requesterId )
         throws IOException
+    {
+        LateralElementDescriptor<K, V> led = createUpdateDescriptor( item, requesterId );
+        if ( led != null )
+        {
+            sender.send( led );
+        }
+    }
+
+    /**
+     * Creates the descriptors like update does and hands them to the sender together, so they go
+     * out in one frame.
+     * <p>
+     * @see org.apache.commons.jcs.engine.behavior.ICacheServiceNonLocal#updateMultiple(java.util.List,
+     *      long)
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> items, long requesterId )
+        throws IOException
+    {
+        List<LateralElementDescriptor<K, V>> leds = new ArrayList<LateralElementDescriptor<K, V>>( items.size() );
+        for ( ICacheElement<K, V> item : items )
+        {
+            LateralElementDescriptor<K, V> led = createUpdateDescriptor( item, requesterId );
+            if ( led != null )
+            {
+                leds.add( led );
+            }
+        }
+        sender.send( leds );
+    }
+
+    /**
+     * If put is allowed, this describes a put. If issue remove on put is configured, it describes
+     * a remove.
+     * <p>
+     * @param item
+     * @param requesterId
+     * @return the descriptor, or null if neither is allowed
+     */
+    private LateralElementDescriptor<K, V> createUpdateDescriptor( ICacheElement<K, V> item, long requesterId )
     {
         // if we don't allow put, see if we should remove on put
         if ( !this.allowPut &&
             // if we can't remove on put, and we can't put then return
             !this.issueRemoveOnPut )
         {
-            return;
+            return null;
         }
 
         // if we shouldn't remove on put, then put
@@ -128,7 +170,7 @@ public class LateralTCPService<K, V>
             LateralElementDescriptor<K, V> led = new LateralElementDescriptor<K, V>( item );
             led.requesterId = requesterId;
             led.command = LateralCommand.UPDATE;
-            sender.send( led );
+            return led;
         }
         // else issue a remove with the hashcode for remove check on
         // on the other end, this will be a server config option
@@ -144,7 +186,7 @@ public class LateralTCPService<K, V>
             led.requesterId = requesterId;
             led.command = LateralCommand.REMOVE;
             led.valHashCode = item.getVal().hashCode();
-            sender.send( led );
+            return led;
         }
     }
 
@@ -178,6 +220,29 @@ public class LateralTCPService<K, V>
         sender.send( led );
     }
 
+    /**
+     * Wraps each key in a LateralElementDescriptor and hands them to the sender together, so they
+     * go out in one frame.
+     * <p>
+     * @see org.apache.commons.jcs.engine.behavior.ICacheServiceNonLocal#removeMultiple(java.lang.String,
+     *      java.util.List, long)
+     */
+    @Override
+    public void removeMultiple( String cacheName, List<K> keys, long requesterId )
+        throws IOException
+    {
+        List<LateralElementDescriptor<K, V>> leds = new ArrayList<LateralElementDescriptor<K, V>>( keys.size() );
+        for ( K key : keys )
+        {
+            CacheElement<K, V> ce = new CacheElement<K, V>( cacheName, key, null );
+            LateralElementDescriptor<K, V> led = new LateralElementDescriptor<K, V>( ce );
+            led.requesterId = requesterId;
+            led.command = LateralCommand.REMOVE;
+            leds.add( led );
+        }
+        sender.send( leds );
+    }
+
     /**
      * Does nothing.
      * <p>
@@ -321,9 +386,8 @@ public class LateralTCPService<K, V>
     }
 
     /**
-     * This issues a separate get for each item.
-     * <p>
-     * TODO We should change this. It should issue one request.
+     * This issues a separate get for each item. The gets are sent together and their responses are
+     * collected afterwards, so they cost one round trip.
      * <p>
      * @param cacheName
      * @param keys
@@ -338,15 +402,26 @@ public class LateralTCPService<K, V>
     {
         Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
 
-        if ( keys != null && !keys.isEmpty() )
+        if ( this.allowGet && keys != null && !keys.isEmpty() )
         {
+            List<LateralElementDescriptor<K, V>> leds = new ArrayList<LateralElementDescriptor<K, V>>( keys.size() );
             for (K key : keys)
             {
-                ICacheElement<K, V> element = get( cacheName, key );
+                CacheElement<K, V> ce = new CacheElement<K, V>( cacheName, key, null );
+                LateralElementDescriptor<K, V> led = new LateralElementDescriptor<K, V>( ce );
+                led.command = LateralCommand.GET;
+                leds.add( led );
+            }
+
+            List<Object> responses = sender.sendAndReceive( leds );
+            for ( int i = 0; i < leds.size(); i++ )
+            {
+                @SuppressWarnings("unchecked") // Need to cast from Object
+                ICacheElement<K, V> element = (ICacheElement<K, V>) responses.get( i );
 
                 if ( element != null )
                 {
-                    elements.put( key, element );
+                    elements.put( leds.get( i ).ce.getKey(), element );
                 }
             }
         }
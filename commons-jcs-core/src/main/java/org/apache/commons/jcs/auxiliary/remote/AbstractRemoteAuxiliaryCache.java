@@ -44,6 +44,7 @@ import org.apache.commons.logging.LogFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -313,7 +314,10 @@ public abstract class AbstractRemoteAuxiliaryCache<K, V>
     }
 
     /**
-     * Gets multiple items from the cache based on the given set of keys.
+     * Gets multiple items from the cache based on the given set of keys. All the keys go to the
+     * server in a single getMultiple call rather than one get per key.
+     * <p>
+     * Use threadpool to timeout if a value is set for GetTimeoutMillis
      * <p>
      * @param keys
      * @return a map of K key to ICacheElement<K, V> element, or an empty map if there is no
@@ -327,19 +331,97 @@ public abstract class AbstractRemoteAuxiliaryCache<K, V>
         Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
         if ( keys != null && !keys.isEmpty() )
         {
-            for (K key : keys)
+            try
             {
-                ICacheElement<K, V> element = get( key );
+                Map<K, ICacheElement<K, V>> rawResults;
+                if ( usePoolForGet )
+                {
+                    rawResults = getMultipleUsingPool( keys );
+                }
+                else
+                {
+                    rawResults = getRemoteCacheService().getMultiple( cacheName, keys, getListenerId() );
+                }
 
-                if ( element != null )
+                if ( rawResults != null )
                 {
-                    elements.put( key, element );
+                    for (Map.Entry<K, ICacheElement<K, V>> entry : rawResults.entrySet())
+                    {
+                        ICacheElement<K, V> element = entry.getValue();
+                        if ( element == null )
+                        {
+                            continue;
+                        }
+
+                        // Never try to deserialize if you are a cluster client.
+                        if ( element instanceof ICacheElementSerialized
+                            && this.getRemoteCacheAttributes().getRemoteType() != RemoteType.CLUSTER )
+                        {
+                            element = SerializationConversionUtil
+                                .getDeSerializedCacheElement( (ICacheElementSerialized<K, V>) element,
+                                        super.getElementSerializer() );
+                        }
+                        elements.put( entry.getKey(), element );
+                    }
                 }
             }
+            catch ( Exception ex )
+            {
+                handleException( ex, "Failed to getMultiple [" + keys + "] from [" + cacheName + "]",
+                                 ICacheEventLogger.GET_EVENT );
+            }
         }
         return elements;
     }
 
+    /**
+     * This allows getMultiple calls to timeout in case of remote server machine shutdown.
+     * <p>
+     * @param keys
+     * @return a map of K key to ICacheElement<K, V> element
+     * @throws IOException
+     */
+    public Map<K, ICacheElement<K, V>> getMultipleUsingPool( final Set<K> keys )
+        throws IOException
+    {
+        int timeout = getRemoteCacheAttributes().getGetTimeoutMillis();
+
+        try
+        {
+            Callable<Map<K, ICacheElement<K, V>>> command = new Callable<Map<K, ICacheElement<K, V>>>()
+            {
+                @Override
+                public Map<K, ICacheElement<K, V>> call()
+                    throws IOException
+                {
+                    return getRemoteCacheService().getMultiple( cacheName, keys, getListenerId() );
+                }
+            };
+
+            // execute using the pool
+            Future<Map<K, ICacheElement<K, V>>> future = pool.submit(command);
+
+            // used timed get in order to timeout
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch ( TimeoutException te )
+        {
+            log.warn( "TimeoutException, GetMultiple Request timed out after " + timeout );
+            throw new IOException( "GetMultiple Request timed out after " + timeout );
+        }
+        catch ( InterruptedException ex )
+        {
+            log.warn( "InterruptedException, GetMultiple Request timed out after " + timeout );
+            throw new IOException( "GetMultiple Request timed out after " + timeout );
+        }
+        catch (ExecutionException ex)
+        {
+            // assume that this is an IOException thrown by the callable.
+            log.error( "ExecutionException, Assuming an IO exception thrown in the background.", ex );
+            throw new IOException( "GetMultiple Request timed out after " + timeout );
+        }
+    }
+
     /**
      * Synchronously remove from the remote cache; if failed, replace the remote handle with a
      * zombie.
@@ -371,6 +453,34 @@ public abstract class AbstractRemoteAuxiliaryCache<K, V>
         return false;
     }
 
+    /**
+     * Removes the keys from the remote server with one call.
+     * <p>
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    protected void processRemoveMultiple( List<K> keys )
+        throws IOException
+    {
+        if ( !this.getRemoteCacheAttributes().getGetOnly() )
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "removeMultiple> keys=" + keys );
+            }
+            try
+            {
+                getRemoteCacheService().removeMultiple( cacheName, keys, getListenerId() );
+            }
+            catch ( Exception ex )
+            {
+                handleException( ex, "Failed to remove " + keys.size() + " keys from " + cacheName,
+                                 ICacheEventLogger.REMOVE_EVENT );
+            }
+        }
+    }
+
     /**
      * Synchronously removeAll from the remote cache; if failed, replace the remote handle with a
      * zombie.
@@ -442,6 +552,49 @@ public abstract class AbstractRemoteAuxiliaryCache<K, V>
         }
     }
 
+    /**
+     * Serializes the elements and sends them to the remote server with one call.
+     * <p>
+     * @param ces
+     * @throws IOException
+     */
+    @Override
+    protected void processUpdateMultiple( List<ICacheElement<K, V>> ces )
+        throws IOException
+    {
+        if ( !getRemoteCacheAttributes().getGetOnly() )
+        {
+            try
+            {
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( "sending " + ces.size() + " items to remote server" );
+                }
+
+                List<ICacheElement<K, V>> serialized = new ArrayList<ICacheElement<K, V>>( ces.size() );
+                for ( ICacheElement<K, V> ce : ces )
+                {
+                    serialized.add( SerializationConversionUtil.getSerializedCacheElement( ce, super.getElementSerializer() ) );
+                }
+
+                remoteCacheService.updateMultiple( serialized, getListenerId() );
+            }
+            catch ( Exception ex )
+            {
+                // event queue will wait and retry
+                handleException( ex, "Failed to put " + ces.size() + " items to " + cacheName,
+                                 ICacheEventLogger.UPDATE_EVENT );
+            }
+        }
+        else
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "get only mode, not sending to remote server" );
+            }
+        }
+    }
+
     /**
      * Return the keys in this cache.
      * <p>
@@ -38,6 +38,7 @@ import org.apache.commons.logging.LogFactory;
 import java.io.IOException;
 import java.io.Serializable;
 import java.net.UnknownHostException;
+import java.util.List;
 
 /** Shared listener base. */
 public abstract class AbstractRemoteCacheListener<K, V>
@@ -237,6 +238,39 @@ public abstract class AbstractRemoteCacheListener<K, V>
         cache.localRemove( key );
     }
 
+    /**
+     * Handles a run of puts from the remote server, which arrive in one call.
+     * <p>
+     * @param items
+     * @throws IOException
+     */
+    @Override
+    public void handlePutMultiple( List<ICacheElement<K, V>> items )
+        throws IOException
+    {
+        for ( ICacheElement<K, V> item : items )
+        {
+            handlePut( item );
+        }
+    }
+
+    /**
+     * Handles a run of removes from the remote server, which arrive in one call.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    public void handleRemoveMultiple( String cacheName, List<K> keys )
+        throws IOException
+    {
+        for ( K key : keys )
+        {
+            handleRemove( cacheName, key );
+        }
+    }
+
     /**
      * Calls localRemoveAll on the CompositeCache.
      * <p>
@@ -103,7 +103,9 @@ public class RemoteCacheNoWait<K, V>
         CacheEventQueueFactory<K, V> factory = new CacheEventQueueFactory<K, V>();
         this.cacheEventQueue = factory.createCacheEventQueue( new CacheAdaptor<K, V>( remoteCacheClient ), remoteCacheClient
             .getListenerId(), remoteCacheClient.getCacheName(), remoteCacheClient.getAuxiliaryCacheAttributes()
-            .getEventQueuePoolName(), remoteCacheClient.getAuxiliaryCacheAttributes().getEventQueueType() );
+            .getEventQueuePoolName(), remoteCacheClient.getAuxiliaryCacheAttributes().getEventQueueType(),
+            remoteCacheClient.getAuxiliaryCacheAttributes().getEventQueueMaxBatchSize(), remoteCacheClient
+            .getAuxiliaryCacheAttributes().getEventQueueMaxBatchDelayMicros() );
 
         if ( remoteCacheClient.getStatus() == CacheStatus.ERROR )
         {
@@ -416,7 +418,9 @@ public class RemoteCacheNoWait<K, V>
         CacheEventQueueFactory<K, V> fact = new CacheEventQueueFactory<K, V>();
         this.cacheEventQueue = fact.createCacheEventQueue( new CacheAdaptor<K, V>( remoteCacheClient ), remoteCacheClient
             .getListenerId(), remoteCacheClient.getCacheName(), remoteCacheClient.getAuxiliaryCacheAttributes()
-            .getEventQueuePoolName(), remoteCacheClient.getAuxiliaryCacheAttributes().getEventQueueType() );
+            .getEventQueuePoolName(), remoteCacheClient.getAuxiliaryCacheAttributes().getEventQueueType(),
+            remoteCacheClient.getAuxiliaryCacheAttributes().getEventQueueMaxBatchSize(), remoteCacheClient
+            .getAuxiliaryCacheAttributes().getEventQueueMaxBatchDelayMicros() );
 
         if ( previousQueue.isWorking() )
         {
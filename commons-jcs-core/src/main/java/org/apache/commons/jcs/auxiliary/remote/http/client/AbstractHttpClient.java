@@ -78,8 +78,17 @@ public abstract class AbstractHttpClient
             getConnectionManager().getParams().setMaxTotalConnections(
                                                                        getRemoteHttpCacheAttributes()
                                                                            .getMaxConnectionsPerHost() );
+            // The per host limit defaults to 2, which would serialize concurrent requests to the
+            // one server we talk to.
+            getConnectionManager().getParams().setDefaultMaxConnectionsPerHost(
+                                                                       getRemoteHttpCacheAttributes()
+                                                                           .getMaxConnectionsPerHost() );
         }
 
+        // Requests are small and answered immediately; don't let Nagle delay them on a kept-alive
+        // connection.
+        getConnectionManager().getParams().setTcpNoDelay( true );
+
         getConnectionManager().getParams().setSoTimeout( getRemoteHttpCacheAttributes().getSocketTimeoutMillis() );
 
         String httpVersion = getRemoteHttpCacheAttributes().getHttpVersion();
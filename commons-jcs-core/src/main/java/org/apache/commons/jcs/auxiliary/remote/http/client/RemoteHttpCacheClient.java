@@ -31,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -279,6 +280,31 @@ public class RemoteHttpCacheClient<K, V>
         getRemoteDispatcher().dispatchRequest( remoteHttpCacheRequest );
     }
 
+    /**
+     * Removes the given keys from the specified cache in a single request.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId
+     * @throws IOException
+     */
+    @Override
+    public void removeMultiple( String cacheName, List<K> keys, long requesterId )
+        throws IOException
+    {
+        if ( !isInitialized() )
+        {
+            String message = "The Remote Http Client is not initialized.  Cannot process request.";
+            log.warn( message );
+            throw new IOException( message );
+        }
+
+        RemoteCacheRequest<K, V> remoteHttpCacheRequest =
+            RemoteCacheRequestFactory.createRemoveMultipleRequest( cacheName, keys, requesterId );
+
+        getRemoteDispatcher().dispatchRequest( remoteHttpCacheRequest );
+    }
+
     /**
      * Remove all keys from the specified cache.
      * <p>
@@ -353,6 +379,30 @@ public class RemoteHttpCacheClient<K, V>
         getRemoteDispatcher().dispatchRequest( remoteHttpCacheRequest );
     }
 
+    /**
+     * Puts the cache items to the cache in a single request.
+     * <p>
+     * @param cacheElements
+     * @param requesterId
+     * @throws IOException
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> cacheElements, long requesterId )
+        throws IOException
+    {
+        if ( !isInitialized() )
+        {
+            String message = "The Remote Http Client is not initialized.  Cannot process request.";
+            log.warn( message );
+            throw new IOException( message );
+        }
+
+        RemoteCacheRequest<K, V> remoteHttpCacheRequest =
+            RemoteCacheRequestFactory.createUpdateMultipleRequest( cacheElements, requesterId );
+
+        getRemoteDispatcher().dispatchRequest( remoteHttpCacheRequest );
+    }
+
     /**
      * Frees the specified cache.
      * <p>
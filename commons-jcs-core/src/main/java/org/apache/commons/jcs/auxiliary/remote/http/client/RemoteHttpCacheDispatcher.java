@@ -28,11 +28,17 @@ import org.apache.commons.httpclient.methods.RequestEntity;
 import org.apache.commons.jcs.auxiliary.remote.behavior.IRemoteCacheDispatcher;
 import org.apache.commons.jcs.auxiliary.remote.value.RemoteCacheRequest;
 import org.apache.commons.jcs.auxiliary.remote.value.RemoteCacheResponse;
+import org.apache.commons.jcs.io.ObjectInputStreamClassLoaderAware;
 import org.apache.commons.jcs.utils.serialization.StandardSerializer;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 
@@ -50,6 +56,9 @@ public class RemoteHttpCacheDispatcher
     /** Named of the parameter */
     private static final String PARAMETER_CACHE_NAME = "CacheName";
 
+    /** The content type of the serialized request body. */
+    private static final String CONTENT_TYPE = "application/octet-stream";
+
     /** The Logger. */
     private static final Log log = LogFactory.getLog( RemoteHttpCacheDispatcher.class );
 
@@ -67,6 +76,9 @@ public class RemoteHttpCacheDispatcher
     /**
      * All requests will go through this method.
      * <p>
+     * The request is serialized straight onto the connection and the response is deserialized
+     * straight off it, so neither side is buffered in a byte array.
+     * <p>
      * TODO consider taking in a URL instead of using the one in the configuration.
      * <p>
      * @param remoteCacheRequest
@@ -80,16 +92,12 @@ public class RemoteHttpCacheDispatcher
     {
         try
         {
-            byte[] requestAsByteArray = serializer.serialize( remoteCacheRequest );
-
             String url = addParameters( remoteCacheRequest, getRemoteHttpCacheAttributes().getUrl() );
 
-            byte[] responseAsByteArray = processRequest( requestAsByteArray, url );
-
             RemoteCacheResponse<T> remoteCacheResponse = null;
             try
             {
-                remoteCacheResponse = serializer.deSerialize( responseAsByteArray, null );
+                remoteCacheResponse = processRequest( remoteCacheRequest, url );
             }
             catch ( ClassNotFoundException e )
             {
@@ -104,6 +112,67 @@ public class RemoteHttpCacheDispatcher
         }
     }
 
+    /**
+     * Posts the request and reads the response from the body stream. The connection is always
+     * released so that it goes back to the pool and can be reused for the next request.
+     * <p>
+     * @param remoteCacheRequest
+     * @param url
+     * @return RemoteCacheResponse, null if the response has no body
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    protected <K, V, T> RemoteCacheResponse<T> processRequest( RemoteCacheRequest<K, V> remoteCacheRequest, String url )
+        throws IOException, ClassNotFoundException
+    {
+        PostMethod post = new PostMethod( url );
+        post.setRequestEntity( createRequestEntity( remoteCacheRequest ) );
+        try
+        {
+            doWebserviceCall( post );
+
+            InputStream body = post.getResponseBodyAsStream();
+            if ( body == null )
+            {
+                return null;
+            }
+
+            ObjectInputStream ois = new ObjectInputStreamClassLoaderAware( new BufferedInputStream( body ), null );
+            try
+            {
+                @SuppressWarnings("unchecked") // Need to cast from Object
+                RemoteCacheResponse<T> response = (RemoteCacheResponse<T>) ois.readObject();
+                return response;
+            }
+            finally
+            {
+                ois.close();
+            }
+        }
+        finally
+        {
+            post.releaseConnection();
+        }
+    }
+
+    /**
+     * Creates the body for the request. HTTP 1.0 has no chunked transfer encoding, so the request
+     * is serialized up front in that case; otherwise it is streamed.
+     * <p>
+     * @param remoteCacheRequest
+     * @return RequestEntity
+     * @throws IOException
+     */
+    protected <K, V> RequestEntity createRequestEntity( RemoteCacheRequest<K, V> remoteCacheRequest )
+        throws IOException
+    {
+        if ( "1.0".equals( getRemoteHttpCacheAttributes().getHttpVersion() ) )
+        {
+            return new ByteArrayRequestEntity( serializer.serialize( remoteCacheRequest ), CONTENT_TYPE );
+        }
+        return new SerializingRequestEntity( remoteCacheRequest, serializer );
+    }
+
     /**
      * @param requestAsByteArray
      * @param url
@@ -117,9 +186,16 @@ public class RemoteHttpCacheDispatcher
         PostMethod post = new PostMethod( url );
         RequestEntity requestEntity = new ByteArrayRequestEntity( requestAsByteArray );
         post.setRequestEntity( requestEntity );
-        doWebserviceCall( post );
-        byte[] response = post.getResponseBody();
-        return response;
+        try
+        {
+            doWebserviceCall( post );
+            byte[] response = post.getResponseBody();
+            return response;
+        }
+        finally
+        {
+            post.releaseConnection();
+        }
     }
 
     /**
@@ -167,6 +243,9 @@ public class RemoteHttpCacheDispatcher
                     case GET_MULTIPLE:
                         keyValue = remoteCacheRequest.getKeySet() + "";
                         break;
+                    case REMOVE_MULTIPLE:
+                        keyValue = remoteCacheRequest.getKeyList() + "";
+                        break;
                     case GET_KEYSET:
                         keyValue = remoteCacheRequest.getKey() + "";
                         break;
@@ -228,4 +307,62 @@ public class RemoteHttpCacheDispatcher
     {
         // do nothing. Child can override.
     }
+
+    /**
+     * Writes the serialized request straight onto the connection. The length is not known up
+     * front, so the body is sent chunked. The request can be written again if the client retries.
+     */
+    protected static class SerializingRequestEntity
+        implements RequestEntity
+    {
+        /** The request to write. */
+        private final RemoteCacheRequest<?, ?> remoteCacheRequest;
+
+        /** Serializes the request. */
+        private final StandardSerializer serializer;
+
+        /**
+         * @param remoteCacheRequest
+         * @param serializer
+         */
+        public SerializingRequestEntity( RemoteCacheRequest<?, ?> remoteCacheRequest, StandardSerializer serializer )
+        {
+            this.remoteCacheRequest = remoteCacheRequest;
+            this.serializer = serializer;
+        }
+
+        /** @return true, the request is serialized again for each write */
+        @Override
+        public boolean isRepeatable()
+        {
+            return true;
+        }
+
+        /**
+         * @param out
+         * @throws IOException
+         */
+        @Override
+        public void writeRequest( OutputStream out )
+            throws IOException
+        {
+            BufferedOutputStream bos = new BufferedOutputStream( out );
+            serializer.serializeTo( remoteCacheRequest, bos );
+            bos.flush();
+        }
+
+        /** @return -1, the length is unknown */
+        @Override
+        public long getContentLength()
+        {
+            return -1;
+        }
+
+        /** @return the content type */
+        @Override
+        public String getContentType()
+        {
+            return CONTENT_TYPE;
+        }
+    }
 }
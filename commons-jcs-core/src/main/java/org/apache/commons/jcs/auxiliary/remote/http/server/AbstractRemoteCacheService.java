@@ -31,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -106,6 +107,23 @@ public abstract class AbstractRemoteCacheService<K extends Serializable, V exten
         }
     }
 
+    /**
+     * Applies the items in order, each like a single update.
+     * <p>
+     * @param items
+     * @param requesterId
+     * @throws IOException
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> items, long requesterId )
+        throws IOException
+    {
+        for ( ICacheElement<K, V> item : items )
+        {
+            update( item, requesterId );
+        }
+    }
+
     /**
      * The internal processing is wrapped in event logging calls.
      * <p>
@@ -371,6 +389,24 @@ public abstract class AbstractRemoteCacheService<K extends Serializable, V exten
         }
     }
 
+    /**
+     * Removes the keys in order, each like a single remove.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId
+     * @throws IOException
+     */
+    @Override
+    public void removeMultiple( String cacheName, List<K> keys, long requesterId )
+        throws IOException
+    {
+        for ( K key : keys )
+        {
+            remove( cacheName, key, requesterId );
+        }
+    }
+
     /**
      * Remove the key from the cache region and don't tell the source listener about it.
      * <p>
@@ -119,12 +119,19 @@ public class RemoteCacheServiceAdaptor<K extends Serializable, V extends Seriali
                         getRemoteCacheService().remove( request.getCacheName(), request.getKey(),
                                                         request.getRequesterId() );
                         break;
+                    case REMOVE_MULTIPLE:
+                        getRemoteCacheService().removeMultiple( request.getCacheName(), request.getKeyList(),
+                                                                request.getRequesterId() );
+                        break;
                     case REMOVE_ALL:
                         getRemoteCacheService().removeAll( request.getCacheName(), request.getRequesterId() );
                         break;
                     case UPDATE:
                         getRemoteCacheService().update( request.getCacheElement(), request.getRequesterId() );
                         break;
+                    case UPDATE_MULTIPLE:
+                        getRemoteCacheService().updateMultiple( request.getCacheElements(), request.getRequesterId() );
+                        break;
                     case ALIVE_CHECK:
                         response.setSuccess( true );
                         break;
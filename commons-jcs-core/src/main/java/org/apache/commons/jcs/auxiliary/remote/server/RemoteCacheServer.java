@@ -27,10 +27,11 @@ import java.rmi.server.RMISocketFactory;
 import java.rmi.server.UnicastRemoteObject;
 import java.rmi.server.Unreferenced;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.commons.jcs.access.exception.CacheException;
 import org.apache.commons.jcs.auxiliary.remote.behavior.IRemoteCacheListener;
@@ -242,6 +243,24 @@ public class RemoteCacheServer<K, V>
         }
     }
 
+    /**
+     * A client sends the puts that piled up in its event queue with one call. They are applied in
+     * order, each like a single update.
+     * <p>
+     * @param items
+     * @param requesterId
+     * @throws IOException
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> items, long requesterId )
+        throws IOException
+    {
+        for ( ICacheElement<K, V> item : items )
+        {
+            update( item, requesterId );
+        }
+    }
+
     /**
      * An update can come from either a local cache's remote auxiliary, or it can come from a remote
      * server. A remote server is considered a a source of type cluster.
@@ -287,8 +306,12 @@ public class RemoteCacheServer<K, V>
                 log.debug( "In update, requesterId = [" + requesterId + "] fromCluster = " + fromCluster );
             }
 
-            // ordered cache item update and notification.
-            synchronized ( cacheDesc )
+            // ordered cache item update and notification. Only changes to the same key wait for each
+            // other; other keys and other regions go ahead in parallel.
+            Lock keyLock = cacheDesc.keyLocks.getLock( item.getKey() );
+            cacheDesc.regionLock.readLock().lock();
+            keyLock.lock();
+            try
             {
                 try
                 {
@@ -352,6 +375,11 @@ public class RemoteCacheServer<K, V>
                     }
                 }
             }
+            finally
+            {
+                keyLock.unlock();
+                cacheDesc.regionLock.readLock().unlock();
+            }
         }
         catch ( IOException e )
         {
@@ -899,6 +927,25 @@ public class RemoteCacheServer<K, V>
         }
     }
 
+    /**
+     * A client sends the removes that piled up in its event queue with one call. They are applied
+     * in order, each like a single remove.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId
+     * @throws IOException
+     */
+    @Override
+    public void removeMultiple( String cacheName, List<K> keys, long requesterId )
+        throws IOException
+    {
+        for ( K key : keys )
+        {
+            remove( cacheName, key, requesterId );
+        }
+    }
+
     /**
      * Remove the key from the cache region and don't tell the source listener about it.
      * <p>
@@ -921,9 +968,12 @@ public class RemoteCacheServer<K, V>
 
         if ( cacheDesc != null )
         {
-            // best attempt to achieve ordered cache item removal and
-            // notification.
-            synchronized ( cacheDesc )
+            // ordered cache item removal and notification. Only changes to the same key wait for
+            // each other.
+            Lock keyLock = cacheDesc.keyLocks.getLock( key );
+            cacheDesc.regionLock.readLock().lock();
+            keyLock.lock();
+            try
             {
                 boolean removeSuccess = false;
 
@@ -965,6 +1015,11 @@ public class RemoteCacheServer<K, V>
                     }
                 }
             }
+            finally
+            {
+                keyLock.unlock();
+                cacheDesc.regionLock.readLock().unlock();
+            }
         }
     }
 
@@ -1021,9 +1076,10 @@ public class RemoteCacheServer<K, V>
 
         if ( cacheDesc != null )
         {
-            // best attempt to achieve ordered cache item removal and
-            // notification.
-            synchronized ( cacheDesc )
+            // ordered cache removal and notification. Waits for the changes to single keys in
+            // progress and keeps new ones out.
+            cacheDesc.regionLock.writeLock().lock();
+            try
             {
                 // No need to broadcast, or notify if it was not cached.
                 CompositeCache<K, V> c = (CompositeCache<K, V>) cacheDesc.cache;
@@ -1056,6 +1112,10 @@ public class RemoteCacheServer<K, V>
                     }
                 }
             }
+            finally
+            {
+                cacheDesc.regionLock.writeLock().unlock();
+            }
         }
     }
 
@@ -1122,8 +1182,9 @@ public class RemoteCacheServer<K, V>
         // this is dangerous
         if ( cacheDesc != null )
         {
-            // best attempt to achieve ordered free-cache-op and notification.
-            synchronized ( cacheDesc )
+            // ordered free-cache-op and notification.
+            cacheDesc.regionLock.writeLock().lock();
+            try
             {
                 ICacheEventQueue<K, V>[] qlist = getEventQList( cacheDesc, requesterId );
 
@@ -1133,6 +1194,10 @@ public class RemoteCacheServer<K, V>
                 }
                 cacheManager.freeCache( cacheName );
             }
+            finally
+            {
+                cacheDesc.regionLock.writeLock().unlock();
+            }
         }
     }
 
@@ -1227,11 +1292,8 @@ public class RemoteCacheServer<K, V>
     @SuppressWarnings("unchecked") // No generic arrays in java
     private ICacheEventQueue<K, V>[] getEventQList( CacheListeners<K, V> cacheListeners, long requesterId )
     {
-        ICacheEventQueue<K, V>[] list = null;
-        synchronized ( cacheListeners.eventQMap )
-        {
-            list = cacheListeners.eventQMap.values().toArray( new ICacheEventQueue[0] );
-        }
+        // copy the snapshot, the entries not qualified are nulled out below
+        ICacheEventQueue<K, V>[] list = cacheListeners.getEventQueues().clone();
         int count = 0;
         // Set those not qualified to null; Count those qualified.
         for ( int i = 0; i < list.length; i++ )
@@ -1268,26 +1330,20 @@ public class RemoteCacheServer<K, V>
     /**
      * Removes dead event queues. Should clean out deregistered listeners.
      * <p>
-     * @param eventQMap
+     * @param cacheListeners
      */
-    private static <KK, VV> void cleanupEventQMap( Map<Long, ICacheEventQueue<KK, VV>> eventQMap )
+    private static <KK, VV> void cleanupEventQMap( CacheListeners<KK, VV> cacheListeners )
     {
-        synchronized ( eventQMap )
+        for ( ICacheEventQueue<KK, VV> q : cacheListeners.getEventQueues() )
         {
-            for (Iterator<Map.Entry<Long, ICacheEventQueue<KK, VV>>> itr = eventQMap.entrySet().iterator(); itr.hasNext(); )
+            // this does not care if the q is alive (i.e. if
+            // there are active threads; it cares if the queue
+            // is working -- if it has not encountered errors
+            // above the failure threshold
+            if ( !q.isWorking() )
             {
-                Map.Entry<Long, ICacheEventQueue<KK, VV>> e = itr.next();
-                ICacheEventQueue<KK, VV> q = e.getValue();
-
-                // this does not care if the q is alive (i.e. if
-                // there are active threads; it cares if the queue
-                // is working -- if it has not encountered errors
-                // above the failure threshold
-                if ( !q.isWorking() )
-                {
-                    itr.remove();
-                    log.warn( "Cache event queue " + q + " is not working and removed from cache server." );
-                }
+                cacheListeners.removeEventQueue( Long.valueOf( q.getListenerId() ) );
+                log.warn( "Cache event queue " + q + " is not working and removed from cache server." );
             }
         }
     }
@@ -1329,8 +1385,7 @@ public class RemoteCacheServer<K, V>
             log.debug( "adding normal listener, listenerAddress [" + listenerAddress + "]" );
             cacheListeners = (CacheListeners<KK, VV>)getCacheListeners( cacheName );
         }
-        Map<Long, ICacheEventQueue<KK, VV>> eventQMap = cacheListeners.eventQMap;
-        cleanupEventQMap( eventQMap );
+        cleanupEventQMap( cacheListeners );
 
         // synchronized ( listenerId )
         synchronized ( ICacheListener.class )
@@ -1397,7 +1452,7 @@ public class RemoteCacheServer<K, V>
             ICacheEventQueue<KK, VV> q = fact.createCacheEventQueue( listener, id, cacheName, remoteCacheServerAttributes
                 .getEventQueuePoolName(), remoteCacheServerAttributes.getEventQueueType() );
 
-            eventQMap.put(Long.valueOf(listener.getListenerId()), q);
+            cacheListeners.putEventQueue( Long.valueOf( listener.getListenerId() ), q );
 
             if ( log.isInfoEnabled() )
             {
@@ -1470,9 +1525,8 @@ public class RemoteCacheServer<K, V>
         {
             cacheDesc = getCacheListeners( cacheName );
         }
-        Map<Long, ICacheEventQueue<K, V>> eventQMap = cacheDesc.eventQMap;
-        cleanupEventQMap( eventQMap );
-        ICacheEventQueue<K, V> q = eventQMap.remove( Long.valueOf( listenerId ) );
+        cleanupEventQMap( cacheDesc );
+        ICacheEventQueue<K, V> q = cacheDesc.removeEventQueue( Long.valueOf( listenerId ) );
 
         if ( q != null )
         {
@@ -1481,7 +1535,7 @@ public class RemoteCacheServer<K, V>
                 log.debug( "Found queue for cache region = [" + cacheName + "] and listenerId  [" + listenerId + "]" );
             }
             q.destroy();
-            cleanupEventQMap( eventQMap );
+            cleanupEventQMap( cacheDesc );
         }
         else
         {
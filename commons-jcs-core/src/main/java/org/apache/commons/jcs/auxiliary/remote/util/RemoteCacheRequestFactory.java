@@ -25,6 +25,7 @@ import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -132,6 +133,30 @@ public class RemoteCacheRequestFactory
         return request;
     }
 
+    /**
+     * Creates a removeMultiple Request.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId
+     * @return RemoteHttpCacheRequest
+     */
+    public static <K, V> RemoteCacheRequest<K, V> createRemoveMultipleRequest( String cacheName, List<K> keys, long requesterId )
+    {
+        RemoteCacheRequest<K, V> request = new RemoteCacheRequest<K, V>();
+        request.setCacheName( cacheName );
+        request.setKeyList( keys );
+        request.setRequesterId( requesterId );
+        request.setRequestType( RemoteRequestType.REMOVE_MULTIPLE );
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Created: " + request );
+        }
+
+        return request;
+    }
+
     /**
      * Creates a GetKeySet Request.
      * <p>
@@ -230,6 +255,36 @@ public class RemoteCacheRequestFactory
         return request;
     }
 
+    /**
+     * Creates an UpdateMultiple Request. The cache name is taken from the first element.
+     * <p>
+     * @param cacheElements
+     * @param requesterId
+     * @return RemoteHttpCacheRequest
+     */
+    public static <K, V> RemoteCacheRequest<K, V> createUpdateMultipleRequest( List<ICacheElement<K, V>> cacheElements, long requesterId )
+    {
+        RemoteCacheRequest<K, V> request = new RemoteCacheRequest<K, V>();
+        if ( cacheElements != null && !cacheElements.isEmpty() )
+        {
+            request.setCacheName( cacheElements.get( 0 ).getCacheName() );
+            request.setCacheElements( cacheElements );
+        }
+        else
+        {
+            log.error( "Can't create a proper update multiple request for an empty element list." );
+        }
+        request.setRequesterId( requesterId );
+        request.setRequestType( RemoteRequestType.UPDATE_MULTIPLE );
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Created: " + request );
+        }
+
+        return request;
+    }
+
     /**
      * Creates an alive check Request.
      * <p>
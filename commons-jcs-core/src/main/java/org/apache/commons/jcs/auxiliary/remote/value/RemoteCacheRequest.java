@@ -22,6 +22,7 @@ package org.apache.commons.jcs.auxiliary.remote.value;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -51,12 +52,18 @@ public class RemoteCacheRequest<K, V>
     /** The keySet, if this request has a keySet. Only getMultiple requests. */
     private Set<K> keySet;
 
+    /** The keyList, if this request has a keyList. Only removeMultiple requests. */
+    private List<K> keyList;
+
     /** The pattern, if this request uses a pattern. Only getMatching requests. */
     private String pattern;
 
     /** The ICacheEleemnt, if this request contains a value. Only update requests will have this. */
     private ICacheElement<K, V> cacheElement;
 
+    /** The ICacheElements, if this request contains several values. Only updateMultiple requests. */
+    private List<ICacheElement<K, V>> cacheElements;
+
     /**
      * @param requestType the requestType to set
      */
@@ -169,6 +176,38 @@ public class RemoteCacheRequest<K, V>
         return keySet;
     }
 
+    /**
+     * @param keyList the keyList to set
+     */
+    public void setKeyList( List<K> keyList )
+    {
+        this.keyList = keyList;
+    }
+
+    /**
+     * @return the keyList
+     */
+    public List<K> getKeyList()
+    {
+        return keyList;
+    }
+
+    /**
+     * @param cacheElements the cacheElements to set
+     */
+    public void setCacheElements( List<ICacheElement<K, V>> cacheElements )
+    {
+        this.cacheElements = cacheElements;
+    }
+
+    /**
+     * @return the cacheElements
+     */
+    public List<ICacheElement<K, V>> getCacheElements()
+    {
+        return cacheElements;
+    }
+
     /** @return string */
     @Override
     public String toString()
@@ -180,8 +219,10 @@ public class RemoteCacheRequest<K, V>
         buf.append( "\n cacheName [" + getCacheName() + "]" );
         buf.append( "\n key [" + getKey() + "]" );
         buf.append( "\n keySet [" + getKeySet() + "]" );
+        buf.append( "\n keyList [" + getKeyList() + "]" );
         buf.append( "\n pattern [" + getPattern() + "]" );
         buf.append( "\n cacheElement [" + getCacheElement() + "]" );
+        buf.append( "\n cacheElements [" + getCacheElements() + "]" );
         return buf.toString();
     }
 }
@@ -39,9 +39,15 @@ public enum RemoteRequestType
     /** Update request type. */
     UPDATE,
 
+    /** Update Multiple request type. */
+    UPDATE_MULTIPLE,
+
     /** Remove request type. */
     REMOVE,
 
+    /** Remove Multiple request type. */
+    REMOVE_MULTIPLE,
+
     /** Remove All request type. */
     REMOVE_ALL,
 
@@ -26,6 +26,8 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * An abstract base class to the different implementations
@@ -45,6 +47,15 @@ public abstract class AbstractCacheEventQueue<K, V>
      */
     private int waitToDieMillis = DEFAULT_WAIT_TO_DIE_MILLIS;
 
+    /** default */
+    protected static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    /** The most puts or removes handed to the listener in one call. 1 turns batching off. */
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    /** How long to wait for more events to fill a batch, in microseconds. */
+    private int maxBatchDelayMicros = 0;
+
     // TODO privatise the fields
 
     /**
@@ -94,6 +105,49 @@ public abstract class AbstractCacheEventQueue<K, V>
         waitToDieMillis = wtdm;
     }
 
+    /**
+     * Returns the most puts or removes handed to the listener in one call.
+     * <p>
+     * @return int
+     */
+    public int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets the most puts or removes handed to the listener in one call. Runs of puts or of removes
+     * that pile up in the queue are passed to handlePutMultiple or handleRemoveMultiple. 1 or less
+     * hands every event over on its own.
+     * <p>
+     * @param maxBatchSize
+     */
+    public void setMaxBatchSize( int maxBatchSize )
+    {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Returns how long the queue waits for more events to fill a batch.
+     * <p>
+     * @return microseconds
+     */
+    public int getMaxBatchDelayMicros()
+    {
+        return maxBatchDelayMicros;
+    }
+
+    /**
+     * Sets how long the queue waits for more events to fill a batch. The default of 0 only batches
+     * the events that are already waiting, so no delay is added.
+     * <p>
+     * @param maxBatchDelayMicros
+     */
+    public void setMaxBatchDelayMicros( int maxBatchDelayMicros )
+    {
+        this.maxBatchDelayMicros = maxBatchDelayMicros;
+    }
+
     /**
      * Creates a brief string identifying the listener and the region.
      * <p>
@@ -234,6 +288,60 @@ public abstract class AbstractCacheEventQueue<K, V>
     protected abstract void put( AbstractCacheEvent event );
 
 
+    /**
+     * Puts and removes can be batched.
+     * <p>
+     * @param event
+     * @return true if the event can be combined with others of its kind
+     */
+    protected boolean isBatchable( AbstractCacheEvent event )
+    {
+        return maxBatchSize > 1
+            && ( event instanceof AbstractCacheEventQueue.PutEvent || event instanceof AbstractCacheEventQueue.RemoveEvent );
+    }
+
+    /**
+     * @param first
+     * @param next
+     * @return true if both are puts or both are removes
+     */
+    protected boolean isSameKind( AbstractCacheEvent first, AbstractCacheEvent next )
+    {
+        return ( first instanceof AbstractCacheEventQueue.PutEvent && next instanceof AbstractCacheEventQueue.PutEvent )
+            || ( first instanceof AbstractCacheEventQueue.RemoveEvent && next instanceof AbstractCacheEventQueue.RemoveEvent );
+    }
+
+    /**
+     * Turns a run of puts or a run of removes into one event.
+     * <p>
+     * @param events batchable events of the same kind, in order
+     * @return the single event for a run of one, else a multiple event
+     */
+    protected AbstractCacheEvent createBatchEvent( List<AbstractCacheEvent> events )
+    {
+        if ( events.size() == 1 )
+        {
+            return events.get( 0 );
+        }
+
+        if ( events.get( 0 ) instanceof AbstractCacheEventQueue.PutEvent )
+        {
+            List<ICacheElement<K, V>> items = new ArrayList<ICacheElement<K, V>>( events.size() );
+            for ( AbstractCacheEvent event : events )
+            {
+                items.add( ( (PutEvent) event ).ice );
+            }
+            return new PutMultipleEvent( items );
+        }
+
+        List<K> keys = new ArrayList<K>( events.size() );
+        for ( AbstractCacheEvent event : events )
+        {
+            keys.add( ( (RemoveEvent) event ).key );
+        }
+        return new RemoveMultipleEvent( keys );
+    }
+
     // /////////////////////////// Inner classes /////////////////////////////
 
     /** The queue is composed of nodes. */
@@ -412,6 +520,92 @@ public abstract class AbstractCacheEventQueue<K, V>
 
     }
 
+    /**
+     * A run of elements should be put in the cache.
+     */
+    protected class PutMultipleEvent
+        extends AbstractCacheEvent
+    {
+        /** The elements to put to the listener */
+        private final List<ICacheElement<K, V>> items;
+
+        /**
+         * Constructor for the PutMultipleEvent object.
+         * <p>
+         * @param items
+         */
+        PutMultipleEvent( List<ICacheElement<K, V>> items )
+        {
+            this.items = items;
+        }
+
+        /**
+         * Call put multiple on the listener.
+         * <p>
+         * @throws IOException
+         */
+        @Override
+        protected void doRun()
+            throws IOException
+        {
+            listener.handlePutMultiple( items );
+        }
+
+        /**
+         * For debugging.
+         * <p>
+         * @return Info on the number of elements.
+         */
+        @Override
+        public String toString()
+        {
+            return new StringBuilder( "PutMultipleEvent for " ).append( items.size() ).append( " elements" ).toString();
+        }
+    }
+
+    /**
+     * A run of elements should be removed from the cache.
+     */
+    protected class RemoveMultipleEvent
+        extends AbstractCacheEvent
+    {
+        /** The keys to remove from the listener */
+        private final List<K> keys;
+
+        /**
+         * Constructor for the RemoveMultipleEvent object.
+         * <p>
+         * @param keys
+         */
+        RemoveMultipleEvent( List<K> keys )
+        {
+            this.keys = keys;
+        }
+
+        /**
+         * Call remove multiple on the listener.
+         * <p>
+         * @throws IOException
+         */
+        @Override
+        protected void doRun()
+            throws IOException
+        {
+            listener.handleRemoveMultiple( cacheName, keys );
+        }
+
+        /**
+         * For debugging.
+         * <p>
+         * @return Info on the keys to remove.
+         */
+        @Override
+        public String toString()
+        {
+            return new StringBuilder( "RemoveMultipleEvent for " ).append( keys ).toString();
+        }
+    }
+
     /**
      * All elements should be removed from the cache when this event is processed.
      * <p>
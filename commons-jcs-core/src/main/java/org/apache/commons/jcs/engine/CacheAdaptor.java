@@ -19,6 +19,7 @@ package org.apache.commons.jcs.engine;
  * under the License.
  */
 
+import org.apache.commons.jcs.auxiliary.AuxiliaryCache;
 import org.apache.commons.jcs.engine.behavior.ICache;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.ICacheListener;
@@ -26,6 +27,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Used for Cache-to-Cache messaging purposes. These are used in the balking
@@ -115,6 +117,61 @@ public class CacheAdaptor<K, V>
         cache.remove( key );
     }
 
+    /**
+     * Puts the items into the cache. An auxiliary gets them in one call, so a remote or lateral
+     * cache can send them together.
+     * <p>
+     * @param items
+     * @throws IOException
+     */
+    @Override
+    public void handlePutMultiple( List<ICacheElement<K, V>> items )
+        throws IOException
+    {
+        try
+        {
+            if ( cache instanceof AuxiliaryCache )
+            {
+                ( (AuxiliaryCache<K, V>) cache ).updateMultiple( items );
+            }
+            else
+            {
+                for ( ICacheElement<K, V> item : items )
+                {
+                    cache.update( item );
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            // swallow
+        }
+    }
+
+    /**
+     * Removes the items. An auxiliary gets them in one call.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    public void handleRemoveMultiple( String cacheName, List<K> keys )
+        throws IOException
+    {
+        if ( cache instanceof AuxiliaryCache )
+        {
+            ( (AuxiliaryCache<K, V>) cache ).removeMultiple( keys );
+        }
+        else
+        {
+            for ( K key : keys )
+            {
+                cache.remove( key );
+            }
+        }
+    }
+
     /**
      * Clears the region.
      * <p>
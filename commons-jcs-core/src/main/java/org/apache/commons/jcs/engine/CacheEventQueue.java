@@ -28,6 +28,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * An event queue is used to propagate ordered cache events to one and only one target listener.
@@ -299,6 +300,11 @@ public class CacheEventQueue<K, V>
                     }
                 }
 
+                if ( event != null && queue.isBatchable( event ) )
+                {
+                    event = queue.takeBatch( event );
+                }
+
                 if ( queue.isWorking() && queue.isAlive() && event != null )
                 {
                     event.run();
@@ -352,6 +358,62 @@ public class CacheEventQueue<K, V>
         }
     }
 
+    /**
+     * Takes the puts or removes that follow the given event, up to the max batch size, and turns
+     * them into one event. If the queue runs dry first, this waits up to the max batch delay for
+     * more to come in.
+     * <p>
+     * @param first the event just taken
+     * @return the event to process
+     */
+    protected AbstractCacheEvent takeBatch( AbstractCacheEvent first )
+    {
+        List<AbstractCacheEvent> batch = new ArrayList<AbstractCacheEvent>();
+        batch.add( first );
+        long deadline = System.nanoTime() + getMaxBatchDelayMicros() * 1000L;
+
+        synchronized ( queueLock )
+        {
+            while ( batch.size() < getMaxBatchSize() )
+            {
+                if ( head == tail )
+                {
+                    long wait = deadline - System.nanoTime();
+                    if ( wait <= 0 )
+                    {
+                        break;
+                    }
+                    try
+                    {
+                        queueLock.wait( wait / 1000000, (int) ( wait % 1000000 ) );
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        // destroy interrupts us, let the processor see it
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    continue;
+                }
+
+                @SuppressWarnings("unchecked") // No generics for public fields
+                AbstractCacheEvent next = (AbstractCacheEvent) head.next.event;
+                if ( !isSameKind( first, next ) )
+                {
+                    break;
+                }
+                batch.add( take() );
+            }
+        }
+
+        if ( log.isDebugEnabled() && batch.size() > 1 )
+        {
+            log.debug( "Batched " + batch.size() + " events for " + cacheName );
+        }
+
+        return createBatchEvent( batch );
+    }
+
     /**
      * This method returns semi-structured data on this queue.
      * <p>
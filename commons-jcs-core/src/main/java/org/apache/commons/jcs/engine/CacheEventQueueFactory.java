@@ -51,6 +51,29 @@ public class CacheEventQueueFactory<K, V>
         return createCacheEventQueue( listener, listenerId, cacheName, 10, 500, threadPoolName, poolType );
     }
 
+    /**
+     * The most commonly used factory method, with batching configured.
+     * <p>
+     * @param listener
+     * @param listenerId
+     * @param cacheName
+     * @param threadPoolName
+     * @param poolType - SINGLE, POOLED
+     * @param maxBatchSize the most puts or removes handed to the listener in one call
+     * @param maxBatchDelayMicros how long to wait for more events to fill a batch
+     * @return ICacheEventQueue
+     */
+    public ICacheEventQueue<K, V> createCacheEventQueue( ICacheListener<K, V> listener, long listenerId, String cacheName,
+                                                   String threadPoolName, ICacheEventQueue.QueueType poolType,
+                                                   int maxBatchSize, int maxBatchDelayMicros )
+    {
+        AbstractCacheEventQueue<K, V> eventQueue =
+            createQueue( listener, listenerId, cacheName, 10, 500, threadPoolName, poolType );
+        eventQueue.setMaxBatchSize( maxBatchSize );
+        eventQueue.setMaxBatchDelayMicros( maxBatchDelayMicros );
+        return eventQueue;
+    }
+
     /**
      * Fully configured event queue.
      * <p>
@@ -66,22 +89,41 @@ public class CacheEventQueueFactory<K, V>
     public ICacheEventQueue<K, V> createCacheEventQueue( ICacheListener<K, V> listener, long listenerId, String cacheName,
                                                    int maxFailure, int waitBeforeRetry, String threadPoolName,
                                                    ICacheEventQueue.QueueType poolType )
+    {
+        return createQueue( listener, listenerId, cacheName, maxFailure, waitBeforeRetry, threadPoolName, poolType );
+    }
+
+    /**
+     * Creates the event queue for the pool type.
+     * <p>
+     * @param listener
+     * @param listenerId
+     * @param cacheName
+     * @param maxFailure
+     * @param waitBeforeRetry
+     * @param threadPoolName null is OK, if not a pooled event queue this is ignored
+     * @param poolType single or pooled
+     * @return AbstractCacheEventQueue
+     */
+    private AbstractCacheEventQueue<K, V> createQueue( ICacheListener<K, V> listener, long listenerId, String cacheName,
+                                                       int maxFailure, int waitBeforeRetry, String threadPoolName,
+                                                       ICacheEventQueue.QueueType poolType )
     {
         if ( log.isDebugEnabled() )
         {
             log.debug( "threadPoolName = [" + threadPoolName + "] poolType = " + poolType + " " );
         }
 
-        ICacheEventQueue<K, V> eventQueue = null;
-        if ( poolType == null || ICacheEventQueue.QueueType.SINGLE == poolType )
-        {
-            eventQueue = new CacheEventQueue<K, V>( listener, listenerId, cacheName, maxFailure, waitBeforeRetry );
-        }
-        else if ( ICacheEventQueue.QueueType.POOLED == poolType )
+        AbstractCacheEventQueue<K, V> eventQueue = null;
+        if ( ICacheEventQueue.QueueType.POOLED == poolType )
         {
             eventQueue = new PooledCacheEventQueue<K, V>( listener, listenerId, cacheName, maxFailure, waitBeforeRetry,
                                                     threadPoolName );
         }
+        else
+        {
+            eventQueue = new CacheEventQueue<K, V>( listener, listenerId, cacheName, maxFailure, waitBeforeRetry );
+        }
 
         return eventQueue;
     }
@@ -21,10 +21,13 @@ package org.apache.commons.jcs.engine;
 
 import org.apache.commons.jcs.engine.behavior.ICache;
 import org.apache.commons.jcs.engine.behavior.ICacheEventQueue;
+import org.apache.commons.jcs.utils.struct.StripedLock;
 
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Used to associates a set of [cache listener to cache event queue] for a
@@ -35,10 +38,26 @@ public class CacheListeners<K, V>
     /** The cache using the queue. */
     public final ICache<K, V> cache;
 
-    /** Map ICacheListener to ICacheEventQueue */
+    /**
+     * Map ICacheListener to ICacheEventQueue. Change it through putEventQueue and removeEventQueue
+     * so that the snapshot returned by getEventQueues stays current.
+     */
     public final Map<Long, ICacheEventQueue<K, V>> eventQMap =
         new ConcurrentHashMap<Long, ICacheEventQueue<K, V>>();
 
+    /**
+     * Held shared by operations on a single key and exclusively by operations on the whole region,
+     * such as removeAll and dispose.
+     */
+    public final ReadWriteLock regionLock = new ReentrantReadWriteLock();
+
+    /** Orders the change and notification for one key. Different keys run in parallel. */
+    public final StripedLock keyLocks = new StripedLock();
+
+    /** The event queues, copied whenever the map changes so that readers need no lock. */
+    @SuppressWarnings("unchecked") // No generic arrays in java
+    private volatile ICacheEventQueue<K, V>[] eventQueues = new ICacheEventQueue[0];
+
     /**
      * Constructs with the given cache.
      * <p>
@@ -53,6 +72,57 @@ public class CacheListeners<K, V>
         this.cache = cache;
     }
 
+    /**
+     * Registers the event queue of a listener.
+     * <p>
+     * @param listenerId
+     * @param eventQueue
+     * @return the queue previously registered for the listener, or null
+     */
+    public ICacheEventQueue<K, V> putEventQueue( Long listenerId, ICacheEventQueue<K, V> eventQueue )
+    {
+        synchronized ( eventQMap )
+        {
+            ICacheEventQueue<K, V> previous = eventQMap.put( listenerId, eventQueue );
+            refreshEventQueues();
+            return previous;
+        }
+    }
+
+    /**
+     * Unregisters the event queue of a listener.
+     * <p>
+     * @param listenerId
+     * @return the queue that was registered for the listener, or null
+     */
+    public ICacheEventQueue<K, V> removeEventQueue( Long listenerId )
+    {
+        synchronized ( eventQMap )
+        {
+            ICacheEventQueue<K, V> removed = eventQMap.remove( listenerId );
+            refreshEventQueues();
+            return removed;
+        }
+    }
+
+    /**
+     * The event queues of all the listeners. The array is a snapshot; it is never changed, so it
+     * can be read without locking while listeners come and go.
+     * <p>
+     * @return the event queues
+     */
+    public ICacheEventQueue<K, V>[] getEventQueues()
+    {
+        return eventQueues;
+    }
+
+    /** Replaces the snapshot. The caller holds the eventQMap lock. */
+    @SuppressWarnings("unchecked") // No generic arrays in java
+    private void refreshEventQueues()
+    {
+        eventQueues = eventQMap.values().toArray( new ICacheEventQueue[eventQMap.size()] );
+    }
+
     /** @return info on the listeners */
     @Override
     public String toString()
@@ -64,6 +64,12 @@ public class CompositeCacheAttributes
     /** Default number to send to disk at a time when memory fills. */
     private static final int DEFAULT_CHUNK_SIZE = 2;
 
+    /** Default off-heap block size */
+    private static final int DEFAULT_OFF_HEAP_BLOCK_SIZE = 1024;
+
+    /** Default wait for an auxiliary asked in parallel */
+    private static final long DEFAULT_AUXILIARY_FAN_OUT_TIMEOUT_MILLIS = 5000;
+
     /** allow lateral caches */
     private boolean useLateral = DEFAULT_USE_LATERAL;
 
@@ -100,6 +106,18 @@ public class CompositeCacheAttributes
     /** How many to spool to disk at a time. */
     private int spoolChunkSize = DEFAULT_CHUNK_SIZE;
 
+    /** Size of the off-heap tier in bytes, 0 if disabled. */
+    private long offHeapMaxBytes = 0;
+
+    /** Block size of the off-heap tier. */
+    private int offHeapBlockSizeBytes = DEFAULT_OFF_HEAP_BLOCK_SIZE;
+
+    /** The pool for parallel auxiliary gets, null for sequential gets */
+    private String auxiliaryFanOutPoolName;
+
+    /** How long to wait for an auxiliary asked in parallel */
+    private long auxiliaryFanOutTimeoutMillis = DEFAULT_AUXILIARY_FAN_OUT_TIMEOUT_MILLIS;
+
     /**
      * Constructor for the CompositeCacheAttributes object
      */
@@ -402,6 +420,78 @@ public class CompositeCacheAttributes
         return diskUsagePattern;
     }
 
+    /**
+     * @param offHeapMaxBytes The size of the off-heap tier, 0 to disable it.
+     */
+    @Override
+    public void setOffHeapMaxBytes( long offHeapMaxBytes )
+    {
+        this.offHeapMaxBytes = offHeapMaxBytes;
+    }
+
+    /**
+     * @return Returns the size of the off-heap tier.
+     */
+    @Override
+    public long getOffHeapMaxBytes()
+    {
+        return offHeapMaxBytes;
+    }
+
+    /**
+     * @param offHeapBlockSizeBytes The block size of the off-heap tier.
+     */
+    @Override
+    public void setOffHeapBlockSizeBytes( int offHeapBlockSizeBytes )
+    {
+        this.offHeapBlockSizeBytes = offHeapBlockSizeBytes;
+    }
+
+    /**
+     * @return Returns the block size of the off-heap tier.
+     */
+    @Override
+    public int getOffHeapBlockSizeBytes()
+    {
+        return offHeapBlockSizeBytes;
+    }
+
+    /**
+     * @param auxiliaryFanOutPoolName The pool for parallel auxiliary gets, null for sequential gets.
+     */
+    @Override
+    public void setAuxiliaryFanOutPoolName( String auxiliaryFanOutPoolName )
+    {
+        this.auxiliaryFanOutPoolName = auxiliaryFanOutPoolName;
+    }
+
+    /**
+     * @return Returns the pool for parallel auxiliary gets.
+     */
+    @Override
+    public String getAuxiliaryFanOutPoolName()
+    {
+        return auxiliaryFanOutPoolName;
+    }
+
+    /**
+     * @param auxiliaryFanOutTimeoutMillis How long to wait for an auxiliary asked in parallel.
+     */
+    @Override
+    public void setAuxiliaryFanOutTimeoutMillis( long auxiliaryFanOutTimeoutMillis )
+    {
+        this.auxiliaryFanOutTimeoutMillis = auxiliaryFanOutTimeoutMillis;
+    }
+
+    /**
+     * @return Returns how long to wait for an auxiliary asked in parallel.
+     */
+    @Override
+    public long getAuxiliaryFanOutTimeoutMillis()
+    {
+        return auxiliaryFanOutTimeoutMillis;
+    }
+
     /**
      * Description of the Method
      * <p>
@@ -440,6 +530,9 @@ public class CompositeCacheAttributes
         dump.append( ", maxSpoolPerRun = " ).append( maxSpoolPerRun );
         dump.append( ", diskUsagePattern = " ).append( diskUsagePattern );
         dump.append( ", spoolChunkSize = " ).append( spoolChunkSize );
+        dump.append( ", offHeapMaxBytes = " ).append( offHeapMaxBytes );
+        dump.append( ", auxiliaryFanOutPoolName = " ).append( auxiliaryFanOutPoolName );
+        dump.append( ", auxiliaryFanOutTimeoutMillis = " ).append( auxiliaryFanOutTimeoutMillis );
         dump.append( " ]" );
 
         return dump.toString();
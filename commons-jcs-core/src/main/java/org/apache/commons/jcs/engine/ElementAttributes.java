@@ -233,6 +233,17 @@ public class ElementAttributes
         createTime = System.currentTimeMillis();
     }
 
+    /**
+     * Sets the create time to the given value. Serializers use this to restore the attributes of
+     * an element read back from an auxiliary.
+     * <p>
+     * @param time milliseconds
+     */
+    public void setCreateTime( long time )
+    {
+        this.createTime = time;
+    }
+
     /**
      * Gets the idleTime attribute of the IAttributes object.
      * <p>
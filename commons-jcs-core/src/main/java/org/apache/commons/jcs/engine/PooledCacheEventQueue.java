@@ -29,8 +29,12 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * An event queue is used to propagate ordered cache events to one and only one target listener.
@@ -54,6 +58,15 @@ public class PooledCacheEventQueue<K, V>
     /** The Thread Pool to execute events with. */
     private ThreadPoolExecutor pool = null;
 
+    /** Events waiting for the drainer, which hands puts and removes over in runs. */
+    private final ConcurrentLinkedQueue<AbstractCacheEvent> pending = new ConcurrentLinkedQueue<AbstractCacheEvent>();
+
+    /** Whether a drainer is queued or running in the pool. */
+    private final AtomicBoolean drainScheduled = new AtomicBoolean( false );
+
+    /** Runs the pending events. */
+    private final Runnable drainer = new Drainer();
+
     /**
      * Constructor for the CacheEventQueue object
      * <p>
@@ -147,7 +160,12 @@ public class PooledCacheEventQueue<K, V>
     @Override
     protected void put( AbstractCacheEvent event )
     {
-        pool.execute( event );
+        // everything goes through the one drainer, so a remove all can't overtake the puts around it
+        pending.add( event );
+        if ( drainScheduled.compareAndSet( false, true ) )
+        {
+            pool.execute( drainer );
+        }
     }
 
     /**
@@ -199,11 +217,11 @@ public class PooledCacheEventQueue<K, V>
     {
         if ( pool.getQueue() == null )
         {
-            return true;
+            return pending.isEmpty();
         }
         else
         {
-            return pool.getQueue().size() == 0;
+            return pool.getQueue().size() == 0 && pending.isEmpty();
         }
     }
 
@@ -218,11 +236,73 @@ public class PooledCacheEventQueue<K, V>
     {
         if ( pool.getQueue() == null )
         {
-            return 0;
+            return pending.size();
         }
         else
         {
-            return pool.getQueue().size();
+            return pool.getQueue().size() + pending.size();
+        }
+    }
+
+    /**
+     * Hands the pending events to the listener, puts and removes in runs. Only one drainer per queue
+     * is scheduled at a time, so the events of this queue are handled in order.
+     */
+    private class Drainer
+        implements Runnable
+    {
+        /**
+         * Drains the pending events, then reschedules itself if more came in meanwhile.
+         */
+        @SuppressWarnings("synthetic-access")
+        @Override
+        public void run()
+        {
+            try
+            {
+                if ( getMaxBatchDelayMicros() > 0 && pending.size() < getMaxBatchSize() )
+                {
+                    TimeUnit.MICROSECONDS.sleep( getMaxBatchDelayMicros() );
+                }
+                drain();
+            }
+            catch ( InterruptedException e )
+            {
+                // destroy shuts the pool down
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                drainScheduled.set( false );
+                if ( !pending.isEmpty() && isWorking() && drainScheduled.compareAndSet( false, true ) )
+                {
+                    pool.execute( this );
+                }
+            }
+        }
+
+        /**
+         * Runs the pending events in order, combining runs of puts or removes.
+         */
+        private void drain()
+        {
+            List<AbstractCacheEvent> batch = new ArrayList<AbstractCacheEvent>();
+            AbstractCacheEvent event;
+            while ( ( event = pending.poll() ) != null )
+            {
+                // an event that can't be batched is never the same kind as anything, so it closes the run
+                if ( !batch.isEmpty()
+                    && ( batch.size() >= getMaxBatchSize() || !isSameKind( batch.get( 0 ), event ) ) )
+                {
+                    createBatchEvent( batch ).run();
+                    batch = new ArrayList<AbstractCacheEvent>();
+                }
+                batch.add( event );
+            }
+            if ( !batch.isEmpty() )
+            {
+                createBatchEvent( batch ).run();
+            }
         }
     }
 }
@@ -29,6 +29,7 @@ import org.apache.commons.logging.LogFactory;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -118,6 +119,37 @@ public class ZombieCacheServiceNonLocal<K, V>
         // Zombies have no inner life
     }
 
+    /**
+     * Adds an update event for each item to the queue if the maxSize is greater than 0;
+     * <p>
+     * @param items the elements
+     * @param listenerId - identifies the caller.
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> items, long listenerId )
+    {
+        for ( ICacheElement<K, V> item : items )
+        {
+            update( item, listenerId );
+        }
+    }
+
+    /**
+     * Adds a remove event for each key to the queue if the maxSize is greater than 0;
+     * <p>
+     * @param cacheName - region name
+     * @param keys - item keys
+     * @param listenerId - identifies the caller.
+     */
+    @Override
+    public void removeMultiple( String cacheName, List<K> keys, long listenerId )
+    {
+        for ( K key : keys )
+        {
+            remove( cacheName, key, listenerId );
+        }
+    }
+
     /**
      * Adds a removeAll event to the queue if the maxSize is greater than 0;
      * <p>
@@ -0,0 +1,40 @@
+package org.apache.commons.jcs.engine.behavior;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Computes the new element of a key from the one currently cached. It is called by
+ * CompositeCache.compute while the lock of the key is held, so the read and the write it
+ * results in are atomic with respect to the other updates and removals of that key.
+ * <p>
+ * Implementations should be quick and must not call back into the same region.
+ */
+public interface ICacheElementRemapper<K, V>
+{
+    /**
+     * Returns the element to store for the key.
+     * <p>
+     * @param key the key being computed
+     * @param current the live element cached for the key, or null if there is none
+     * @return the element to store, current itself to leave the key untouched, or null to remove
+     *         the key
+     */
+    ICacheElement<K, V> remap( K key, ICacheElement<K, V> current );
+}
@@ -20,6 +20,7 @@ package org.apache.commons.jcs.engine.behavior;
  */
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Used to receive a cache event notification.
@@ -48,6 +49,26 @@ public interface ICacheListener<K, V>
     void handleRemove( String cacheName, K key )
         throws IOException;
 
+    /**
+     * Notifies the subscribers for a run of cache entry updates, in order. Event queues use this
+     * to hand over the puts that piled up behind each other in one call.
+     * <p>
+     * @param items
+     * @throws IOException
+     */
+    void handlePutMultiple( List<ICacheElement<K, V>> items )
+        throws IOException;
+
+    /**
+     * Notifies the subscribers for a run of cache entry removals, in order.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @throws IOException
+     */
+    void handleRemoveMultiple( String cacheName, List<K> keys )
+        throws IOException;
+
     /**
      * Notifies the subscribers for a cache remove-all.
      * <p>
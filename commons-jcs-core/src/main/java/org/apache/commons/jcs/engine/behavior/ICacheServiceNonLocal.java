@@ -21,6 +21,7 @@ package org.apache.commons.jcs.engine.behavior;
 
 import java.io.IOException;
 import java.rmi.Remote;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -55,6 +56,27 @@ public interface ICacheServiceNonLocal<K, V>
     void remove( String cacheName, K key, long requesterId )
         throws IOException;
 
+    /**
+     * Puts several cache items to the cache, in order, with one call.
+     * <p>
+     * @param items
+     * @param requesterId
+     * @throws IOException
+     */
+    void updateMultiple( List<ICacheElement<K, V>> items, long requesterId )
+        throws IOException;
+
+    /**
+     * Removes the given keys from the specified cache, in order, with one call.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId
+     * @throws IOException
+     */
+    void removeMultiple( String cacheName, List<K> keys, long requesterId )
+        throws IOException;
+
     /**
      * Remove all keys from the specified cache.
      * <p>
@@ -243,4 +243,63 @@ public interface ICompositeCacheAttributes
      * @param spoolChunkSize
      */
     void setSpoolChunkSize( int spoolChunkSize );
+
+    /**
+     * The maximum number of bytes of serialized elements held in the off-heap tier between the
+     * memory cache and the disk auxiliaries. Zero disables the tier.
+     * <p>
+     * @param offHeapMaxBytes
+     */
+    void setOffHeapMaxBytes( long offHeapMaxBytes );
+
+    /**
+     * The maximum number of bytes of serialized elements held in the off-heap tier.
+     * <p>
+     * @return the size in bytes, zero if the tier is disabled
+     */
+    long getOffHeapMaxBytes();
+
+    /**
+     * The size of the blocks the off-heap tier is divided into.
+     * <p>
+     * @param offHeapBlockSizeBytes
+     */
+    void setOffHeapBlockSizeBytes( int offHeapBlockSizeBytes );
+
+    /**
+     * The size of the blocks the off-heap tier is divided into.
+     * <p>
+     * @return the block size in bytes
+     */
+    int getOffHeapBlockSizeBytes();
+
+    /**
+     * The name of the thread pool used to query the auxiliaries in parallel on getMultiple. When
+     * it is not set the auxiliaries are queried one after the other.
+     * <p>
+     * @param auxiliaryFanOutPoolName
+     */
+    void setAuxiliaryFanOutPoolName( String auxiliaryFanOutPoolName );
+
+    /**
+     * The name of the thread pool used to query the auxiliaries in parallel on getMultiple.
+     * <p>
+     * @return the pool name, or null to query the auxiliaries one after the other
+     */
+    String getAuxiliaryFanOutPoolName();
+
+    /**
+     * How long getMultiple waits for an auxiliary queried in parallel. An auxiliary that does not
+     * answer in time is treated as a miss for all the keys asked.
+     * <p>
+     * @param auxiliaryFanOutTimeoutMillis
+     */
+    void setAuxiliaryFanOutTimeoutMillis( long auxiliaryFanOutTimeoutMillis );
+
+    /**
+     * How long getMultiple waits for an auxiliary queried in parallel.
+     * <p>
+     * @return the timeout in milliseconds
+     */
+    long getAuxiliaryFanOutTimeoutMillis();
 }
@@ -20,6 +20,8 @@ package org.apache.commons.jcs.engine.behavior;
  */
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Defines the behavior for cache element serializers. This layer of abstraction allows us to plug
@@ -38,6 +40,18 @@ public interface IElementSerializer
     <T> byte[] serialize( T obj )
         throws IOException;
 
+    /**
+     * Writes the serialized form of an object to a stream, typically a
+     * {@link org.apache.commons.jcs.io.ByteBufferOutputStream} over a pooled buffer, so no array
+     * of the full size is allocated. The bytes can be read by {@link #deSerialize(byte[], ClassLoader)}
+     * just like those returned by {@link #serialize(Object)}. The stream is not closed.
+     * @param obj
+     * @param out
+     * @throws IOException
+     */
+    <T> void serializeTo( T obj, OutputStream out )
+        throws IOException;
+
     /**
      * Turns a byte array into an object.
      * @param bytes
@@ -47,4 +61,17 @@ public interface IElementSerializer
      */
     <T> T deSerialize( byte[] bytes, ClassLoader loader )
         throws IOException, ClassNotFoundException;
+
+    /**
+     * Turns the remaining bytes of a buffer into an object. The bytes are read in place, for
+     * instance from a memory mapped file, so no intermediate array is needed. The position of the
+     * buffer is advanced.
+     * @param buffer
+     * @param loader
+     * @return Object
+     * @throws IOException
+     * @throws ClassNotFoundException thrown if we don't know the object.
+     */
+    <T> T deSerializeFrom( ByteBuffer buffer, ClassLoader loader )
+        throws IOException, ClassNotFoundException;
 }
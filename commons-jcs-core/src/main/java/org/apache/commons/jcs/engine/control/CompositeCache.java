@@ -24,10 +24,23 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.commons.jcs.access.exception.CacheException;
 import org.apache.commons.jcs.access.exception.ObjectNotFoundException;
@@ -36,9 +49,11 @@ import org.apache.commons.jcs.engine.CacheConstants;
 import org.apache.commons.jcs.engine.CacheStatus;
 import org.apache.commons.jcs.engine.behavior.ICache;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElementRemapper;
 import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
 import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes.DiskUsagePattern;
 import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs.engine.behavior.IRequireScheduler;
 import org.apache.commons.jcs.engine.control.event.ElementEvent;
 import org.apache.commons.jcs.engine.control.event.behavior.ElementEventType;
@@ -50,12 +65,17 @@ import org.apache.commons.jcs.engine.match.KeyMatcherPatternImpl;
 import org.apache.commons.jcs.engine.match.behavior.IKeyMatcher;
 import org.apache.commons.jcs.engine.memory.behavior.IMemoryCache;
 import org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache;
+import org.apache.commons.jcs.engine.memory.offheap.OffHeapCache;
+import org.apache.commons.jcs.engine.memory.shrinking.ExpirationWheel;
 import org.apache.commons.jcs.engine.memory.shrinking.ShrinkerThread;
 import org.apache.commons.jcs.engine.stats.CacheStats;
 import org.apache.commons.jcs.engine.stats.StatElement;
 import org.apache.commons.jcs.engine.stats.behavior.ICacheStats;
 import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
 import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.struct.StripedCounter;
+import org.apache.commons.jcs.utils.struct.StripedLock;
+import org.apache.commons.jcs.utils.threadpool.ThreadPoolManager;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -91,22 +111,42 @@ public class CompositeCache<K, V>
     private ICompositeCacheAttributes cacheAttr;
 
     /** How many times update was called. */
-    private int updateCount;
+    private final StripedCounter updateCount = new StripedCounter();
 
     /** How many times remove was called. */
-    private int removeCount;
+    private final StripedCounter removeCount = new StripedCounter();
+
+    /** Orders updates and removes of the same key without locking the whole region. */
+    private final StripedLock keyLocks = new StripedLock();
+
+    /**
+     * Writes made under each key lock. A read that copies an auxiliary element to memory compares
+     * the count from before its lookup, so it does not bring back a key changed in the meantime.
+     */
+    private final AtomicLongArray keyWrites = new AtomicLongArray( keyLocks.size() );
+
+    /** Off-heap tier hit count */
+    private final AtomicInteger hitCountOffHeap = new AtomicInteger( 0 );
 
     /** Memory cache hit count */
-    private int hitCountRam;
+    private final AtomicInteger hitCountRam = new AtomicInteger( 0 );
 
     /** Auxiliary cache hit count (number of times found in ANY auxiliary) */
-    private int hitCountAux;
+    private final AtomicInteger hitCountAux = new AtomicInteger( 0 );
 
     /** Count of misses where element was not found. */
-    private int missCountNotFound = 0;
+    private final AtomicInteger missCountNotFound = new AtomicInteger( 0 );
 
     /** Count of misses where element was expired. */
-    private int missCountExpired = 0;
+    private final AtomicInteger missCountExpired = new AtomicInteger( 0 );
+
+    /** Auxiliary lookups in progress, by key. Used to coalesce concurrent misses. */
+    private final ConcurrentMap<K, FutureTask<ICacheElement<K, V>>> pendingAuxGets =
+        new ConcurrentHashMap<K, FutureTask<ICacheElement<K, V>>>();
+
+    /** Local only auxiliary lookups in progress, by key. */
+    private final ConcurrentMap<K, FutureTask<ICacheElement<K, V>>> pendingLocalAuxGets =
+        new ConcurrentHashMap<K, FutureTask<ICacheElement<K, V>>>();
 
     /**
      * The cache hub can only have one memory cache. This could be made more flexible in the future,
@@ -114,9 +154,18 @@ public class CompositeCache<K, V>
      */
     private IMemoryCache<K, V> memCache;
 
+    /** Serialized elements between memory and disk, null unless OffHeapMaxBytes is set */
+    private OffHeapCache<K, V> offHeapCache;
+
     /** Key matcher used by the getMatching API */
     private IKeyMatcher<K> keyMatcher = new KeyMatcherPatternImpl<K>();
 
+    /** Deadlines of the memory elements for the shrinker, null unless the shrinker runs */
+    private volatile ExpirationWheel<K> expirationWheel;
+
+    /** Pool for parallel auxiliary gets, looked up on first use */
+    private volatile ThreadPoolExecutor auxiliaryFanOutPool;
+
     /**
      * Constructor for the Cache object
      * <p>
@@ -130,6 +179,12 @@ public class CompositeCache<K, V>
 
         createMemoryCache( cattr );
 
+        if ( cattr.getOffHeapMaxBytes() > 0 )
+        {
+            offHeapCache = new OffHeapCache<K, V>( cattr.getCacheName(), cattr.getOffHeapMaxBytes(),
+                                                   cattr.getOffHeapBlockSizeBytes() );
+        }
+
         if ( log.isInfoEnabled() )
         {
             log.info( "Constructed cache with name [" + cacheAttr.getCacheName() + "] and cache attributes " + cattr );
@@ -154,6 +209,29 @@ public class CompositeCache<K, V>
     {
         if ( cacheAttr.isUseMemoryShrinker() )
         {
+            if ( expirationWheel == null )
+            {
+                ExpirationWheel<K> wheel = new ExpirationWheel<K>();
+                // elements put before the shrinker was set up still need a deadline
+                long maxMemoryIdleTime = getMaxMemoryIdleTime();
+                try
+                {
+                    for ( K key : memCache.getKeySet() )
+                    {
+                        ICacheElement<K, V> element = memCache.getQuiet( key );
+                        if ( element != null )
+                        {
+                            wheel.schedule( key, ExpirationWheel.getDeadline( element.getElementAttributes(),
+                                                                              maxMemoryIdleTime ) );
+                        }
+                    }
+                }
+                catch ( IOException e )
+                {
+                    log.error( "Problem scheduling existing elements for expiration", e );
+                }
+                expirationWheel = wheel;
+            }
             scheduledExecutor.scheduleAtFixedRate(
                     new ShrinkerThread<K, V>(this), 0, cacheAttr.getShrinkerIntervalSeconds(),
                     TimeUnit.SECONDS);
@@ -170,6 +248,19 @@ public class CompositeCache<K, V>
         this.auxCaches = auxCaches;
     }
 
+    /**
+     * Sets the serializer used by the off-heap tier. Has no effect if the tier is disabled.
+     * <p>
+     * @param elementSerializer
+     */
+    public void setElementSerializer( IElementSerializer elementSerializer )
+    {
+        if ( offHeapCache != null )
+        {
+            offHeapCache.setElementSerializer( elementSerializer );
+        }
+    }
+
     /**
      * Get the list of auxiliary caches for this region.
      * <p>
@@ -209,6 +300,9 @@ public class CompositeCache<K, V>
      * Put an item into the cache. If it is localOnly, then do no notify remote or lateral
      * auxiliaries.
      * <p>
+     * Puts of different keys run concurrently. Puts and removes of the same key are ordered by a
+     * lock striped on the key.
+     * <p>
      * @param cacheElement the ICacheElement<K, V>
      * @param localOnly Whether the operation should be restricted to local auxiliaries.
      * @throws IOException
@@ -216,32 +310,465 @@ public class CompositeCache<K, V>
     protected void update( ICacheElement<K, V> cacheElement, boolean localOnly )
         throws IOException
     {
+        checkKeyForUpdate( cacheElement.getKey() );
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Updating memory cache " + cacheElement.getKey() );
+        }
+
+        updateCount.increment();
+
+        Lock lock = keyLocks.getLock( cacheElement.getKey() );
+        lock.lock();
+        try
+        {
+            updateLocked( cacheElement, localOnly );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts the item in memory and in the auxiliaries. The caller holds the lock for the key.
+     * <p>
+     * @param cacheElement
+     * @param localOnly
+     * @throws IOException
+     */
+    private void updateLocked( ICacheElement<K, V> cacheElement, boolean localOnly )
+        throws IOException
+    {
+        markWritten( cacheElement.getKey() );
+
+        memCache.update( cacheElement );
+
+        if ( offHeapCache != null )
+        {
+            // the new value supersedes any copy spooled earlier. Memory goes first: a spool of the
+            // old value that finishes after this discard sees the new one there and drops itself.
+            offHeapCache.discard( cacheElement.getKey() );
+        }
+
+        updateAuxiliaries( cacheElement, localOnly );
+
+        cacheElement.getElementAttributes().setLastAccessTimeNow();
+
+        scheduleExpiration( cacheElement );
+    }
+
+    /**
+     * Computes the element of a key from the one currently cached and stores the result. The key
+     * is removed if the remapper returns null and left untouched if it returns the current element.
+     * <p>
+     * @param key
+     * @param remapper
+     * @return the element cached for the key afterwards, or null if there is none
+     * @throws IOException
+     */
+    public ICacheElement<K, V> compute( K key, ICacheElementRemapper<K, V> remapper )
+        throws IOException
+    {
+        return compute( key, remapper, false );
+    }
+
+    /**
+     * Computes the element of a key without notifying remote or lateral auxiliaries.
+     * <p>
+     * @param key
+     * @param remapper
+     * @return the element stored, or null if the key was removed
+     * @throws IOException
+     */
+    public ICacheElement<K, V> localCompute( K key, ICacheElementRemapper<K, V> remapper )
+        throws IOException
+    {
+        return compute( key, remapper, true );
+    }
+
+    /**
+     * Reads the current element and writes the remapped one while the lock of the key is held, so
+     * no other update or removal of the key can slip in between. The current element is read
+     * quietly: memory first, then the off-heap tier and the auxiliaries only on a memory miss.
+     * Nothing is moved between tiers and the hit counters are left alone.
+     * <p>
+     * @param key
+     * @param remapper
+     * @param localOnly Whether the operation should be restricted to local auxiliaries.
+     * @return the element stored, or null if the key was removed
+     * @throws IOException
+     */
+    protected ICacheElement<K, V> compute( K key, ICacheElementRemapper<K, V> remapper, boolean localOnly )
+        throws IOException
+    {
+        Lock lock = keyLocks.getLock( key );
+        lock.lock();
+        try
+        {
+            ICacheElement<K, V> current = getQuietLocked( key, localOnly );
+            boolean live = current != null && !isExpired( current );
+
+            ICacheElement<K, V> next = remapper.remap( key, live ? current : null );
+            if ( live && next == current )
+            {
+                // left as it is
+                return next;
+            }
+            if ( next == null )
+            {
+                if ( current != null )
+                {
+                    removeCount.increment();
+                    removeLocked( key, localOnly );
+                }
+                return null;
+            }
+
+            checkKeyForUpdate( next.getKey() );
+            updateCount.increment();
+            updateLocked( next, localOnly );
+            return next;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the task while the lock of the key is held. Updates and removals of the key made by other
+     * threads wait until it is done; the ones made by the task itself go through, the lock being
+     * reentrant. The task should only touch this key, touching others could deadlock.
+     * <p>
+     * @param key
+     * @param task
+     * @return the result of the task
+     * @throws Exception thrown by the task
+     */
+    public <T> T callUnderKeyLock( K key, Callable<T> task )
+        throws Exception
+    {
+        Lock lock = keyLocks.getLock( key );
+        lock.lock();
+        try
+        {
+            return task.call();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Keys with different stripes never wait for each other in {@link #callUnderKeyLock}.
+     * <p>
+     * @param key
+     * @return the index of the lock stripe of the key
+     */
+    public int getKeyLockStripe( K key )
+    {
+        return keyLocks.getStripe( key );
+    }
+
+    /**
+     * Puts the element unless a live element is already cached for its key.
+     * <p>
+     * @param ce
+     * @return the element already cached, or null if the given one was stored
+     * @throws IOException
+     */
+    public ICacheElement<K, V> putIfAbsent( final ICacheElement<K, V> ce )
+        throws IOException
+    {
+        ICacheElement<K, V> stored = compute( ce.getKey(), new ICacheElementRemapper<K, V>()
+        {
+            @Override
+            public ICacheElement<K, V> remap( K key, ICacheElement<K, V> current )
+            {
+                return current != null ? current : ce;
+            }
+        } );
+        return stored == ce ? null : stored;
+    }
+
+    /**
+     * Puts the element only if a live element is cached for its key.
+     * <p>
+     * @param ce
+     * @return true if the element was stored
+     * @throws IOException
+     */
+    public boolean replace( final ICacheElement<K, V> ce )
+        throws IOException
+    {
+        return compute( ce.getKey(), new ICacheElementRemapper<K, V>()
+        {
+            @Override
+            public ICacheElement<K, V> remap( K key, ICacheElement<K, V> current )
+            {
+                return current != null ? ce : null;
+            }
+        } ) == ce;
+    }
+
+    /**
+     * Puts the element only if the value cached for its key equals the expected one.
+     * <p>
+     * @param ce
+     * @param expected the value the key must currently have
+     * @return true if the element was stored
+     * @throws IOException
+     */
+    public boolean replace( final ICacheElement<K, V> ce, final V expected )
+        throws IOException
+    {
+        return compute( ce.getKey(), new ICacheElementRemapper<K, V>()
+        {
+            @Override
+            public ICacheElement<K, V> remap( K key, ICacheElement<K, V> current )
+            {
+                return current != null && current.getVal().equals( expected ) ? ce : current;
+            }
+        } ) == ce;
+    }
+
+    /**
+     * Looks the key up without side effects. The caller holds the lock for the key.
+     * <p>
+     * @param key
+     * @param localOnly
+     * @return the element cached for the key, expired or not, or null if there is none
+     * @throws IOException
+     */
+    private ICacheElement<K, V> getQuietLocked( K key, boolean localOnly )
+        throws IOException
+    {
+        ICacheElement<K, V> element = memCache.getQuiet( key );
+        if ( element != null )
+        {
+            return element;
+        }
+
+        if ( offHeapCache != null )
+        {
+            element = offHeapCache.get( key );
+            if ( element != null )
+            {
+                return element;
+            }
+        }
+
+        for ( AuxiliaryCache<K, V> aux : auxCaches )
+        {
+            if ( aux == null )
+            {
+                continue;
+            }
+
+            CacheType cacheType = aux.getCacheType();
+            if ( localOnly && cacheType != CacheType.DISK_CACHE )
+            {
+                continue;
+            }
+            try
+            {
+                element = aux.get( key );
+            }
+            catch ( IOException e )
+            {
+                log.error( "Error getting from aux", e );
+            }
+            if ( element != null )
+            {
+                return element;
+            }
+        }
+        return null;
+    }
 
-        if ( cacheElement.getKey() instanceof String
-            && cacheElement.getKey().toString().endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+    /**
+     * Rejects keys that are reserved for groups.
+     * <p>
+     * @param key
+     * @throws IllegalArgumentException if the key cannot be put
+     */
+    private void checkKeyForUpdate( K key )
+    {
+        if ( key instanceof String
+            && key.toString().endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
         {
             throw new IllegalArgumentException( "key must not end with " + CacheConstants.NAME_COMPONENT_DELIMITER
                 + " for a put operation" );
         }
-        else if ( cacheElement.getKey() instanceof GroupId )
+        else if ( key instanceof GroupId )
         {
             throw new IllegalArgumentException( "key cannot be a GroupId " + " for a put operation" );
         }
+    }
+
+    /**
+     * Puts several items into the cache.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    public void updateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        updateMultiple( cacheElements, false );
+    }
+
+    /**
+     * Puts several items into the cache without notifying remote or lateral auxiliaries.
+     * <p>
+     * @param cacheElements
+     * @throws IOException
+     */
+    public void localUpdateMultiple( List<ICacheElement<K, V>> cacheElements )
+        throws IOException
+    {
+        updateMultiple( cacheElements, true );
+    }
+
+    /**
+     * Puts several items into the cache. Each auxiliary receives the items it accepts in one
+     * updateMultiple call, so a remote or lateral cache sends them in one request.
+     * <p>
+     * The locks of all the keys are held until the auxiliaries have the batch, as in
+     * removeMultiple, so a concurrent update of one of the keys can't be overwritten there by the
+     * older value of the batch.
+     * <p>
+     * @param cacheElements the elements, at most one per key
+     * @param localOnly Whether the operation should be restricted to local auxiliaries.
+     * @throws IOException
+     */
+    protected void updateMultiple( List<ICacheElement<K, V>> cacheElements, boolean localOnly )
+        throws IOException
+    {
+        if ( cacheElements.isEmpty() )
+        {
+            return;
+        }
+
+        List<K> keys = new ArrayList<K>( cacheElements.size() );
+        for ( ICacheElement<K, V> cacheElement : cacheElements )
+        {
+            checkKeyForUpdate( cacheElement.getKey() );
+            keys.add( cacheElement.getKey() );
+        }
 
         if ( log.isDebugEnabled() )
         {
-            log.debug( "Updating memory cache " + cacheElement.getKey() );
+            log.debug( "Updating memory cache with " + cacheElements.size() + " elements" );
         }
 
-        synchronized ( this )
+        updateCount.add( cacheElements.size() );
+
+        List<Lock> locks = keyLocks.getLocks( keys );
+        for ( Lock lock : locks )
+        {
+            lock.lock();
+        }
+        try
+        {
+            for ( ICacheElement<K, V> cacheElement : cacheElements )
+            {
+                markWritten( cacheElement.getKey() );
+                memCache.update( cacheElement );
+                if ( offHeapCache != null )
+                {
+                    offHeapCache.discard( cacheElement.getKey() );
+                }
+            }
+
+            for ( ICacheElement<K, V> cacheElement : cacheElements )
+            {
+                cacheElement.getElementAttributes().setLastAccessTimeNow();
+                scheduleExpiration( cacheElement );
+            }
+
+            updateAuxiliariesMultiple( cacheElements, localOnly );
+        }
+        finally
+        {
+            for ( int i = locks.size() - 1; i >= 0; i-- )
+            {
+                locks.get( i ).unlock();
+            }
+        }
+    }
+
+    /**
+     * Sends each auxiliary the elements it accepts, following the rules of updateAuxiliaries.
+     * <p>
+     * @param cacheElements
+     * @param localOnly
+     * @throws IOException
+     */
+    private void updateAuxiliariesMultiple( List<ICacheElement<K, V>> cacheElements, boolean localOnly )
+        throws IOException
+    {
+        for ( AuxiliaryCache<K, V> aux : auxCaches )
         {
-            updateCount++;
+            if ( aux == null )
+            {
+                continue;
+            }
+
+            CacheType cacheType = aux.getCacheType();
+            if ( localOnly && ( cacheType == CacheType.REMOTE_CACHE || cacheType == CacheType.LATERAL_CACHE ) )
+            {
+                continue;
+            }
+            if ( cacheType == CacheType.LATERAL_CACHE && !cacheAttr.isUseLateral() )
+            {
+                continue;
+            }
+            if ( cacheType == CacheType.DISK_CACHE
+                && ( !cacheAttr.isUseDisk() || cacheAttr.getDiskUsagePattern() != DiskUsagePattern.UPDATE ) )
+            {
+                continue;
+            }
 
-            memCache.update( cacheElement );
+            List<ICacheElement<K, V>> accepted = new ArrayList<ICacheElement<K, V>>( cacheElements.size() );
+            for ( ICacheElement<K, V> cacheElement : cacheElements )
+            {
+                IElementAttributes attr = cacheElement.getElementAttributes();
+                if ( ( cacheType == CacheType.REMOTE_CACHE && attr.getIsRemote() )
+                    || ( cacheType == CacheType.LATERAL_CACHE && attr.getIsLateral() )
+                    || ( cacheType == CacheType.DISK_CACHE && attr.getIsSpool() ) )
+                {
+                    accepted.add( cacheElement );
+                }
+            }
+            if ( accepted.isEmpty() )
+            {
+                continue;
+            }
 
-            updateAuxiliaries( cacheElement, localOnly );
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "Updating " + accepted.size() + " elements in cacheType " + cacheType );
+            }
 
-            cacheElement.getElementAttributes().setLastAccessTimeNow();
+            if ( cacheType == CacheType.REMOTE_CACHE )
+            {
+                try
+                {
+                    aux.updateMultiple( accepted );
+                }
+                catch ( IOException ex )
+                {
+                    log.error( "Failure in updateMultiple", ex );
+                }
+            }
+            else
+            {
+                aux.updateMultiple( accepted );
+            }
         }
     }
 
@@ -373,10 +900,16 @@ public class CompositeCache<K, V>
      * If JCS is not configured to use the disk as a swap, that is if the the
      * CompositeCacheAttribute diskUsagePattern is not SWAP_ONLY, then the item will not be spooled.
      * <p>
+     * If the region has an off-heap tier, the element is stored there and only what the tier
+     * evicts reaches the disk auxiliaries.
+     * <p>
      * @param ce The CacheElement
      */
     public void spoolToDisk( ICacheElement<K, V> ce )
     {
+        // the element leaves memory, so its deadline must not keep the key on the wheel
+        cancelExpiration( ce );
+
         // if the item is not spoolable, return
         if ( !ce.getElementAttributes().getIsSpool() )
         {
@@ -385,6 +918,40 @@ public class CompositeCache<K, V>
             return;
         }
 
+        if ( offHeapCache != null )
+        {
+            // the off-heap tier takes the element and hands its own overflow to disk
+            for ( ICacheElement<K, V> evicted : offHeapCache.update( ce ) )
+            {
+                spoolToAuxiliaryDisk( evicted );
+            }
+
+            // a put that raced the spool may have discarded the key before the element got here
+            try
+            {
+                ICacheElement<K, V> inMemory = memCache.getQuiet( ce.getKey() );
+                if ( inMemory != null && inMemory != ce )
+                {
+                    offHeapCache.discard( ce.getKey() );
+                }
+            }
+            catch ( IOException e )
+            {
+                log.error( "Problem checking memory after spooling off-heap.", e );
+            }
+            return;
+        }
+
+        spoolToAuxiliaryDisk( ce );
+    }
+
+    /**
+     * Writes the element to the disk auxiliaries if they are used as a swap.
+     * <p>
+     * @param ce The CacheElement
+     */
+    private void spoolToAuxiliaryDisk( ICacheElement<K, V> ce )
+    {
         boolean diskAvailable = false;
 
         // SPOOL TO DISK.
@@ -429,196 +996,426 @@ public class CompositeCache<K, V>
             }
         }
 
-        if ( !diskAvailable )
+        if ( !diskAvailable )
+        {
+            try
+            {
+                handleElementEvent( ce, ElementEventType.SPOOLED_DISK_NOT_AVAILABLE );
+            }
+            catch ( Exception e )
+            {
+                log.error( "Trouble handling the ELEMENT_EVENT_SPOOLED_DISK_NOT_AVAILABLE  element event", e );
+            }
+        }
+    }
+
+    /**
+     * Gets an item from the cache.
+     * <p>
+     * @param key
+     * @return element from the cache, or null if not present
+     * @see org.apache.commons.jcs.engine.behavior.ICache#get(Object)
+     */
+    @Override
+    public ICacheElement<K, V> get( K key )
+    {
+        return get( key, false );
+    }
+
+    /**
+     * Do not try to go remote or laterally for this get.
+     * <p>
+     * @param key
+     * @return ICacheElement
+     */
+    public ICacheElement<K, V> localGet( K key )
+    {
+        return get( key, true );
+    }
+
+    /**
+     * Look in memory, then disk, remote, or laterally for this item. The order is dependent on the
+     * order in the cache.ccf file.
+     * <p>
+     * Do not try to go remote or laterally for this get if it is localOnly. Otherwise try to go
+     * remote or lateral if such an auxiliary is configured for this region.
+     * <p>
+     * No region wide lock is held. Concurrent misses for the same key are coalesced into a single
+     * auxiliary lookup; misses for different keys proceed in parallel.
+     * <p>
+     * @param key
+     * @param localOnly
+     * @return ICacheElement
+     */
+    protected ICacheElement<K, V> get( K key, boolean localOnly )
+    {
+        ICacheElement<K, V> element = null;
+
+        boolean found = false;
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "get: key = " + key + ", localOnly = " + localOnly );
+        }
+
+        try
+        {
+            // First look in memory cache
+            element = memCache.get( key );
+
+            if ( element != null )
+            {
+                // Found in memory cache
+                if ( isExpired( element ) )
+                {
+                    if ( log.isDebugEnabled() )
+                    {
+                        log.debug( cacheAttr.getCacheName() + " - Memory cache hit, but element expired" );
+                    }
+
+                    missCountExpired.incrementAndGet();
+
+                    remove( key );
+
+                    element = null;
+                }
+                else
+                {
+                    if ( log.isDebugEnabled() )
+                    {
+                        log.debug( cacheAttr.getCacheName() + " - Memory cache hit" );
+                    }
+
+                    // Update counters
+                    hitCountRam.incrementAndGet();
+                }
+
+                found = true;
+            }
+            else
+            {
+                // Item not found in memory. Only one thread per key goes to the
+                // auxiliaries, the others wait for its result.
+                ConcurrentMap<K, FutureTask<ICacheElement<K, V>>> pending =
+                    localOnly ? pendingLocalAuxGets : pendingAuxGets;
+
+                AuxiliaryLookup lookup = new AuxiliaryLookup( key, localOnly );
+
+                if ( keyLocks.isHeldByCurrentThread( key ) )
+                {
+                    // the lookup in flight may be waiting for the lock we hold, so don't wait for it
+                    element = lookup.call();
+                    found = lookup.isFound();
+                }
+                else
+                {
+                    FutureTask<ICacheElement<K, V>> task = new FutureTask<ICacheElement<K, V>>( lookup );
+                    FutureTask<ICacheElement<K, V>> inFlight = pending.putIfAbsent( key, task );
+
+                    if ( inFlight == null )
+                    {
+                        try
+                        {
+                            task.run();
+                        }
+                        finally
+                        {
+                            pending.remove( key, task );
+                        }
+
+                        element = task.get();
+                        found = lookup.isFound();
+                    }
+                    else
+                    {
+                        if ( log.isDebugEnabled() )
+                        {
+                            log.debug( cacheAttr.getCacheName() + " - Waiting for auxiliary lookup in progress for key "
+                                + key );
+                        }
+
+                        element = inFlight.get();
+
+                        if ( element != null )
+                        {
+                            hitCountAux.incrementAndGet();
+                            found = true;
+                        }
+                    }
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            log.error( "Interrupted while waiting for auxiliary lookup.", e );
+            Thread.currentThread().interrupt();
+        }
+        catch ( Exception e )
+        {
+            log.error( "Problem encountered getting element.", e );
+        }
+
+        if ( !found )
         {
-            try
-            {
-                handleElementEvent( ce, ElementEventType.SPOOLED_DISK_NOT_AVAILABLE );
-            }
-            catch ( Exception e )
+            missCountNotFound.incrementAndGet();
+
+            if ( log.isDebugEnabled() )
             {
-                log.error( "Trouble handling the ELEMENT_EVENT_SPOOLED_DISK_NOT_AVAILABLE  element event", e );
+                log.debug( cacheAttr.getCacheName() + " - Miss" );
             }
         }
-    }
 
-    /**
-     * Gets an item from the cache.
-     * <p>
-     * @param key
-     * @return element from the cache, or null if not present
-     * @see org.apache.commons.jcs.engine.behavior.ICache#get(Object)
-     */
-    @Override
-    public ICacheElement<K, V> get( K key )
-    {
-        return get( key, false );
-    }
+        if (element != null)
+        {
+            element.getElementAttributes().setLastAccessTimeNow();
+        }
 
-    /**
-     * Do not try to go remote or laterally for this get.
-     * <p>
-     * @param key
-     * @return ICacheElement
-     */
-    public ICacheElement<K, V> localGet( K key )
-    {
-        return get( key, true );
+        return element;
     }
 
     /**
-     * Look in memory, then disk, remote, or laterally for this item. The order is dependent on the
-     * order in the cache.ccf file.
-     * <p>
-     * Do not try to go remote or laterally for this get if it is localOnly. Otherwise try to go
-     * remote or lateral if such an auxiliary is configured for this region.
+     * Looks for the item in the auxiliaries, in the order they are configured. If local
+     * invocation look in aux caches, even if not local look in disk auxiliaries.
      * <p>
-     * @param key
-     * @param localOnly
-     * @return ICacheElement
+     * Instances are run at most once per key at a time. Concurrent requests for the same key
+     * wait for the result of the lookup in progress instead of issuing their own.
      */
-    protected ICacheElement<K, V> get( K key, boolean localOnly )
+    private class AuxiliaryLookup
+        implements Callable<ICacheElement<K, V>>
     {
-        ICacheElement<K, V> element = null;
+        /** The key to look up */
+        private final K key;
 
-        boolean found = false;
+        /** Whether only disk auxiliaries should be asked */
+        private final boolean localOnly;
 
-        if ( log.isDebugEnabled() )
+        /** Whether an element was found, even if it turned out to be expired */
+        private boolean found = false;
+
+        /**
+         * @param key
+         * @param localOnly
+         */
+        public AuxiliaryLookup( K key, boolean localOnly )
         {
-            log.debug( "get: key = " + key + ", localOnly = " + localOnly );
+            this.key = key;
+            this.localOnly = localOnly;
         }
 
-        synchronized (this)
+        /**
+         * @return the element found in one of the auxiliaries, or null if not found or expired
+         * @throws IOException
+         */
+        @Override
+        public ICacheElement<K, V> call()
+            throws IOException
         {
-            try
-            {
-                // First look in memory cache
-                element = memCache.get( key );
+            ICacheElement<K, V> element = null;
+            long writes = getWrites( key );
 
+            if ( offHeapCache != null )
+            {
+                element = getFromOffHeap( key );
                 if ( element != null )
                 {
-                    // Found in memory cache
-                    if ( isExpired( element ) )
-                    {
-                        if ( log.isDebugEnabled() )
-                        {
-                            log.debug( cacheAttr.getCacheName() + " - Memory cache hit, but element expired" );
-                        }
+                    found = true;
+                    return element;
+                }
+            }
 
-                        missCountExpired++;
+            for ( int i = 0; i < auxCaches.length; i++ )
+            {
+                AuxiliaryCache<K, V> aux = auxCaches[i];
 
-                        remove( key );
+                if ( aux != null )
+                {
+                    CacheType cacheType = aux.getCacheType();
 
-                        element = null;
-                    }
-                    else
+                    if ( !localOnly || cacheType == CacheType.DISK_CACHE )
                     {
                         if ( log.isDebugEnabled() )
                         {
-                            log.debug( cacheAttr.getCacheName() + " - Memory cache hit" );
+                            log.debug( "Attempting to get from aux [" + aux.getCacheName() + "] which is of type: "
+                                + cacheType );
                         }
 
-                        // Update counters
-                        hitCountRam++;
+                        try
+                        {
+                            element = aux.get( key );
+                        }
+                        catch ( IOException e )
+                        {
+                            log.error( "Error getting from aux", e );
+                        }
                     }
 
-                    found = true;
-                }
-                else
-                {
-                    // Item not found in memory. If local invocation look in aux
-                    // caches, even if not local look in disk auxiliaries
-
-                    for ( int i = 0; i < auxCaches.length; i++ )
+                    if ( log.isDebugEnabled() )
                     {
-                        AuxiliaryCache<K, V> aux = auxCaches[i];
+                        log.debug( "Got CacheElement: " + element );
+                    }
 
-                        if ( aux != null )
+                    // Item found in one of the auxiliary caches.
+                    if ( element != null )
+                    {
+                        if ( isExpired( element ) )
                         {
-                            CacheType cacheType = aux.getCacheType();
-
-                            if ( !localOnly || cacheType == CacheType.DISK_CACHE )
+                            if ( log.isDebugEnabled() )
                             {
-                                if ( log.isDebugEnabled() )
-                                {
-                                    log.debug( "Attempting to get from aux [" + aux.getCacheName() + "] which is of type: "
-                                        + cacheType );
-                                }
-
-                                try
-                                {
-                                    element = aux.get( key );
-                                }
-                                catch ( IOException e )
-                                {
-                                    log.error( "Error getting from aux", e );
-                                }
+                                log.debug( cacheAttr.getCacheName() + " - Aux cache[" + i + "] hit, but element expired." );
                             }
 
+                            missCountExpired.incrementAndGet();
+
+                            // This will tell the remotes to remove the item
+                            // based on the element's expiration policy. The elements attributes
+                            // associated with the item when it created govern its behavior
+                            // everywhere.
+                            remove( key );
+
+                            element = null;
+                        }
+                        else
+                        {
                             if ( log.isDebugEnabled() )
                             {
-                                log.debug( "Got CacheElement: " + element );
+                                log.debug( cacheAttr.getCacheName() + " - Aux cache[" + i + "] hit" );
                             }
 
-                            // Item found in one of the auxiliary caches.
-                            if ( element != null )
-                            {
-                                if ( isExpired( element ) )
-                                {
-                                    if ( log.isDebugEnabled() )
-                                    {
-                                        log.debug( cacheAttr.getCacheName() + " - Aux cache[" + i + "] hit, but element expired." );
-                                    }
-
-                                    missCountExpired++;
-
-                                    // This will tell the remotes to remove the item
-                                    // based on the element's expiration policy. The elements attributes
-                                    // associated with the item when it created govern its behavior
-                                    // everywhere.
-                                    remove( key );
-
-                                    element = null;
-                                }
-                                else
-                                {
-                                    if ( log.isDebugEnabled() )
-                                    {
-                                        log.debug( cacheAttr.getCacheName() + " - Aux cache[" + i + "] hit" );
-                                    }
-
-                                    // Update counters
-                                    hitCountAux++;
-                                    copyAuxiliaryRetrievedItemToMemory( element );
-                                }
-
-                                found = true;
-
-                                break;
-                            }
+                            // Update counters
+                            hitCountAux.incrementAndGet();
+                            copyAuxiliaryRetrievedItemToMemory( element, writes );
                         }
+
+                        found = true;
+
+                        break;
                     }
                 }
             }
-            catch ( Exception e )
+
+            return element;
+        }
+
+        /**
+         * @return true if one of the auxiliaries returned an element
+         */
+        public boolean isFound()
+        {
+            return found;
+        }
+    }
+
+    /**
+     * @param key
+     * @return the number of writes made under the lock of the key so far
+     */
+    private long getWrites( K key )
+    {
+        return keyWrites.get( keyLocks.getStripe( key ) );
+    }
+
+    /**
+     * @return the number of writes made under each key lock so far, by stripe
+     */
+    private long[] getAllWrites()
+    {
+        long[] writes = new long[keyWrites.length()];
+        for ( int i = 0; i < writes.length; i++ )
+        {
+            writes[i] = keyWrites.get( i );
+        }
+        return writes;
+    }
+
+    /**
+     * Counts a write of the key. The caller holds the lock for the key.
+     * <p>
+     * @param key
+     */
+    private void markWritten( K key )
+    {
+        keyWrites.incrementAndGet( keyLocks.getStripe( key ) );
+    }
+
+    /**
+     * Looks for the item in the off-heap tier. A live element is moved back to memory, unless the
+     * memory cache holds no items, in which case it stays where it is. An expired one is removed
+     * from the region.
+     * <p>
+     * The move happens under the lock of the key. If memory got an element for the key since the
+     * miss, that one is newer: it is returned and the off-heap copy is dropped.
+     * <p>
+     * @param key
+     * @return the element, or null if not found or expired
+     * @throws IOException
+     */
+    private ICacheElement<K, V> getFromOffHeap( K key )
+        throws IOException
+    {
+        if ( memCache.getCacheAttributes().getMaxObjects() <= 0 )
+        {
+            return checkOffHeapElement( key, offHeapCache.get( key ), false );
+        }
+
+        Lock lock = keyLocks.getLock( key );
+        lock.lock();
+        try
+        {
+            ICacheElement<K, V> inMemory = memCache.getQuiet( key );
+            if ( inMemory != null )
             {
-                log.error( "Problem encountered getting element.", e );
+                offHeapCache.discard( key );
+                return inMemory;
             }
+
+            return checkOffHeapElement( key, offHeapCache.take( key ), true );
+        }
+        finally
+        {
+            lock.unlock();
         }
+    }
 
-        if ( !found )
+    /**
+     * Counts the off-heap hit and moves a live element to memory if asked to. An expired one is
+     * removed from the region.
+     * <p>
+     * @param key
+     * @param element the element found off-heap, may be null
+     * @param moveToMemory whether to put a live element in memory
+     * @return the element, or null if not found or expired
+     * @throws IOException
+     */
+    private ICacheElement<K, V> checkOffHeapElement( K key, ICacheElement<K, V> element, boolean moveToMemory )
+        throws IOException
+    {
+        if ( element == null )
         {
-            missCountNotFound++;
+            return null;
+        }
 
+        if ( isExpired( element ) )
+        {
             if ( log.isDebugEnabled() )
             {
-                log.debug( cacheAttr.getCacheName() + " - Miss" );
+                log.debug( cacheAttr.getCacheName() + " - Off-heap hit, but element expired." );
             }
+
+            missCountExpired.incrementAndGet();
+            remove( key );
+            return null;
         }
 
-        if (element != null)
+        if ( log.isDebugEnabled() )
         {
-            element.getElementAttributes().setLastAccessTimeNow();
+            log.debug( cacheAttr.getCacheName() + " - Off-heap hit" );
+        }
+
+        hitCountOffHeap.incrementAndGet();
+        if ( moveToMemory )
+        {
+            memCache.update( element );
+            scheduleExpiration( element );
         }
 
         return element;
@@ -677,6 +1474,11 @@ public class CompositeCache<K, V>
             elements.putAll( getMultipleFromMemory( keys ) );
 
             // If fewer than all items were found in memory, then keep looking.
+            if ( elements.size() != keys.size() && offHeapCache != null )
+            {
+                elements.putAll( getMultipleFromOffHeap( pruneKeysFound( keys, elements ) ) );
+            }
+
             if ( elements.size() != keys.size() )
             {
                 Set<K> remainingKeys = pruneKeysFound( keys, elements );
@@ -691,7 +1493,7 @@ public class CompositeCache<K, V>
         // if we didn't find all the elements, increment the miss count by the number of elements not found
         if ( elements.size() != keys.size() )
         {
-            missCountNotFound += keys.size() - elements.size();
+            missCountNotFound.addAndGet( keys.size() - elements.size() );
 
             if ( log.isDebugEnabled() )
             {
@@ -730,7 +1532,7 @@ public class CompositeCache<K, V>
                         log.debug( cacheAttr.getCacheName() + " - Memory cache hit, but element expired" );
                     }
 
-                    missCountExpired++;
+                    missCountExpired.incrementAndGet();
 
                     remove( element.getKey() );
                     elementsFromMemory.remove( element.getKey() );
@@ -743,13 +1545,37 @@ public class CompositeCache<K, V>
                     }
 
                     // Update counters
-                    hitCountRam++;
+                    hitCountRam.incrementAndGet();
                 }
             }
         }
         return elementsFromMemory;
     }
 
+    /**
+     * Gets the items for the keys from the off-heap tier.
+     * <p>
+     * @param keys
+     * @return the live elements found
+     * @throws IOException
+     */
+    private Map<K, ICacheElement<K, V>> getMultipleFromOffHeap( Set<K> keys )
+        throws IOException
+    {
+        Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
+
+        for ( K key : keys )
+        {
+            ICacheElement<K, V> element = getFromOffHeap( key );
+            if ( element != null )
+            {
+                elements.put( key, element );
+            }
+        }
+
+        return elements;
+    }
+
     /**
      * If local invocation look in aux caches, even if not local look in disk auxiliaries.
      * <p>
@@ -761,59 +1587,234 @@ public class CompositeCache<K, V>
     private Map<K, ICacheElement<K, V>> getMultipleFromAuxiliaryCaches( Set<K> keys, boolean localOnly )
         throws IOException
     {
+        ThreadPoolExecutor pool = getAuxiliaryFanOutPool();
+        if ( pool != null )
+        {
+            return getMultipleFromAuxiliaryCachesInParallel( keys, localOnly, pool );
+        }
+
+        Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
+        Set<K> remainingKeys = new HashSet<K>( keys );
+        long[] writes = getAllWrites();
+
+        for ( int i = 0; i < auxCaches.length; i++ )
+        {
+            AuxiliaryCache<K, V> aux = auxCaches[i];
+
+            if ( aux != null )
+            {
+                Map<K, ICacheElement<K, V>> elementsFromAuxiliary =
+                    new HashMap<K, ICacheElement<K, V>>();
+
+                CacheType cacheType = aux.getCacheType();
+
+                if ( !localOnly || cacheType == CacheType.DISK_CACHE )
+                {
+                    if ( log.isDebugEnabled() )
+                    {
+                        log.debug( "Attempting to get from aux [" + aux.getCacheName() + "] which is of type: "
+                            + cacheType );
+                    }
+
+                    try
+                    {
+                        elementsFromAuxiliary.putAll( aux.getMultiple( remainingKeys ) );
+                    }
+                    catch ( IOException e )
+                    {
+                        log.error( "Error getting from aux", e );
+                    }
+                }
+
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( "Got CacheElements: " + elementsFromAuxiliary );
+                }
+
+                processRetrievedElements( i, elementsFromAuxiliary, writes );
+
+                elements.putAll( elementsFromAuxiliary );
+
+                if ( elements.size() == keys.size() )
+                {
+                    break;
+                }
+                else
+                {
+                    remainingKeys = pruneKeysFound( keys, elements );
+                }
+            }
+        }
+
+        return elements;
+    }
+
+    /**
+     * Asks the auxiliaries tier by tier: first the disk auxiliaries, then the lateral and remote
+     * ones for the keys that are still missing. The auxiliaries of a tier are asked at the same
+     * time and their answers are merged in auxiliary order. An element from an earlier auxiliary
+     * wins, and the keys a tier does not have, or only has expired, go on to the next one.
+     * <p>
+     * @param keys
+     * @param localOnly
+     * @param pool
+     * @return the elements found in the auxiliary caches
+     * @throws IOException
+     */
+    private Map<K, ICacheElement<K, V>> getMultipleFromAuxiliaryCachesInParallel( Set<K> keys,
+        boolean localOnly, ThreadPoolExecutor pool )
+        throws IOException
+    {
+        long[] writes = getAllWrites();
         Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
         Set<K> remainingKeys = new HashSet<K>( keys );
 
+        getMultipleFromTier( true, remainingKeys, elements, pool, writes );
+
+        if ( !localOnly && !remainingKeys.isEmpty() && !Thread.currentThread().isInterrupted() )
+        {
+            getMultipleFromTier( false, remainingKeys, elements, pool, writes );
+        }
+
+        return elements;
+    }
+
+    /**
+     * Asks the disk auxiliaries, or the others, for the remaining keys in parallel. Each one gets
+     * at most AuxiliaryFanOutTimeoutMillis, counted from the start of the tier, to answer. Keys
+     * found live are moved from the remaining keys to the elements.
+     * <p>
+     * @param disk true for the disk auxiliaries, false for the lateral and remote ones
+     * @param remainingKeys the keys still missing, updated
+     * @param elements the elements found so far, updated
+     * @param pool
+     * @param writes the write counts of the key locks from before the lookup
+     * @throws IOException
+     */
+    private void getMultipleFromTier( boolean disk, Set<K> remainingKeys, Map<K, ICacheElement<K, V>> elements,
+        ThreadPoolExecutor pool, long[] writes )
+        throws IOException
+    {
+        final Set<K> keys = new HashSet<K>( remainingKeys );
+        List<Future<Map<K, ICacheElement<K, V>>>> futures =
+            new ArrayList<Future<Map<K, ICacheElement<K, V>>>>( auxCaches.length );
+
         for ( int i = 0; i < auxCaches.length; i++ )
         {
-            AuxiliaryCache<K, V> aux = auxCaches[i];
+            final AuxiliaryCache<K, V> aux = auxCaches[i];
+            Future<Map<K, ICacheElement<K, V>>> future = null;
 
-            if ( aux != null )
+            if ( aux != null && ( aux.getCacheType() == CacheType.DISK_CACHE ) == disk )
             {
-                Map<K, ICacheElement<K, V>> elementsFromAuxiliary =
-                    new HashMap<K, ICacheElement<K, V>>();
-
-                CacheType cacheType = aux.getCacheType();
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( "Attempting to get from aux [" + aux.getCacheName() + "] which is of type: "
+                        + aux.getCacheType() );
+                }
 
-                if ( !localOnly || cacheType == CacheType.DISK_CACHE )
+                Callable<Map<K, ICacheElement<K, V>>> command = new Callable<Map<K, ICacheElement<K, V>>>()
                 {
-                    if ( log.isDebugEnabled() )
+                    @Override
+                    public Map<K, ICacheElement<K, V>> call()
+                        throws IOException
                     {
-                        log.debug( "Attempting to get from aux [" + aux.getCacheName() + "] which is of type: "
-                            + cacheType );
+                        return aux.getMultiple( keys );
                     }
+                };
 
-                    try
-                    {
-                        elementsFromAuxiliary.putAll( aux.getMultiple( remainingKeys ) );
-                    }
-                    catch ( IOException e )
-                    {
-                        log.error( "Error getting from aux", e );
-                    }
+                try
+                {
+                    future = pool.submit( command );
                 }
-
-                if ( log.isDebugEnabled() )
+                catch ( RejectedExecutionException e )
                 {
-                    log.debug( "Got CacheElements: " + elementsFromAuxiliary );
+                    log.warn( "Aux fan-out pool is full, getting from aux [" + aux.getCacheName() + "] in this thread" );
+                    FutureTask<Map<K, ICacheElement<K, V>>> task = new FutureTask<Map<K, ICacheElement<K, V>>>( command );
+                    task.run();
+                    future = task;
                 }
+            }
 
-                processRetrievedElements( i, elementsFromAuxiliary );
+            futures.add( future );
+        }
 
-                elements.putAll( elementsFromAuxiliary );
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( cacheAttr.getAuxiliaryFanOutTimeoutMillis() );
 
-                if ( elements.size() == keys.size() )
-                {
-                    break;
-                }
-                else
+        for ( int i = 0; i < auxCaches.length && !remainingKeys.isEmpty(); i++ )
+        {
+            Future<Map<K, ICacheElement<K, V>>> future = futures.get( i );
+            if ( future == null )
+            {
+                continue;
+            }
+
+            Map<K, ICacheElement<K, V>> elementsFromAuxiliary = new HashMap<K, ICacheElement<K, V>>();
+            try
+            {
+                Map<K, ICacheElement<K, V>> result =
+                    future.get( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+                if ( result != null )
                 {
-                    remainingKeys = pruneKeysFound( keys, elements );
+                    for ( Map.Entry<K, ICacheElement<K, V>> entry : result.entrySet() )
+                    {
+                        if ( remainingKeys.contains( entry.getKey() ) )
+                        {
+                            elementsFromAuxiliary.put( entry.getKey(), entry.getValue() );
+                        }
+                    }
                 }
             }
+            catch ( ExecutionException e )
+            {
+                log.error( "Error getting from aux", e.getCause() );
+            }
+            catch ( TimeoutException e )
+            {
+                log.warn( "Aux [" + auxCaches[i].getCacheName() + "] did not answer within "
+                    + cacheAttr.getAuxiliaryFanOutTimeoutMillis() + " ms, treating its keys as misses" );
+                // no interrupt, it would close the file channel of a disk cache in the middle of a read
+                future.cancel( false );
+            }
+            catch ( InterruptedException e )
+            {
+                log.warn( "Interrupted while getting from aux" );
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "Got CacheElements: " + elementsFromAuxiliary );
+            }
+
+            // drops the expired elements, their keys stay in the remaining keys
+            processRetrievedElements( i, elementsFromAuxiliary, writes );
+            remainingKeys.removeAll( elementsFromAuxiliary.keySet() );
+
+            elements.putAll( elementsFromAuxiliary );
         }
+    }
 
-        return elements;
+    /**
+     * Gets the pool for parallel auxiliary gets.
+     * <p>
+     * @return the pool, or null if the auxiliaries are queried one after the other
+     */
+    private ThreadPoolExecutor getAuxiliaryFanOutPool()
+    {
+        String poolName = cacheAttr.getAuxiliaryFanOutPoolName();
+        if ( poolName == null || auxCaches.length < 2 )
+        {
+            return null;
+        }
+
+        ThreadPoolExecutor pool = auxiliaryFanOutPool;
+        if ( pool == null )
+        {
+            pool = ThreadPoolManager.getInstance().getPool( poolName );
+            auxiliaryFanOutPool = pool;
+        }
+        return pool;
     }
 
     /**
@@ -869,6 +1870,13 @@ public class CompositeCache<K, V>
             // First look in auxiliaries
             elements.putAll( getMatchingFromAuxiliaryCaches( pattern, localOnly ) );
 
+            // then in the off-heap tier, which is newer than the auxiliaries
+            if ( offHeapCache != null )
+            {
+                Set<K> matchingKeys = getKeyMatcher().getMatchingKeysFromArray( pattern, offHeapCache.getKeySet() );
+                elements.putAll( getMultipleFromOffHeap( matchingKeys ) );
+            }
+
             // then look in memory, override aux with newer memory items.
             elements.putAll( getMatchingFromMemory( pattern ) );
         }
@@ -918,8 +1926,10 @@ public class CompositeCache<K, V>
         throws IOException
     {
         Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
+        long[] writes = getAllWrites();
 
-        for ( int i = auxCaches.length - 1; i >= 0; i-- )
+        // an element from an earlier auxiliary wins, so later ones only supply keys not found yet
+        for ( int i = 0; i < auxCaches.length; i++ )
         {
             AuxiliaryCache<K, V> aux = auxCaches[i];
 
@@ -941,6 +1951,7 @@ public class CompositeCache<K, V>
                     try
                     {
                         elementsFromAuxiliary.putAll( aux.getMatching( pattern ) );
+                        elementsFromAuxiliary.keySet().removeAll( elements.keySet() );
                     }
                     catch ( IOException e )
                     {
@@ -952,7 +1963,7 @@ public class CompositeCache<K, V>
                         log.debug( "Got CacheElements: " + elementsFromAuxiliary );
                     }
 
-                    processRetrievedElements( i, elementsFromAuxiliary );
+                    processRetrievedElements( i, elementsFromAuxiliary, writes );
 
                     elements.putAll( elementsFromAuxiliary );
                 }
@@ -967,9 +1978,11 @@ public class CompositeCache<K, V>
      * <p>
      * @param i - the aux index
      * @param elementsFromAuxiliary
+     * @param writes the write counts of the key locks from before the lookup
      * @throws IOException
      */
-    private void processRetrievedElements( int i, Map<K, ICacheElement<K, V>> elementsFromAuxiliary )
+    private void processRetrievedElements( int i, Map<K, ICacheElement<K, V>> elementsFromAuxiliary,
+        long[] writes )
         throws IOException
     {
         Iterator<ICacheElement<K, V>> elementFromAuxiliaryIterator = new HashMap<K, ICacheElement<K, V>>( elementsFromAuxiliary ).values().iterator();
@@ -988,7 +2001,7 @@ public class CompositeCache<K, V>
                         log.debug( cacheAttr.getCacheName() + " - Aux cache[" + i + "] hit, but element expired." );
                     }
 
-                    missCountExpired++;
+                    missCountExpired.incrementAndGet();
 
                     // This will tell the remote caches to remove the item
                     // based on the element's expiration policy. The elements attributes
@@ -1005,8 +2018,8 @@ public class CompositeCache<K, V>
                     }
 
                     // Update counters
-                    hitCountAux++;
-                    copyAuxiliaryRetrievedItemToMemory( element );
+                    hitCountAux.incrementAndGet();
+                    copyAuxiliaryRetrievedItemToMemory( element, writes[keyLocks.getStripe( element.getKey() )] );
                 }
             }
         }
@@ -1016,15 +2029,38 @@ public class CompositeCache<K, V>
      * Copies the item to memory if the memory size is greater than 0. Only spool if the memory
      * cache size is greater than 0, else the item will immediately get put into purgatory.
      * <p>
+     * The copy is made under the lock of the key, and only if the key was not written since the
+     * lookup and memory still has no entry for it. Otherwise the auxiliary element may be older
+     * than a concurrent put, or belong to a key that was removed meanwhile.
+     * <p>
      * @param element
+     * @param writes the write count of the key lock from before the lookup
      * @throws IOException
      */
-    private void copyAuxiliaryRetrievedItemToMemory( ICacheElement<K, V> element )
+    private void copyAuxiliaryRetrievedItemToMemory( ICacheElement<K, V> element, long writes )
         throws IOException
     {
         if ( memCache.getCacheAttributes().getMaxObjects() > 0 )
         {
-            memCache.update( element );
+            K key = element.getKey();
+            Lock lock = keyLocks.getLock( key );
+            lock.lock();
+            try
+            {
+                if ( getWrites( key ) == writes && memCache.getQuiet( key ) == null )
+                {
+                    memCache.update( element );
+                    scheduleExpiration( element );
+                }
+                else if ( log.isDebugEnabled() )
+                {
+                    log.debug( cacheAttr.getCacheName() + " - Key " + key + " changed during the lookup, not copying to memory" );
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
         }
         else
         {
@@ -1077,6 +2113,10 @@ public class CompositeCache<K, V>
         HashSet<K> allKeys = new HashSet<K>();
 
         allKeys.addAll( memCache.getKeySet() );
+        if ( offHeapCache != null )
+        {
+            allKeys.addAll( offHeapCache.getKeySet() );
+        }
         for ( int i = 0; i < auxCaches.length; i++ )
         {
             AuxiliaryCache<K, V> aux = auxCaches[i];
@@ -1139,22 +2179,153 @@ public class CompositeCache<K, V>
      * @param localOnly
      * @return true if the item was in the cache, else false
      */
-    protected synchronized boolean remove( K key, boolean localOnly )
+    protected boolean remove( K key, boolean localOnly )
+    {
+        removeCount.increment();
+
+        Lock lock = keyLocks.getLock( key );
+        lock.lock();
+        try
+        {
+            return removeLocked( key, localOnly );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes several items from the cache.
+     * <p>
+     * @param keys
+     */
+    public void removeMultiple( Set<K> keys )
+    {
+        removeMultiple( keys, false );
+    }
+
+    /**
+     * Removes several items without notifying remote or lateral auxiliaries.
+     * <p>
+     * @param keys
+     */
+    public void localRemoveMultiple( Set<K> keys )
+    {
+        removeMultiple( keys, true );
+    }
+
+    /**
+     * Removes several items from memory and from each auxiliary in one removeMultiple call. The
+     * locks of all the keys are held until the auxiliaries are done.
+     * <p>
+     * @param keys
+     * @param localOnly
+     */
+    protected void removeMultiple( Set<K> keys, boolean localOnly )
+    {
+        if ( keys.isEmpty() )
+        {
+            return;
+        }
+
+        removeCount.add( keys.size() );
+
+        List<Lock> locks = keyLocks.getLocks( keys );
+        for ( Lock lock : locks )
+        {
+            lock.lock();
+        }
+        try
+        {
+            for ( K key : keys )
+            {
+                markWritten( key );
+                try
+                {
+                    memCache.remove( key );
+                }
+                catch ( IOException e )
+                {
+                    log.error( e );
+                }
+                if ( expirationWheel != null )
+                {
+                    expirationWheel.cancel( key );
+                }
+                if ( offHeapCache != null )
+                {
+                    offHeapCache.remove( key );
+                }
+            }
+
+            List<K> keyList = new ArrayList<K>( keys );
+            for ( AuxiliaryCache<K, V> aux : auxCaches )
+            {
+                if ( aux == null )
+                {
+                    continue;
+                }
+
+                CacheType cacheType = aux.getCacheType();
+                if ( localOnly && ( cacheType == CacheType.REMOTE_CACHE || cacheType == CacheType.LATERAL_CACHE ) )
+                {
+                    continue;
+                }
+                try
+                {
+                    if ( log.isDebugEnabled() )
+                    {
+                        log.debug( "Removing " + keyList.size() + " keys from cacheType " + cacheType );
+                    }
+                    aux.removeMultiple( keyList );
+                }
+                catch ( IOException ex )
+                {
+                    log.error( "Failure removing from aux", ex );
+                }
+            }
+        }
+        finally
+        {
+            for ( int i = locks.size() - 1; i >= 0; i-- )
+            {
+                locks.get( i ).unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes the item from memory and the auxiliaries. The caller holds the lock for the key.
+     * <p>
+     * @param key
+     * @param localOnly
+     * @return true if the item was in the cache, else false
+     */
+    private boolean removeLocked( K key, boolean localOnly )
     {
-        // not thread safe, but just for debugging and testing.
-        removeCount++;
+        markWritten( key );
 
         boolean removed = false;
 
         try
         {
             removed = memCache.remove( key );
+            if ( expirationWheel != null )
+            {
+                expirationWheel.cancel( key );
+            }
         }
         catch ( IOException e )
         {
             log.error( e );
         }
 
+        if ( offHeapCache != null && offHeapCache.remove( key ) )
+        {
+            removed = true;
+        }
+
         // Removes from all auxiliary caches.
         for ( int i = 0; i < auxCaches.length; i++ )
         {
@@ -1230,9 +2401,44 @@ public class CompositeCache<K, V>
     protected synchronized void removeAll( boolean localOnly )
         throws IOException
     {
+        // hold every key lock, so no read copies an element it found before the clear back to memory
+        List<Lock> locks = keyLocks.getAllLocks();
+        for ( Lock lock : locks )
+        {
+            lock.lock();
+        }
+        try
+        {
+            removeAllLocked( localOnly );
+        }
+        finally
+        {
+            for ( int i = locks.size() - 1; i >= 0; i-- )
+            {
+                locks.get( i ).unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached items. The caller holds all the key locks.
+     * <p>
+     * @param localOnly
+     */
+    private void removeAllLocked( boolean localOnly )
+    {
+        for ( int i = 0; i < keyWrites.length(); i++ )
+        {
+            keyWrites.incrementAndGet( i );
+        }
+
         try
         {
             memCache.removeAll();
+            if ( expirationWheel != null )
+            {
+                expirationWheel.clear();
+            }
 
             if ( log.isDebugEnabled() )
             {
@@ -1244,6 +2450,11 @@ public class CompositeCache<K, V>
             log.error( "Trouble updating memory cache.", ex );
         }
 
+        if ( offHeapCache != null )
+        {
+            offHeapCache.removeAll();
+        }
+
         // Removes from all auxiliary disk caches.
         for ( int i = 0; i < auxCaches.length; i++ )
         {
@@ -1347,6 +2558,16 @@ public class CompositeCache<K, V>
                     int numToFree = memCache.getSize();
                     memCache.freeElements( numToFree );
 
+                    if ( offHeapCache != null )
+                    {
+                        List<ICacheElement<K, V>> offHeapElements = offHeapCache.freeAll();
+                        for ( ICacheElement<K, V> ce : offHeapElements )
+                        {
+                            spoolToAuxiliaryDisk( ce );
+                        }
+                        numToFree += offHeapElements.size();
+                    }
+
                     if ( log.isInfoEnabled() )
                     {
                         log.info( "In DISPOSE, [" + this.cacheAttr.getCacheName() + "] put " + numToFree + " into auxiliary " + aux.getCacheName() );
@@ -1374,6 +2595,11 @@ public class CompositeCache<K, V>
         {
             log.error( "Failure disposing of memCache", ex );
         }
+
+        if ( offHeapCache != null )
+        {
+            offHeapCache.dispose();
+        }
     }
 
     /**
@@ -1482,6 +2708,10 @@ public class CompositeCache<K, V>
 
         elems.add(new StatElement<Integer>( "HitCountRam", Integer.valueOf(getHitCountRam()) ) );
         elems.add(new StatElement<Integer>( "HitCountAux", Integer.valueOf(getHitCountAux()) ) );
+        if ( offHeapCache != null )
+        {
+            elems.add(new StatElement<Integer>( "HitCountOffHeap", Integer.valueOf(getHitCountOffHeap()) ) );
+        }
 
         stats.setStatElements( elems );
 
@@ -1491,6 +2721,11 @@ public class CompositeCache<K, V>
 
         auxStats.add(getMemoryCache().getStatistics());
 
+        if ( offHeapCache != null )
+        {
+            auxStats.add(offHeapCache.getStatistics());
+        }
+
         for ( AuxiliaryCache<K, V> aux : auxCaches )
         {
             auxStats.add(aux.getStatistics());
@@ -1732,6 +2967,67 @@ public class CompositeCache<K, V>
         }
     }
 
+    /**
+     * Schedules the next expiration check of an element that was put into the memory cache. Does
+     * nothing unless the memory shrinker is running.
+     * <p>
+     * @param element the element
+     */
+    private void scheduleExpiration( ICacheElement<K, V> element )
+    {
+        ExpirationWheel<K> wheel = expirationWheel;
+        if ( wheel != null )
+        {
+            wheel.schedule( element.getKey(),
+                            ExpirationWheel.getDeadline( element.getElementAttributes(), getMaxMemoryIdleTime() ) );
+        }
+    }
+
+    /**
+     * Drops the expiration check of an element evicted or spooled out of memory, unless a newer
+     * element of the key has been put meanwhile. Does nothing unless the memory shrinker is running.
+     * <p>
+     * @param element the element leaving memory
+     */
+    private void cancelExpiration( ICacheElement<K, V> element )
+    {
+        ExpirationWheel<K> wheel = expirationWheel;
+        if ( wheel != null )
+        {
+            try
+            {
+                ICacheElement<K, V> inMemory = memCache.getQuiet( element.getKey() );
+                if ( inMemory == null || inMemory == element )
+                {
+                    wheel.cancel( element.getKey() );
+                }
+            }
+            catch ( IOException e )
+            {
+                log.error( "Problem checking memory before cancelling the expiration.", e );
+            }
+        }
+    }
+
+    /**
+     * @return the memory idle time of the region in milliseconds, -1 if there is none
+     */
+    private long getMaxMemoryIdleTime()
+    {
+        long seconds = cacheAttr.getMaxMemoryIdleTimeSeconds();
+        return seconds < 0 ? -1 : seconds * 1000;
+    }
+
+    /**
+     * Gives the shrinker access to the deadlines of the memory elements.
+     * <p>
+     * @return the expiration wheel, null if the memory shrinker is not running
+     */
+    public ExpirationWheel<K> getExpirationWheel()
+    {
+        return expirationWheel;
+    }
+
     /**
      * Access to the memory cache for instrumentation.
      * <p>
@@ -1749,7 +3045,24 @@ public class CompositeCache<K, V>
      */
     public int getHitCountRam()
     {
-        return hitCountRam;
+        return hitCountRam.get();
+    }
+
+    /**
+     * Number of times a requested item was found in the off-heap tier.
+     * @return number of off-heap hits.
+     */
+    public int getHitCountOffHeap()
+    {
+        return hitCountOffHeap.get();
+    }
+
+    /**
+     * @return the off-heap tier, or null if OffHeapMaxBytes is not set
+     */
+    public OffHeapCache<K, V> getOffHeapCache()
+    {
+        return offHeapCache;
     }
 
     /**
@@ -1758,7 +3071,7 @@ public class CompositeCache<K, V>
      */
     public int getHitCountAux()
     {
-        return hitCountAux;
+        return hitCountAux.get();
     }
 
     /**
@@ -1767,7 +3080,7 @@ public class CompositeCache<K, V>
      */
     public int getMissCountNotFound()
     {
-        return missCountNotFound;
+        return missCountNotFound.get();
     }
 
     /**
@@ -1776,7 +3089,7 @@ public class CompositeCache<K, V>
      */
     public int getMissCountExpired()
     {
-        return missCountExpired;
+        return missCountExpired.get();
     }
 
     /**
@@ -1806,33 +3119,33 @@ public class CompositeCache<K, V>
     /**
      * @param updateCount The updateCount to set.
      */
-    public synchronized void setUpdateCount( int updateCount )
+    public void setUpdateCount( int updateCount )
     {
-        this.updateCount = updateCount;
+        this.updateCount.set( updateCount );
     }
 
     /**
      * @return Returns the updateCount.
      */
-    public synchronized int getUpdateCount()
+    public int getUpdateCount()
     {
-        return updateCount;
+        return (int) updateCount.get();
     }
 
     /**
      * @param removeCount The removeCount to set.
      */
-    public synchronized void setRemoveCount( int removeCount )
+    public void setRemoveCount( int removeCount )
     {
-        this.removeCount = removeCount;
+        this.removeCount.set( removeCount );
     }
 
     /**
      * @return Returns the removeCount.
      */
-    public synchronized int getRemoveCount()
+    public int getRemoveCount()
     {
-        return removeCount;
+        return (int) removeCount.get();
     }
 
     /**
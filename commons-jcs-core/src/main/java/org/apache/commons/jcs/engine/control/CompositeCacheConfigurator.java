@@ -341,6 +341,20 @@ public class CompositeCacheConfigurator
             ? new CompositeCache<K, V>( parseCompositeCacheAttributes( props, regName, regionPrefix ), ea )
             : new CompositeCache<K, V>( cca, ea );
 
+        // The off-heap tier and the auxiliaries without a serializer of their own use the
+        // region's serializer:
+        // jcs.region.NAME.serializer=CLASSNAME
+        IElementSerializer regionSerializer = null;
+        if ( props.getProperty( regionPrefix + regName + AuxiliaryCacheConfigurator.SERIALIZER_PREFIX ) != null
+            || cache.getCacheAttributes().getOffHeapMaxBytes() > 0 )
+        {
+            regionSerializer = AuxiliaryCacheConfigurator.parseElementSerializer( props, regionPrefix + regName );
+            if ( cache.getCacheAttributes().getOffHeapMaxBytes() > 0 )
+            {
+                cache.setElementSerializer( regionSerializer );
+            }
+        }
+
         // Inject scheduler service
         cache.setScheduledExecutorService(compositeCacheManager.getScheduledExecutorService());
 
@@ -389,7 +403,7 @@ public class CompositeCacheConfigurator
                 }
                 log.debug( "Parsing auxiliary named \"" + auxName + "\"." );
 
-                auxCache = parseAuxiliary( props, auxName, regName );
+                auxCache = parseAuxiliary( props, auxName, regName, regionSerializer );
 
                 if ( auxCache != null )
                 {
@@ -529,6 +543,22 @@ public class CompositeCacheConfigurator
      * @return AuxiliaryCache
      */
     protected <K, V> AuxiliaryCache<K, V> parseAuxiliary( Properties props, String auxName, String regName )
+    {
+        return parseAuxiliary( props, auxName, regName, null );
+    }
+
+    /**
+     * Get an aux cache for the listed aux for a region.
+     *<p>
+     * @param props the configuration properties
+     * @param auxName the name of the auxiliary cache
+     * @param regName the name of the region.
+     * @param regionSerializer the serializer configured for the region, used if the auxiliary does
+     *            not configure one, may be null
+     * @return AuxiliaryCache
+     */
+    protected <K, V> AuxiliaryCache<K, V> parseAuxiliary( Properties props, String auxName, String regName,
+                                                          IElementSerializer regionSerializer )
     {
         if ( log.isDebugEnabled() )
         {
@@ -601,7 +631,16 @@ public class CompositeCacheConfigurator
             ICacheEventLogger cacheEventLogger = AuxiliaryCacheConfigurator.parseCacheEventLogger( props, auxPrefix );
 
             // CONFIGURE THE ELEMENT SERIALIZER
-            IElementSerializer elementSerializer = AuxiliaryCacheConfigurator.parseElementSerializer( props, auxPrefix );
+            IElementSerializer elementSerializer;
+            if ( regionSerializer != null
+                && props.getProperty( auxPrefix + AuxiliaryCacheConfigurator.SERIALIZER_PREFIX ) == null )
+            {
+                elementSerializer = regionSerializer;
+            }
+            else
+            {
+                elementSerializer = AuxiliaryCacheConfigurator.parseElementSerializer( props, auxPrefix );
+            }
 
             // CONFIGURE THE KEYMATCHER
             //IKeyMatcher keyMatcher = parseKeyMatcher( props, auxPrefix );
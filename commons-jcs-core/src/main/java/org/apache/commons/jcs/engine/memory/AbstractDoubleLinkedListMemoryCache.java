@@ -301,11 +301,14 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V>
         throws Error
     {
         ICacheElement<K, V> toSpool = null;
-        final MemoryElementDescriptor<K, V> last = list.getLast();
-        if ( last != null )
+
+        // Look up the last element under the lock, otherwise a concurrent remove
+        // could make us spool an element that is no longer in the cache.
+        lock.lock();
+        try
         {
-            lock.lock();
-            try
+            final MemoryElementDescriptor<K, V> last = list.getLast();
+            if ( last != null )
             {
                 toSpool = last.ce;
                 if (toSpool != null) {
@@ -322,15 +325,16 @@ public abstract class AbstractDoubleLinkedListMemoryCache<K, V>
                 }
                 list.remove(last);
             }
-            finally
-            {
-                lock.unlock();
-            }
         }
-        else
+        finally
+        {
+            lock.unlock();
+        }
+
+        if ( toSpool == null )
         {
-            verifyCache();
-            throw new Error( "update: last is null!" );
+            // another thread may have emptied the list in the meantime
+            return null;
         }
 
         // If this is out of the sync block it can detect a mismatch
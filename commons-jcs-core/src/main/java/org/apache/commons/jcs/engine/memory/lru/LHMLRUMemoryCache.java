@@ -108,7 +108,8 @@ public class LHMLRUMemoryCache<K extends Serializable, V extends Serializable>
     public ICacheElement<K, V> getQuiet( K key )
         throws IOException
     {
-        return map.get( key ).ce;
+        MemoryElementDescriptor<K, V> me = map.get( key );
+        return me == null ? null : me.ce;
     }
 
     /**
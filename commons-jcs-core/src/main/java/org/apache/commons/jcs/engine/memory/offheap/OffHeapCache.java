@@ -0,0 +1,729 @@
+package org.apache.commons.jcs.engine.memory.offheap;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.jcs.engine.CacheConstants;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.stats.StatElement;
+import org.apache.commons.jcs.engine.stats.Stats;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A cache tier holding serialized elements outside of the Java heap.
+ * <p>
+ * The payloads are written to direct ByteBuffer slabs which are divided into fixed size blocks,
+ * the way the block disk cache divides its file. An element occupies as many blocks as it needs;
+ * the blocks need not be contiguous. Only the keys and a small block table per element stay on
+ * the heap, so a large tier adds little to garbage collection work.
+ * <p>
+ * The tier is bounded in bytes. When there are not enough free blocks for a new element, the
+ * least recently used elements are evicted and handed back to the caller, which passes them on to
+ * the disk auxiliaries.
+ */
+public class OffHeapCache<K, V>
+{
+    /** The logger */
+    private static final Log log = LogFactory.getLog( OffHeapCache.class );
+
+    /** The largest slab allocated at once. */
+    private static final int MAX_SLAB_BYTES = 64 * 1024 * 1024;
+
+    /** The region name. */
+    private final String cacheName;
+
+    /** Size of a block in bytes. */
+    private final int blockSize;
+
+    /** Number of blocks in a slab. */
+    private final int blocksPerSlab;
+
+    /** Total number of blocks. */
+    private final int totalBlocks;
+
+    /** The slabs, allocated when first needed. */
+    private final ByteBuffer[] slabs;
+
+    /** Blocks that have been freed, used as a stack. */
+    private final int[] freeBlocks;
+
+    /** Number of entries in freeBlocks. */
+    private int freeBlockCount = 0;
+
+    /** Blocks above this index have never been used. */
+    private int nextUnusedBlock = 0;
+
+    /** Key to block table, in access order. Guarded by lock. */
+    private final LinkedHashMap<K, Slot> index = new LinkedHashMap<K, Slot>( 16, .75F, true );
+
+    /** Guards the index and the block allocation. */
+    private final Lock lock = new ReentrantLock();
+
+    /** Number of elements, readable without the lock. */
+    private volatile int size = 0;
+
+    /** The serializer for the payloads. */
+    private IElementSerializer elementSerializer = new StandardSerializer();
+
+    /** number of hits */
+    private int hitCnt = 0;
+
+    /** number of misses */
+    private int missCnt = 0;
+
+    /** number of puts */
+    private int putCnt = 0;
+
+    /** number of elements evicted to make room */
+    private int evictionCnt = 0;
+
+    /**
+     * Creates an empty tier. No memory is allocated until elements are stored.
+     * <p>
+     * @param cacheName the region name
+     * @param maxBytes the maximum number of payload bytes
+     * @param blockSize the size of a block in bytes
+     */
+    public OffHeapCache( String cacheName, long maxBytes, int blockSize )
+    {
+        if ( blockSize <= 0 )
+        {
+            throw new IllegalArgumentException( "blockSize must be positive: " + blockSize );
+        }
+
+        this.cacheName = cacheName;
+        this.blockSize = blockSize;
+        this.blocksPerSlab = Math.max( 1, MAX_SLAB_BYTES / blockSize );
+        this.totalBlocks = (int) Math.min( Integer.MAX_VALUE - 8, Math.max( 0, maxBytes / blockSize ) );
+        this.slabs = new ByteBuffer[( totalBlocks + blocksPerSlab - 1 ) / blocksPerSlab];
+        this.freeBlocks = new int[totalBlocks];
+
+        if ( log.isInfoEnabled() )
+        {
+            log.info( "Created off-heap cache for region [" + cacheName + "] with " + totalBlocks + " blocks of "
+                + blockSize + " bytes" );
+        }
+    }
+
+    /**
+     * Stores the element, replacing any previous value for its key.
+     * <p>
+     * @param ce the element
+     * @return the elements evicted to make room. If the element cannot be stored, it is returned
+     *         itself.
+     */
+    public List<ICacheElement<K, V>> update( ICacheElement<K, V> ce )
+    {
+        byte[] data;
+        try
+        {
+            data = elementSerializer.serialize( ce );
+        }
+        catch ( IOException e )
+        {
+            log.error( "Could not serialize element for off-heap cache [" + cacheName + "], key = " + ce.getKey(), e );
+            return Collections.singletonList( ce );
+        }
+
+        int needed = Math.max( 1, ( data.length + blockSize - 1 ) / blockSize );
+        if ( needed > totalBlocks )
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "Element too large for off-heap cache [" + cacheName + "], key = " + ce.getKey()
+                    + ", bytes = " + data.length );
+            }
+            discard( ce.getKey() );
+            return Collections.singletonList( ce );
+        }
+
+        List<byte[]> evicted = null;
+
+        lock.lock();
+        try
+        {
+            putCnt++;
+
+            Slot old = index.remove( ce.getKey() );
+            if ( old != null )
+            {
+                release( old );
+            }
+
+            while ( freeBlockCount + ( totalBlocks - nextUnusedBlock ) < needed )
+            {
+                Iterator<Map.Entry<K, Slot>> eldest = index.entrySet().iterator();
+                Slot victim = eldest.next().getValue();
+                eldest.remove();
+
+                if ( evicted == null )
+                {
+                    evicted = new ArrayList<byte[]>();
+                }
+                evicted.add( read( victim ) );
+                release( victim );
+                evictionCnt++;
+            }
+
+            Slot slot = new Slot( data.length, needed );
+            for ( int i = 0; i < needed; i++ )
+            {
+                slot.blocks[i] = allocate();
+            }
+            write( slot, data );
+            index.put( ce.getKey(), slot );
+            size = index.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        if ( evicted == null )
+        {
+            return Collections.emptyList();
+        }
+
+        List<ICacheElement<K, V>> elements = new ArrayList<ICacheElement<K, V>>( evicted.size() );
+        for ( byte[] bytes : evicted )
+        {
+            ICacheElement<K, V> element = deSerialize( bytes );
+            if ( element != null )
+            {
+                elements.add( element );
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Reads the element for the key, leaving it in the tier.
+     * <p>
+     * @param key
+     * @return the element, or null if not stored here
+     */
+    public ICacheElement<K, V> get( K key )
+    {
+        return read( key, false );
+    }
+
+    /**
+     * Reads and removes the element for the key. Used when the element moves to the memory cache.
+     * <p>
+     * @param key
+     * @return the element, or null if not stored here
+     */
+    public ICacheElement<K, V> take( K key )
+    {
+        return read( key, true );
+    }
+
+    /**
+     * Reads the elements for the keys that are stored here.
+     * <p>
+     * @param keys
+     * @param remove whether the elements found should be removed
+     * @return a map of the elements found
+     */
+    public Map<K, ICacheElement<K, V>> getMultiple( Set<K> keys, boolean remove )
+    {
+        Map<K, ICacheElement<K, V>> elements = new LinkedHashMap<K, ICacheElement<K, V>>();
+        if ( size == 0 )
+        {
+            return elements;
+        }
+
+        for ( K key : keys )
+        {
+            ICacheElement<K, V> element = read( key, remove );
+            if ( element != null )
+            {
+                elements.put( key, element );
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Removes an item. This method handles hierarchical removal like the memory caches do. If the
+     * key is a String and ends with the CacheConstants.NAME_COMPONENT_DELIMITER, then all items
+     * with keys starting with the argument String will be removed.
+     * <p>
+     * @param key
+     * @return true if removed
+     */
+    public boolean remove( K key )
+    {
+        boolean removed = false;
+
+        if ( size == 0 )
+        {
+            return removed;
+        }
+
+        lock.lock();
+        try
+        {
+            if ( key instanceof String && ( (String) key ).endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+            {
+                for ( Iterator<Map.Entry<K, Slot>> itr = index.entrySet().iterator(); itr.hasNext(); )
+                {
+                    Map.Entry<K, Slot> entry = itr.next();
+                    K k = entry.getKey();
+
+                    if ( k instanceof String && ( (String) k ).startsWith( key.toString() ) )
+                    {
+                        release( entry.getValue() );
+                        itr.remove();
+                        removed = true;
+                    }
+                }
+            }
+            else if ( key instanceof GroupAttrName && ( (GroupAttrName<?>) key ).attrName == null )
+            {
+                for ( Iterator<Map.Entry<K, Slot>> itr = index.entrySet().iterator(); itr.hasNext(); )
+                {
+                    Map.Entry<K, Slot> entry = itr.next();
+                    K k = entry.getKey();
+
+                    if ( k instanceof GroupAttrName
+                        && ( (GroupAttrName<?>) k ).groupId.equals( ( (GroupAttrName<?>) key ).groupId ) )
+                    {
+                        release( entry.getValue() );
+                        itr.remove();
+                        removed = true;
+                    }
+                }
+            }
+            else
+            {
+                Slot slot = index.remove( key );
+                if ( slot != null )
+                {
+                    release( slot );
+                    removed = true;
+                }
+            }
+            size = index.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return removed;
+    }
+
+    /**
+     * Removes the element stored under exactly this key, without hierarchical matching. Used to
+     * drop a stale copy when the region receives a newer value.
+     * <p>
+     * @param key
+     * @return true if an element was removed
+     */
+    public boolean discard( K key )
+    {
+        if ( size == 0 )
+        {
+            return false;
+        }
+
+        lock.lock();
+        try
+        {
+            Slot slot = index.remove( key );
+            if ( slot != null )
+            {
+                release( slot );
+                size = index.size();
+                return true;
+            }
+            return false;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all elements and returns the slabs to the allocator.
+     */
+    public void removeAll()
+    {
+        lock.lock();
+        try
+        {
+            index.clear();
+            freeBlockCount = 0;
+            nextUnusedBlock = 0;
+            size = 0;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all elements and returns them, least recently used first. Used to flush the tier to
+     * disk on shutdown.
+     * <p>
+     * @return the elements that were stored
+     */
+    public List<ICacheElement<K, V>> freeAll()
+    {
+        List<byte[]> all = new ArrayList<byte[]>();
+
+        lock.lock();
+        try
+        {
+            for ( Slot slot : index.values() )
+            {
+                all.add( read( slot ) );
+            }
+            index.clear();
+            freeBlockCount = 0;
+            nextUnusedBlock = 0;
+            size = 0;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        List<ICacheElement<K, V>> elements = new ArrayList<ICacheElement<K, V>>( all.size() );
+        for ( byte[] bytes : all )
+        {
+            ICacheElement<K, V> element = deSerialize( bytes );
+            if ( element != null )
+            {
+                elements.add( element );
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Drops all elements and the slabs. The direct memory is released when the buffers are
+     * collected.
+     */
+    public void dispose()
+    {
+        lock.lock();
+        try
+        {
+            removeAll();
+            for ( int i = 0; i < slabs.length; i++ )
+            {
+                slabs[i] = null;
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the keys stored in the tier
+     */
+    public Set<K> getKeySet()
+    {
+        lock.lock();
+        try
+        {
+            return new LinkedHashSet<K>( index.keySet() );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of elements stored
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes held by stored elements, counted in whole blocks
+     */
+    public long getBytesUsed()
+    {
+        lock.lock();
+        try
+        {
+            return (long) ( nextUnusedBlock - freeBlockCount ) * blockSize;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param elementSerializer the serializer for the payloads
+     */
+    public void setElementSerializer( IElementSerializer elementSerializer )
+    {
+        if ( elementSerializer != null )
+        {
+            this.elementSerializer = elementSerializer;
+        }
+    }
+
+    /**
+     * @return the serializer for the payloads
+     */
+    public IElementSerializer getElementSerializer()
+    {
+        return elementSerializer;
+    }
+
+    /**
+     * This returns semi-structured information on the tier, such as the size, put count, hit
+     * count, and miss count.
+     * <p>
+     * @return IStats
+     */
+    public IStats getStatistics()
+    {
+        IStats stats = new Stats();
+        stats.setTypeName( "Off-Heap Cache" );
+
+        List<IStatElement<?>> elems = new ArrayList<IStatElement<?>>();
+
+        lock.lock();
+        try
+        {
+            elems.add( new StatElement<Integer>( "Map Size", Integer.valueOf( index.size() ) ) );
+            elems.add( new StatElement<Long>( "Bytes Used", Long.valueOf( (long) ( nextUnusedBlock - freeBlockCount ) * blockSize ) ) );
+            elems.add( new StatElement<Long>( "Max Bytes", Long.valueOf( (long) totalBlocks * blockSize ) ) );
+            elems.add( new StatElement<Integer>( "Put Count", Integer.valueOf( putCnt ) ) );
+            elems.add( new StatElement<Integer>( "Hit Count", Integer.valueOf( hitCnt ) ) );
+            elems.add( new StatElement<Integer>( "Miss Count", Integer.valueOf( missCnt ) ) );
+            elems.add( new StatElement<Integer>( "Eviction Count", Integer.valueOf( evictionCnt ) ) );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        stats.setStatElements( elems );
+
+        return stats;
+    }
+
+    /**
+     * Copies the payload out under the lock and deserializes it outside.
+     * <p>
+     * @param key
+     * @param remove whether to remove the element
+     * @return the element, or null
+     */
+    private ICacheElement<K, V> read( K key, boolean remove )
+    {
+        if ( size == 0 )
+        {
+            return null;
+        }
+
+        byte[] data = null;
+
+        lock.lock();
+        try
+        {
+            Slot slot = remove ? index.remove( key ) : index.get( key );
+            if ( slot == null )
+            {
+                missCnt++;
+            }
+            else
+            {
+                hitCnt++;
+                data = read( slot );
+                if ( remove )
+                {
+                    release( slot );
+                    size = index.size();
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return data == null ? null : deSerialize( data );
+    }
+
+    /**
+     * @param data
+     * @return the element, or null if it could not be read
+     */
+    private ICacheElement<K, V> deSerialize( byte[] data )
+    {
+        try
+        {
+            return elementSerializer.deSerialize( data, null );
+        }
+        catch ( IOException e )
+        {
+            log.error( "Could not deserialize element from off-heap cache [" + cacheName + "]", e );
+        }
+        catch ( ClassNotFoundException e )
+        {
+            log.error( "Could not deserialize element from off-heap cache [" + cacheName + "]", e );
+        }
+        return null;
+    }
+
+    /**
+     * Takes a free block. The caller must hold the lock and have checked there is one.
+     * <p>
+     * @return the block number
+     */
+    private int allocate()
+    {
+        if ( freeBlockCount > 0 )
+        {
+            return freeBlocks[--freeBlockCount];
+        }
+        return nextUnusedBlock++;
+    }
+
+    /**
+     * Returns the slot's blocks to the free list. The caller must hold the lock.
+     * <p>
+     * @param slot
+     */
+    private void release( Slot slot )
+    {
+        for ( int block : slot.blocks )
+        {
+            freeBlocks[freeBlockCount++] = block;
+        }
+    }
+
+    /**
+     * Copies data into the slot's blocks. The caller must hold the lock.
+     * <p>
+     * @param slot
+     * @param data
+     */
+    private void write( Slot slot, byte[] data )
+    {
+        int offset = 0;
+        for ( int block : slot.blocks )
+        {
+            int length = Math.min( blockSize, data.length - offset );
+            ByteBuffer buffer = blockBuffer( block );
+            buffer.put( data, offset, length );
+            offset += length;
+        }
+    }
+
+    /**
+     * Copies the slot's payload out. The caller must hold the lock.
+     * <p>
+     * @param slot
+     * @return the payload
+     */
+    private byte[] read( Slot slot )
+    {
+        byte[] data = new byte[slot.length];
+        int offset = 0;
+        for ( int block : slot.blocks )
+        {
+            int length = Math.min( blockSize, data.length - offset );
+            ByteBuffer buffer = blockBuffer( block );
+            buffer.get( data, offset, length );
+            offset += length;
+        }
+        return data;
+    }
+
+    /**
+     * Returns a buffer positioned at the start of the block, allocating its slab if needed. The
+     * caller must hold the lock.
+     * <p>
+     * @param block
+     * @return a view of the slab
+     */
+    private ByteBuffer blockBuffer( int block )
+    {
+        int slabIndex = block / blocksPerSlab;
+        ByteBuffer slab = slabs[slabIndex];
+        if ( slab == null )
+        {
+            int blocks = Math.min( blocksPerSlab, totalBlocks - slabIndex * blocksPerSlab );
+            slab = ByteBuffer.allocateDirect( blocks * blockSize );
+            slabs[slabIndex] = slab;
+        }
+
+        ByteBuffer buffer = slab.duplicate();
+        buffer.position( ( block % blocksPerSlab ) * blockSize );
+        return buffer;
+    }
+
+    /**
+     * The blocks holding an element's payload.
+     */
+    private static class Slot
+    {
+        /** The payload length in bytes. */
+        final int length;
+
+        /** The blocks, in payload order. */
+        final int[] blocks;
+
+        /**
+         * @param length
+         * @param blockCount
+         */
+        Slot( int length, int blockCount )
+        {
+            this.length = length;
+            this.blocks = new int[blockCount];
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package org.apache.commons.jcs.engine.memory.sampled;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.jcs.engine.CacheConstants;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.memory.AbstractMemoryCache;
+import org.apache.commons.jcs.engine.memory.util.MemoryElementDescriptor;
+import org.apache.commons.jcs.engine.stats.StatElement;
+import org.apache.commons.jcs.engine.stats.Stats;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.struct.StripedCounter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A memory cache that approximates a least recently used policy with a CLOCK (second chance)
+ * algorithm.
+ * <p>
+ * The LRU implementations move an element to the front of a linked list on every hit, which
+ * requires the region wide lock. Here a hit only sets a reference bit on the element, so reads
+ * never lock and scale with the number of threads. Elements are queued in insertion order. When
+ * the map grows past MaxObjects, the eviction sweep takes elements from the head of the queue;
+ * a referenced element has its bit cleared and is sent to the back of the queue, an unreferenced
+ * one is spooled. Evictions are done in batches of at least SpoolChunkSize elements.
+ * <p>
+ * Updates and removals of a key leave stale descriptors in the queue. They are discarded when the
+ * sweep reaches them, or by a purge once they outnumber the live elements.
+ */
+public class SampledLRUMemoryCache<K, V>
+    extends AbstractMemoryCache<K, V>
+{
+    /** The logger */
+    private static final Log log = LogFactory.getLog( SampledLRUMemoryCache.class );
+
+    /** Elements in the order they will be considered for eviction. May contain stale entries. */
+    private final ConcurrentLinkedQueue<ClockElementDescriptor<K, V>> clock =
+        new ConcurrentLinkedQueue<ClockElementDescriptor<K, V>>();
+
+    /** The size of the clock queue. ConcurrentLinkedQueue.size() is not constant time. */
+    private final AtomicInteger clockSize = new AtomicInteger();
+
+    /** number of hits */
+    private final StripedCounter hitCnt = new StripedCounter();
+
+    /** number of misses */
+    private final StripedCounter missCnt = new StripedCounter();
+
+    /** number of puts */
+    private final StripedCounter putCnt = new StripedCounter();
+
+    /** number of elements given a second chance by the sweep */
+    private final StripedCounter secondChanceCnt = new StripedCounter();
+
+    /**
+     * Returns a concurrent map. Lookups never lock.
+     * <p>
+     * @return Map
+     */
+    @Override
+    public Map<K, MemoryElementDescriptor<K, V>> createMap()
+    {
+        return new ConcurrentHashMap<K, MemoryElementDescriptor<K, V>>();
+    }
+
+    /**
+     * Puts an item to the cache. The element is queued at the back of the clock. If the map is
+     * over its limit, a batch of elements is spooled.
+     * <p>
+     * @param ce Description of the Parameter
+     * @throws IOException
+     */
+    @Override
+    public void update( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        putCnt.increment();
+
+        ClockElementDescriptor<K, V> newNode = new ClockElementDescriptor<K, V>( ce );
+        map.put( ce.getKey(), newNode );
+        clock.offer( newNode );
+        clockSize.incrementAndGet();
+
+        spoolIfNeeded();
+    }
+
+    /**
+     * Get an item from the cache. A hit only marks the element as referenced; nothing is locked.
+     * <p>
+     * @param key Identifies item to find
+     * @return ICacheElement<K, V> if found, else null
+     * @throws IOException
+     */
+    @Override
+    public ICacheElement<K, V> get( K key )
+        throws IOException
+    {
+        ICacheElement<K, V> ce = null;
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( getCacheName() + ": getting item for key " + key );
+        }
+
+        MemoryElementDescriptor<K, V> me = map.get( key );
+
+        if ( me != null )
+        {
+            hitCnt.increment();
+            ( (ClockElementDescriptor<K, V>) me ).markReferenced();
+            ce = me.ce;
+
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( getCacheName() + ": SampledLRUMemoryCache hit for " + key );
+            }
+        }
+        else
+        {
+            missCnt.increment();
+
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( getCacheName() + ": SampledLRUMemoryCache miss for " + key );
+            }
+        }
+
+        return ce;
+    }
+
+    /**
+     * Removes an item from the cache. This method handles hierarchical removal. If the key is a
+     * String and ends with the CacheConstants.NAME_COMPONENT_DELIMITER, then all items with keys
+     * starting with the argument String will be removed.
+     * <p>
+     * Removal holds the eviction lock so that an element being spooled cannot be written to disk
+     * after the region has removed it there.
+     * <p>
+     * @param key
+     * @return true if removed
+     * @throws IOException
+     */
+    @Override
+    public boolean remove( K key )
+        throws IOException
+    {
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "removing item for key: " + key );
+        }
+
+        boolean removed = false;
+
+        lock.lock();
+        try
+        {
+            // handle partial removal
+            if ( key instanceof String && ( (String) key ).endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+            {
+                // remove all keys of the same name hierarchy.
+                for (Iterator<Map.Entry<K, MemoryElementDescriptor<K, V>>> itr = map.entrySet().iterator(); itr.hasNext(); )
+                {
+                    Map.Entry<K, MemoryElementDescriptor<K, V>> entry = itr.next();
+                    K k = entry.getKey();
+
+                    if ( k instanceof String && ( (String) k ).startsWith( key.toString() ) )
+                    {
+                        itr.remove();
+                        removed = true;
+                    }
+                }
+            }
+            else if ( key instanceof GroupAttrName && ((GroupAttrName<?>)key).attrName == null )
+            {
+                // remove all keys of the same name hierarchy.
+                for (Iterator<Map.Entry<K, MemoryElementDescriptor<K, V>>> itr = map.entrySet().iterator(); itr.hasNext(); )
+                {
+                    Map.Entry<K, MemoryElementDescriptor<K, V>> entry = itr.next();
+                    K k = entry.getKey();
+
+                    if ( k instanceof GroupAttrName &&
+                        ((GroupAttrName<?>)k).groupId.equals(((GroupAttrName<?>)key).groupId) )
+                    {
+                        itr.remove();
+                        removed = true;
+                    }
+                }
+            }
+            else
+            {
+                // remove single item.
+                removed = map.remove( key ) != null;
+            }
+
+            purgeIfNeeded();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return removed;
+    }
+
+    /**
+     * Removes all cached items from the cache.
+     * <p>
+     * @throws IOException
+     */
+    @Override
+    public void removeAll()
+        throws IOException
+    {
+        lock.lock();
+        try
+        {
+            map.clear();
+            clock.clear();
+            clockSize.set( 0 );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get an Array of the keys for all elements in the memory cache
+     * <p>
+     * @return An Object[]
+     */
+    @Override
+    public Set<K> getKeySet()
+    {
+        return new LinkedHashSet<K>( map.keySet() );
+    }
+
+    /**
+     * Spools up to numberToFree elements chosen by the clock.
+     * <p>
+     * @param numberToFree
+     * @return the number that were removed.
+     * @throws IOException
+     */
+    @Override
+    public int freeElements( int numberToFree )
+        throws IOException
+    {
+        int freed = 0;
+
+        lock.lock();
+        try
+        {
+            for ( ; freed < numberToFree; freed++ )
+            {
+                if ( spoolNextElement() == null )
+                {
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return freed;
+    }
+
+    /**
+     * This returns semi-structured information on the memory cache, such as the size, put count,
+     * hit count, and miss count.
+     * <p>
+     * @return IStats
+     */
+    @Override
+    public IStats getStatistics()
+    {
+        IStats stats = new Stats();
+        stats.setTypeName( "Sampled LRU Memory Cache" );
+
+        ArrayList<IStatElement<?>> elems = new ArrayList<IStatElement<?>>();
+
+        elems.add(new StatElement<Integer>( "Clock Size", Integer.valueOf(clockSize.get()) ) );
+        elems.add(new StatElement<Integer>( "Map Size", Integer.valueOf(map.size()) ) );
+        elems.add(new StatElement<Long>( "Put Count", Long.valueOf(putCnt.get()) ) );
+        elems.add(new StatElement<Long>( "Hit Count", Long.valueOf(hitCnt.get()) ) );
+        elems.add(new StatElement<Long>( "Miss Count", Long.valueOf(missCnt.get()) ) );
+        elems.add(new StatElement<Long>( "Second Chance Count", Long.valueOf(secondChanceCnt.get()) ) );
+
+        stats.setStatElements( elems );
+
+        return stats;
+    }
+
+    /**
+     * If the max size has been exceeded, spool the excess, but at least chunkSize elements. Only
+     * one thread sweeps at a time; the others leave the work to it rather than wait.
+     */
+    private void spoolIfNeeded()
+    {
+        int max = this.cacheAttributes.getMaxObjects();
+
+        while ( map.size() > max && lock.tryLock() )
+        {
+            try
+            {
+                int size = map.size();
+                if ( size <= max )
+                {
+                    break;
+                }
+
+                int toSpool = Math.min( size, Math.max( size - max, chunkSize ) );
+
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( "About to spool to disk cache, map size: " + size + ", max objects: "
+                        + max + ", items to spool: " + toSpool );
+                }
+
+                for ( int i = 0; i < toSpool; i++ )
+                {
+                    if ( spoolNextElement() == null )
+                    {
+                        break;
+                    }
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        if ( clockSize.get() > 2 * map.size() + chunkSize && lock.tryLock() )
+        {
+            try
+            {
+                purgeIfNeeded();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Advances the clock hand until an unreferenced live element is found, then spools and
+     * removes it. The caller must hold the lock.
+     * <p>
+     * @return the spooled element, or null if the cache is empty
+     */
+    private ICacheElement<K, V> spoolNextElement()
+    {
+        ClockElementDescriptor<K, V> node;
+
+        while ( ( node = clock.poll() ) != null )
+        {
+            clockSize.decrementAndGet();
+
+            K key = node.ce.getKey();
+            if ( map.get( key ) != node )
+            {
+                // replaced or removed since it was queued
+                continue;
+            }
+
+            if ( node.clearReferenced() )
+            {
+                secondChanceCnt.increment();
+                clock.offer( node );
+                clockSize.incrementAndGet();
+                continue;
+            }
+
+            // spool before removing so that the element is always visible in memory or purgatory
+            cache.spoolToDisk( node.ce );
+
+            if ( !( (ConcurrentMap<K, MemoryElementDescriptor<K, V>>) map ).remove( key, node )
+                && log.isDebugEnabled() )
+            {
+                log.debug( getCacheName() + ": element replaced while spooling, key = " + key );
+            }
+
+            return node.ce;
+        }
+
+        return null;
+    }
+
+    /**
+     * Drops stale descriptors from the clock once they outnumber the live ones. The caller must
+     * hold the lock.
+     */
+    private void purgeIfNeeded()
+    {
+        if ( clockSize.get() <= 2 * map.size() + chunkSize )
+        {
+            return;
+        }
+
+        for ( Iterator<ClockElementDescriptor<K, V>> itr = clock.iterator(); itr.hasNext(); )
+        {
+            ClockElementDescriptor<K, V> node = itr.next();
+            if ( map.get( node.ce.getKey() ) != node )
+            {
+                itr.remove();
+                clockSize.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * A descriptor carrying the CLOCK reference bit.
+     */
+    private static class ClockElementDescriptor<K, V>
+        extends MemoryElementDescriptor<K, V>
+    {
+        /** Don't change */
+        private static final long serialVersionUID = 3306536862540950563L;
+
+        /** Set on access, cleared by the sweep. */
+        private volatile boolean referenced = false;
+
+        /**
+         * @param ce
+         */
+        public ClockElementDescriptor( ICacheElement<K, V> ce )
+        {
+            super( ce );
+        }
+
+        /**
+         * Sets the reference bit. Skips the write if already set to avoid dirtying the cache line
+         * on every hit.
+         */
+        public void markReferenced()
+        {
+            if ( !referenced )
+            {
+                referenced = true;
+            }
+        }
+
+        /**
+         * Clears the reference bit.
+         * <p>
+         * @return whether it was set
+         */
+        public boolean clearReferenced()
+        {
+            if ( referenced )
+            {
+                referenced = false;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package org.apache.commons.jcs.engine.memory.shrinking;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+
+/**
+ * A hierarchical timing wheel holding the next expiration time of the elements of a memory
+ * cache. The shrinker asks the wheel for the keys that became due since its last run instead of
+ * scanning the whole key set, so a shrinker run costs time proportional to the number of expired
+ * elements rather than the number of cached elements.
+ * <p>
+ * Time is divided into ticks. The wheel has {@link #LEVELS} levels of {@link #SLOTS} slots; a
+ * slot on level n covers SLOTS^n ticks. Entries due within the next SLOTS ticks live on level 0,
+ * entries further away live on a higher level and are cascaded down when the wheel reaches their
+ * slot. Scheduling, rescheduling and cancelling are constant time.
+ * <p>
+ * The deadlines are hints. An element whose last access time changed after it was scheduled is
+ * handed out at its old deadline and the caller is expected to check the element again and
+ * reschedule it. Keys are spread over several independently locked shards so that concurrent
+ * updates of different keys rarely contend.
+ */
+public class ExpirationWheel<K>
+{
+    /** Number of slots per level, a power of two */
+    public static final int SLOTS = 64;
+
+    /** Number of levels */
+    public static final int LEVELS = 5;
+
+    /** Bits per level */
+    private static final int SLOT_BITS = 6;
+
+    /** Mask of a slot index */
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /** The farthest tick that can be represented, further deadlines are clamped */
+    private static final long MAX_DELTA = ( 1L << ( SLOT_BITS * LEVELS ) ) - 1;
+
+    /** Length of a tick in milliseconds */
+    private final long tickMillis;
+
+    /** Time of tick 0 */
+    private final long startTime;
+
+    /** The shards */
+    private final Shard<K>[] shards;
+
+    /** Number of shards - 1 */
+    private final int shardMask;
+
+    /**
+     * Creates a wheel with a one second tick and a shard per available processor.
+     */
+    public ExpirationWheel()
+    {
+        this( 1000, Runtime.getRuntime().availableProcessors(), System.currentTimeMillis() );
+    }
+
+    /**
+     * Creates a wheel.
+     * <p>
+     * @param tickMillis length of a tick in milliseconds
+     * @param shardCount minimum number of shards
+     * @param startTime the time of tick 0, usually now
+     */
+    @SuppressWarnings("unchecked") // No generic arrays in java
+    public ExpirationWheel( long tickMillis, int shardCount, long startTime )
+    {
+        if ( tickMillis <= 0 )
+        {
+            throw new IllegalArgumentException( "tickMillis must be positive" );
+        }
+        this.tickMillis = tickMillis;
+        this.startTime = startTime;
+
+        int size = 1;
+        while ( size < shardCount )
+        {
+            size <<= 1;
+        }
+        this.shardMask = size - 1;
+        this.shards = new Shard[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            shards[i] = new Shard<K>();
+        }
+    }
+
+    /**
+     * Computes the time at which the shrinker has to look at an element again: the earliest of
+     * the max life and idle time expiration of the element and the memory idle time of the region.
+     * <p>
+     * @param attributes the element attributes
+     * @param maxMemoryIdleTime the memory idle time of the region in milliseconds, -1 for none
+     * @return the deadline in milliseconds, Long.MAX_VALUE if the element never needs attention
+     */
+    public static long getDeadline( IElementAttributes attributes, long maxMemoryIdleTime )
+    {
+        long deadline = Long.MAX_VALUE;
+        long lastAccessTime = attributes.getLastAccessTime();
+
+        if ( !attributes.getIsEternal() )
+        {
+            long timeFactor = attributes.getTimeFactorForMilliseconds();
+            long maxLife = attributes.getMaxLife();
+            if ( maxLife != -1 )
+            {
+                deadline = Math.min( deadline, attributes.getCreateTime() + maxLife * timeFactor );
+            }
+            long idleTime = attributes.getIdleTime();
+            if ( idleTime != -1 )
+            {
+                deadline = Math.min( deadline, lastAccessTime + idleTime * timeFactor );
+            }
+        }
+
+        if ( maxMemoryIdleTime != -1 )
+        {
+            deadline = Math.min( deadline, lastAccessTime + maxMemoryIdleTime );
+        }
+
+        return deadline;
+    }
+
+    /**
+     * Schedules the key, replacing any earlier deadline of the same key.
+     * <p>
+     * @param key the key
+     * @param deadline the time in milliseconds, Long.MAX_VALUE cancels the key
+     */
+    public void schedule( K key, long deadline )
+    {
+        schedule( key, deadline, true );
+    }
+
+    /**
+     * Schedules the key unless it is already scheduled. Used to put back a key handed out by
+     * {@link #advance(long)} without overriding a deadline set by a concurrent update.
+     * <p>
+     * @param key the key
+     * @param deadline the time in milliseconds
+     */
+    public void scheduleIfAbsent( K key, long deadline )
+    {
+        schedule( key, deadline, false );
+    }
+
+    /**
+     * Removes the key from the wheel.
+     * <p>
+     * @param key the key
+     */
+    public void cancel( K key )
+    {
+        Shard<K> shard = shardFor( key );
+        shard.lock.lock();
+        try
+        {
+            Entry<K> entry = shard.index.remove( key );
+            if ( entry != null )
+            {
+                entry.unlink();
+            }
+        }
+        finally
+        {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all keys.
+     */
+    public void clear()
+    {
+        for ( Shard<K> shard : shards )
+        {
+            shard.lock.lock();
+            try
+            {
+                shard.index.clear();
+                for ( int level = 0; level < LEVELS; level++ )
+                {
+                    for ( int slot = 0; slot < SLOTS; slot++ )
+                    {
+                        shard.wheel[level][slot].clear();
+                    }
+                }
+            }
+            finally
+            {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the number of scheduled keys
+     */
+    public int size()
+    {
+        int size = 0;
+        for ( Shard<K> shard : shards )
+        {
+            shard.lock.lock();
+            try
+            {
+                size += shard.index.size();
+            }
+            finally
+            {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Moves the wheel forward to the given time and removes the keys whose deadline has passed.
+     * The returned keys are no longer scheduled.
+     * <p>
+     * @param now the current time in milliseconds
+     * @return the keys that became due, possibly empty
+     */
+    public List<K> advance( long now )
+    {
+        long target = tickOf( now );
+        List<K> due = new ArrayList<K>();
+        for ( Shard<K> shard : shards )
+        {
+            shard.lock.lock();
+            try
+            {
+                shard.advance( target, due );
+            }
+            finally
+            {
+                shard.lock.unlock();
+            }
+        }
+        return due;
+    }
+
+    /**
+     * @param key the key
+     * @param deadline the time in milliseconds
+     * @param replace whether to replace an existing deadline
+     */
+    private void schedule( K key, long deadline, boolean replace )
+    {
+        Shard<K> shard = shardFor( key );
+        shard.lock.lock();
+        try
+        {
+            Entry<K> entry = shard.index.get( key );
+            if ( entry != null )
+            {
+                if ( !replace )
+                {
+                    return;
+                }
+                entry.unlink();
+            }
+
+            if ( deadline == Long.MAX_VALUE )
+            {
+                if ( entry != null )
+                {
+                    shard.index.remove( key );
+                }
+                return;
+            }
+
+            if ( entry == null )
+            {
+                entry = new Entry<K>( key );
+                shard.index.put( key, entry );
+            }
+
+            // the element expires once the clock is past the deadline, so the first tick
+            // that can see it expired is the one after the tick containing the deadline
+            entry.tick = tickOf( deadline ) + 1;
+            shard.insert( entry );
+        }
+        finally
+        {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * @param time milliseconds
+     * @return the tick containing the time
+     */
+    private long tickOf( long time )
+    {
+        return time <= startTime ? 0 : ( time - startTime ) / tickMillis;
+    }
+
+    /**
+     * @param key
+     * @return the shard responsible for the key
+     */
+    private Shard<K> shardFor( Object key )
+    {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= ( h >>> 20 ) ^ ( h >>> 12 );
+        h ^= ( h >>> 7 ) ^ ( h >>> 4 );
+        return shards[h & shardMask];
+    }
+
+    /**
+     * An independently locked wheel for a subset of the keys.
+     */
+    private static class Shard<K>
+    {
+        /** Guards the shard */
+        final ReentrantLock lock = new ReentrantLock();
+
+        /** Entries by key */
+        final Map<K, Entry<K>> index = new HashMap<K, Entry<K>>();
+
+        /** The slot lists, [level][slot] */
+        final Entry<K>[][] wheel;
+
+        /** The last tick processed */
+        long currentTick = 0;
+
+        /**
+         * Creates the empty slot lists.
+         */
+        @SuppressWarnings("unchecked") // No generic arrays in java
+        Shard()
+        {
+            wheel = new Entry[LEVELS][SLOTS];
+            for ( int level = 0; level < LEVELS; level++ )
+            {
+                for ( int slot = 0; slot < SLOTS; slot++ )
+                {
+                    wheel[level][slot] = new Entry<K>( null );
+                }
+            }
+        }
+
+        /**
+         * Puts the entry into the slot matching its tick.
+         * <p>
+         * @param entry
+         */
+        void insert( Entry<K> entry )
+        {
+            long delta = entry.tick - currentTick;
+            if ( delta < 1 )
+            {
+                entry.tick = currentTick + 1;
+                delta = 1;
+            }
+            else if ( delta > MAX_DELTA )
+            {
+                // rechecked and pushed further out when it comes due
+                entry.tick = currentTick + MAX_DELTA;
+                delta = MAX_DELTA;
+            }
+
+            int level = 0;
+            while ( level < LEVELS - 1 && delta >= ( 1L << ( SLOT_BITS * ( level + 1 ) ) ) )
+            {
+                level++;
+            }
+            int slot = (int) ( ( entry.tick >>> ( SLOT_BITS * level ) ) & SLOT_MASK );
+            wheel[level][slot].add( entry );
+        }
+
+        /**
+         * Processes the ticks up to and including the target.
+         * <p>
+         * @param target the tick to advance to
+         * @param due receives the keys of the due entries
+         */
+        void advance( long target, List<K> due )
+        {
+            if ( index.isEmpty() )
+            {
+                // nothing to cascade, jump ahead
+                if ( target > currentTick )
+                {
+                    currentTick = target;
+                }
+                return;
+            }
+
+            while ( currentTick < target )
+            {
+                currentTick++;
+
+                // bring down the entries of the higher level slots starting now
+                for ( int level = LEVELS - 1; level > 0; level-- )
+                {
+                    if ( ( currentTick & ( ( 1L << ( SLOT_BITS * level ) ) - 1 ) ) == 0 )
+                    {
+                        int slot = (int) ( ( currentTick >>> ( SLOT_BITS * level ) ) & SLOT_MASK );
+                        Entry<K> head = wheel[level][slot];
+                        Entry<K> entry = head.next;
+                        head.clear();
+                        while ( entry != head )
+                        {
+                            Entry<K> next = entry.next;
+                            insertOrExpire( entry, due );
+                            entry = next;
+                        }
+                    }
+                }
+
+                Entry<K> head = wheel[0][(int) ( currentTick & SLOT_MASK )];
+                Entry<K> entry = head.next;
+                head.clear();
+                while ( entry != head )
+                {
+                    Entry<K> next = entry.next;
+                    expire( entry, due );
+                    entry = next;
+                }
+
+                if ( index.isEmpty() && currentTick < target )
+                {
+                    currentTick = target;
+                }
+            }
+        }
+
+        /**
+         * Re-inserts a cascaded entry or expires it if it is due now.
+         * <p>
+         * @param entry
+         * @param due
+         */
+        private void insertOrExpire( Entry<K> entry, List<K> due )
+        {
+            if ( entry.tick <= currentTick )
+            {
+                expire( entry, due );
+            }
+            else
+            {
+                entry.prev = entry.next = entry;
+                insert( entry );
+            }
+        }
+
+        /**
+         * @param entry
+         * @param due
+         */
+        private void expire( Entry<K> entry, List<K> due )
+        {
+            entry.prev = entry.next = entry;
+            index.remove( entry.key );
+            due.add( entry.key );
+        }
+    }
+
+    /**
+     * A node in a circular doubly linked slot list. The list head is an entry without key.
+     */
+    private static class Entry<K>
+    {
+        /** The key */
+        final K key;
+
+        /** The tick at which the entry is due */
+        long tick;
+
+        /** Previous entry in the slot */
+        Entry<K> prev = this;
+
+        /** Next entry in the slot */
+        Entry<K> next = this;
+
+        /**
+         * @param key
+         */
+        Entry( K key )
+        {
+            this.key = key;
+        }
+
+        /**
+         * Appends the entry to the list headed by this entry.
+         * <p>
+         * @param entry
+         */
+        void add( Entry<K> entry )
+        {
+            entry.prev = prev;
+            entry.next = this;
+            prev.next = entry;
+            prev = entry;
+        }
+
+        /**
+         * Removes this entry from its list.
+         */
+        void unlink()
+        {
+            prev.next = next;
+            next.prev = prev;
+            prev = next = this;
+        }
+
+        /**
+         * Empties the list headed by this entry.
+         */
+        void clear()
+        {
+            prev = next = this;
+        }
+    }
+}
@@ -27,11 +27,15 @@ import org.apache.commons.jcs.engine.memory.behavior.IMemoryCache;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.util.List;
 import java.util.Set;
 
 /**
  * A background memory shrinker. Memory problems and concurrent modification exception caused by
  * acting directly on an iterator of the underlying memory cache should have been solved.
+ * <p>
+ * If the region maintains an {@link ExpirationWheel} only the elements handed out by the wheel
+ * are examined, otherwise every key of the memory cache is checked.
  * @version $Id$
  */
 public class ShrinkerThread<K, V>
@@ -113,6 +117,13 @@ public class ShrinkerThread<K, V>
             log.debug( "Shrinking memory cache for: " + this.cache.getCacheName() );
         }
 
+        ExpirationWheel<K> wheel = cache.getExpirationWheel();
+        if ( wheel != null )
+        {
+            shrinkDue( wheel );
+            return;
+        }
+
         IMemoryCache<K, V> memCache = cache.getMemoryCache();
 
         try
@@ -219,4 +230,79 @@ public class ShrinkerThread<K, V>
             return;
         }
     }
+
+    /**
+     * Examines the elements whose deadline passed according to the wheel. Expired elements are
+     * removed, elements idle for longer than the memory idle time are spooled. Elements that have
+     * been accessed since they were scheduled are scheduled again for their new deadline, as are
+     * those left over when the spool limit is reached.
+     * <p>
+     * @param wheel the expiration wheel of the region
+     */
+    protected void shrinkDue( ExpirationWheel<K> wheel )
+    {
+        IMemoryCache<K, V> memCache = cache.getMemoryCache();
+        long now = System.currentTimeMillis();
+        List<K> due = wheel.advance( now );
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Due keys: " + due.size() );
+        }
+
+        int spoolCount = 0;
+
+        for ( K key : due )
+        {
+            try
+            {
+                ICacheElement<K, V> cacheElement = memCache.getQuiet( key );
+
+                if ( cacheElement == null )
+                {
+                    // removed or spooled in the meantime
+                    continue;
+                }
+
+                IElementAttributes attributes = cacheElement.getElementAttributes();
+
+                if ( !attributes.getIsEternal()
+                    && cache.isExpired( cacheElement, now,
+                                        ElementEventType.EXCEEDED_MAXLIFE_BACKGROUND,
+                                        ElementEventType.EXCEEDED_IDLETIME_BACKGROUND ) )
+                {
+                    memCache.remove( key );
+                    continue;
+                }
+
+                if ( maxMemoryIdleTime != -1 && attributes.getLastAccessTime() + maxMemoryIdleTime < now )
+                {
+                    if ( spoolLimit && spoolCount >= this.maxSpoolPerRun )
+                    {
+                        // try again on the next run
+                        wheel.scheduleIfAbsent( key, now );
+                        continue;
+                    }
+
+                    if ( log.isDebugEnabled() )
+                    {
+                        log.debug( "Exceeded memory idle time: " + key );
+                    }
+
+                    spoolCount++;
+
+                    memCache.remove( key );
+
+                    memCache.waterfal( cacheElement );
+                    continue;
+                }
+
+                wheel.scheduleIfAbsent( key, ExpirationWheel.getDeadline( attributes, maxMemoryIdleTime ) );
+            }
+            catch ( Throwable t )
+            {
+                log.info( "Unexpected trouble in shrink cycle", t );
+            }
+        }
+    }
 }
@@ -0,0 +1,187 @@
+package org.apache.commons.jcs.engine.memory.tinylfu;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * A count-min sketch estimating how often keys have been seen recently.
+ * <p>
+ * Each key maps to one counter in each of four rows. The counters are four bits wide and sixteen
+ * of them are packed into a long. The estimate is the smallest of the four counters, so it can
+ * only overstate the frequency. Once the number of increments reaches ten times the capacity, all
+ * counters are halved so that old popularity fades.
+ * <p>
+ * This class is not thread safe. The caller must synchronize access.
+ */
+public class FrequencySketch
+{
+    /** Seeds used to pick a counter in each row. */
+    private static final long[] SEEDS = new long[] {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    /** Mask to reset the high bit of every counter while halving. */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /** Mask selecting the low bit of every counter. */
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    /** The counters, four rows of tableLength / 4 longs. */
+    private final long[] table;
+
+    /** Longs per row minus one. A power of two minus one. */
+    private final int rowMask;
+
+    /** Increments after which the counters are halved. */
+    private final int sampleSize;
+
+    /** Increments since the last halving. */
+    private int additions = 0;
+
+    /**
+     * Creates a sketch sized for the given number of cached elements.
+     * <p>
+     * @param capacity the maximum number of elements in the cache
+     */
+    public FrequencySketch( int capacity )
+    {
+        int maximum = Math.max( 1, Math.min( capacity, 1 << 28 ) );
+        int rowLength = Math.max( 1, ceilingPowerOfTwo( maximum ) >>> 4 );
+        this.table = new long[rowLength * SEEDS.length];
+        this.rowMask = rowLength - 1;
+        this.sampleSize = 10 * maximum;
+    }
+
+    /**
+     * Returns the estimated number of occurrences of the key, up to fifteen.
+     * <p>
+     * @param key
+     * @return the estimated frequency
+     */
+    public int frequency( Object key )
+    {
+        int hash = spread( key == null ? 0 : key.hashCode() );
+        int frequency = Integer.MAX_VALUE;
+        for ( int i = 0; i < SEEDS.length; i++ )
+        {
+            int index = indexOf( hash, i );
+            int offset = offsetOf( hash, i );
+            int count = (int) ( ( table[index] >>> offset ) & 0xfL );
+            frequency = Math.min( frequency, count );
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an occurrence of the key. Only the counters holding the current minimum are
+     * incremented (conservative update), which keeps the overestimate small.
+     * <p>
+     * @param key
+     */
+    public void increment( Object key )
+    {
+        int hash = spread( key == null ? 0 : key.hashCode() );
+        int[] indexes = new int[SEEDS.length];
+        int[] offsets = new int[SEEDS.length];
+        int min = Integer.MAX_VALUE;
+        for ( int i = 0; i < SEEDS.length; i++ )
+        {
+            indexes[i] = indexOf( hash, i );
+            offsets[i] = offsetOf( hash, i );
+            min = Math.min( min, (int) ( ( table[indexes[i]] >>> offsets[i] ) & 0xfL ) );
+        }
+
+        if ( min == 15 )
+        {
+            return;
+        }
+
+        for ( int i = 0; i < SEEDS.length; i++ )
+        {
+            if ( ( ( table[indexes[i]] >>> offsets[i] ) & 0xfL ) == min )
+            {
+                table[indexes[i]] += 1L << offsets[i];
+            }
+        }
+
+        if ( ++additions >= sampleSize )
+        {
+            reset();
+        }
+    }
+
+    /**
+     * Halves every counter. The odd counters lose their remainder, which is subtracted from the
+     * addition count.
+     */
+    protected void reset()
+    {
+        int odd = 0;
+        for ( int i = 0; i < table.length; i++ )
+        {
+            odd += Long.bitCount( table[i] & ONE_MASK );
+            table[i] = ( table[i] >>> 1 ) & RESET_MASK;
+        }
+        additions = ( additions >>> 1 ) - ( odd >>> 2 );
+    }
+
+    /**
+     * @param hash the spread hash of the key
+     * @param row the row
+     * @return the index of the long holding the key's counter in the row
+     */
+    private int indexOf( int hash, int row )
+    {
+        long h = ( hash + SEEDS[row] ) * SEEDS[row];
+        h += h >>> 32;
+        return row * ( rowMask + 1 ) + ( (int) h & rowMask );
+    }
+
+    /**
+     * @param hash the spread hash of the key
+     * @param row the row
+     * @return the bit offset of the key's counter within its long
+     */
+    private int offsetOf( int hash, int row )
+    {
+        int h = hash * ( 31 + 2 * row ) ^ ( hash >>> ( 8 + row ) );
+        return ( h & 15 ) << 2;
+    }
+
+    /**
+     * Applies a supplemental hash to defend against poor quality hash codes.
+     * <p>
+     * @param x the key's hash code
+     * @return the spread hash
+     */
+    private static int spread( int x )
+    {
+        x = ( ( x >>> 16 ) ^ x ) * 0x45d9f3b;
+        x = ( ( x >>> 16 ) ^ x ) * 0x45d9f3b;
+        return ( x >>> 16 ) ^ x;
+    }
+
+    /**
+     * @param x a positive value
+     * @return the smallest power of two greater than or equal to x
+     */
+    private static int ceilingPowerOfTwo( int x )
+    {
+        return x <= 1 ? 1 : Integer.highestOneBit( x - 1 ) << 1;
+    }
+}
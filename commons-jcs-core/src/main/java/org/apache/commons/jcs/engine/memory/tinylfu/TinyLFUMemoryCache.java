@@ -0,0 +1,580 @@
+package org.apache.commons.jcs.engine.memory.tinylfu;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.jcs.engine.CacheConstants;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.memory.AbstractMemoryCache;
+import org.apache.commons.jcs.engine.memory.util.MemoryElementDescriptor;
+import org.apache.commons.jcs.engine.stats.StatElement;
+import org.apache.commons.jcs.engine.stats.Stats;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.struct.DoubleLinkedList;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A frequency aware memory cache using the W-TinyLFU policy.
+ * <p>
+ * New elements enter a small LRU window (one percent of MaxObjects). Elements pushed out of the
+ * window are candidates for the main region, a segmented LRU made of a probation segment and a
+ * protected segment (eighty percent of the main region). A hit in probation promotes the element
+ * to protected; overflow from protected is demoted back to probation.
+ * <p>
+ * When the main region is full, a candidate is only admitted if a count-min sketch estimates it
+ * has been accessed more often than the element it would replace, the tail of probation. The
+ * loser is spooled. A burst of one-off keys, such as a scan, therefore passes through the window
+ * without flushing the frequently used elements.
+ */
+public class TinyLFUMemoryCache<K, V>
+    extends AbstractMemoryCache<K, V>
+{
+    /** The logger */
+    private static final Log log = LogFactory.getLog( TinyLFUMemoryCache.class );
+
+    /** Percentage of MaxObjects given to the window. */
+    private static final int WINDOW_PERCENT = 1;
+
+    /** Percentage of the main region given to the protected segment. */
+    private static final int PROTECTED_PERCENT = 80;
+
+    /** Recently added elements. */
+    private DoubleLinkedList<TinyLFUElementDescriptor<K, V>> window;
+
+    /** Main region elements seen once since admission. */
+    private DoubleLinkedList<TinyLFUElementDescriptor<K, V>> probation;
+
+    /** Main region elements hit since admission. */
+    private DoubleLinkedList<TinyLFUElementDescriptor<K, V>> protectedSegment;
+
+    /** Access frequency estimates. */
+    private FrequencySketch sketch;
+
+    /** Maximum size of the window. */
+    private int maxWindow;
+
+    /** Maximum size of the main region. */
+    private int maxMain;
+
+    /** Maximum size of the protected segment. */
+    private int maxProtected;
+
+    /** number of hits */
+    private int hitCnt = 0;
+
+    /** number of misses */
+    private int missCnt = 0;
+
+    /** number of puts */
+    private int putCnt = 0;
+
+    /** candidates admitted to the main region in place of a victim */
+    private int admittedCnt = 0;
+
+    /** candidates rejected by the admission filter */
+    private int rejectedCnt = 0;
+
+    /**
+     * For post reflection creation initialization
+     * <p>
+     * @param hub
+     */
+    @Override
+    public void initialize( CompositeCache<K, V> hub )
+    {
+        super.initialize( hub );
+
+        lock.lock();
+        try
+        {
+            int max = Math.max( 0, this.cacheAttributes.getMaxObjects() );
+            maxWindow = max == 0 ? 0 : Math.max( 1, max * WINDOW_PERCENT / 100 );
+            maxMain = max - maxWindow;
+            maxProtected = maxMain * PROTECTED_PERCENT / 100;
+
+            window = new DoubleLinkedList<TinyLFUElementDescriptor<K, V>>();
+            probation = new DoubleLinkedList<TinyLFUElementDescriptor<K, V>>();
+            protectedSegment = new DoubleLinkedList<TinyLFUElementDescriptor<K, V>>();
+            sketch = new FrequencySketch( max );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "initialized TinyLFUMemoryCache for " + getCacheName() + ", window = " + maxWindow
+                + ", main = " + maxMain + ", protected = " + maxProtected );
+        }
+    }
+
+    /**
+     * Returns a concurrent map.
+     * <p>
+     * @return Map
+     */
+    @Override
+    public Map<K, MemoryElementDescriptor<K, V>> createMap()
+    {
+        return new ConcurrentHashMap<K, MemoryElementDescriptor<K, V>>();
+    }
+
+    /**
+     * Puts an item to the cache. A new element goes to the front of the window; a replaced element
+     * keeps its segment.
+     * <p>
+     * @param ce Description of the Parameter
+     * @throws IOException
+     */
+    @Override
+    public void update( ICacheElement<K, V> ce )
+        throws IOException
+    {
+        lock.lock();
+        try
+        {
+            putCnt++;
+            sketch.increment( ce.getKey() );
+
+            TinyLFUElementDescriptor<K, V> newNode = new TinyLFUElementDescriptor<K, V>( ce );
+            @SuppressWarnings("unchecked") // Only our descriptors are stored
+            TinyLFUElementDescriptor<K, V> oldNode = (TinyLFUElementDescriptor<K, V>) map.put( ce.getKey(), newNode );
+
+            if ( oldNode != null )
+            {
+                listFor( oldNode.segment ).remove( oldNode );
+                newNode.segment = oldNode.segment;
+                listFor( newNode.segment ).addFirst( newNode );
+                return;
+            }
+
+            newNode.segment = Segment.WINDOW;
+            window.addFirst( newNode );
+
+            while ( window.size() > maxWindow )
+            {
+                admit( window.removeLast() );
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get an item from the cache. A hit moves the element forward in its segment, promoting it
+     * from probation to protected.
+     * <p>
+     * @param key Identifies item to find
+     * @return ICacheElement<K, V> if found, else null
+     * @throws IOException
+     */
+    @Override
+    public ICacheElement<K, V> get( K key )
+        throws IOException
+    {
+        ICacheElement<K, V> ce = null;
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( getCacheName() + ": getting item for key " + key );
+        }
+
+        lock.lock();
+        try
+        {
+            sketch.increment( key );
+
+            @SuppressWarnings("unchecked") // Only our descriptors are stored
+            TinyLFUElementDescriptor<K, V> node = (TinyLFUElementDescriptor<K, V>) map.get( key );
+
+            if ( node == null )
+            {
+                missCnt++;
+
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( getCacheName() + ": TinyLFUMemoryCache miss for " + key );
+                }
+            }
+            else
+            {
+                hitCnt++;
+                ce = node.ce;
+
+                switch ( node.segment )
+                {
+                    case WINDOW:
+                        window.makeFirst( node );
+                        break;
+                    case PROBATION:
+                        probation.remove( node );
+                        node.segment = Segment.PROTECTED;
+                        protectedSegment.addFirst( node );
+                        while ( protectedSegment.size() > maxProtected )
+                        {
+                            TinyLFUElementDescriptor<K, V> demoted = protectedSegment.removeLast();
+                            demoted.segment = Segment.PROBATION;
+                            probation.addFirst( demoted );
+                        }
+                        break;
+                    default:
+                        protectedSegment.makeFirst( node );
+                        break;
+                }
+
+                if ( log.isDebugEnabled() )
+                {
+                    log.debug( getCacheName() + ": TinyLFUMemoryCache hit for " + key );
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return ce;
+    }
+
+    /**
+     * Removes an item from the cache. This method handles hierarchical removal. If the key is a
+     * String and ends with the CacheConstants.NAME_COMPONENT_DELIMITER, then all items with keys
+     * starting with the argument String will be removed.
+     * <p>
+     * @param key
+     * @return true if removed
+     * @throws IOException
+     */
+    @Override
+    public boolean remove( K key )
+        throws IOException
+    {
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "removing item for key: " + key );
+        }
+
+        boolean removed = false;
+
+        lock.lock();
+        try
+        {
+            // handle partial removal
+            if ( key instanceof String && ( (String) key ).endsWith( CacheConstants.NAME_COMPONENT_DELIMITER ) )
+            {
+                // remove all keys of the same name hierarchy.
+                for (Iterator<Map.Entry<K, MemoryElementDescriptor<K, V>>> itr = map.entrySet().iterator(); itr.hasNext(); )
+                {
+                    Map.Entry<K, MemoryElementDescriptor<K, V>> entry = itr.next();
+                    K k = entry.getKey();
+
+                    if ( k instanceof String && ( (String) k ).startsWith( key.toString() ) )
+                    {
+                        unlink( entry.getValue() );
+                        itr.remove();
+                        removed = true;
+                    }
+                }
+            }
+            else if ( key instanceof GroupAttrName && ((GroupAttrName<?>)key).attrName == null )
+            {
+                // remove all keys of the same name hierarchy.
+                for (Iterator<Map.Entry<K, MemoryElementDescriptor<K, V>>> itr = map.entrySet().iterator(); itr.hasNext(); )
+                {
+                    Map.Entry<K, MemoryElementDescriptor<K, V>> entry = itr.next();
+                    K k = entry.getKey();
+
+                    if ( k instanceof GroupAttrName &&
+                        ((GroupAttrName<?>)k).groupId.equals(((GroupAttrName<?>)key).groupId) )
+                    {
+                        unlink( entry.getValue() );
+                        itr.remove();
+                        removed = true;
+                    }
+                }
+            }
+            else
+            {
+                // remove single item.
+                MemoryElementDescriptor<K, V> me = map.remove( key );
+                if ( me != null )
+                {
+                    unlink( me );
+                    removed = true;
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return removed;
+    }
+
+    /**
+     * Removes all cached items from the cache. The frequency history is kept.
+     * <p>
+     * @throws IOException
+     */
+    @Override
+    public void removeAll()
+        throws IOException
+    {
+        lock.lock();
+        try
+        {
+            window.removeAll();
+            probation.removeAll();
+            protectedSegment.removeAll();
+            map.clear();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get an Array of the keys for all elements in the memory cache
+     * <p>
+     * @return An Object[]
+     */
+    @Override
+    public Set<K> getKeySet()
+    {
+        return new LinkedHashSet<K>( map.keySet() );
+    }
+
+    /**
+     * Spools elements from the tail of probation, then protected, then the window.
+     * <p>
+     * @param numberToFree
+     * @return the number that were removed.
+     * @throws IOException
+     */
+    @Override
+    public int freeElements( int numberToFree )
+        throws IOException
+    {
+        int freed = 0;
+
+        lock.lock();
+        try
+        {
+            for ( ; freed < numberToFree; freed++ )
+            {
+                TinyLFUElementDescriptor<K, V> node = probation.getLast();
+                if ( node == null )
+                {
+                    node = protectedSegment.getLast();
+                }
+                if ( node == null )
+                {
+                    node = window.getLast();
+                }
+                if ( node == null )
+                {
+                    break;
+                }
+
+                listFor( node.segment ).remove( node );
+                evict( node );
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return freed;
+    }
+
+    /**
+     * This returns semi-structured information on the memory cache, such as the size, put count,
+     * hit count, and miss count.
+     * <p>
+     * @return IStats
+     */
+    @Override
+    public IStats getStatistics()
+    {
+        IStats stats = new Stats();
+        stats.setTypeName( "TinyLFU Memory Cache" );
+
+        List<IStatElement<?>> elems = new ArrayList<IStatElement<?>>();
+
+        lock.lock();
+        try
+        {
+            elems.add(new StatElement<Integer>( "Map Size", Integer.valueOf(map.size()) ) );
+            elems.add(new StatElement<Integer>( "Window Size", Integer.valueOf(window.size()) ) );
+            elems.add(new StatElement<Integer>( "Probation Size", Integer.valueOf(probation.size()) ) );
+            elems.add(new StatElement<Integer>( "Protected Size", Integer.valueOf(protectedSegment.size()) ) );
+            elems.add(new StatElement<Integer>( "Put Count", Integer.valueOf(putCnt) ) );
+            elems.add(new StatElement<Integer>( "Hit Count", Integer.valueOf(hitCnt) ) );
+            elems.add(new StatElement<Integer>( "Miss Count", Integer.valueOf(missCnt) ) );
+            elems.add(new StatElement<Integer>( "Admitted Count", Integer.valueOf(admittedCnt) ) );
+            elems.add(new StatElement<Integer>( "Rejected Count", Integer.valueOf(rejectedCnt) ) );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        stats.setStatElements( elems );
+
+        return stats;
+    }
+
+    /**
+     * Moves a candidate leaving the window into probation. If the main region is full, the
+     * candidate competes with the tail of probation and the less frequent one is spooled. The
+     * caller must hold the lock.
+     * <p>
+     * @param candidate the element pushed out of the window
+     */
+    private void admit( TinyLFUElementDescriptor<K, V> candidate )
+    {
+        if ( probation.size() + protectedSegment.size() < maxMain )
+        {
+            candidate.segment = Segment.PROBATION;
+            probation.addFirst( candidate );
+            return;
+        }
+
+        TinyLFUElementDescriptor<K, V> victim = probation.getLast();
+        if ( victim == null )
+        {
+            victim = protectedSegment.getLast();
+        }
+
+        if ( victim == null
+            || sketch.frequency( candidate.ce.getKey() ) <= sketch.frequency( victim.ce.getKey() ) )
+        {
+            rejectedCnt++;
+            evict( candidate );
+            return;
+        }
+
+        admittedCnt++;
+        listFor( victim.segment ).remove( victim );
+        evict( victim );
+
+        candidate.segment = Segment.PROBATION;
+        probation.addFirst( candidate );
+    }
+
+    /**
+     * Spools an element that is no longer in any segment and removes it from the map. The caller
+     * must hold the lock.
+     * <p>
+     * @param node
+     */
+    private void evict( TinyLFUElementDescriptor<K, V> node )
+    {
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( getCacheName() + ": spooling key " + node.ce.getKey() );
+        }
+
+        // spool before removing so that the element is always visible in memory or purgatory
+        cache.spoolToDisk( node.ce );
+        map.remove( node.ce.getKey() );
+    }
+
+    /**
+     * Removes a descriptor from its segment. The caller must hold the lock.
+     * <p>
+     * @param me
+     */
+    @SuppressWarnings("unchecked") // Only our descriptors are stored
+    private void unlink( MemoryElementDescriptor<K, V> me )
+    {
+        TinyLFUElementDescriptor<K, V> node = (TinyLFUElementDescriptor<K, V>) me;
+        listFor( node.segment ).remove( node );
+    }
+
+    /**
+     * @param segment
+     * @return the list holding the segment
+     */
+    private DoubleLinkedList<TinyLFUElementDescriptor<K, V>> listFor( Segment segment )
+    {
+        switch ( segment )
+        {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            default:
+                return protectedSegment;
+        }
+    }
+
+    /** The regions of the cache. */
+    private enum Segment
+    {
+        /** the admission window */
+        WINDOW,
+
+        /** main region, not hit since admission */
+        PROBATION,
+
+        /** main region, hit since admission */
+        PROTECTED
+    }
+
+    /**
+     * A descriptor remembering which segment it is linked in.
+     */
+    private static class TinyLFUElementDescriptor<K, V>
+        extends MemoryElementDescriptor<K, V>
+    {
+        /** Don't change */
+        private static final long serialVersionUID = -6520305318244870383L;
+
+        /** The segment holding this node. Guarded by the cache lock. */
+        Segment segment;
+
+        /**
+         * @param ce
+         */
+        public TinyLFUElementDescriptor( ICacheElement<K, V> ce )
+        {
+            super( ce );
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.jcs.io;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An output stream writing into a buffer borrowed from a {@link ByteBufferPool}. The buffer is
+ * replaced by a larger one from the pool when it fills up. Serializers write into it through
+ * {@link org.apache.commons.jcs.engine.behavior.IElementSerializer#serializeTo(Object, OutputStream)},
+ * the caller then hands the written bytes to a channel and releases the buffer.
+ * <p>
+ * Closing the stream does not release the buffer, so the stream can be wrapped by object
+ * streams that close it. Call {@link #release()} when done.
+ */
+public class ByteBufferOutputStream extends OutputStream
+{
+    /** Where the buffers come from */
+    private final ByteBufferPool pool;
+
+    /** The current buffer, position is the number of bytes written */
+    private ByteBuffer buffer;
+
+    /**
+     * @param pool the pool to borrow from
+     * @param initialSize the expected number of bytes
+     */
+    public ByteBufferOutputStream( ByteBufferPool pool, int initialSize )
+    {
+        this.pool = pool;
+        this.buffer = pool.acquire( Math.max( 16, initialSize ) );
+        buffer.limit( buffer.capacity() );
+    }
+
+    @Override
+    public void write( int b )
+    {
+        ensureRemaining( 1 );
+        buffer.put( (byte) b );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len )
+    {
+        ensureRemaining( len );
+        buffer.put( b, off, len );
+    }
+
+    /**
+     * Writes four bytes, big endian.
+     * <p>
+     * @param v
+     */
+    public void writeInt( int v )
+    {
+        ensureRemaining( 4 );
+        buffer.putInt( v );
+    }
+
+    /**
+     * Overwrites four bytes written earlier, for instance a length header.
+     * <p>
+     * @param pos offset of the int
+     * @param v the value
+     */
+    public void putInt( int pos, int v )
+    {
+        buffer.putInt( pos, v );
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public int size()
+    {
+        return buffer.position();
+    }
+
+    /**
+     * Returns a view of the written bytes, from position 0 to {@link #size()}. The view shares
+     * the buffer and is valid until the next write or {@link #release()}.
+     * <p>
+     * @return the written bytes
+     */
+    public ByteBuffer getByteBuffer()
+    {
+        ByteBuffer view = buffer.duplicate();
+        view.flip();
+        return view;
+    }
+
+    /**
+     * Returns the buffer to the pool.
+     */
+    public void release()
+    {
+        if ( buffer != null )
+        {
+            pool.release( buffer );
+            buffer = null;
+        }
+    }
+
+    /**
+     * Moves to a larger buffer if needed.
+     * <p>
+     * @param extra the number of bytes about to be written
+     */
+    private void ensureRemaining( int extra )
+    {
+        if ( buffer.remaining() < extra )
+        {
+            int needed = buffer.position() + extra;
+            ByteBuffer bigger = pool.acquire( Math.max( buffer.capacity() << 1, needed ) );
+            bigger.limit( bigger.capacity() );
+            buffer.flip();
+            bigger.put( buffer );
+            pool.release( buffer );
+            buffer = bigger;
+        }
+    }
+}
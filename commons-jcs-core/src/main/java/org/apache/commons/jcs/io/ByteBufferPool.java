@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.jcs.io;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of byte buffers in power of two size classes. Serializers and the disk caches borrow
+ * buffers for the duration of a write or read instead of allocating arrays per element.
+ * <p>
+ * Requests larger than the largest size class are allocated and dropped on release. The total
+ * capacity of the idle buffers is bounded, buffers released beyond it are left to the garbage
+ * collector.
+ */
+public class ByteBufferPool
+{
+    /** Smallest size class, 2^MIN_SHIFT bytes */
+    private static final int MIN_SHIFT = 8;
+
+    /** Shared pool of direct buffers up to 1 MB, keeping at most 16 MB idle */
+    private static final ByteBufferPool INSTANCE = new ByteBufferPool( 1024 * 1024, 16 * 1024 * 1024, true );
+
+    /** Idle buffers per size class */
+    private final Queue<ByteBuffer>[] classes;
+
+    /** Largest pooled capacity */
+    private final int maxBufferSize;
+
+    /** Upper bound of the capacity of the idle buffers */
+    private final long maxIdleBytes;
+
+    /** Capacity of the idle buffers */
+    private final AtomicLong idleBytes = new AtomicLong();
+
+    /** Whether to allocate direct buffers */
+    private final boolean direct;
+
+    /**
+     * @return the shared pool of direct buffers
+     */
+    public static ByteBufferPool getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * @param maxBufferSize larger buffers are not pooled, rounded up to a power of two
+     * @param maxIdleBytes the maximum total capacity of idle buffers
+     * @param direct whether to allocate direct buffers
+     */
+    @SuppressWarnings("unchecked") // No generic arrays in java
+    public ByteBufferPool( int maxBufferSize, long maxIdleBytes, boolean direct )
+    {
+        int count = Math.max( 1, shiftFor( maxBufferSize ) - MIN_SHIFT + 1 );
+        this.classes = new Queue[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            classes[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+        }
+        this.maxBufferSize = 1 << ( MIN_SHIFT + count - 1 );
+        this.maxIdleBytes = maxIdleBytes;
+        this.direct = direct;
+    }
+
+    /**
+     * Borrows a cleared buffer. The capacity is at least the requested size, the limit is set to
+     * the requested size.
+     * <p>
+     * @param size the number of bytes needed
+     * @return a buffer, big endian
+     */
+    public ByteBuffer acquire( int size )
+    {
+        ByteBuffer buffer = null;
+        if ( size <= maxBufferSize )
+        {
+            int index = Math.max( 0, shiftFor( size ) - MIN_SHIFT );
+            buffer = classes[index].poll();
+            if ( buffer != null )
+            {
+                idleBytes.addAndGet( -buffer.capacity() );
+                buffer.clear();
+            }
+            else
+            {
+                buffer = allocate( 1 << ( index + MIN_SHIFT ) );
+            }
+        }
+        else
+        {
+            buffer = allocate( size );
+        }
+        buffer.limit( size );
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire(int)}. The caller must not use it afterwards.
+     * <p>
+     * @param buffer the buffer, null is ignored
+     */
+    public void release( ByteBuffer buffer )
+    {
+        if ( buffer == null || buffer.isDirect() != direct )
+        {
+            return;
+        }
+        int capacity = buffer.capacity();
+        if ( capacity > maxBufferSize || capacity < ( 1 << MIN_SHIFT ) || Integer.bitCount( capacity ) != 1 )
+        {
+            return;
+        }
+        if ( idleBytes.addAndGet( capacity ) > maxIdleBytes )
+        {
+            idleBytes.addAndGet( -capacity );
+            return;
+        }
+        classes[shiftFor( capacity ) - MIN_SHIFT].offer( buffer );
+    }
+
+    /**
+     * @return the capacity of the idle buffers
+     */
+    public long getIdleBytes()
+    {
+        return idleBytes.get();
+    }
+
+    /**
+     * @param capacity
+     * @return a new buffer
+     */
+    private ByteBuffer allocate( int capacity )
+    {
+        return direct ? ByteBuffer.allocateDirect( capacity ) : ByteBuffer.allocate( capacity );
+    }
+
+    /**
+     * @param size a positive size
+     * @return the exponent of the smallest power of two not less than size
+     */
+    private static int shiftFor( int size )
+    {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros( size - 1 );
+    }
+}
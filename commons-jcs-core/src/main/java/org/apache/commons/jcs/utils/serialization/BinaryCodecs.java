@@ -0,0 +1,457 @@
+package org.apache.commons.jcs.utils.serialization;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.CacheElementSerialized;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.control.group.GroupId;
+
+/**
+ * The codecs the {@link BinarySerializer} registers by default: boxed primitives, strings, byte
+ * arrays, the group key types and the cache element envelope.
+ */
+final class BinaryCodecs
+{
+    /** Utility class */
+    private BinaryCodecs()
+    {
+        super();
+    }
+
+    /** Strings as UTF-8 */
+    static final class StringCodec
+        implements IBinaryCodec<String>
+    {
+        @Override
+        public Class<String> getType()
+        {
+            return String.class;
+        }
+
+        @Override
+        public void write( String obj, BinaryOutput out )
+        {
+            out.writeString( obj );
+        }
+
+        @Override
+        public String read( BinaryInput in )
+            throws IOException
+        {
+            return in.readString();
+        }
+    }
+
+    /** Integers, variable length */
+    static final class IntegerCodec
+        implements IBinaryCodec<Integer>
+    {
+        @Override
+        public Class<Integer> getType()
+        {
+            return Integer.class;
+        }
+
+        @Override
+        public void write( Integer obj, BinaryOutput out )
+        {
+            out.writeVarInt( obj.intValue() );
+        }
+
+        @Override
+        public Integer read( BinaryInput in )
+            throws IOException
+        {
+            return Integer.valueOf( in.readVarInt() );
+        }
+    }
+
+    /** Longs, variable length */
+    static final class LongCodec
+        implements IBinaryCodec<Long>
+    {
+        @Override
+        public Class<Long> getType()
+        {
+            return Long.class;
+        }
+
+        @Override
+        public void write( Long obj, BinaryOutput out )
+        {
+            out.writeVarLong( obj.longValue() );
+        }
+
+        @Override
+        public Long read( BinaryInput in )
+            throws IOException
+        {
+            return Long.valueOf( in.readVarLong() );
+        }
+    }
+
+    /** Booleans */
+    static final class BooleanCodec
+        implements IBinaryCodec<Boolean>
+    {
+        @Override
+        public Class<Boolean> getType()
+        {
+            return Boolean.class;
+        }
+
+        @Override
+        public void write( Boolean obj, BinaryOutput out )
+        {
+            out.writeBoolean( obj.booleanValue() );
+        }
+
+        @Override
+        public Boolean read( BinaryInput in )
+            throws IOException
+        {
+            return Boolean.valueOf( in.readBoolean() );
+        }
+    }
+
+    /** Doubles */
+    static final class DoubleCodec
+        implements IBinaryCodec<Double>
+    {
+        @Override
+        public Class<Double> getType()
+        {
+            return Double.class;
+        }
+
+        @Override
+        public void write( Double obj, BinaryOutput out )
+        {
+            out.writeDouble( obj.doubleValue() );
+        }
+
+        @Override
+        public Double read( BinaryInput in )
+            throws IOException
+        {
+            return Double.valueOf( in.readDouble() );
+        }
+    }
+
+    /** Floats */
+    static final class FloatCodec
+        implements IBinaryCodec<Float>
+    {
+        @Override
+        public Class<Float> getType()
+        {
+            return Float.class;
+        }
+
+        @Override
+        public void write( Float obj, BinaryOutput out )
+        {
+            out.writeFloat( obj.floatValue() );
+        }
+
+        @Override
+        public Float read( BinaryInput in )
+            throws IOException
+        {
+            return Float.valueOf( in.readFloat() );
+        }
+    }
+
+    /** Shorts */
+    static final class ShortCodec
+        implements IBinaryCodec<Short>
+    {
+        @Override
+        public Class<Short> getType()
+        {
+            return Short.class;
+        }
+
+        @Override
+        public void write( Short obj, BinaryOutput out )
+        {
+            out.writeShort( obj.shortValue() );
+        }
+
+        @Override
+        public Short read( BinaryInput in )
+            throws IOException
+        {
+            return Short.valueOf( in.readShort() );
+        }
+    }
+
+    /** Bytes */
+    static final class ByteCodec
+        implements IBinaryCodec<Byte>
+    {
+        @Override
+        public Class<Byte> getType()
+        {
+            return Byte.class;
+        }
+
+        @Override
+        public void write( Byte obj, BinaryOutput out )
+        {
+            out.writeByte( obj.byteValue() );
+        }
+
+        @Override
+        public Byte read( BinaryInput in )
+            throws IOException
+        {
+            return Byte.valueOf( in.readByte() );
+        }
+    }
+
+    /** Characters */
+    static final class CharacterCodec
+        implements IBinaryCodec<Character>
+    {
+        @Override
+        public Class<Character> getType()
+        {
+            return Character.class;
+        }
+
+        @Override
+        public void write( Character obj, BinaryOutput out )
+        {
+            out.writeChar( obj.charValue() );
+        }
+
+        @Override
+        public Character read( BinaryInput in )
+            throws IOException
+        {
+            return Character.valueOf( in.readChar() );
+        }
+    }
+
+    /** Byte arrays */
+    static final class ByteArrayCodec
+        implements IBinaryCodec<byte[]>
+    {
+        @Override
+        public Class<byte[]> getType()
+        {
+            return byte[].class;
+        }
+
+        @Override
+        public void write( byte[] obj, BinaryOutput out )
+        {
+            out.writeBytes( obj );
+        }
+
+        @Override
+        public byte[] read( BinaryInput in )
+            throws IOException
+        {
+            return in.readBytes();
+        }
+    }
+
+    /** Group ids */
+    static final class GroupIdCodec
+        implements IBinaryCodec<GroupId>
+    {
+        @Override
+        public Class<GroupId> getType()
+        {
+            return GroupId.class;
+        }
+
+        @Override
+        public void write( GroupId obj, BinaryOutput out )
+        {
+            out.writeString( obj.cacheName );
+            out.writeString( obj.groupName );
+        }
+
+        @Override
+        public GroupId read( BinaryInput in )
+            throws IOException
+        {
+            String cacheName = in.readString();
+            return new GroupId( cacheName, in.readString() );
+        }
+    }
+
+    /** Keys of group members */
+    @SuppressWarnings("rawtypes") // the attribute name type is not known
+    static final class GroupAttrNameCodec
+        implements IBinaryCodec<GroupAttrName>
+    {
+        @Override
+        public Class<GroupAttrName> getType()
+        {
+            return GroupAttrName.class;
+        }
+
+        @Override
+        public void write( GroupAttrName obj, BinaryOutput out )
+            throws IOException
+        {
+            out.writeString( obj.groupId.cacheName );
+            out.writeString( obj.groupId.groupName );
+            out.writeValue( obj.attrName );
+        }
+
+        @SuppressWarnings("unchecked") // the attribute name type is not known
+        @Override
+        public GroupAttrName read( BinaryInput in )
+            throws IOException, ClassNotFoundException
+        {
+            String cacheName = in.readString();
+            GroupId groupId = new GroupId( cacheName, in.readString() );
+            return new GroupAttrName( groupId, in.readValue() );
+        }
+    }
+
+    /**
+     * The default element attributes. The event handlers are transient and not written, just as
+     * with standard serialization.
+     */
+    static final class ElementAttributesCodec
+        implements IBinaryCodec<ElementAttributes>
+    {
+        /** Flag bits */
+        private static final int SPOOL = 1, LATERAL = 2, REMOTE = 4, ETERNAL = 8;
+
+        @Override
+        public Class<ElementAttributes> getType()
+        {
+            return ElementAttributes.class;
+        }
+
+        @Override
+        public void write( ElementAttributes obj, BinaryOutput out )
+        {
+            int flags = ( obj.getIsSpool() ? SPOOL : 0 ) | ( obj.getIsLateral() ? LATERAL : 0 )
+                | ( obj.getIsRemote() ? REMOTE : 0 ) | ( obj.getIsEternal() ? ETERNAL : 0 );
+            out.writeByte( flags );
+            out.writeVarLong( obj.getMaxLife() );
+            out.writeVarLong( obj.getIdleTime() );
+            out.writeVarInt( obj.getSize() );
+            out.writeVarLong( obj.getCreateTime() );
+            // usually close to the create time
+            out.writeVarLong( obj.getLastAccessTime() - obj.getCreateTime() );
+            out.writeVarLong( obj.getTimeFactorForMilliseconds() );
+        }
+
+        @Override
+        public ElementAttributes read( BinaryInput in )
+            throws IOException
+        {
+            ElementAttributes attr = new ElementAttributes();
+            int flags = in.readByte();
+            attr.setIsSpool( ( flags & SPOOL ) != 0 );
+            attr.setIsLateral( ( flags & LATERAL ) != 0 );
+            attr.setIsRemote( ( flags & REMOTE ) != 0 );
+            attr.setIsEternal( ( flags & ETERNAL ) != 0 );
+            attr.setMaxLife( in.readVarLong() );
+            attr.setIdleTime( in.readVarLong() );
+            attr.setSize( in.readVarInt() );
+            long createTime = in.readVarLong();
+            attr.setCreateTime( createTime );
+            attr.setLastAccessTime( createTime + in.readVarLong() );
+            attr.setTimeFactorForMilliseconds( in.readVarLong() );
+            return attr;
+        }
+    }
+
+    /** The cache element envelope */
+    @SuppressWarnings("rawtypes") // key and value types are not known
+    static final class CacheElementCodec
+        implements IBinaryCodec<CacheElement>
+    {
+        @Override
+        public Class<CacheElement> getType()
+        {
+            return CacheElement.class;
+        }
+
+        @Override
+        public void write( CacheElement obj, BinaryOutput out )
+            throws IOException
+        {
+            out.writeString( obj.getCacheName() );
+            out.writeValue( obj.getKey() );
+            out.writeValue( obj.getVal() );
+            out.writeValue( obj.getElementAttributes() );
+        }
+
+        @SuppressWarnings("unchecked") // key and value types are not known
+        @Override
+        public CacheElement read( BinaryInput in )
+            throws IOException, ClassNotFoundException
+        {
+            String cacheName = in.readString();
+            Object key = in.readValue();
+            Object val = in.readValue();
+            return new CacheElement( cacheName, key, val, (IElementAttributes) in.readValue() );
+        }
+    }
+
+    /** Elements whose value is already serialized, as sent to remote servers */
+    @SuppressWarnings("rawtypes") // key type is not known
+    static final class CacheElementSerializedCodec
+        implements IBinaryCodec<CacheElementSerialized>
+    {
+        @Override
+        public Class<CacheElementSerialized> getType()
+        {
+            return CacheElementSerialized.class;
+        }
+
+        @Override
+        public void write( CacheElementSerialized obj, BinaryOutput out )
+            throws IOException
+        {
+            out.writeString( obj.getCacheName() );
+            out.writeValue( obj.getKey() );
+            out.writeBytes( obj.getSerializedValue() );
+            out.writeValue( obj.getElementAttributes() );
+        }
+
+        @SuppressWarnings("unchecked") // key type is not known
+        @Override
+        public CacheElementSerialized read( BinaryInput in )
+            throws IOException, ClassNotFoundException
+        {
+            String cacheName = in.readString();
+            Object key = in.readValue();
+            byte[] value = in.readBytes();
+            return new CacheElementSerialized( cacheName, key, value, (IElementAttributes) in.readValue() );
+        }
+    }
+}
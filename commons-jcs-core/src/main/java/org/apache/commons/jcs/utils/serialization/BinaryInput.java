@@ -0,0 +1,313 @@
+package org.apache.commons.jcs.utils.serialization;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads values written to a {@link BinaryOutput} from a buffer. The bytes are read in place, the
+ * position of the buffer is advanced.
+ */
+public final class BinaryInput
+{
+    /** The serializer used for nested values */
+    private final BinarySerializer serializer;
+
+    /** The bytes, big endian */
+    private final ByteBuffer buffer;
+
+    /** Used to load classes of standard serialized values */
+    private final ClassLoader loader;
+
+    /**
+     * @param serializer the serializer used for nested values
+     * @param buffer the bytes, big endian
+     * @param loader the class loader, may be null
+     */
+    BinaryInput( BinarySerializer serializer, ByteBuffer buffer, ClassLoader loader )
+    {
+        this.serializer = serializer;
+        this.buffer = buffer;
+        this.loader = loader;
+    }
+
+    /**
+     * Reads a value written by {@link BinaryOutput#writeValue(Object)}.
+     * <p>
+     * @return the value, may be null
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public Object readValue()
+        throws IOException, ClassNotFoundException
+    {
+        return serializer.readValue( this );
+    }
+
+    /**
+     * @return the class loader for standard serialized values, may be null
+     */
+    public ClassLoader getClassLoader()
+    {
+        return loader;
+    }
+
+    /**
+     * @return the next byte, unsigned
+     * @throws IOException
+     */
+    public int readUnsignedByte()
+        throws IOException
+    {
+        return readByte() & 0xFF;
+    }
+
+    /**
+     * @return the next byte
+     * @throws IOException
+     */
+    public byte readByte()
+        throws IOException
+    {
+        try
+        {
+            return buffer.get();
+        }
+        catch ( BufferUnderflowException e )
+        {
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * @return the value
+     * @throws IOException
+     */
+    public boolean readBoolean()
+        throws IOException
+    {
+        return readByte() != 0;
+    }
+
+    /**
+     * @return the value
+     * @throws IOException
+     */
+    public short readShort()
+        throws IOException
+    {
+        try
+        {
+            return buffer.getShort();
+        }
+        catch ( BufferUnderflowException e )
+        {
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * @return the value
+     * @throws IOException
+     */
+    public char readChar()
+        throws IOException
+    {
+        return (char) readShort();
+    }
+
+    /**
+     * @return the value
+     * @throws IOException
+     */
+    public int readInt()
+        throws IOException
+    {
+        try
+        {
+            return buffer.getInt();
+        }
+        catch ( BufferUnderflowException e )
+        {
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * @return the value
+     * @throws IOException
+     */
+    public long readLong()
+        throws IOException
+    {
+        try
+        {
+            return buffer.getLong();
+        }
+        catch ( BufferUnderflowException e )
+        {
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * @return the value
+     * @throws IOException
+     */
+    public float readFloat()
+        throws IOException
+    {
+        return Float.intBitsToFloat( readInt() );
+    }
+
+    /**
+     * @return the value
+     * @throws IOException
+     */
+    public double readDouble()
+        throws IOException
+    {
+        return Double.longBitsToDouble( readLong() );
+    }
+
+    /**
+     * @return a value written by {@link BinaryOutput#writeVarInt(int)}
+     * @throws IOException
+     */
+    public int readVarInt()
+        throws IOException
+    {
+        long v = readUnsignedVarLong();
+        return (int) ( v >>> 1 ) ^ -(int) ( v & 1 );
+    }
+
+    /**
+     * @return a value written by {@link BinaryOutput#writeVarLong(long)}
+     * @throws IOException
+     */
+    public long readVarLong()
+        throws IOException
+    {
+        long v = readUnsignedVarLong();
+        return ( v >>> 1 ) ^ -( v & 1 );
+    }
+
+    /**
+     * @return a string written by {@link BinaryOutput#writeString(String)}, may be null
+     * @throws IOException
+     */
+    public String readString()
+        throws IOException
+    {
+        int length = readLength();
+        if ( length < 0 )
+        {
+            return null;
+        }
+        if ( buffer.hasArray() )
+        {
+            int pos = buffer.position();
+            buffer.position( pos + length );
+            return new String( buffer.array(), buffer.arrayOffset() + pos, length, BinaryOutput.UTF8 );
+        }
+        byte[] bytes = new byte[length];
+        buffer.get( bytes );
+        return new String( bytes, BinaryOutput.UTF8 );
+    }
+
+    /**
+     * @return a byte array written by {@link BinaryOutput#writeBytes(byte[])}, may be null
+     * @throws IOException
+     */
+    public byte[] readBytes()
+        throws IOException
+    {
+        int length = readLength();
+        if ( length < 0 )
+        {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get( bytes );
+        return bytes;
+    }
+
+    /**
+     * Returns a view of the next bytes and skips them.
+     * <p>
+     * @param length number of bytes
+     * @return a buffer holding exactly these bytes
+     * @throws IOException
+     */
+    ByteBuffer slice( int length )
+        throws IOException
+    {
+        if ( length < 0 || length > buffer.remaining() )
+        {
+            throw new EOFException();
+        }
+        ByteBuffer slice = buffer.slice();
+        slice.limit( length );
+        buffer.position( buffer.position() + length );
+        return slice;
+    }
+
+    /**
+     * Reads the length prefix of a string or array and checks it against the remaining bytes.
+     * <p>
+     * @return the length, -1 for null
+     * @throws IOException
+     */
+    private int readLength()
+        throws IOException
+    {
+        long prefix = readUnsignedVarLong();
+        if ( prefix - 1 > buffer.remaining() )
+        {
+            throw new EOFException( "Length " + ( prefix - 1 ) + " exceeds the remaining "
+                + buffer.remaining() + " bytes" );
+        }
+        return (int) ( prefix - 1 );
+    }
+
+    /**
+     * @return an unsigned variable length value
+     * @throws IOException
+     */
+    private long readUnsignedVarLong()
+        throws IOException
+    {
+        long v = 0;
+        for ( int shift = 0; shift < 64; shift += 7 )
+        {
+            int b = readByte();
+            v |= (long) ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 )
+            {
+                return v;
+            }
+        }
+        throw new StreamCorruptedException( "Malformed variable length number" );
+    }
+}
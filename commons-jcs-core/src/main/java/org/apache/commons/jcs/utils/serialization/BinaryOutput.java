@@ -0,0 +1,327 @@
+package org.apache.commons.jcs.utils.serialization;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * A growable byte array that values are encoded into by the {@link BinarySerializer} and its
+ * codecs. Integers can be written with a variable length encoding, strings as UTF-8 with a length
+ * prefix. The array is exposed so that it can be reused across serializations without copying.
+ */
+public final class BinaryOutput
+    extends OutputStream
+{
+    /** UTF-8 */
+    static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    /** The serializer used for nested values */
+    private final BinarySerializer serializer;
+
+    /** The bytes */
+    private byte[] buf;
+
+    /** Number of bytes written */
+    private int count;
+
+    /**
+     * @param serializer the serializer used for nested values
+     * @param initialSize the initial capacity
+     */
+    BinaryOutput( BinarySerializer serializer, int initialSize )
+    {
+        this.serializer = serializer;
+        this.buf = new byte[Math.max( 16, initialSize )];
+    }
+
+    /**
+     * Writes a value with the codec registered for its class, including the codec id.
+     * <p>
+     * @param value the value, may be null
+     * @throws IOException
+     */
+    public void writeValue( Object value )
+        throws IOException
+    {
+        serializer.writeValue( value, this );
+    }
+
+    /**
+     * @param b the byte to write
+     */
+    @Override
+    public void write( int b )
+    {
+        ensureCapacity( 1 );
+        buf[count++] = (byte) b;
+    }
+
+    /**
+     * Writes the bytes without a length prefix.
+     * <p>
+     * @param b
+     * @param off
+     * @param len
+     */
+    @Override
+    public void write( byte[] b, int off, int len )
+    {
+        ensureCapacity( len );
+        System.arraycopy( b, off, buf, count, len );
+        count += len;
+    }
+
+    /**
+     * @param v
+     */
+    public void writeBoolean( boolean v )
+    {
+        write( v ? 1 : 0 );
+    }
+
+    /**
+     * @param v
+     */
+    public void writeByte( int v )
+    {
+        write( v );
+    }
+
+    /**
+     * @param v
+     */
+    public void writeShort( int v )
+    {
+        ensureCapacity( 2 );
+        buf[count++] = (byte) ( v >>> 8 );
+        buf[count++] = (byte) v;
+    }
+
+    /**
+     * @param v
+     */
+    public void writeChar( int v )
+    {
+        writeShort( v );
+    }
+
+    /**
+     * Writes four bytes, big endian.
+     * <p>
+     * @param v
+     */
+    public void writeInt( int v )
+    {
+        ensureCapacity( 4 );
+        putInt( count, v );
+        count += 4;
+    }
+
+    /**
+     * Writes eight bytes, big endian.
+     * <p>
+     * @param v
+     */
+    public void writeLong( long v )
+    {
+        ensureCapacity( 8 );
+        putInt( count, (int) ( v >>> 32 ) );
+        putInt( count + 4, (int) v );
+        count += 8;
+    }
+
+    /**
+     * @param v
+     */
+    public void writeFloat( float v )
+    {
+        writeInt( Float.floatToIntBits( v ) );
+    }
+
+    /**
+     * @param v
+     */
+    public void writeDouble( double v )
+    {
+        writeLong( Double.doubleToLongBits( v ) );
+    }
+
+    /**
+     * Writes an int in one to five bytes, small absolute values take fewer bytes.
+     * <p>
+     * @param v
+     */
+    public void writeVarInt( int v )
+    {
+        writeUnsignedVarLong( ( ( v << 1 ) ^ ( v >> 31 ) ) & 0xFFFFFFFFL );
+    }
+
+    /**
+     * Writes a long in one to ten bytes, small absolute values take fewer bytes.
+     * <p>
+     * @param v
+     */
+    public void writeVarLong( long v )
+    {
+        writeUnsignedVarLong( ( v << 1 ) ^ ( v >> 63 ) );
+    }
+
+    /**
+     * Writes a string as a length prefixed UTF-8 sequence. Null is allowed.
+     * <p>
+     * @param s
+     */
+    public void writeString( String s )
+    {
+        if ( s == null )
+        {
+            writeUnsignedVarLong( 0 );
+            return;
+        }
+
+        int length = s.length();
+        int start = count;
+        // assume ASCII, one byte per char
+        writeUnsignedVarLong( length + 1L );
+        ensureCapacity( length );
+        int pos = count;
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = s.charAt( i );
+            if ( c >= 0x80 )
+            {
+                // not ASCII, start over with the encoder
+                count = start;
+                byte[] bytes = s.getBytes( UTF8 );
+                writeUnsignedVarLong( bytes.length + 1L );
+                write( bytes, 0, bytes.length );
+                return;
+            }
+            buf[pos++] = (byte) c;
+        }
+        count = pos;
+    }
+
+    /**
+     * Writes a byte array with a length prefix. Null is allowed.
+     * <p>
+     * @param bytes
+     */
+    public void writeBytes( byte[] bytes )
+    {
+        if ( bytes == null )
+        {
+            writeUnsignedVarLong( 0 );
+            return;
+        }
+        writeUnsignedVarLong( bytes.length + 1L );
+        write( bytes, 0, bytes.length );
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * @return the internal array, valid up to {@link #size()}
+     */
+    public byte[] getBuffer()
+    {
+        return buf;
+    }
+
+    /**
+     * @return a copy of the written bytes
+     */
+    public byte[] toByteArray()
+    {
+        byte[] copy = new byte[count];
+        System.arraycopy( buf, 0, copy, 0, count );
+        return copy;
+    }
+
+    /**
+     * Discards the written bytes, keeping the array.
+     */
+    public void reset()
+    {
+        count = 0;
+    }
+
+    /**
+     * Overwrites four bytes written earlier, used to fill in a length once it is known.
+     * <p>
+     * @param pos offset of the int
+     * @param v the value
+     */
+    void setInt( int pos, int v )
+    {
+        putInt( pos, v );
+    }
+
+    /**
+     * @param v an unsigned value
+     */
+    private void writeUnsignedVarLong( long v )
+    {
+        ensureCapacity( 10 );
+        while ( ( v & ~0x7FL ) != 0 )
+        {
+            buf[count++] = (byte) ( ( v & 0x7F ) | 0x80 );
+            v >>>= 7;
+        }
+        buf[count++] = (byte) v;
+    }
+
+    /**
+     * @param pos
+     * @param v
+     */
+    private void putInt( int pos, int v )
+    {
+        buf[pos] = (byte) ( v >>> 24 );
+        buf[pos + 1] = (byte) ( v >>> 16 );
+        buf[pos + 2] = (byte) ( v >>> 8 );
+        buf[pos + 3] = (byte) v;
+    }
+
+    /**
+     * Grows the array so that the given number of bytes fit behind the current position.
+     * <p>
+     * @param extra
+     */
+    private void ensureCapacity( int extra )
+    {
+        int needed = count + extra;
+        if ( needed > buf.length )
+        {
+            int size = Math.max( buf.length << 1, needed );
+            byte[] bigger = new byte[size];
+            System.arraycopy( buf, 0, bigger, 0, count );
+            buf = bigger;
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package org.apache.commons.jcs.utils.serialization;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.io.ByteBufferInputStream;
+import org.apache.commons.jcs.io.ObjectInputStreamClassLoaderAware;
+import org.apache.commons.jcs.utils.config.OptionConverter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A compact binary serializer. Each value is written as a one byte codec id followed by the data
+ * written by the {@link IBinaryCodec} registered for its class. Codecs are built in for the boxed
+ * primitives, strings, byte arrays, group keys, cache elements and the default element
+ * attributes, so a typical element with a string key and value carries no class descriptors at
+ * all. Values without a codec are written with standard serialization.
+ * <p>
+ * Output buffers are reused per thread. Buffers that grew beyond the max pooled buffer size are
+ * dropped after use.
+ * <p>
+ * Data written by standard serialization is recognized and still read, so a region can switch to
+ * this serializer without clearing its disk cache. Codecs for application types can be added in
+ * the configuration, the ids must be between {@link #FIRST_CUSTOM_ID} and 255:
+ * <pre>
+ * jcs.auxiliary.DC.serializer=org.apache.commons.jcs.utils.serialization.BinarySerializer
+ * jcs.auxiliary.DC.serializer.attributes.Codecs=40:com.example.PersonCodec,41:com.example.OrderCodec
+ * </pre>
+ */
+public class BinarySerializer
+    implements IElementSerializer
+{
+    /** The logger */
+    private static final Log log = LogFactory.getLog( BinarySerializer.class );
+
+    /** The first byte of serialized data, not a valid first byte of standard serialization */
+    public static final byte FORMAT = (byte) 0xB1;
+
+    /** The lowest id available for application codecs */
+    public static final int FIRST_CUSTOM_ID = 32;
+
+    /** The highest codec id */
+    public static final int MAX_ID = 255;
+
+    /** Default for maxPooledBufferSize */
+    public static final int DEFAULT_MAX_POOLED_BUFFER_SIZE = 256 * 1024;
+
+    /** Id of null */
+    private static final int NULL_ID = 0;
+
+    /** Id of values written with standard serialization */
+    private static final int JAVA_ID = 1;
+
+    /** Initial size of an output buffer */
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    /** Codecs by id, replaced on registration */
+    private volatile IBinaryCodec<?>[] codecs = new IBinaryCodec<?>[MAX_ID + 1];
+
+    /** Codec ids by type */
+    private final ConcurrentMap<Class<?>, Integer> ids = new ConcurrentHashMap<Class<?>, Integer>();
+
+    /** Reads data written by standard serialization */
+    private final StandardSerializer standardSerializer = new StandardSerializer();
+
+    /** The output buffer of each thread, removed while in use */
+    private final ThreadLocal<BinaryOutput> outputs = new ThreadLocal<BinaryOutput>();
+
+    /** Output buffers larger than this are not kept */
+    private int maxPooledBufferSize = DEFAULT_MAX_POOLED_BUFFER_SIZE;
+
+    /**
+     * Creates a serializer with the built in codecs.
+     */
+    public BinarySerializer()
+    {
+        super();
+        register( 2, new BinaryCodecs.StringCodec() );
+        register( 3, new BinaryCodecs.IntegerCodec() );
+        register( 4, new BinaryCodecs.LongCodec() );
+        register( 5, new BinaryCodecs.BooleanCodec() );
+        register( 6, new BinaryCodecs.DoubleCodec() );
+        register( 7, new BinaryCodecs.FloatCodec() );
+        register( 8, new BinaryCodecs.ShortCodec() );
+        register( 9, new BinaryCodecs.ByteCodec() );
+        register( 10, new BinaryCodecs.CharacterCodec() );
+        register( 11, new BinaryCodecs.ByteArrayCodec() );
+        register( 12, new BinaryCodecs.GroupIdCodec() );
+        register( 13, new BinaryCodecs.GroupAttrNameCodec() );
+        register( 14, new BinaryCodecs.ElementAttributesCodec() );
+        register( 15, new BinaryCodecs.CacheElementCodec() );
+        register( 16, new BinaryCodecs.CacheElementSerializedCodec() );
+    }
+
+    /**
+     * Registers a codec for an application type.
+     * <p>
+     * @param id the id written in front of values of the type, FIRST_CUSTOM_ID to MAX_ID
+     * @param codec the codec
+     * @throws IllegalArgumentException if the id is out of range or the id or type is taken
+     */
+    public void registerCodec( int id, IBinaryCodec<?> codec )
+    {
+        if ( id < FIRST_CUSTOM_ID || id > MAX_ID )
+        {
+            throw new IllegalArgumentException( "Codec id " + id + " is not between " + FIRST_CUSTOM_ID + " and "
+                + MAX_ID );
+        }
+        register( id, codec );
+    }
+
+    /**
+     * Registers the codecs of a configuration value. The value is a comma separated list of
+     * <code>id:className</code> pairs, the codec classes need a public no argument constructor.
+     * Entries that cannot be parsed or instantiated are logged and skipped.
+     * <p>
+     * @param value the list
+     */
+    public void setCodecs( String value )
+    {
+        StringTokenizer st = new StringTokenizer( value, "," );
+        while ( st.hasMoreTokens() )
+        {
+            String entry = st.nextToken().trim();
+            int colon = entry.indexOf( ':' );
+            if ( colon < 0 )
+            {
+                log.error( "Codec entry [" + entry + "] is not of the form id:className" );
+                continue;
+            }
+            try
+            {
+                int id = Integer.parseInt( entry.substring( 0, colon ).trim() );
+                IBinaryCodec<?> codec =
+                    OptionConverter.instantiateByClassName( entry.substring( colon + 1 ).trim(), null );
+                if ( codec != null )
+                {
+                    registerCodec( id, codec );
+                    if ( log.isInfoEnabled() )
+                    {
+                        log.info( "Registered codec [" + codec.getClass().getName() + "] for ["
+                            + codec.getType().getName() + "] with id " + id );
+                    }
+                }
+            }
+            catch ( RuntimeException e )
+            {
+                log.error( "Could not register codec [" + entry + "]", e );
+            }
+        }
+    }
+
+    /**
+     * @param maxPooledBufferSize output buffers larger than this are not reused
+     */
+    public void setMaxPooledBufferSize( int maxPooledBufferSize )
+    {
+        this.maxPooledBufferSize = maxPooledBufferSize;
+    }
+
+    /**
+     * @return the size above which output buffers are not reused
+     */
+    public int getMaxPooledBufferSize()
+    {
+        return maxPooledBufferSize;
+    }
+
+    /**
+     * Serializes the object into a reused buffer and returns a copy of the bytes.
+     * <p>
+     * @param obj the object, may be null
+     * @return byte[]
+     * @throws IOException
+     */
+    @Override
+    public <T> byte[] serialize( T obj )
+        throws IOException
+    {
+        BinaryOutput out = acquireOutput();
+        try
+        {
+            out.write( FORMAT );
+            writeValue( obj, out );
+            return out.toByteArray();
+        }
+        finally
+        {
+            releaseOutput( out );
+        }
+    }
+
+    /**
+     * Serializes the object into the buffer of the current thread and copies the bytes to the
+     * stream.
+     * <p>
+     * @param obj the object, may be null
+     * @param out the stream
+     * @throws IOException
+     */
+    @Override
+    public <T> void serializeTo( T obj, OutputStream out )
+        throws IOException
+    {
+        BinaryOutput buffer = acquireOutput();
+        try
+        {
+            buffer.write( FORMAT );
+            writeValue( obj, buffer );
+            out.write( buffer.getBuffer(), 0, buffer.size() );
+        }
+        finally
+        {
+            releaseOutput( buffer );
+        }
+    }
+
+    /**
+     * Reads data written by this serializer or by standard serialization.
+     * <p>
+     * @param bytes
+     * @param loader
+     * @return Object
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    @Override
+    public <T> T deSerialize( byte[] bytes, ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        if ( bytes == null )
+        {
+            return null;
+        }
+        return deSerializeFrom( ByteBuffer.wrap( bytes ), loader );
+    }
+
+    /**
+     * Reads data written by this serializer or by standard serialization from the remaining bytes
+     * of the buffer.
+     * <p>
+     * @param buffer
+     * @param loader
+     * @return Object
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    @Override
+    public <T> T deSerializeFrom( ByteBuffer buffer, ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        if ( buffer == null )
+        {
+            return null;
+        }
+
+        int start = buffer.position();
+        if ( buffer.remaining() > 0 && buffer.get( start ) != FORMAT )
+        {
+            return standardSerializer.deSerializeFrom( buffer, loader );
+        }
+
+        ByteBuffer in = buffer.duplicate().order( ByteOrder.BIG_ENDIAN );
+        BinaryInput input = new BinaryInput( this, in, loader );
+        input.readByte();
+        @SuppressWarnings("unchecked") // Need to cast from Object
+        T value = (T) readValue( input );
+        buffer.position( in.position() );
+        return value;
+    }
+
+    /**
+     * Writes the id and the data of a value.
+     * <p>
+     * @param value the value, may be null
+     * @param out the output
+     * @throws IOException
+     */
+    void writeValue( Object value, BinaryOutput out )
+        throws IOException
+    {
+        if ( value == null )
+        {
+            out.write( NULL_ID );
+            return;
+        }
+
+        Integer id = ids.get( value.getClass() );
+        if ( id != null )
+        {
+            int i = id.intValue();
+            @SuppressWarnings("unchecked") // registered for the class of the value
+            IBinaryCodec<Object> codec = (IBinaryCodec<Object>) codecs[i];
+            out.write( i );
+            codec.write( value, out );
+            return;
+        }
+
+        out.write( JAVA_ID );
+        int lengthPos = out.size();
+        out.writeInt( 0 );
+        ObjectOutputStream oos = new ObjectOutputStream( out );
+        oos.writeObject( value );
+        oos.flush();
+        out.setInt( lengthPos, out.size() - lengthPos - 4 );
+    }
+
+    /**
+     * Reads the id and the data of a value.
+     * <p>
+     * @param in the input
+     * @return the value, may be null
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    Object readValue( BinaryInput in )
+        throws IOException, ClassNotFoundException
+    {
+        int id = in.readUnsignedByte();
+        if ( id == NULL_ID )
+        {
+            return null;
+        }
+
+        if ( id == JAVA_ID )
+        {
+            ByteBuffer slice = in.slice( in.readInt() );
+            ObjectInputStream ois =
+                new ObjectInputStreamClassLoaderAware( new ByteBufferInputStream( slice ), in.getClassLoader() );
+            try
+            {
+                return ois.readObject();
+            }
+            finally
+            {
+                ois.close();
+            }
+        }
+
+        IBinaryCodec<?> codec = codecs[id];
+        if ( codec == null )
+        {
+            throw new StreamCorruptedException( "No codec registered with id " + id );
+        }
+        return codec.read( in );
+    }
+
+    /**
+     * @param id
+     * @param codec
+     */
+    private synchronized void register( int id, IBinaryCodec<?> codec )
+    {
+        if ( codecs[id] != null )
+        {
+            throw new IllegalArgumentException( "Codec id " + id + " is already used for "
+                + codecs[id].getType().getName() );
+        }
+        if ( ids.containsKey( codec.getType() ) )
+        {
+            throw new IllegalArgumentException( "A codec for " + codec.getType().getName()
+                + " is already registered" );
+        }
+
+        IBinaryCodec<?>[] copy = codecs.clone();
+        copy[id] = codec;
+        codecs = copy;
+        ids.put( codec.getType(), Integer.valueOf( id ) );
+    }
+
+    /**
+     * Takes the buffer of the current thread, or creates one if it is in use further up the stack.
+     * <p>
+     * @return an empty output
+     */
+    private BinaryOutput acquireOutput()
+    {
+        BinaryOutput out = outputs.get();
+        if ( out == null )
+        {
+            return new BinaryOutput( this, INITIAL_BUFFER_SIZE );
+        }
+        outputs.set( null );
+        out.reset();
+        return out;
+    }
+
+    /**
+     * Returns the buffer to the current thread unless it grew too large.
+     * <p>
+     * @param out
+     */
+    private void releaseOutput( BinaryOutput out )
+    {
+        if ( out.getBuffer().length <= maxPooledBufferSize )
+        {
+            outputs.set( out );
+        }
+    }
+
+    /**
+     * @return the registered codecs
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder buf = new StringBuilder( "BinarySerializer codecs:" );
+        IBinaryCodec<?>[] current = codecs;
+        for ( int id = FIRST_CUSTOM_ID; id <= MAX_ID; id++ )
+        {
+            if ( current[id] != null )
+            {
+                buf.append( ' ' ).append( id ).append( '=' ).append( current[id].getType().getName() );
+            }
+        }
+        return buf.toString();
+    }
+}
@@ -20,22 +20,207 @@ package org.apache.commons.jcs.utils.serialization;
  */
 
 import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.io.ByteBufferInputStream;
 import org.apache.commons.jcs.io.ObjectInputStreamClassLoaderAware;
+import org.apache.commons.jcs.utils.config.OptionConverter;
 import org.apache.commons.jcs.utils.zip.CompressionUtil;
+import org.apache.commons.jcs.utils.zip.DeflateCodec;
+import org.apache.commons.jcs.utils.zip.FrameCompressor;
+import org.apache.commons.jcs.utils.zip.ICompressionCodec;
+import org.apache.commons.jcs.utils.zip.LZ4Codec;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Performs default serialization and de-serialization. It gzips the value.
+ * <p>
+ * By default the value is written as a plain deflate stream, as in earlier versions. Setting a
+ * codec, a compression threshold or a dictionary switches to {@link FrameCompressor} frames: the
+ * lz4 codec trades some compression for a much lower CPU cost, values below the threshold are
+ * stored raw, and a dictionary of typical content helps small values of a region that resemble
+ * each other. Both forms are read whatever the configuration.
  */
 public class CompressingSerializer
     implements IElementSerializer
 {
+    /** The logger */
+    private static final Log log = LogFactory.getLog( CompressingSerializer.class );
+
+    /** Reads frames when no frame compressor is configured. */
+    private static final FrameCompressor DEFAULT_READER = new FrameCompressor( new DeflateCodec(), 0 );
+
+    /** Name of the codec, deflate, lz4 or a class name. Null for the plain deflate stream. */
+    private String codec;
+
+    /** Values shorter than this are stored raw. */
+    private int compressionThreshold = 0;
+
+    /** Level of the deflate codec. */
+    private int compressionLevel = Deflater.BEST_COMPRESSION;
+
+    /** Preset dictionary, may be null. */
+    private byte[] dictionary;
+
+    /** Writes frames, null to write the plain deflate stream. */
+    private volatile FrameCompressor frameCompressor;
+
+    /**
+     * Sets the codec of new values: deflate, lz4 or the class name of an
+     * {@link ICompressionCodec} with a public no argument constructor.
+     * <p>
+     * @param codec the codec name
+     */
+    public void setCodec( String codec )
+    {
+        this.codec = codec;
+        configure();
+    }
+
+    /**
+     * @return the codec name, null if the plain deflate stream is written
+     */
+    public String getCodec()
+    {
+        return codec;
+    }
+
+    /**
+     * @param compressionThreshold values that serialize to fewer bytes are stored raw
+     */
+    public void setCompressionThreshold( int compressionThreshold )
+    {
+        this.compressionThreshold = compressionThreshold;
+        configure();
+    }
+
+    /**
+     * @return values that serialize to fewer bytes are stored raw
+     */
+    public int getCompressionThreshold()
+    {
+        return compressionThreshold;
+    }
+
+    /**
+     * @param compressionLevel level of the deflate codec, -1 to 9
+     */
+    public void setCompressionLevel( int compressionLevel )
+    {
+        this.compressionLevel = compressionLevel;
+        configure();
+    }
+
+    /**
+     * @return level of the deflate codec
+     */
+    public int getCompressionLevel()
+    {
+        return compressionLevel;
+    }
+
+    /**
+     * Sets a preset dictionary for the deflate and lz4 codecs. It should contain byte sequences
+     * that are common in the values, for example a few serialized sample values. Values written
+     * with a dictionary can only be read with the same dictionary.
+     * <p>
+     * @param dictionary the dictionary, null for none
+     */
+    public void setDictionary( byte[] dictionary )
+    {
+        this.dictionary = dictionary;
+        configure();
+    }
+
+    /**
+     * Reads the preset dictionary from a file. A file that cannot be read is logged and ignored.
+     * <p>
+     * @param path the file
+     */
+    public void setDictionaryFile( String path )
+    {
+        try
+        {
+            setDictionary( readFile( new File( path ) ) );
+        }
+        catch ( IOException e )
+        {
+            log.error( "Could not read compression dictionary [" + path + "]", e );
+        }
+    }
+
+    /**
+     * Builds the frame compressor from the current settings.
+     */
+    private void configure()
+    {
+        if ( codec == null && compressionThreshold <= 0 && dictionary == null )
+        {
+            frameCompressor = null;
+            return;
+        }
+
+        ICompressionCodec compressionCodec;
+        if ( codec == null || "deflate".equalsIgnoreCase( codec ) )
+        {
+            compressionCodec = new DeflateCodec( compressionLevel, dictionary );
+        }
+        else if ( "lz4".equalsIgnoreCase( codec ) )
+        {
+            compressionCodec = new LZ4Codec( dictionary );
+        }
+        else
+        {
+            compressionCodec = OptionConverter.instantiateByClassName( codec, null );
+            if ( compressionCodec == null )
+            {
+                log.error( "Could not create codec [" + codec + "], using deflate" );
+                compressionCodec = new DeflateCodec( compressionLevel, dictionary );
+            }
+        }
+        frameCompressor = new FrameCompressor( compressionCodec, compressionThreshold );
+    }
+
+    /**
+     * @param file the file
+     * @return its content
+     * @throws IOException
+     */
+    private static byte[] readFile( File file )
+        throws IOException
+    {
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream( (int) file.length() );
+            byte[] buf = new byte[4096];
+            int count;
+            while ( ( count = in.read( buf ) ) != -1 )
+            {
+                baos.write( buf, 0, count );
+            }
+            return baos.toByteArray();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
     /**
      * Serializes an object using default serialization. Compresses the byte array.
      * <p>
@@ -48,10 +233,50 @@ public class CompressingSerializer
         throws IOException
     {
         byte[] uncompressed = serializeObject( obj );
+        FrameCompressor compressor = frameCompressor;
+        if ( compressor != null )
+        {
+            return compressor.compress( uncompressed );
+        }
         byte[] compressed = CompressionUtil.compressByteArray( uncompressed );
         return compressed;
     }
 
+    /**
+     * Serializes the object and compresses it into the stream, in the same form as
+     * {@link #serialize(Object)}. The plain deflate stream is deflated on the way into the stream.
+     * <p>
+     * @param obj object
+     * @param out the stream
+     * @throws IOException on i/o problem
+     */
+    @Override
+    public <T> void serializeTo( T obj, OutputStream out )
+        throws IOException
+    {
+        FrameCompressor frames = frameCompressor;
+        if ( frames != null )
+        {
+            byte[] uncompressed = serializeObject( obj );
+            frames.compressTo( uncompressed, 0, uncompressed.length, out );
+            return;
+        }
+
+        Deflater compressor = new Deflater( Deflater.BEST_COMPRESSION );
+        try
+        {
+            DeflaterOutputStream dos = new DeflaterOutputStream( out, compressor, 1024 );
+            ObjectOutputStream oos = new ObjectOutputStream( dos );
+            oos.writeObject( obj );
+            oos.flush();
+            dos.finish();
+        }
+        finally
+        {
+            compressor.end();
+        }
+    }
+
     /**
      * Does the basic serialization.
      * <p>
@@ -93,10 +318,61 @@ public class CompressingSerializer
         {
             return null;
         }
+        if ( data.length > 0 && FrameCompressor.isFrame( data[0] ) )
+        {
+            return deserializeObject( getReader().decompress( data ) );
+        }
         byte[] decompressedByteArray = CompressionUtil.decompressByteArray( data );
         return deserializeObject( decompressedByteArray );
     }
 
+    /**
+     * Inflates the remaining bytes of the buffer while reading the object, so neither the
+     * compressed nor the decompressed bytes are copied into an array.
+     * <p>
+     * @param buffer compressed bytes
+     * @return Object
+     * @throws IOException on i/o problem
+     * @throws ClassNotFoundException if class is not found during deserialization
+     */
+    @Override
+    public <T> T deSerializeFrom( ByteBuffer buffer, ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        if ( buffer == null )
+        {
+            return null;
+        }
+        if ( buffer.hasRemaining() && FrameCompressor.isFrame( buffer.get( buffer.position() ) ) )
+        {
+            ByteBuffer data = getReader().decompress( buffer );
+            ObjectInputStream ois =
+                new ObjectInputStreamClassLoaderAware( new ByteBufferInputStream( data ), loader );
+            try
+            {
+                @SuppressWarnings("unchecked") // Need to cast from Object
+                T readObject = (T) ois.readObject();
+                return readObject;
+            }
+            finally
+            {
+                ois.close();
+            }
+        }
+        InflaterInputStream iis = new InflaterInputStream( new ByteBufferInputStream( buffer ) );
+        ObjectInputStream ois = new ObjectInputStreamClassLoaderAware( new BufferedInputStream( iis ), loader );
+        try
+        {
+            @SuppressWarnings("unchecked") // Need to cast from Object
+            T readObject = (T) ois.readObject();
+            return readObject;
+        }
+        finally
+        {
+            ois.close();
+        }
+    }
+
     /**
      * Does the standard deserialization.
      * <p>
@@ -123,4 +399,13 @@ public class CompressingSerializer
             ois.close();
         }
     }
+
+    /**
+     * @return the frame compressor that reads frames
+     */
+    private FrameCompressor getReader()
+    {
+        FrameCompressor compressor = frameCompressor;
+        return compressor != null ? compressor : DEFAULT_READER;
+    }
 }
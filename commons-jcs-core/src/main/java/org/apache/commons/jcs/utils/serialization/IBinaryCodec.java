@@ -0,0 +1,62 @@
+package org.apache.commons.jcs.utils.serialization;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+
+/**
+ * Writes and reads objects of one type for the {@link BinarySerializer}. A codec is registered
+ * with the serializer under a numeric id, which is written in front of each value instead of the
+ * class descriptor that object streams write.
+ * <p>
+ * The id of a codec is part of the stored format. It must not be reused for another type while
+ * data written with it may still be read.
+ */
+public interface IBinaryCodec<T>
+{
+    /**
+     * The class handled by this codec. Only instances of exactly this class are written with it,
+     * subclasses fall back to standard serialization unless they have a codec of their own.
+     * <p>
+     * @return the class
+     */
+    Class<T> getType();
+
+    /**
+     * Writes the object.
+     * <p>
+     * @param obj the object, never null
+     * @param out the output
+     * @throws IOException
+     */
+    void write( T obj, BinaryOutput out )
+        throws IOException;
+
+    /**
+     * Reads an object written by {@link #write(Object, BinaryOutput)}.
+     * <p>
+     * @param in the input
+     * @return the object
+     * @throws IOException
+     * @throws ClassNotFoundException if a nested value cannot be loaded
+     */
+    T read( BinaryInput in )
+        throws IOException, ClassNotFoundException;
+}
@@ -20,6 +20,7 @@ package org.apache.commons.jcs.utils.serialization;
  */
 
 import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.io.ByteBufferInputStream;
 import org.apache.commons.jcs.io.ObjectInputStreamClassLoaderAware;
 
 import java.io.BufferedInputStream;
@@ -28,6 +29,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Performs default serialization and de-serialization.
@@ -61,6 +64,23 @@ public class StandardSerializer
         return baos.toByteArray();
     }
 
+    /**
+     * Serializes an object using default serialization straight into the stream.
+     * <p>
+     * @param obj
+     * @param out
+     * @throws IOException
+     */
+    @Override
+    public <T> void serializeTo( T obj, OutputStream out )
+        throws IOException
+    {
+        ObjectOutputStream oos = new ObjectOutputStream( out );
+        oos.writeObject( obj );
+        // flush, not close: the stream belongs to the caller
+        oos.flush();
+    }
+
     /**
      * Uses default de-serialization to turn a byte array into an object. All exceptions are
      * converted into IOExceptions.
@@ -88,4 +108,30 @@ public class StandardSerializer
             ois.close();
         }
     }
+
+    /**
+     * Uses default de-serialization to turn the remaining bytes of the buffer into an object. The
+     * stream reads straight from the buffer.
+     * <p>
+     * @param buffer
+     * @return Object
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    @Override
+    public <T> T deSerializeFrom( ByteBuffer buffer, ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        ObjectInputStream ois = new ObjectInputStreamClassLoaderAware( new ByteBufferInputStream( buffer ), loader );
+        try
+        {
+            @SuppressWarnings("unchecked") // Need to cast from Object
+            T readObject = (T) ois.readObject();
+            return readObject;
+        }
+        finally
+        {
+            ois.close();
+        }
+    }
 }
@@ -343,7 +343,8 @@ public abstract class AbstractLRUMap<K, V>
                     LRUElementDescriptor<K, V> last = list.getLast();
                     if (last != null)
                     {
-                        processRemovedLRU(last.getKey(), last.getPayload());
+                        // remove before the callback, so the element is gone from the map
+                        // by the time a child reuses what it referenced
                         if (map.remove(last.getKey()) == null)
                         {
                             log.warn("update: remove failed for key: "
@@ -351,6 +352,7 @@ public abstract class AbstractLRUMap<K, V>
                             verifyCache();
                         }
                         list.removeLast();
+                        processRemovedLRU(last.getKey(), last.getPayload());
                     }
                     else
                     {
@@ -0,0 +1,133 @@
+package org.apache.commons.jcs.utils.struct;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that spreads increments over several cells, so that threads incrementing it
+ * concurrently do not all contend on one memory location. Reads sum up the cells and are
+ * therefore more expensive than increments. This is meant for statistics that are written far
+ * more often than they are read.
+ * <p>
+ * The value returned by {@link #get()} is not an atomic snapshot if increments are in progress.
+ */
+public class StripedCounter
+{
+    /** Number of longs between two cells, keeps cells on separate cache lines */
+    private static final int PADDING = 8;
+
+    /** The cells */
+    private final AtomicLongArray cells;
+
+    /** Number of cells - 1, the number of cells is a power of two */
+    private final int mask;
+
+    /**
+     * Creates a counter with one cell per available processor.
+     */
+    public StripedCounter()
+    {
+        this( Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * Creates a counter with at least the given number of cells.
+     * <p>
+     * @param stripes the minimum number of cells
+     */
+    public StripedCounter( int stripes )
+    {
+        int size = 1;
+        while ( size < stripes )
+        {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.cells = new AtomicLongArray( size * PADDING );
+    }
+
+    /**
+     * Adds one.
+     */
+    public void increment()
+    {
+        add( 1 );
+    }
+
+    /**
+     * Adds the given value.
+     * <p>
+     * @param delta
+     */
+    public void add( long delta )
+    {
+        cells.addAndGet( cellIndex(), delta );
+    }
+
+    /**
+     * @return the sum of all cells
+     */
+    public long get()
+    {
+        long sum = 0;
+        for ( int i = 0; i < cells.length(); i += PADDING )
+        {
+            sum += cells.get( i );
+        }
+        return sum;
+    }
+
+    /**
+     * Sets the counter to the given value. Increments made concurrently may be lost.
+     * <p>
+     * @param value
+     */
+    public void set( long value )
+    {
+        for ( int i = PADDING; i < cells.length(); i += PADDING )
+        {
+            cells.set( i, 0 );
+        }
+        cells.set( 0, value );
+    }
+
+    /**
+     * Picks a cell based on the current thread.
+     * <p>
+     * @return index into the cells array
+     */
+    private int cellIndex()
+    {
+        long id = Thread.currentThread().getId();
+        int h = (int) ( id ^ ( id >>> 32 ) );
+        h ^= ( h >>> 16 );
+        return ( h & mask ) * PADDING;
+    }
+
+    /**
+     * @return the current value
+     */
+    @Override
+    public String toString()
+    {
+        return String.valueOf( get() );
+    }
+}
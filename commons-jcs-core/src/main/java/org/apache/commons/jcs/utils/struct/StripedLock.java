@@ -0,0 +1,160 @@
+package org.apache.commons.jcs.utils.struct;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks selected by key hash. Operations on the same key always use the same
+ * lock and are therefore ordered, while operations on different keys will most likely use
+ * different locks and run in parallel.
+ */
+public class StripedLock
+{
+    /** The locks */
+    private final Lock[] locks;
+
+    /** Number of locks - 1, the number of locks is a power of two */
+    private final int mask;
+
+    /**
+     * Creates four locks per available processor.
+     */
+    public StripedLock()
+    {
+        this( Runtime.getRuntime().availableProcessors() * 4 );
+    }
+
+    /**
+     * Creates at least the given number of locks.
+     * <p>
+     * @param stripes the minimum number of locks
+     */
+    public StripedLock( int stripes )
+    {
+        int size = 1;
+        while ( size < stripes )
+        {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.locks = new Lock[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Gets the lock for the given key.
+     * <p>
+     * @param key the key, may be null
+     * @return the lock responsible for the key
+     */
+    public Lock getLock( Object key )
+    {
+        return locks[indexFor( key )];
+    }
+
+    /**
+     * Gets the locks for several keys, each lock once and always in the same order. Threads that
+     * lock all of them in list order cannot deadlock with each other.
+     * <p>
+     * @param keys the keys, may contain null
+     * @return the locks responsible for the keys
+     */
+    public List<Lock> getLocks( Collection<?> keys )
+    {
+        BitSet indexes = new BitSet( locks.length );
+        for ( Object key : keys )
+        {
+            indexes.set( indexFor( key ) );
+        }
+
+        List<Lock> result = new ArrayList<Lock>( indexes.cardinality() );
+        for ( int i = indexes.nextSetBit( 0 ); i >= 0; i = indexes.nextSetBit( i + 1 ) )
+        {
+            result.add( locks[i] );
+        }
+        return result;
+    }
+
+    /**
+     * Gets all the locks, in the same order as getLocks.
+     * <p>
+     * @return every lock
+     */
+    public List<Lock> getAllLocks()
+    {
+        return Arrays.asList( locks );
+    }
+
+    /**
+     * Gets the index of the lock for the given key. Keys with the same index share a lock.
+     * <p>
+     * @param key the key, may be null
+     * @return index of the lock, between 0 and size() - 1
+     */
+    public int getStripe( Object key )
+    {
+        return indexFor( key );
+    }
+
+    /**
+     * Tells whether the current thread holds the lock of the key, for instance because the key
+     * shares its lock with a key the thread is working on.
+     * <p>
+     * @param key the key, may be null
+     * @return true if the lock responsible for the key is held by the current thread
+     */
+    public boolean isHeldByCurrentThread( Object key )
+    {
+        return ( (ReentrantLock) locks[indexFor( key )] ).isHeldByCurrentThread();
+    }
+
+    /**
+     * @return the number of locks
+     */
+    public int size()
+    {
+        return locks.length;
+    }
+
+    /**
+     * Spreads the hash code of the key so that keys differing only in the high bits end up in
+     * different stripes.
+     * <p>
+     * @param key
+     * @return index into the lock array
+     */
+    protected int indexFor( Object key )
+    {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= ( h >>> 20 ) ^ ( h >>> 12 );
+        h ^= ( h >>> 7 ) ^ ( h >>> 4 );
+        return h & mask;
+    }
+}
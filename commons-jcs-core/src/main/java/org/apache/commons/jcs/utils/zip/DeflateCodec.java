@@ -0,0 +1,180 @@
+package org.apache.commons.jcs.utils.zip;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Zlib compression with the JDK deflater. It compresses better than the {@link LZ4Codec} but costs
+ * several times the CPU. The deflater and inflater are ended after each call, see JCS-136.
+ */
+public class DeflateCodec
+    implements ICompressionCodec
+{
+    /** The id in the frame header. */
+    public static final int ID = 1;
+
+    /** Deflater level. */
+    private final int level;
+
+    /** Preset dictionary, may be null. */
+    private final byte[] dictionary;
+
+    /**
+     * Uses the default level and no dictionary.
+     */
+    public DeflateCodec()
+    {
+        this( Deflater.DEFAULT_COMPRESSION, null );
+    }
+
+    /**
+     * @param level the deflater level, -1 to 9
+     * @param dictionary preset dictionary, may be null
+     */
+    public DeflateCodec( int level, byte[] dictionary )
+    {
+        this.level = level;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return {@link #ID}
+     */
+    @Override
+    public int getId()
+    {
+        return ID;
+    }
+
+    /**
+     * @return true if a dictionary is used
+     */
+    @Override
+    public boolean hasDictionary()
+    {
+        return dictionary != null;
+    }
+
+    /**
+     * The zlib compress bound plus the dictionary id.
+     * <p>
+     * @param length input length
+     * @return the size of the output buffer to pass
+     */
+    @Override
+    public int maxCompressedLength( int length )
+    {
+        return length + ( length >> 12 ) + ( length >> 14 ) + ( length >> 25 ) + 17;
+    }
+
+    /**
+     * @param input the data
+     * @param offset start of the data
+     * @param length number of bytes
+     * @param output buffer of at least maxCompressedLength( length ) bytes from outputOffset
+     * @param outputOffset where to start writing
+     * @return the number of bytes written
+     * @throws IOException if the output does not fit
+     */
+    @Override
+    public int compress( byte[] input, int offset, int length, byte[] output, int outputOffset )
+        throws IOException
+    {
+        Deflater deflater = new Deflater( level );
+        try
+        {
+            if ( dictionary != null )
+            {
+                deflater.setDictionary( dictionary );
+            }
+            deflater.setInput( input, offset, length );
+            deflater.finish();
+
+            int max = maxCompressedLength( length );
+            int written = 0;
+            while ( !deflater.finished() )
+            {
+                if ( written == max )
+                {
+                    throw new IOException( "Deflated data is larger than " + max + " bytes" );
+                }
+                written += deflater.deflate( output, outputOffset + written, max - written );
+            }
+            return written;
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @param input the compressed data
+     * @param offset start of the compressed data
+     * @param length number of compressed bytes
+     * @param output the buffer for the original data
+     * @param outputOffset where to start writing
+     * @param originalLength number of bytes the data decompresses to
+     * @throws IOException if the data is corrupt or too short
+     */
+    @Override
+    public void decompress( byte[] input, int offset, int length, byte[] output, int outputOffset, int originalLength )
+        throws IOException
+    {
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput( input, offset, length );
+            int written = 0;
+            while ( written < originalLength )
+            {
+                int count = inflater.inflate( output, outputOffset + written, originalLength - written );
+                if ( count == 0 )
+                {
+                    if ( inflater.needsDictionary() && dictionary != null )
+                    {
+                        inflater.setDictionary( dictionary );
+                        continue;
+                    }
+                    throw new IOException( "Deflated data ends after " + written + " of " + originalLength
+                        + " bytes" );
+                }
+                written += count;
+            }
+        }
+        catch ( DataFormatException e )
+        {
+            throw new IOException( "Corrupt deflated data", e );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // wrong dictionary
+            throw new IOException( "Corrupt deflated data", e );
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package org.apache.commons.jcs.utils.zip;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compresses byte arrays into self describing frames with an {@link ICompressionCodec}. The frame
+ * header holds a marker byte, the codec id and the original length, followed by the compressed
+ * data. Data shorter than the threshold, and data the codec cannot shrink, is stored raw in the
+ * same kind of frame, so small values cost six bytes of header and no CPU.
+ * <p>
+ * The reader finds the codec from the header. Frames written without a dictionary can be read by
+ * any frame compressor, frames written with one only by a compressor whose codec has the same
+ * dictionary.
+ */
+public class FrameCompressor
+{
+    /** First byte of every frame. Neither a zlib stream nor serialized data start with it. */
+    public static final byte MAGIC = (byte) 0xC5;
+
+    /** Marker, codec byte and original length. */
+    public static final int HEADER_LENGTH = 6;
+
+    /** Codec id of frames stored without compression. */
+    private static final int RAW = 0;
+
+    /** Set in the codec byte when the codec used a dictionary. */
+    private static final int DICTIONARY_FLAG = 0x80;
+
+    /** Reads deflate frames written without a dictionary. */
+    private static final ICompressionCodec DEFLATE = new DeflateCodec();
+
+    /** Reads LZ4 frames written without a dictionary. */
+    private static final ICompressionCodec LZ4 = new LZ4Codec();
+
+    /** The codec for new frames. */
+    private final ICompressionCodec codec;
+
+    /** Data shorter than this is stored raw. */
+    private final int threshold;
+
+    /**
+     * @param codec the codec for new frames
+     * @param threshold data shorter than this many bytes is not compressed
+     */
+    public FrameCompressor( ICompressionCodec codec, int threshold )
+    {
+        this.codec = codec;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return the codec for new frames
+     */
+    public ICompressionCodec getCodec()
+    {
+        return codec;
+    }
+
+    /**
+     * @return data shorter than this many bytes is not compressed
+     */
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * Tells frames from other data.
+     * <p>
+     * @param first the first byte of the data
+     * @return true if the data starts like a frame
+     */
+    public static boolean isFrame( byte first )
+    {
+        return first == MAGIC;
+    }
+
+    /**
+     * @param data the data
+     * @return the frame
+     * @throws IOException
+     */
+    public byte[] compress( byte[] data )
+        throws IOException
+    {
+        return compress( data, 0, data.length );
+    }
+
+    /**
+     * @param data the data
+     * @param offset start of the data
+     * @param length number of bytes
+     * @return the frame
+     * @throws IOException
+     */
+    public byte[] compress( byte[] data, int offset, int length )
+        throws IOException
+    {
+        if ( length >= threshold )
+        {
+            byte[] frame = new byte[HEADER_LENGTH + codec.maxCompressedLength( length )];
+            int compressed = codec.compress( data, offset, length, frame, HEADER_LENGTH );
+            if ( compressed < length )
+            {
+                writeHeader( frame, codecByte(), length );
+                return Arrays.copyOf( frame, HEADER_LENGTH + compressed );
+            }
+        }
+
+        byte[] frame = new byte[HEADER_LENGTH + length];
+        writeHeader( frame, RAW, length );
+        System.arraycopy( data, offset, frame, HEADER_LENGTH, length );
+        return frame;
+    }
+
+    /**
+     * Writes the frame to the stream without copying it into an array of its own.
+     * <p>
+     * @param data the data
+     * @param offset start of the data
+     * @param length number of bytes
+     * @param out the stream, not closed
+     * @throws IOException
+     */
+    public void compressTo( byte[] data, int offset, int length, OutputStream out )
+        throws IOException
+    {
+        byte[] frame;
+        if ( length >= threshold )
+        {
+            frame = new byte[HEADER_LENGTH + codec.maxCompressedLength( length )];
+            int compressed = codec.compress( data, offset, length, frame, HEADER_LENGTH );
+            if ( compressed < length )
+            {
+                writeHeader( frame, codecByte(), length );
+                out.write( frame, 0, HEADER_LENGTH + compressed );
+                return;
+            }
+        }
+        else
+        {
+            frame = new byte[HEADER_LENGTH];
+        }
+
+        writeHeader( frame, RAW, length );
+        out.write( frame, 0, HEADER_LENGTH );
+        out.write( data, offset, length );
+    }
+
+    /**
+     * @param frame a whole frame
+     * @return the original data
+     * @throws IOException if the frame is corrupt or was written with another dictionary
+     */
+    public byte[] decompress( byte[] frame )
+        throws IOException
+    {
+        ByteBuffer data = decompress( ByteBuffer.wrap( frame ) );
+        if ( data.hasArray() && data.arrayOffset() == 0 && data.remaining() == data.array().length )
+        {
+            return data.array();
+        }
+        byte[] copy = new byte[data.remaining()];
+        data.get( copy );
+        return copy;
+    }
+
+    /**
+     * Reads the frame in the remaining bytes of the buffer. The data of a raw frame is returned as
+     * a slice of the buffer, without copying.
+     * <p>
+     * @param frame a whole frame, the position is moved past it
+     * @return the original data
+     * @throws IOException if the frame is corrupt or was written with another dictionary
+     */
+    public ByteBuffer decompress( ByteBuffer frame )
+        throws IOException
+    {
+        if ( frame.remaining() < HEADER_LENGTH || frame.get() != MAGIC )
+        {
+            throw new IOException( "Not a compressed frame" );
+        }
+        int codecByte = frame.get() & 0xFF;
+        int length = frame.getInt();
+        if ( length < 0 )
+        {
+            throw new IOException( "Corrupt frame length " + length );
+        }
+
+        if ( codecByte == RAW )
+        {
+            if ( frame.remaining() < length )
+            {
+                throw new IOException( "Frame is truncated" );
+            }
+            ByteBuffer data = frame.slice();
+            data.limit( length );
+            frame.position( frame.position() + length );
+            return data;
+        }
+
+        ICompressionCodec reader = getReader( codecByte );
+        byte[] compressed;
+        int offset;
+        int compressedLength = frame.remaining();
+        if ( frame.hasArray() )
+        {
+            compressed = frame.array();
+            offset = frame.arrayOffset() + frame.position();
+        }
+        else
+        {
+            compressed = new byte[compressedLength];
+            frame.duplicate().get( compressed );
+            offset = 0;
+        }
+
+        byte[] data = new byte[length];
+        reader.decompress( compressed, offset, compressedLength, data, 0, length );
+        frame.position( frame.limit() );
+        return ByteBuffer.wrap( data );
+    }
+
+    /**
+     * @param codecByte the codec byte of a frame
+     * @return the codec that can read it
+     * @throws IOException if no codec can
+     */
+    private ICompressionCodec getReader( int codecByte )
+        throws IOException
+    {
+        if ( codecByte == codecByte() )
+        {
+            return codec;
+        }
+        if ( codecByte == DeflateCodec.ID )
+        {
+            return DEFLATE;
+        }
+        if ( codecByte == LZ4Codec.ID )
+        {
+            return LZ4;
+        }
+        if ( ( codecByte & DICTIONARY_FLAG ) != 0 )
+        {
+            throw new IOException( "Frame was written by codec " + ( codecByte & ~DICTIONARY_FLAG )
+                + " with a dictionary this compressor does not have" );
+        }
+        throw new IOException( "Unknown codec " + codecByte );
+    }
+
+    /**
+     * @return the codec byte of new frames
+     */
+    private int codecByte()
+    {
+        return codec.hasDictionary() ? codec.getId() | DICTIONARY_FLAG : codec.getId();
+    }
+
+    /**
+     * @param frame the frame
+     * @param codecByte codec id and flags
+     * @param length original length
+     */
+    private static void writeHeader( byte[] frame, int codecByte, int length )
+    {
+        frame[0] = MAGIC;
+        frame[1] = (byte) codecByte;
+        frame[2] = (byte) ( length >>> 24 );
+        frame[3] = (byte) ( length >>> 16 );
+        frame[4] = (byte) ( length >>> 8 );
+        frame[5] = (byte) length;
+    }
+}
@@ -0,0 +1,85 @@
+package org.apache.commons.jcs.utils.zip;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+
+/**
+ * A block compression algorithm used by the {@link FrameCompressor}. A codec compresses a whole
+ * array at once and is told the original length when it decompresses, so it does not need to
+ * store the length or an end marker itself.
+ * <p>
+ * Implementations must be thread safe. The id of a codec is written into every frame, so it must
+ * not be reused for another algorithm while frames written with it may still be read.
+ */
+public interface ICompressionCodec
+{
+    /**
+     * The id written into the frame header. 0 is reserved for uncompressed frames.
+     * <p>
+     * @return a value between 1 and 127
+     */
+    int getId();
+
+    /**
+     * Whether the codec was set up with a preset dictionary. Frames written with a dictionary can
+     * only be read by a codec with the same dictionary.
+     * <p>
+     * @return true if a dictionary is used
+     */
+    boolean hasDictionary();
+
+    /**
+     * The largest number of bytes {@link #compress(byte[], int, int, byte[], int)} may write for an
+     * input of the given length.
+     * <p>
+     * @param length input length
+     * @return the size of the output buffer to pass
+     */
+    int maxCompressedLength( int length );
+
+    /**
+     * Compresses the input into the output buffer.
+     * <p>
+     * @param input the data
+     * @param offset start of the data
+     * @param length number of bytes
+     * @param output buffer of at least maxCompressedLength( length ) bytes from outputOffset
+     * @param outputOffset where to start writing
+     * @return the number of bytes written
+     * @throws IOException
+     */
+    int compress( byte[] input, int offset, int length, byte[] output, int outputOffset )
+        throws IOException;
+
+    /**
+     * Decompresses exactly originalLength bytes into the output buffer.
+     * <p>
+     * @param input the compressed data
+     * @param offset start of the compressed data
+     * @param length number of compressed bytes
+     * @param output the buffer for the original data
+     * @param outputOffset where to start writing
+     * @param originalLength number of bytes the data decompresses to
+     * @throws IOException if the data is corrupt or does not decompress to originalLength bytes
+     */
+    void decompress( byte[] input, int offset, int length, byte[] output, int outputOffset, int originalLength )
+        throws IOException;
+}
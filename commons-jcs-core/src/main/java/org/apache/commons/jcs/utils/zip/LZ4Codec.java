@@ -0,0 +1,408 @@
+package org.apache.commons.jcs.utils.zip;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A pure Java compressor for the LZ4 block format. It finds matches with a single hash probe and
+ * copies everything else as literals, so it costs little more than a memory copy and gives up
+ * quickly on data that does not compress. This makes it a better fit than deflate for values that
+ * only cross a fast network or a local disk.
+ * <p>
+ * With a dictionary the first matches of a value may point into the last 64K of the dictionary,
+ * which lets small values that share structure with it compress well. The dictionary is not
+ * written with the data, the reader must use the same one.
+ */
+public class LZ4Codec
+    implements ICompressionCodec
+{
+    /** The id in the frame header. */
+    public static final int ID = 2;
+
+    /** Shortest match the format can encode. */
+    private static final int MIN_MATCH = 4;
+
+    /** The format requires the last bytes of a block to be literals. */
+    private static final int LAST_LITERALS = 5;
+
+    /** No match may start in the last bytes of a block. */
+    private static final int MF_LIMIT = 12;
+
+    /** Largest distance of a match. */
+    private static final int MAX_DISTANCE = 65535;
+
+    /** Bits of the match table index. */
+    private static final int HASH_LOG = 12;
+
+    /** Misses before the search starts to skip ahead. */
+    private static final int SKIP_TRIGGER = 6;
+
+    /** The last 64K of the dictionary, may be null. */
+    private final byte[] dictionary;
+
+    /** Match table per thread. */
+    private final ThreadLocal<int[]> hashTables = new ThreadLocal<int[]>()
+    {
+        @Override
+        protected int[] initialValue()
+        {
+            return new int[1 << HASH_LOG];
+        }
+    };
+
+    /**
+     * No dictionary.
+     */
+    public LZ4Codec()
+    {
+        this( null );
+    }
+
+    /**
+     * @param dictionary preset dictionary, may be null. Only the last 64K are used.
+     */
+    public LZ4Codec( byte[] dictionary )
+    {
+        if ( dictionary != null && dictionary.length > MAX_DISTANCE )
+        {
+            this.dictionary = Arrays.copyOfRange( dictionary, dictionary.length - MAX_DISTANCE, dictionary.length );
+        }
+        else
+        {
+            this.dictionary = dictionary;
+        }
+    }
+
+    /**
+     * @return {@link #ID}
+     */
+    @Override
+    public int getId()
+    {
+        return ID;
+    }
+
+    /**
+     * @return true if a dictionary is used
+     */
+    @Override
+    public boolean hasDictionary()
+    {
+        return dictionary != null;
+    }
+
+    /**
+     * Incompressible data grows by one byte per 255 bytes of literals plus the token.
+     * <p>
+     * @param length input length
+     * @return the size of the output buffer to pass
+     */
+    @Override
+    public int maxCompressedLength( int length )
+    {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * @param input the data
+     * @param offset start of the data
+     * @param length number of bytes
+     * @param output buffer of at least maxCompressedLength( length ) bytes from outputOffset
+     * @param outputOffset where to start writing
+     * @return the number of bytes written
+     * @throws IOException never
+     */
+    @Override
+    public int compress( byte[] input, int offset, int length, byte[] output, int outputOffset )
+        throws IOException
+    {
+        int[] table = hashTables.get();
+        Arrays.fill( table, -1 );
+
+        if ( dictionary == null )
+        {
+            return compressBlock( input, offset, offset, offset + length, table, output, outputOffset )
+                - outputOffset;
+        }
+
+        byte[] window = new byte[dictionary.length + length];
+        System.arraycopy( dictionary, 0, window, 0, dictionary.length );
+        System.arraycopy( input, offset, window, dictionary.length, length );
+        for ( int p = 0; p + MIN_MATCH <= dictionary.length; p++ )
+        {
+            table[hash( readInt( window, p ) )] = p;
+        }
+        return compressBlock( window, 0, dictionary.length, window.length, table, output, outputOffset )
+            - outputOffset;
+    }
+
+    /**
+     * @param input the compressed data
+     * @param offset start of the compressed data
+     * @param length number of compressed bytes
+     * @param output the buffer for the original data
+     * @param outputOffset where to start writing
+     * @param originalLength number of bytes the data decompresses to
+     * @throws IOException if the data is corrupt or does not decompress to originalLength bytes
+     */
+    @Override
+    public void decompress( byte[] input, int offset, int length, byte[] output, int outputOffset, int originalLength )
+        throws IOException
+    {
+        if ( dictionary == null )
+        {
+            decompressBlock( input, offset, offset + length, output, outputOffset, outputOffset,
+                             outputOffset + originalLength );
+            return;
+        }
+
+        byte[] window = new byte[dictionary.length + originalLength];
+        System.arraycopy( dictionary, 0, window, 0, dictionary.length );
+        decompressBlock( input, offset, offset + length, window, 0, dictionary.length, window.length );
+        System.arraycopy( window, dictionary.length, output, outputOffset, originalLength );
+    }
+
+    /**
+     * Compresses buf[start, end). Matches may reach back to base.
+     * <p>
+     * @param buf the data
+     * @param base first byte a match may point to
+     * @param start first byte to compress
+     * @param end end of the data
+     * @param table match table, positions in buf or -1
+     * @param out output buffer
+     * @param o output position
+     * @return the output position after the block
+     */
+    private static int compressBlock( byte[] buf, int base, int start, int end, int[] table, byte[] out, int o )
+    {
+        int anchor = start;
+        int p = start;
+        int matchLimit = end - LAST_LITERALS;
+        int mfLimit = end - MF_LIMIT;
+        int misses = 0;
+
+        while ( p < mfLimit )
+        {
+            int sequence = readInt( buf, p );
+            int h = hash( sequence );
+            int ref = table[h];
+            table[h] = p;
+
+            if ( ref < base || p - ref > MAX_DISTANCE || readInt( buf, ref ) != sequence )
+            {
+                p += 1 + ( misses++ >>> SKIP_TRIGGER );
+                continue;
+            }
+            misses = 0;
+
+            // extend backwards into the pending literals
+            while ( p > anchor && ref > base && buf[p - 1] == buf[ref - 1] )
+            {
+                p--;
+                ref--;
+            }
+
+            int matchLength = MIN_MATCH;
+            while ( p + matchLength < matchLimit && buf[p + matchLength] == buf[ref + matchLength] )
+            {
+                matchLength++;
+            }
+
+            o = writeLiterals( buf, anchor, p - anchor, matchLength - MIN_MATCH, out, o );
+            int distance = p - ref;
+            out[o++] = (byte) distance;
+            out[o++] = (byte) ( distance >>> 8 );
+            o = writeLength( matchLength - MIN_MATCH, out, o );
+
+            p += matchLength;
+            anchor = p;
+            if ( p - 2 >= start && p < mfLimit )
+            {
+                table[hash( readInt( buf, p - 2 ) )] = p - 2;
+            }
+        }
+
+        return writeLiterals( buf, anchor, end - anchor, 0, out, o );
+    }
+
+    /**
+     * Writes the token and the literals of a sequence.
+     * <p>
+     * @param buf the data
+     * @param from first literal
+     * @param count number of literals
+     * @param matchLength match length minus {@link #MIN_MATCH}, for the token
+     * @param out output buffer
+     * @param o output position
+     * @return the output position after the literals
+     */
+    private static int writeLiterals( byte[] buf, int from, int count, int matchLength, byte[] out, int o )
+    {
+        int token = o++;
+        out[token] = (byte) ( ( Math.min( count, 15 ) << 4 ) | Math.min( matchLength, 15 ) );
+        o = writeLength( count, out, o );
+        System.arraycopy( buf, from, out, o, count );
+        return o + count;
+    }
+
+    /**
+     * Writes the bytes that follow a token nibble of 15.
+     * <p>
+     * @param length the length the nibble stands for
+     * @param out output buffer
+     * @param o output position
+     * @return the output position after the length
+     */
+    private static int writeLength( int length, byte[] out, int o )
+    {
+        if ( length < 15 )
+        {
+            return o;
+        }
+        int rest = length - 15;
+        while ( rest >= 255 )
+        {
+            out[o++] = (byte) 255;
+            rest -= 255;
+        }
+        out[o++] = (byte) rest;
+        return o;
+    }
+
+    /**
+     * Decompresses src[s, sEnd) into dst[start, end). Matches may reach back to base.
+     * <p>
+     * @param src compressed data
+     * @param s start of the compressed data
+     * @param sEnd end of the compressed data
+     * @param dst output buffer
+     * @param base first byte a match may point to
+     * @param start first byte to write
+     * @param end end of the original data
+     * @throws IOException if the data is corrupt
+     */
+    private static void decompressBlock( byte[] src, int s, int sEnd, byte[] dst, int base, int start, int end )
+        throws IOException
+    {
+        int d = start;
+        try
+        {
+            while ( true )
+            {
+                int token = src[s++] & 0xFF;
+
+                int literals = token >>> 4;
+                if ( literals == 15 )
+                {
+                    int b;
+                    do
+                    {
+                        b = src[s++] & 0xFF;
+                        literals += b;
+                    }
+                    while ( b == 255 );
+                }
+                if ( literals > end - d || literals > sEnd - s )
+                {
+                    throw new IOException( "Corrupt LZ4 data, literals run past the end" );
+                }
+                System.arraycopy( src, s, dst, d, literals );
+                s += literals;
+                d += literals;
+
+                if ( s == sEnd )
+                {
+                    break;
+                }
+
+                int distance = ( src[s++] & 0xFF ) | ( ( src[s++] & 0xFF ) << 8 );
+                int ref = d - distance;
+                if ( distance == 0 || ref < base )
+                {
+                    throw new IOException( "Corrupt LZ4 data, bad match distance " + distance );
+                }
+
+                int matchLength = token & 0x0F;
+                if ( matchLength == 15 )
+                {
+                    int b;
+                    do
+                    {
+                        b = src[s++] & 0xFF;
+                        matchLength += b;
+                    }
+                    while ( b == 255 );
+                }
+                matchLength += MIN_MATCH;
+                if ( matchLength > end - d )
+                {
+                    throw new IOException( "Corrupt LZ4 data, match runs past the end" );
+                }
+
+                if ( distance >= matchLength )
+                {
+                    System.arraycopy( dst, ref, dst, d, matchLength );
+                    d += matchLength;
+                }
+                else
+                {
+                    // overlapping copy repeats the last distance bytes
+                    for ( int i = 0; i < matchLength; i++ )
+                    {
+                        dst[d++] = dst[ref++];
+                    }
+                }
+            }
+        }
+        catch ( ArrayIndexOutOfBoundsException e )
+        {
+            throw new IOException( "Corrupt LZ4 data, truncated", e );
+        }
+
+        if ( d != end )
+        {
+            throw new IOException( "LZ4 data decompressed to " + ( d - start ) + " instead of "
+                + ( end - start ) + " bytes" );
+        }
+    }
+
+    /**
+     * @param buf data
+     * @param p position
+     * @return four bytes, little endian
+     */
+    private static int readInt( byte[] buf, int p )
+    {
+        return ( buf[p] & 0xFF ) | ( ( buf[p + 1] & 0xFF ) << 8 ) | ( ( buf[p + 2] & 0xFF ) << 16 )
+            | ( buf[p + 3] << 24 );
+    }
+
+    /**
+     * @param sequence four bytes
+     * @return the match table index
+     */
+    private static int hash( int sequence )
+    {
+        return ( sequence * -1640531535 ) >>> ( 32 - HASH_LOG );
+    }
+}
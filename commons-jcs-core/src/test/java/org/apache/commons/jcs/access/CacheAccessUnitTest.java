@@ -74,6 +74,61 @@ public class CacheAccessUnitTest
         assertEquals( "Wrong value returned.  Shoudl still be the original.", value, returnedValue2 );
     }
 
+    /**
+     * Verify that putIfAbsent keeps the first value and that concurrent compare and set loops do
+     * not lose increments.
+     * @throws Exception
+     */
+    public void testPutIfAbsentAndReplace()
+        throws Exception
+    {
+        // SETUP
+        final CacheAccess<String, Integer> access = JCS.getInstance( "test" );
+        final String key = "counter";
+        access.remove( key );
+
+        // DO WORK
+        Integer first = access.putIfAbsent( key, Integer.valueOf( 0 ) );
+        Integer second = access.putIfAbsent( key, Integer.valueOf( 10 ) );
+
+        // VERIFY
+        assertNull( "Nothing should have been cached before.", first );
+        assertEquals( "Should return the value cached.", Integer.valueOf( 0 ), second );
+        assertFalse( "Should not replace a different value.", access.replace( key, Integer.valueOf( 5 ), Integer.valueOf( 6 ) ) );
+
+        // DO WORK
+        final int threads = 4;
+        final int increments = 250;
+        Thread[] workers = new Thread[threads];
+        for ( int i = 0; i < threads; i++ )
+        {
+            workers[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for ( int j = 0; j < increments; j++ )
+                    {
+                        Integer current;
+                        do
+                        {
+                            current = access.get( key );
+                        }
+                        while ( !access.replace( key, current, Integer.valueOf( current.intValue() + 1 ) ) );
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        for ( Thread worker : workers )
+        {
+            worker.join();
+        }
+
+        // VERIFY
+        assertEquals( "Wrong count.", Integer.valueOf( threads * increments ), access.get( key ) );
+    }
+
     /**
      * Try to put a null key and verify that we get an exception.
      * @throws Exception
@@ -22,11 +22,15 @@ package org.apache.commons.jcs.auxiliary;
 import org.apache.commons.jcs.engine.CacheStatus;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.apache.commons.jcs.utils.timing.SleepUtil;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Mock auxiliary for unit tests.
@@ -48,6 +52,48 @@ public class MockAuxiliaryCache<K, V>
     /** Times getMatching was Called */
     public int getMatchingCallCount = 0;
 
+    /** Times get was Called */
+    public AtomicInteger getCallCount = new AtomicInteger( 0 );
+
+    /** How long a get takes, to simulate a slow auxiliary */
+    public long getDelayMillis = 0;
+
+    /** Times update was Called */
+    public AtomicInteger updateCount = new AtomicInteger( 0 );
+
+    /** The last value written for each key by update or updateMultiple */
+    public Map<K, V> writtenValues = new ConcurrentHashMap<K, V>();
+
+    /** The elements get and getMultiple can find */
+    public Map<K, ICacheElement<K, V>> getMultipleElements = new ConcurrentHashMap<K, ICacheElement<K, V>>();
+
+    /** The keys last passed to getMultiple */
+    public volatile Set<K> lastGetMultipleKeys;
+
+    /** Times getMultiple was Called */
+    public AtomicInteger getMultipleCallCount = new AtomicInteger( 0 );
+
+    /** How long a getMultiple takes, to simulate a slow auxiliary */
+    public long getMultipleDelayMillis = 0;
+
+    /** Whether a getMultiple was interrupted while it took its time */
+    public volatile boolean getMultipleInterrupted = false;
+
+    /** The elements last passed to updateMultiple */
+    public volatile List<ICacheElement<K, V>> lastUpdateMultipleElements;
+
+    /** Times updateMultiple was Called */
+    public AtomicInteger updateMultipleCallCount = new AtomicInteger( 0 );
+
+    /** How long an updateMultiple takes, to simulate a slow auxiliary */
+    public long updateMultipleDelayMillis = 0;
+
+    /** The keys last passed to removeMultiple */
+    public volatile List<K> lastRemoveMultipleKeys;
+
+    /** Times removeMultiple was Called */
+    public AtomicInteger removeMultipleCallCount = new AtomicInteger( 0 );
+
     /**
      * @param ce
      * @throws IOException
@@ -56,8 +102,40 @@ public class MockAuxiliaryCache<K, V>
     public void update( ICacheElement<K, V> ce )
         throws IOException
     {
-        // TODO Auto-generated method stub
+        updateCount.incrementAndGet();
+        writtenValues.put( ce.getKey(), ce.getVal() );
+    }
 
+    /**
+     * @param items
+     * @throws IOException
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> items )
+        throws IOException
+    {
+        if ( updateMultipleDelayMillis > 0 )
+        {
+            SleepUtil.sleepAtLeast( updateMultipleDelayMillis );
+        }
+        updateMultipleCallCount.incrementAndGet();
+        lastUpdateMultipleElements = items;
+        for ( ICacheElement<K, V> item : items )
+        {
+            writtenValues.put( item.getKey(), item.getVal() );
+        }
+    }
+
+    /**
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    public void removeMultiple( List<K> keys )
+        throws IOException
+    {
+        removeMultipleCallCount.incrementAndGet();
+        lastRemoveMultipleKeys = keys;
     }
 
     /**
@@ -69,8 +147,12 @@ public class MockAuxiliaryCache<K, V>
     public ICacheElement<K, V> get( K key )
         throws IOException
     {
-        // TODO Auto-generated method stub
-        return null;
+        getCallCount.incrementAndGet();
+        if ( getDelayMillis > 0 )
+        {
+            SleepUtil.sleepAtLeast( getDelayMillis );
+        }
+        return getMultipleElements.get( key );
     }
 
     /**
@@ -96,7 +178,30 @@ public class MockAuxiliaryCache<K, V>
     @Override
     public Map<K, ICacheElement<K, V>> getMultiple(Set<K> keys)
     {
-        return new HashMap<K, ICacheElement<K, V>>();
+        getMultipleCallCount.incrementAndGet();
+        lastGetMultipleKeys = keys;
+        if ( getMultipleDelayMillis > 0 )
+        {
+            try
+            {
+                Thread.sleep( getMultipleDelayMillis );
+            }
+            catch ( InterruptedException e )
+            {
+                getMultipleInterrupted = true;
+            }
+        }
+
+        Map<K, ICacheElement<K, V>> elements = new HashMap<K, ICacheElement<K, V>>();
+        for ( K key : keys )
+        {
+            ICacheElement<K, V> element = getMultipleElements.get( key );
+            if ( element != null )
+            {
+                elements.put( key, element );
+            }
+        }
+        return elements;
     }
 
     /**
@@ -19,7 +19,13 @@ package org.apache.commons.jcs.auxiliary.disk.block;
  * under the License.
  */
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+
 import org.apache.commons.jcs.auxiliary.disk.behavior.IDiskCacheAttributes.DiskLimitType;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.control.group.GroupId;
 
 import junit.framework.TestCase;
 
@@ -175,4 +181,77 @@ public class BlockDiskCacheKeyStoreUnitTest
         assertNull(keyStore.get("1"));
         assertNotNull(keyStore.get("2"));
     }
+
+    /**
+     * Verify that keys that are not Strings survive a save and load.
+     * <p>
+     * @throws Exception
+     */
+    public void testSaveLoadSerializedKeys()
+        throws Exception
+    {
+        // SETUP
+        BlockDiskCacheAttributes attributes = new BlockDiskCacheAttributes();
+        attributes.setCacheName( "testSaveLoadSerializedKeys" );
+        attributes.setDiskPath( rootDirName );
+        attributes.setMaxKeySize( 100 );
+        BlockDiskKeyStore<GroupAttrName<String>> keyStore = new BlockDiskKeyStore<GroupAttrName<String>>( attributes, null );
+        GroupId groupId = new GroupId( "testSaveLoadSerializedKeys", "group" );
+        for ( int i = 0; i < 10; i++ )
+        {
+            keyStore.put( new GroupAttrName<String>( groupId, "attr" + i ), new int[] { i, i + 100 } );
+        }
+
+        // DO WORK
+        keyStore.saveKeys();
+        keyStore.clearMemoryMap();
+        keyStore.loadKeys();
+
+        // VERIFY
+        assertEquals( "Wrong number of keys after loading", 10, keyStore.size() );
+        int[] result = keyStore.get( new GroupAttrName<String>( groupId, "attr3" ) );
+        assertEquals( "Wrong first block.", 3, result[0] );
+        assertEquals( "Wrong second block.", 103, result[1] );
+    }
+
+    /**
+     * Verify that a key file written with object streams by older versions is still read.
+     * <p>
+     * @throws Exception
+     */
+    public void testLoadLegacyKeyFile()
+        throws Exception
+    {
+        // SETUP
+        BlockDiskCacheAttributes attributes = new BlockDiskCacheAttributes();
+        attributes.setCacheName( "testLoadLegacyKeyFile" );
+        attributes.setDiskPath( rootDirName );
+        attributes.setMaxKeySize( 100 );
+
+        File keyFile = new File( attributes.getDiskPath(), "testLoadLegacyKeyFile.key" );
+        ObjectOutputStream oos = new ObjectOutputStream( new FileOutputStream( keyFile ) );
+        for ( int i = 0; i < 5; i++ )
+        {
+            BlockDiskElementDescriptor<String> descriptor = new BlockDiskElementDescriptor<String>();
+            descriptor.setKey( "key" + i );
+            descriptor.setBlocks( new int[] { i } );
+            oos.writeObject( descriptor );
+        }
+        oos.close();
+
+        // DO WORK
+        BlockDiskKeyStore<String> keyStore = new BlockDiskKeyStore<String>( attributes, null );
+
+        // VERIFY
+        assertEquals( "Wrong number of keys after loading", 5, keyStore.size() );
+        assertEquals( "Wrong block.", 4, keyStore.get( "key4" )[0] );
+
+        // DO WORK
+        keyStore.saveKeys();
+        keyStore = new BlockDiskKeyStore<String>( attributes, null );
+
+        // VERIFY
+        assertEquals( "Wrong number of keys after conversion", 5, keyStore.size() );
+        assertEquals( "Wrong block.", 2, keyStore.get( "key2" )[0] );
+    }
 }
@@ -26,7 +26,9 @@ import org.apache.commons.jcs.utils.serialization.StandardSerializer;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /** Unit tests for the Block Disk Cache */
 public abstract class BlockDiskCacheUnitTest
@@ -190,6 +192,45 @@ public abstract class BlockDiskCacheUnitTest
         assertEquals( "wrong string after retrieval", string, after );
     }
 
+    /**
+     * Verify that getMultiple reads back the items written to disk and skips the missing keys.
+     * <p>
+     * @throws Exception
+     */
+    public void testPutGetMultiple()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testPutGetMultiple";
+
+        BlockDiskCacheAttributes cattr = getCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxKeySize( 100 );
+        cattr.setBlockSizeBytes( 200 );
+        cattr.setDiskPath( "target/test-sandbox/BlockDiskCacheUnitTest" );
+        BlockDiskCache<String, String> diskCache = new BlockDiskCache<String, String>( cattr );
+        diskCache.processRemoveAll();
+
+        int cnt = 50;
+        Set<String> keys = new HashSet<String>();
+        for ( int i = 0; i < cnt; i++ )
+        {
+            diskCache.processUpdate( new CacheElement<String, String>( cacheName, "key:" + i, "data:" + i ) );
+            keys.add( "key:" + i );
+        }
+        keys.add( "missing" );
+
+        // DO WORK
+        Map<String, ICacheElement<String, String>> elements = diskCache.getMultiple( keys );
+
+        // VERIFY
+        assertEquals( "Wrong number of elements.", cnt, elements.size() );
+        for ( int i = 0; i < cnt; i++ )
+        {
+            assertEquals( "Wrong value for key:" + i, "data:" + i, elements.get( "key:" + i ).getVal() );
+        }
+    }
+
     /**
      * Verify that the block disk cache can handle utf encoded strings.
      * <p>
@@ -0,0 +1,135 @@
+package org.apache.commons.jcs.auxiliary.disk.block;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.auxiliary.disk.behavior.IDiskCacheAttributes.DiskLimitType;
+
+/** Unit tests for the open addressed key index. */
+public class BlockDiskKeyIndexUnitTest
+    extends TestCase
+{
+    /**
+     * Run random puts and removes over a small key range, which makes for long probe runs and
+     * many back shifts, and compare with a HashMap.
+     */
+    public void testRandomOperationsMatchHashMap()
+    {
+        // SETUP
+        BlockDiskKeyIndex<Integer> index = new BlockDiskKeyIndex<Integer>( -1, DiskLimitType.COUNT, 1024 );
+        Map<Integer, int[]> expected = new HashMap<Integer, int[]>();
+        Random random = new Random( 17 );
+
+        // DO WORK
+        for ( int i = 0; i < 100000; i++ )
+        {
+            Integer key = Integer.valueOf( random.nextInt( 2000 ) * 64 );
+            if ( random.nextInt( 3 ) == 0 )
+            {
+                assertSame( "Wrong removed value for " + key, expected.remove( key ), index.remove( key ) );
+            }
+            else
+            {
+                int[] blocks = new int[] { i };
+                assertSame( "Wrong old value for " + key, expected.put( key, blocks ), index.put( key, blocks ) );
+            }
+        }
+
+        // VERIFY
+        assertEquals( "Wrong size.", expected.size(), index.size() );
+        for ( int i = 0; i < 2000; i++ )
+        {
+            Integer key = Integer.valueOf( i * 64 );
+            assertSame( "Wrong value for " + key, expected.get( key ), index.getQuiet( key ) );
+        }
+        assertEquals( "Wrong snapshot size.", expected.size(), index.snapshot().size() );
+    }
+
+    /**
+     * Verify that a count limited index evicts the least recently used key and reports it.
+     */
+    public void testEvictsLeastRecentlyUsed()
+    {
+        // SETUP
+        final List<String> evicted = new ArrayList<String>();
+        BlockDiskKeyIndex<String> index = new BlockDiskKeyIndex<String>( 3, DiskLimitType.COUNT, 1024 )
+        {
+            @Override
+            protected void processRemovedLRU( String key, int[] blocks )
+            {
+                evicted.add( key );
+            }
+        };
+        index.put( "a", new int[] { 1 } );
+        index.put( "b", new int[] { 2 } );
+        index.put( "c", new int[] { 3 } );
+        index.get( "a" );
+        index.getQuiet( "b" );
+
+        // DO WORK
+        index.put( "d", new int[] { 4 } );
+
+        // VERIFY
+        assertEquals( "Wrong size.", 3, index.size() );
+        assertEquals( "Should evict b, getQuiet is not a use.", "[b]", evicted.toString() );
+        assertNull( index.get( "b" ) );
+
+        BlockDiskKeyIndex.Snapshot<String> snapshot = index.snapshot();
+        assertEquals( "Least recently used first.", "c", snapshot.getKey( 0 ) );
+        assertEquals( "Most recently used last.", "d", snapshot.getKey( 2 ) );
+    }
+
+    /**
+     * Verify that a size limited index counts the content size and gives it back on removal.
+     */
+    public void testSizeLimit()
+    {
+        // SETUP
+        final List<String> evicted = new ArrayList<String>();
+        BlockDiskKeyIndex<String> index = new BlockDiskKeyIndex<String>( 10, DiskLimitType.SIZE, 1024 )
+        {
+            @Override
+            protected void processRemovedLRU( String key, int[] blocks )
+            {
+                evicted.add( key );
+            }
+        };
+
+        // DO WORK
+        for ( int i = 0; i < 5; i++ )
+        {
+            index.put( "key" + i, new int[2] );
+        }
+        index.remove( "key0" );
+        index.put( "key5", new int[2] );
+        index.put( "key6", new int[2] );
+
+        // VERIFY
+        assertEquals( "Removal should free its size.", "[key1]", evicted.toString() );
+        assertEquals( "Wrong size.", 5, index.size() );
+    }
+}
@@ -0,0 +1,144 @@
+package org.apache.commons.jcs.auxiliary.disk.block;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/** Unit tests for the free block bitmap. */
+public class FreeBlockBitmapUnitTest
+    extends TestCase
+{
+    /**
+     * Verify that freed blocks come back lowest first and that the bitmap runs dry.
+     */
+    public void testAllocateLowestFirst()
+    {
+        // SETUP
+        FreeBlockBitmap bitmap = new FreeBlockBitmap();
+        bitmap.free( 200000 );
+        bitmap.free( 70 );
+        bitmap.free( 3 );
+
+        // DO WORK
+        int first = bitmap.allocate();
+        int second = bitmap.allocate();
+        int third = bitmap.allocate();
+
+        // VERIFY
+        assertEquals( 3, first );
+        assertEquals( 70, second );
+        assertEquals( 200000, third );
+        assertEquals( "Should be empty.", -1, bitmap.allocate() );
+        assertEquals( 0, bitmap.size() );
+    }
+
+    /**
+     * Verify that freeing a block twice does not hand it out twice.
+     */
+    public void testDoubleFree()
+    {
+        // SETUP
+        FreeBlockBitmap bitmap = new FreeBlockBitmap();
+
+        // DO WORK
+        boolean firstFree = bitmap.free( 5 );
+        boolean secondFree = bitmap.free( 5 );
+
+        // VERIFY
+        assertTrue( firstFree );
+        assertFalse( "Already free.", secondFree );
+        assertEquals( 1, bitmap.size() );
+        assertEquals( 5, bitmap.allocate() );
+        assertEquals( -1, bitmap.allocate() );
+    }
+
+    /**
+     * Free and allocate from several threads and verify that no block is ever held by two threads
+     * and none is lost.
+     * <p>
+     * @throws Exception
+     */
+    public void testConcurrentAllocateAndFree()
+        throws Exception
+    {
+        // SETUP
+        final FreeBlockBitmap bitmap = new FreeBlockBitmap();
+        final int blocks = 10000;
+        for ( int i = 0; i < blocks; i++ )
+        {
+            bitmap.free( i );
+        }
+        final Set<Integer> held = Collections.newSetFromMap( new ConcurrentHashMap<Integer, Boolean>() );
+        final AtomicInteger errors = new AtomicInteger();
+
+        Thread[] threads = new Thread[8];
+        for ( int t = 0; t < threads.length; t++ )
+        {
+            threads[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for ( int n = 0; n < 20000; n++ )
+                    {
+                        int block = bitmap.allocate();
+                        if ( block < 0 )
+                        {
+                            continue;
+                        }
+                        if ( !held.add( Integer.valueOf( block ) ) )
+                        {
+                            errors.incrementAndGet();
+                        }
+                        held.remove( Integer.valueOf( block ) );
+                        bitmap.free( block );
+                    }
+                }
+            };
+        }
+
+        // DO WORK
+        for ( Thread thread : threads )
+        {
+            thread.start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        // VERIFY
+        assertEquals( "A block was handed out twice.", 0, errors.get() );
+        assertEquals( "No block should be lost.", blocks, bitmap.size() );
+        Set<Integer> all = new HashSet<Integer>();
+        for ( int i = 0; i < blocks; i++ )
+        {
+            all.add( Integer.valueOf( bitmap.allocate() ) );
+        }
+        assertEquals( blocks, all.size() );
+        assertEquals( -1, bitmap.allocate() );
+    }
+}
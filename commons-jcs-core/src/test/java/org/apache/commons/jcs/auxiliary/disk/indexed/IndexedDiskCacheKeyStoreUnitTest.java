@@ -24,6 +24,7 @@ import org.apache.commons.jcs.engine.CacheElement;
 import org.apache.commons.jcs.engine.ElementAttributes;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.utils.serialization.BinarySerializer;
 
 /**
  * Test store and load keys.
@@ -88,6 +89,43 @@ public class IndexedDiskCacheKeyStoreUnitTest
     }
 
 
+    /**
+     * Store elements and keys with the binary serializer, reopen the cache and read them back.
+     *
+     * @throws Exception
+     */
+    public void testStoreKeysBinarySerializer()
+        throws Exception
+    {
+        IndexedDiskCacheAttributes cattr = new IndexedDiskCacheAttributes();
+        cattr.setCacheName( "testStoreKeysBinarySerializer" );
+        cattr.setMaxKeySize( 100 );
+        cattr.setDiskPath( "target/test-sandbox/KeyStoreUnitTest" );
+        IndexedDiskCache<String, String> disk = new IndexedDiskCache<String, String>( cattr, new BinarySerializer() );
+
+        disk.processRemoveAll();
+
+        int cnt = 25;
+        for ( int i = 0; i < cnt; i++ )
+        {
+            ICacheElement<String, String> element = new CacheElement<String, String>( cattr.getCacheName(), "key:" + i, "data:" + i );
+            element.setElementAttributes( new ElementAttributes() );
+            disk.processUpdate( element );
+        }
+
+        disk.dispose();
+        disk = new IndexedDiskCache<String, String>( cattr, new BinarySerializer() );
+
+        assertEquals( "The disk is the wrong size.", cnt, disk.getSize() );
+        for ( int i = 0; i < cnt; i++ )
+        {
+            ICacheElement<String, String> element = disk.processGet( "key:" + i );
+            assertNotNull( "reopened, Should have received an element.", element );
+            assertEquals( "reopened, element is wrong.", "data:" + i, element.getVal() );
+        }
+        disk.dispose();
+    }
+
     /**
      * Add some elements, remove 1, call optimize, verify that the removed isn't present.
      *
@@ -0,0 +1,174 @@
+package org.apache.commons.jcs.auxiliary.disk.indexed;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+
+/**
+ * Tests for the key journal of the indexed disk cache. A crash is simulated by opening a second
+ * cache on the files of one that was never disposed.
+ */
+public class IndexedDiskKeyJournalUnitTest
+    extends TestCase
+{
+    /**
+     * Puts and removes are recovered without a dispose.
+     * <p>
+     * @throws Exception
+     */
+    public void testRecoverWithoutDispose()
+        throws Exception
+    {
+        // SETUP
+        IndexedDiskCacheAttributes cattr = createAttributes( "testRecoverWithoutDispose", 1000 );
+        IndexedDiskCache<String, String> disk = new IndexedDiskCache<String, String>( cattr );
+        for ( int i = 0; i < 20; i++ )
+        {
+            disk.processUpdate( createElement( cattr, "key:" + i, "data:" + i ) );
+        }
+        disk.processRemove( "key:3" );
+        disk.processUpdate( createElement( cattr, "key:5", "replaced" ) );
+
+        // DO WORK
+        IndexedDiskCache<String, String> recovered = new IndexedDiskCache<String, String>( cattr );
+
+        // VERIFY
+        assertEquals( "Wrong size.", 19, recovered.getSize() );
+        assertNull( "Removed key should stay removed.", recovered.processGet( "key:3" ) );
+        assertEquals( "replaced", recovered.processGet( "key:5" ).getVal() );
+        assertEquals( "data:19", recovered.processGet( "key:19" ).getVal() );
+        assertEquals( "Recovery should leave a single journal.", 1,
+            IndexedDiskKeyJournal.findJournals( cattr.getDiskPath(), "testRecoverWithoutDispose" ).size() );
+    }
+
+    /**
+     * Checkpoints are taken as the journal grows, and a recovery only replays the tail.
+     * <p>
+     * @throws Exception
+     */
+    public void testCheckpointThenRecover()
+        throws Exception
+    {
+        // SETUP
+        IndexedDiskCacheAttributes cattr = createAttributes( "testCheckpointThenRecover", 10 );
+        IndexedDiskCache<String, String> disk = new IndexedDiskCache<String, String>( cattr );
+
+        // DO WORK
+        for ( int i = 0; i < 25; i++ )
+        {
+            disk.processUpdate( createElement( cattr, "key:" + i, "data:" + i ) );
+        }
+        IndexedDiskCache<String, String> recovered = new IndexedDiskCache<String, String>( cattr );
+
+        // VERIFY
+        assertEquals( "Wrong size.", 25, recovered.getSize() );
+        for ( int i = 0; i < 25; i++ )
+        {
+            assertEquals( "data:" + i, recovered.processGet( "key:" + i ).getVal() );
+        }
+        assertTrue( "Only the records after the last checkpoint should be replayed.",
+            recovered.getStatistics().toString().contains( "Replayed Journal Records = 5" ) );
+    }
+
+    /**
+     * A torn record at the end of the journal is ignored, and a put whose data never made it to
+     * the data file is dropped.
+     * <p>
+     * @throws Exception
+     */
+    public void testTornJournalAndMissingData()
+        throws Exception
+    {
+        // SETUP
+        IndexedDiskCacheAttributes cattr = createAttributes( "testTornJournalAndMissingData", 1000 );
+        IndexedDiskCache<String, String> disk = new IndexedDiskCache<String, String>( cattr );
+        for ( int i = 0; i < 5; i++ )
+        {
+            disk.processUpdate( createElement( cattr, "key:" + i, "data:" + i ) );
+        }
+        File dataFile = new File( cattr.getDiskPath(), "testTornJournalAndMissingData.data" );
+        long lengthBeforeLastPut = dataFile.length();
+        disk.processUpdate( createElement( cattr, "key:5", "data:5" ) );
+
+        // DO WORK
+        RandomAccessFile raf = new RandomAccessFile( dataFile, "rw" );
+        raf.setLength( lengthBeforeLastPut );
+        raf.close();
+        File journalFile = IndexedDiskKeyJournal.findJournals( cattr.getDiskPath(), "testTornJournalAndMissingData" )
+            .values().iterator().next();
+        FileOutputStream out = new FileOutputStream( journalFile, true );
+        out.write( new byte[] { 0, 0, 0, 40, 1, 2, 3 } );
+        out.close();
+
+        IndexedDiskCache<String, String> recovered = new IndexedDiskCache<String, String>( cattr );
+
+        // VERIFY
+        assertEquals( "The last put should be dropped.", 5, recovered.getSize() );
+        assertNull( recovered.processGet( "key:5" ) );
+        assertEquals( "data:4", recovered.processGet( "key:4" ).getVal() );
+    }
+
+    /**
+     * @param name
+     * @param checkpointRecords
+     * @return attributes for a journaled cache in an empty directory
+     */
+    private IndexedDiskCacheAttributes createAttributes( String name, int checkpointRecords )
+    {
+        File dir = new File( "target/test-sandbox/IndexedDiskKeyJournalUnitTest/" + name );
+        File[] files = dir.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                file.delete();
+            }
+        }
+
+        IndexedDiskCacheAttributes cattr = new IndexedDiskCacheAttributes();
+        cattr.setCacheName( name );
+        cattr.setMaxKeySize( 100 );
+        cattr.setDiskPath( dir.getPath() );
+        cattr.setJournalKeys( true );
+        cattr.setJournalCheckpointRecords( checkpointRecords );
+        return cattr;
+    }
+
+    /**
+     * @param cattr
+     * @param key
+     * @param value
+     * @return an element
+     */
+    private ICacheElement<String, String> createElement( IndexedDiskCacheAttributes cattr, String key, String value )
+    {
+        ICacheElement<String, String> element = new CacheElement<String, String>( cattr.getCacheName(), key, value );
+        element.setElementAttributes( new ElementAttributes() );
+        return element;
+    }
+}
@@ -0,0 +1,192 @@
+package org.apache.commons.jcs.auxiliary.disk.indexed;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
+
+/**
+ * Tests for the memory mapped read mode of the indexed disk.
+ */
+public class IndexedDiskMemoryMappedUnitTest
+    extends TestCase
+{
+    /**
+     * Write records spread over several small segments, including ones that cross a segment
+     * boundary, and read them all back. Then grow the file past a mapped segment and read the new
+     * record.
+     * <p>
+     * @throws Exception
+     */
+    public void testReadAcrossSegmentsAndGrowth()
+        throws Exception
+    {
+        // SETUP
+        File file = new File( "target/test-sandbox/testMapped/mapped.data" );
+        file.getParentFile().mkdirs();
+        IndexedDisk disk = new IndexedDisk( file, new StandardSerializer(), 256 );
+        disk.reset();
+
+        StandardSerializer serializer = new StandardSerializer();
+        IndexedDiskElementDescriptor[] descriptors = new IndexedDiskElementDescriptor[20];
+        long pos = 0;
+        for ( int i = 0; i < descriptors.length; i++ )
+        {
+            byte[] data = serializer.serialize( "value" + i );
+            descriptors[i] = new IndexedDiskElementDescriptor( pos, data.length );
+            disk.write( descriptors[i], data );
+            pos += IndexedDisk.HEADER_SIZE_BYTES + data.length;
+        }
+
+        // DO WORK
+        for ( int i = 0; i < descriptors.length; i++ )
+        {
+            // VERIFY
+            assertEquals( "Wrong value read.", "value" + i, disk.readObject( descriptors[i] ) );
+        }
+
+        byte[] data = serializer.serialize( "appended" );
+        IndexedDiskElementDescriptor appended = new IndexedDiskElementDescriptor( pos, data.length );
+        disk.write( appended, data );
+        assertEquals( "Should see the new record.", "appended", disk.readObject( appended ) );
+
+        disk.close();
+    }
+
+    /**
+     * Append records and read each one right after writing it. The tail segment should be remapped
+     * in growing steps, not once per record.
+     * <p>
+     * @throws Exception
+     */
+    public void testAppendsDoNotRemapPerRecord()
+        throws Exception
+    {
+        // SETUP
+        File file = new File( "target/test-sandbox/testMapped/append.data" );
+        file.getParentFile().mkdirs();
+        IndexedDisk disk = new IndexedDisk( file, new StandardSerializer(), 1024 * 1024 );
+        disk.reset();
+        StandardSerializer serializer = new StandardSerializer();
+
+        // DO WORK
+        long pos = 0;
+        for ( int i = 0; i < 2000; i++ )
+        {
+            byte[] data = serializer.serialize( "value" + i );
+            IndexedDiskElementDescriptor ded = new IndexedDiskElementDescriptor( pos, data.length );
+            disk.write( ded, data );
+            pos += IndexedDisk.HEADER_SIZE_BYTES + data.length;
+
+            // VERIFY
+            assertEquals( "Wrong value read.", "value" + i, disk.readObject( ded ) );
+        }
+        assertTrue( "Mapped too often: " + disk.getMappingCount(), disk.getMappingCount() < 20 );
+
+        disk.close();
+    }
+
+    /**
+     * Truncate the file and verify that a stale descriptor is reported as corrupt instead of being
+     * read from the old mapping.
+     * <p>
+     * @throws Exception
+     */
+    public void testReadAfterTruncate()
+        throws Exception
+    {
+        // SETUP
+        File file = new File( "target/test-sandbox/testMapped/truncate.data" );
+        file.getParentFile().mkdirs();
+        IndexedDisk disk = new IndexedDisk( file, new StandardSerializer(), 1024 );
+        disk.reset();
+
+        StandardSerializer serializer = new StandardSerializer();
+        byte[] first = serializer.serialize( "first" );
+        IndexedDiskElementDescriptor firstDed = new IndexedDiskElementDescriptor( 0, first.length );
+        disk.write( firstDed, first );
+        byte[] second = serializer.serialize( "second" );
+        IndexedDiskElementDescriptor secondDed =
+            new IndexedDiskElementDescriptor( IndexedDisk.HEADER_SIZE_BYTES + first.length, second.length );
+        disk.write( secondDed, second );
+        byte[] third = serializer.serialize( "third" );
+        IndexedDiskElementDescriptor thirdDed =
+            new IndexedDiskElementDescriptor( secondDed.pos + IndexedDisk.HEADER_SIZE_BYTES + second.length, third.length );
+        disk.write( thirdDed, third );
+        assertEquals( "third", disk.readObject( thirdDed ) );
+
+        // DO WORK
+        disk.truncate( secondDed.pos );
+
+        // VERIFY
+        assertEquals( "first", disk.readObject( firstDed ) );
+        try
+        {
+            disk.readObject( thirdDed );
+            fail( "Should report the record past the end of the file." );
+        }
+        catch ( IOException e )
+        {
+            // expected
+        }
+
+        disk.close();
+    }
+
+    /**
+     * Verify that the cache reads its elements through the mapping when configured.
+     * <p>
+     * @throws Exception
+     */
+    public void testCacheWithMemoryMappedReads()
+        throws Exception
+    {
+        // SETUP
+        IndexedDiskCacheAttributes cattr = new IndexedDiskCacheAttributes();
+        cattr.setCacheName( "testCacheWithMemoryMappedReads" );
+        cattr.setMaxKeySize( 100 );
+        cattr.setMemoryMappedReads( true );
+        cattr.setDiskPath( "target/test-sandbox/testMapped" );
+        IndexedDiskCache<String, String> disk = new IndexedDiskCache<String, String>( cattr );
+        disk.removeAll();
+
+        // DO WORK
+        for ( int i = 0; i < 50; i++ )
+        {
+            disk.processUpdate( new CacheElement<String, String>( cattr.getCacheName(), "key" + i, "data" + i ) );
+        }
+
+        // VERIFY
+        for ( int i = 0; i < 50; i++ )
+        {
+            ICacheElement<String, String> element = disk.processGet( "key" + i );
+            assertNotNull( "Should be on disk.", element );
+            assertEquals( "data" + i, element.getVal() );
+        }
+
+        disk.dispose();
+    }
+}
@@ -0,0 +1,353 @@
+package org.apache.commons.jcs.auxiliary.disk.logstructured;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+
+/** Unit tests for the log structured disk cache. */
+public class LogStructuredDiskCacheUnitTest
+    extends TestCase
+{
+    /**
+     * @param cacheName
+     * @param segmentSizeBytes
+     * @return attributes for a cache in the test sandbox
+     */
+    private LogStructuredDiskCacheAttributes getCacheAttributes( String cacheName, int segmentSizeBytes )
+    {
+        LogStructuredDiskCacheAttributes cattr = new LogStructuredDiskCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setSegmentSizeBytes( segmentSizeBytes );
+        cattr.setDiskPath( "target/test-sandbox/LogStructuredDiskCacheUnitTest" );
+        return cattr;
+    }
+
+    /**
+     * Verify puts, gets, updates and single and partial removes.
+     * <p>
+     * @throws Exception
+     */
+    public void testPutGetRemove()
+        throws Exception
+    {
+        // SETUP
+        LogStructuredDiskCacheAttributes cattr = getCacheAttributes( "testPutGetRemove", 1024 * 1024 );
+        LogStructuredDiskCache<String, String> diskCache = new LogStructuredDiskCache<String, String>( cattr );
+        diskCache.processRemoveAll();
+
+        // DO WORK
+        for ( int i = 0; i < 20; i++ )
+        {
+            diskCache.processUpdate( createElement( cattr, "root:" + i, "data " + i ) );
+        }
+        diskCache.processUpdate( createElement( cattr, "other", "first" ) );
+        diskCache.processUpdate( createElement( cattr, "other", "second" ) );
+
+        // VERIFY
+        assertEquals( "Wrong size.", 21, diskCache.getSize() );
+        assertEquals( "data 5", diskCache.processGet( "root:5" ).getVal() );
+        assertEquals( "Should get the latest.", "second", diskCache.processGet( "other" ).getVal() );
+
+        assertTrue( diskCache.processRemove( "root:" ) );
+        assertNull( "Should have been removed by partial remove.", diskCache.processGet( "root:5" ) );
+        assertTrue( diskCache.processRemove( "other" ) );
+        assertFalse( "Nothing left to remove.", diskCache.processRemove( "other" ) );
+        assertEquals( "Wrong size.", 0, diskCache.getSize() );
+
+        diskCache.disposeInternal();
+    }
+
+    /**
+     * Put, update and remove, then open the region again and verify the index is rebuilt from the
+     * segments.
+     * <p>
+     * @throws Exception
+     */
+    public void testReplayAfterRestart()
+        throws Exception
+    {
+        // SETUP
+        LogStructuredDiskCacheAttributes cattr = getCacheAttributes( "testReplayAfterRestart", 2048 );
+        LogStructuredDiskCache<String, String> diskCache = new LogStructuredDiskCache<String, String>( cattr );
+        diskCache.processRemoveAll();
+        for ( int i = 0; i < 100; i++ )
+        {
+            diskCache.processUpdate( createElement( cattr, "key" + i, "data " + i ) );
+        }
+        for ( int i = 0; i < 100; i += 2 )
+        {
+            diskCache.processUpdate( createElement( cattr, "key" + i, "updated " + i ) );
+        }
+        for ( int i = 0; i < 100; i += 5 )
+        {
+            diskCache.processRemove( "key" + i );
+        }
+        diskCache.disposeInternal();
+
+        // DO WORK
+        LogStructuredDiskCache<String, String> reopened = new LogStructuredDiskCache<String, String>( cattr );
+
+        // VERIFY
+        verifyContents( reopened );
+        reopened.disposeInternal();
+    }
+
+    /**
+     * Overwrite most keys so the old segments are mostly dead, compact, and verify the data is
+     * intact before and after a restart and that segments were deleted.
+     * <p>
+     * @throws Exception
+     */
+    public void testCompaction()
+        throws Exception
+    {
+        // SETUP
+        LogStructuredDiskCacheAttributes cattr = getCacheAttributes( "testCompaction", 2048 );
+        LogStructuredDiskCache<String, String> diskCache = new LogStructuredDiskCache<String, String>( cattr );
+        diskCache.processRemoveAll();
+        for ( int i = 0; i < 100; i++ )
+        {
+            diskCache.processUpdate( createElement( cattr, "key" + i, "data " + i ) );
+        }
+        for ( int i = 0; i < 100; i += 2 )
+        {
+            diskCache.processUpdate( createElement( cattr, "key" + i, "updated " + i ) );
+        }
+        for ( int i = 0; i < 100; i += 5 )
+        {
+            diskCache.processRemove( "key" + i );
+        }
+        long segmentsBefore = getStat( diskCache, "Segments" );
+        long lengthBefore = getStat( diskCache, "Data File Length" );
+
+        // DO WORK
+        diskCache.compact();
+
+        // VERIFY
+        assertTrue( "Should have compacted.", getStat( diskCache, "Compactions" ) > 0 );
+        assertTrue( "Should have fewer bytes on disk.", getStat( diskCache, "Data File Length" ) < lengthBefore );
+        assertTrue( "Should have deleted segments.", getStat( diskCache, "Segments" ) < segmentsBefore );
+        verifyContents( diskCache );
+
+        diskCache.disposeInternal();
+        LogStructuredDiskCache<String, String> reopened = new LogStructuredDiskCache<String, String>( cattr );
+        verifyContents( reopened );
+        reopened.disposeInternal();
+    }
+
+    /**
+     * Simulate a crash in the middle of an append and verify the region still opens with the
+     * complete records.
+     * <p>
+     * @throws Exception
+     */
+    public void testIncompleteRecord()
+        throws Exception
+    {
+        // SETUP
+        LogStructuredDiskCacheAttributes cattr = getCacheAttributes( "testIncompleteRecord", 1024 * 1024 );
+        LogStructuredDiskCache<String, String> diskCache = new LogStructuredDiskCache<String, String>( cattr );
+        diskCache.processRemoveAll();
+        diskCache.processUpdate( createElement( cattr, "key", "data" ) );
+        diskCache.disposeInternal();
+
+        RandomAccessFile raf = new RandomAccessFile( getLastSegmentFile( cattr ), "rw" );
+        raf.seek( raf.length() );
+        raf.writeInt( 1000 );
+        raf.write( new byte[] { LogSegment.TYPE_PUT, 0, 0 } );
+        raf.close();
+
+        // DO WORK
+        LogStructuredDiskCache<String, String> reopened = new LogStructuredDiskCache<String, String>( cattr );
+        reopened.processUpdate( createElement( cattr, "next", "more" ) );
+
+        // VERIFY
+        assertEquals( "data", reopened.processGet( "key" ).getVal() );
+        assertEquals( "more", reopened.processGet( "next" ).getVal() );
+        reopened.disposeInternal();
+    }
+
+    /**
+     * Verify that a remove all does not reuse the id of a deleted segment, so a reader holding an
+     * old descriptor can't read a record of another key.
+     * <p>
+     * @throws Exception
+     */
+    public void testRemoveAllKeepsSegmentIdsIncreasing()
+        throws Exception
+    {
+        // SETUP
+        LogStructuredDiskCacheAttributes cattr = getCacheAttributes( "testRemoveAllKeepsSegmentIdsIncreasing", 1024 * 1024 );
+        LogStructuredDiskCache<String, String> diskCache = new LogStructuredDiskCache<String, String>( cattr );
+        diskCache.processRemoveAll();
+        diskCache.processUpdate( createElement( cattr, "before", "data" ) );
+        File before = getLastSegmentFile( cattr );
+
+        // DO WORK
+        diskCache.processRemoveAll();
+        diskCache.processUpdate( createElement( cattr, "after", "more" ) );
+        File after = getLastSegmentFile( cattr );
+
+        // VERIFY
+        assertFalse( "The old segment should be deleted.", before.exists() );
+        assertFalse( "The new segment should have a new id.", before.equals( after ) );
+        assertNull( diskCache.processGet( "before" ) );
+        assertEquals( "more", diskCache.processGet( "after" ).getVal() );
+        diskCache.disposeInternal();
+    }
+
+    /**
+     * @param cattr
+     * @return the segment file of the region with the highest id
+     */
+    private File getLastSegmentFile( LogStructuredDiskCacheAttributes cattr )
+    {
+        File last = null;
+        int lastId = -1;
+        String prefix = cattr.getCacheName() + ".";
+        for ( String name : cattr.getDiskPath().list() )
+        {
+            if ( name.startsWith( prefix ) && name.endsWith( ".seg" ) )
+            {
+                int id = Integer.parseInt( name.substring( prefix.length(), name.length() - ".seg".length() ) );
+                if ( id > lastId )
+                {
+                    lastId = id;
+                    last = new File( cattr.getDiskPath(), name );
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Read continuously while compacting and verify no reader misses a key.
+     * <p>
+     * @throws Exception
+     */
+    public void testReadDuringCompaction()
+        throws Exception
+    {
+        // SETUP
+        LogStructuredDiskCacheAttributes cattr = getCacheAttributes( "testReadDuringCompaction", 4096 );
+        final LogStructuredDiskCache<String, String> diskCache = new LogStructuredDiskCache<String, String>( cattr );
+        diskCache.processRemoveAll();
+        for ( int n = 0; n < 3; n++ )
+        {
+            for ( int i = 0; i < 200; i++ )
+            {
+                diskCache.processUpdate( createElement( cattr, "key" + i, "data " + i ) );
+            }
+        }
+
+        final AtomicInteger misses = new AtomicInteger();
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread reader = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                while ( !done.get() )
+                {
+                    for ( int i = 0; i < 200; i++ )
+                    {
+                        ICacheElement<String, String> element = diskCache.processGet( "key" + i );
+                        if ( element == null || !( "data " + i ).equals( element.getVal() ) )
+                        {
+                            misses.incrementAndGet();
+                        }
+                    }
+                }
+            }
+        };
+        reader.start();
+
+        // DO WORK
+        diskCache.compact();
+        done.set( true );
+        reader.join();
+
+        // VERIFY
+        assertTrue( "Should have compacted.", getStat( diskCache, "Compactions" ) > 0 );
+        assertEquals( "Readers should always find the keys.", 0, misses.get() );
+        diskCache.disposeInternal();
+    }
+
+    /**
+     * Checks the state left by the put, update, remove sequence of the tests.
+     * <p>
+     * @param diskCache
+     */
+    private void verifyContents( LogStructuredDiskCache<String, String> diskCache )
+    {
+        for ( int i = 0; i < 100; i++ )
+        {
+            ICacheElement<String, String> element = diskCache.processGet( "key" + i );
+            if ( i % 5 == 0 )
+            {
+                assertNull( "Should be removed " + i, element );
+            }
+            else
+            {
+                assertNotNull( "Should be present " + i, element );
+                assertEquals( ( i % 2 == 0 ? "updated " : "data " ) + i, element.getVal() );
+            }
+        }
+        assertEquals( "Wrong size.", 80, diskCache.getSize() );
+    }
+
+    /**
+     * @param diskCache
+     * @param name
+     * @return the value of the stat
+     */
+    private long getStat( LogStructuredDiskCache<?, ?> diskCache, String name )
+    {
+        for ( IStatElement<?> element : diskCache.getStatistics().getStatElements() )
+        {
+            if ( name.equals( element.getName() ) )
+            {
+                return ( (Number) element.getData() ).longValue();
+            }
+        }
+        fail( "No stat " + name );
+        return -1;
+    }
+
+    /**
+     * @param cattr
+     * @param key
+     * @param value
+     * @return an element
+     */
+    private ICacheElement<String, String> createElement( LogStructuredDiskCacheAttributes cattr, String key, String value )
+    {
+        return new CacheElement<String, String>( cattr.getCacheName(), key, value );
+    }
+}
@@ -0,0 +1,243 @@
+package org.apache.commons.jcs.auxiliary.lateral.socket.tcp;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.control.MockCompositeCacheManager;
+import org.apache.commons.jcs.utils.timing.SleepUtil;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the non-blocking lateral transport: batched sends and concurrent, pipelined gets.
+ */
+public class LateralTCPSenderUnitTest
+    extends TestCase
+{
+    /**
+     * Starts a listener.
+     * <p>
+     * @param port the listener port
+     * @param cacheMgr the cache manager of the listener
+     * @return the listener
+     */
+    private LateralTCPListener<String, String> startListener( int port, MockCompositeCacheManager cacheMgr )
+    {
+        TCPLateralCacheAttributes lattr = new TCPLateralCacheAttributes();
+        lattr.setTcpListenerPort( port );
+        return LateralTCPListener.getInstance( lattr, cacheMgr );
+    }
+
+    /**
+     * Creates a service that talks to the listener.
+     * <p>
+     * @param port the listener port
+     * @return the service
+     * @throws Exception
+     */
+    private LateralTCPService<String, String> createService( int port )
+        throws Exception
+    {
+        TCPLateralCacheAttributes lattr2 = new TCPLateralCacheAttributes();
+        lattr2.setTcpServer( "localhost:" + port );
+        lattr2.setSocketTimeOut( 5000 );
+        LateralTCPService<String, String> service = new LateralTCPService<String, String>( lattr2 );
+        service.setListenerId( 123456 );
+        return service;
+    }
+
+    /**
+     * Verify that a burst of updates arrives completely and in order.
+     * <p>
+     * @throws Exception
+     */
+    public void testBurstOfUpdatesArrivesInOrder()
+        throws Exception
+    {
+        // SETUP
+        MockCompositeCacheManager cacheMgr = new MockCompositeCacheManager();
+        LateralTCPListener<String, String> listener = startListener( 1160, cacheMgr );
+        CompositeCache<String, String> cache = cacheMgr.getCache( "test" );
+        LateralTCPService<String, String> service = createService( 1160 );
+        int cnt = 2000;
+
+        // DO WORK
+        for ( int i = 0; i < cnt; i++ )
+        {
+            service.update( new CacheElement<String, String>( "test", "key" + ( i % 10 ), "value" + i ) );
+        }
+        // a get is answered after the updates sent before it
+        ICacheElement<String, String> last = service.get( "test", "key9" );
+
+        // VERIFY
+        assertNotNull( "Should have the last update", last );
+        assertEquals( "Wrong value", "value" + ( cnt - 1 ), last.getVal() );
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( "Wrong value for key" + i, "value" + ( cnt - 10 + i ), cache.get( "key" + i ).getVal() );
+        }
+        assertEquals( "Wrong put count", cnt, listener.getPutCnt() );
+    }
+
+    /**
+     * Verify that gets from several threads share the connection and each gets its own answer,
+     * and that a miss is answered rather than timing out.
+     * <p>
+     * @throws Exception
+     */
+    public void testConcurrentGets()
+        throws Exception
+    {
+        // SETUP
+        MockCompositeCacheManager cacheMgr = new MockCompositeCacheManager();
+        startListener( 1161, cacheMgr );
+        CompositeCache<String, String> cache = cacheMgr.getCache( "test" );
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.update( new CacheElement<String, String>( "test", "key" + i, "value" + i ) );
+        }
+        final LateralTCPService<String, String> service = createService( 1161 );
+        final AtomicInteger errors = new AtomicInteger();
+
+        // DO WORK
+        Thread[] threads = new Thread[8];
+        for ( int t = 0; t < threads.length; t++ )
+        {
+            final int offset = t;
+            threads[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for ( int i = 0; i < 200; i++ )
+                        {
+                            int k = ( i + offset ) % 100;
+                            ICacheElement<String, String> element = service.get( "test", "key" + k );
+                            if ( element == null || !( "value" + k ).equals( element.getVal() ) )
+                            {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                    catch ( Exception e )
+                    {
+                        errors.incrementAndGet();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        long start = System.currentTimeMillis();
+        ICacheElement<String, String> miss = service.get( "test", "nokey" );
+
+        // VERIFY
+        assertEquals( "Wrong answers", 0, errors.get() );
+        assertNull( "Should miss", miss );
+        assertTrue( "A miss should not wait for the time out", System.currentTimeMillis() - start < 5000 );
+    }
+
+    /**
+     * Verify that getMultiple returns the elements of all keys that are present.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetMultiple()
+        throws Exception
+    {
+        // SETUP
+        MockCompositeCacheManager cacheMgr = new MockCompositeCacheManager();
+        startListener( 1162, cacheMgr );
+        CompositeCache<String, String> cache = cacheMgr.getCache( "test" );
+        Set<String> keys = new HashSet<String>();
+        for ( int i = 0; i < 50; i++ )
+        {
+            cache.update( new CacheElement<String, String>( "test", "key" + i, "value" + i ) );
+            keys.add( "key" + i );
+        }
+        keys.add( "missing" );
+        LateralTCPService<String, String> service = createService( 1162 );
+        SleepUtil.sleepAtLeast( 100 );
+
+        // DO WORK
+        Map<String, ICacheElement<String, String>> result = service.getMultiple( "test", keys );
+
+        // VERIFY
+        assertEquals( "Wrong number of elements", 50, result.size() );
+        assertEquals( "Wrong value", "value7", result.get( "key7" ).getVal() );
+    }
+
+    /**
+     * Verify that updates and removes sent together arrive completely and in order.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdateMultipleAndRemoveMultiple()
+        throws Exception
+    {
+        // SETUP
+        MockCompositeCacheManager cacheMgr = new MockCompositeCacheManager();
+        LateralTCPListener<String, String> listener = startListener( 1163, cacheMgr );
+        CompositeCache<String, String> cache = cacheMgr.getCache( "test" );
+        LateralTCPService<String, String> service = createService( 1163 );
+        List<ICacheElement<String, String>> items = new ArrayList<ICacheElement<String, String>>();
+        for ( int i = 0; i < 50; i++ )
+        {
+            items.add( new CacheElement<String, String>( "test", "key" + ( i % 20 ), "value" + i ) );
+        }
+        List<String> keys = new ArrayList<String>();
+        for ( int i = 0; i < 5; i++ )
+        {
+            keys.add( "key" + i );
+        }
+
+        // DO WORK
+        service.updateMultiple( items, 123456 );
+        service.removeMultiple( "test", keys, 123456 );
+        // a get is answered after the batches sent before it
+        service.get( "test", "key0" );
+
+        // VERIFY
+        assertEquals( "Wrong put count", 50, listener.getPutCnt() );
+        assertEquals( "Wrong remove count", 5, listener.getRemoveCnt() );
+        for ( int i = 0; i < 5; i++ )
+        {
+            assertNull( "Should be removed", cache.get( "key" + i ) );
+        }
+        for ( int i = 5; i < 20; i++ )
+        {
+            int last = i < 10 ? i + 40 : i + 20;
+            assertEquals( "Wrong value for key" + i, "value" + last, cache.get( "key" + i ).getVal() );
+        }
+    }
+}
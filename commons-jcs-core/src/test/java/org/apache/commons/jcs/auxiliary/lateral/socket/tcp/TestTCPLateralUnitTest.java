@@ -34,6 +34,8 @@ import org.apache.commons.jcs.engine.control.group.GroupAttrName;
 import org.apache.commons.jcs.engine.control.group.GroupId;
 import org.apache.commons.jcs.utils.timing.SleepUtil;
 
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.Map;
 import java.util.Set;
 
@@ -364,4 +366,55 @@ public class TestTCPLateralUnitTest
         assertNotNull( "Result should not be null.", result );
         assertEquals( "Wrong number returned 1:", numToInsertPrefix1, result.size() );
     }
+
+    /**
+     * A request that fails on the listener should get a null response right away, rather than
+     * leave the caller waiting for its socket timeout.
+     * <p>
+     * @throws Exception
+     */
+    public void testGet_FailedRequestIsAnswered()
+        throws Exception
+    {
+        // SETUP
+        TCPLateralCacheAttributes lattr = new TCPLateralCacheAttributes();
+        lattr.setTcpListenerPort( 1160 );
+        MockCompositeCacheManager cacheMgr = new MockCompositeCacheManager();
+        LateralTCPListener.getInstance( lattr, cacheMgr );
+
+        TCPLateralCacheAttributes lattr2 = new TCPLateralCacheAttributes();
+        lattr2.setTcpListenerPort( 1161 );
+        lattr2.setTcpServer( "localhost:1160" );
+        lattr2.setSocketTimeOut( 10000 );
+
+        LateralTCPService<UnreadableKey, String> service = new LateralTCPService<UnreadableKey, String>( lattr2 );
+        service.setListenerId( 123460 );
+
+        SleepUtil.sleepAtLeast( 300 );
+
+        // DO WORK
+        long start = System.currentTimeMillis();
+        ICacheElement<UnreadableKey, String> result = service.get( "test", new UnreadableKey() );
+        long elapsed = System.currentTimeMillis() - start;
+
+        // VERIFY
+        assertNull( "Result should be null.", result );
+        assertTrue( "Should not wait for the socket timeout, took " + elapsed, elapsed < 5000 );
+    }
+
+    /** A key the listener fails to deserialize. */
+    private static class UnreadableKey
+        implements Serializable
+    {
+        /** Don't change. */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * @param in
+         */
+        private void readObject( ObjectInputStream in )
+        {
+            throw new IllegalStateException( "Can't read " + in );
+        }
+    }
 }
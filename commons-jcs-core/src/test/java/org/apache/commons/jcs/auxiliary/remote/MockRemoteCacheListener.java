@@ -43,7 +43,7 @@ public class MockRemoteCacheListener<K extends Serializable, V extends Serializa
     public String localAddress;
 
     /** Number of times handlePut was called. */
-    public int putCount;
+    public volatile int putCount;
 
     /** List of ICacheElements passed to handlePut. */
     public List<ICacheElement<K, V>> putItems = new LinkedList<ICacheElement<K,V>>();
@@ -52,7 +52,19 @@ public class MockRemoteCacheListener<K extends Serializable, V extends Serializa
     public List<K> removedKeys = new LinkedList<K>();
 
     /** Number of times handleRemote was called. */
-    public int removeCount;
+    public volatile int removeCount;
+
+    /** Number of times handlePutMultiple was called. */
+    public int putMultipleCount;
+
+    /** Number of times handleRemoveMultiple was called. */
+    public int removeMultipleCount;
+
+    /** Number of times handleRemoveAll was called. */
+    public int removeAllCount;
+
+    /** The puts, removes and remove alls handled, in order. */
+    public List<String> events = new LinkedList<String>();
 
     /** The type of remote listener */
     public RemoteType remoteType = RemoteType.LOCAL;
@@ -137,8 +149,10 @@ public class MockRemoteCacheListener<K extends Serializable, V extends Serializa
     public void handlePut( ICacheElement<K, V> item )
         throws IOException
     {
-        putCount++;
+        // count last, tests poll the count before reading the lists
         this.putItems.add( item );
+        events.add( "put:" + item.getKey() );
+        putCount++;
     }
 
     /**
@@ -152,11 +166,49 @@ public class MockRemoteCacheListener<K extends Serializable, V extends Serializa
     public void handleRemove( String cacheName, K key )
         throws IOException
     {
-        removeCount++;
         removedKeys.add( key );
+        events.add( "remove:" + key );
+        removeCount++;
     }
 
     /**
+     * Increments the put multiple count and calls handlePut for each item.
+     * <p>
+     * @param items
+     * @throws IOException
+     */
+    @Override
+    public void handlePutMultiple( List<ICacheElement<K, V>> items )
+        throws IOException
+    {
+        putMultipleCount++;
+        for ( ICacheElement<K, V> item : items )
+        {
+            handlePut( item );
+        }
+    }
+
+    /**
+     * Increments the remove multiple count and calls handleRemove for each key.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    public void handleRemoveMultiple( String cacheName, List<K> keys )
+        throws IOException
+    {
+        removeMultipleCount++;
+        for ( K key : keys )
+        {
+            handleRemove( cacheName, key );
+        }
+    }
+
+    /**
+     * Increments the remove all count.
+     * <p>
      * @param cacheName
      * @throws IOException
      */
@@ -164,6 +216,7 @@ public class MockRemoteCacheListener<K extends Serializable, V extends Serializa
     public void handleRemoveAll( String cacheName )
         throws IOException
     {
-        // TODO Auto-generated method stub
+        removeAllCount++;
+        events.add( "removeAll" );
     }
 }
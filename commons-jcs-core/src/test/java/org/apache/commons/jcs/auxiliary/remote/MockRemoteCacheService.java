@@ -125,6 +125,37 @@ public class MockRemoteCacheService<K extends Serializable, V extends Serializab
         updateRequestIdList.add( Long.valueOf( requesterId ) );
     }
 
+    /**
+     * Calls update for each item.
+     * <p>
+     * @param items
+     * @param requesterId
+     */
+    @Override
+    public void updateMultiple( List<ICacheElement<K, V>> items, long requesterId )
+    {
+        for ( ICacheElement<K, V> item : items )
+        {
+            update( item, requesterId );
+        }
+    }
+
+    /**
+     * Calls remove for each key.
+     * <p>
+     * @param cacheName
+     * @param keys
+     * @param requesterId
+     */
+    @Override
+    public void removeMultiple( String cacheName, List<K> keys, long requesterId )
+    {
+        for ( K key : keys )
+        {
+            remove( cacheName, key, requesterId );
+        }
+    }
+
     /**
      * Do nothing.
      * <p>
@@ -37,6 +37,7 @@ import java.rmi.Remote;
 import java.rmi.registry.Registry;
 import java.rmi.server.ExportException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
 
 /**
  * Manual tester.
@@ -221,6 +222,29 @@ public class RemoteCacheClientTester
         p( "handleRemove> cacheName=" + cacheName + ", key=" + key );
     }
 
+    /**
+     * @param cbs
+     * @throws IOException
+     */
+    @Override
+    public void handlePutMultiple( List<ICacheElement<String, String>> cbs )
+        throws IOException
+    {
+        p( "handlePutMultiple> cbs=" + cbs );
+    }
+
+    /**
+     * @param cacheName
+     * @param keys
+     * @throws IOException
+     */
+    @Override
+    public void handleRemoveMultiple( String cacheName, List<String> keys )
+        throws IOException
+    {
+        p( "handleRemoveMultiple> cacheName=" + cacheName + ", keys=" + keys );
+    }
+
     /**
      * @param cacheName
      * @throws IOException
@@ -30,6 +30,7 @@ import org.apache.commons.jcs.utils.serialization.SerializationConversionUtil;
 
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Unit Tests for the Remote Cache.
@@ -316,4 +317,34 @@ public class RemoteCacheUnitTest
         assertEquals( "Start should have been called.", 1, cacheEventLogger.startICacheEventCalls );
         assertEquals( "End should have been called.", 1, cacheEventLogger.endICacheEventCalls );
     }
+
+    /**
+     * Verify that getMultiple asks the service for all the keys in one call rather than one get
+     * per key.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetMultiple_singleServiceCall()
+        throws Exception
+    {
+        // SETUP
+        IRemoteCacheAttributes cattr = new RemoteCacheAttributes();
+        MockRemoteCacheService<String, String> service = new MockRemoteCacheService<String, String>();
+        MockRemoteCacheListener<String, String> listener = new MockRemoteCacheListener<String, String>();
+
+        RemoteCache<String, String> remoteCache = new RemoteCache<String, String>( cattr, service, listener );
+
+        Set<String> keys = new HashSet<String>();
+        keys.add( "key1" );
+        keys.add( "key2" );
+        keys.add( "key3" );
+
+        // DO WORK
+        Map<String, ICacheElement<String, String>> result = remoteCache.getMultiple( keys );
+
+        // VERIFY
+        assertNotNull( "Should have a result.", result );
+        assertEquals( "Wrong keys.", keys, service.lastGetMultipleKeys );
+        assertNull( "Should not have called get.", service.lastGetKey );
+    }
 }
@@ -26,8 +26,10 @@ import org.apache.commons.jcs.engine.CacheElement;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -272,4 +274,63 @@ public class RemoteHttpCacheClientUnitTest
         assertEquals( "Wrong type.", RemoteRequestType.DISPOSE, mockDispatcher.lastRemoteCacheRequest
             .getRequestType() );
     }
+
+    /**
+     * Verify that updateMultiple sends a single request.
+     * <p>
+     * @throws IOException
+     */
+    public void testUpdateMultiple_normal()
+        throws IOException
+    {
+        // SETUP
+        RemoteHttpCacheAttributes attributes = new RemoteHttpCacheAttributes();
+        RemoteHttpCacheClient<String, String> client = new RemoteHttpCacheClient<String, String>( attributes );
+
+        MockRemoteCacheDispatcher mockDispatcher = new MockRemoteCacheDispatcher();
+        client.setRemoteDispatcher( mockDispatcher );
+
+        String cacheName = "test";
+
+        List<ICacheElement<String, String>> elements = new ArrayList<ICacheElement<String, String>>();
+        elements.add( new CacheElement<String, String>( cacheName, "key1", "value1" ) );
+        elements.add( new CacheElement<String, String>( cacheName, "key2", "value2" ) );
+
+        // DO WORK
+        client.updateMultiple( elements, 0 );
+
+        // VERIFY
+        assertEquals( "Wrong type.", RemoteRequestType.UPDATE_MULTIPLE, mockDispatcher.lastRemoteCacheRequest
+            .getRequestType() );
+        assertEquals( "Wrong elements.", elements, mockDispatcher.lastRemoteCacheRequest.getCacheElements() );
+    }
+
+    /**
+     * Verify that removeMultiple sends a single request.
+     * <p>
+     * @throws IOException
+     */
+    public void testRemoveMultiple_normal()
+        throws IOException
+    {
+        // SETUP
+        RemoteHttpCacheAttributes attributes = new RemoteHttpCacheAttributes();
+        RemoteHttpCacheClient<String, String> client = new RemoteHttpCacheClient<String, String>( attributes );
+
+        MockRemoteCacheDispatcher mockDispatcher = new MockRemoteCacheDispatcher();
+        client.setRemoteDispatcher( mockDispatcher );
+
+        String cacheName = "test";
+        List<String> keys = new ArrayList<String>();
+        keys.add( "key1" );
+        keys.add( "key2" );
+
+        // DO WORK
+        client.removeMultiple( cacheName, keys, 0 );
+
+        // VERIFY
+        assertEquals( "Wrong type.", RemoteRequestType.REMOVE_MULTIPLE, mockDispatcher.lastRemoteCacheRequest
+            .getRequestType() );
+        assertEquals( "Wrong keys.", keys, mockDispatcher.lastRemoteCacheRequest.getKeyList() );
+    }
 }
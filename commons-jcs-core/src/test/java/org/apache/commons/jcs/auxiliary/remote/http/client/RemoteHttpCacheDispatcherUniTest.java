@@ -22,6 +22,9 @@ package org.apache.commons.jcs.auxiliary.remote.http.client;
 import junit.framework.TestCase;
 import org.apache.commons.jcs.auxiliary.remote.value.RemoteCacheRequest;
 import org.apache.commons.jcs.auxiliary.remote.value.RemoteRequestType;
+import org.apache.commons.jcs.utils.serialization.StandardSerializer;
+
+import java.io.ByteArrayOutputStream;
 
 /** Unit tests for the dispatcher. */
 public class RemoteHttpCacheDispatcherUniTest
@@ -49,4 +52,34 @@ public class RemoteHttpCacheDispatcherUniTest
         // VERIFY
         assertEquals( "Wrong url", baseUrl + "&CacheName=" + cacheName + "&Key=&RequestType=REMOVE_ALL", result  );
     }
+
+    /**
+     * Verify that the streamed request body reads back as the request.
+     * <p>
+     * @throws Exception
+     */
+    public void testSerializingRequestEntity_roundTrip()
+        throws Exception
+    {
+        // SETUP
+        RemoteCacheRequest<String, String> remoteCacheRequest = new RemoteCacheRequest<String, String>();
+        remoteCacheRequest.setRequestType( RemoteRequestType.GET );
+        remoteCacheRequest.setCacheName( "myCache" );
+        remoteCacheRequest.setKey( "key" );
+
+        StandardSerializer serializer = new StandardSerializer();
+        RemoteHttpCacheDispatcher.SerializingRequestEntity entity =
+            new RemoteHttpCacheDispatcher.SerializingRequestEntity( remoteCacheRequest, serializer );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // DO WORK
+        entity.writeRequest( out );
+
+        // VERIFY
+        RemoteCacheRequest<String, String> result = serializer.deSerialize( out.toByteArray(), null );
+        assertEquals( "Wrong type", RemoteRequestType.GET, result.getRequestType() );
+        assertEquals( "Wrong key", "key", result.getKey() );
+        assertEquals( "Wrong length", -1, entity.getContentLength() );
+        assertTrue( "Should be repeatable", entity.isRepeatable() );
+    }
 }
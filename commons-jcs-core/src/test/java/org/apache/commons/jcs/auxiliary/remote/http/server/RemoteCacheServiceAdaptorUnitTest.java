@@ -25,8 +25,11 @@ import org.apache.commons.jcs.auxiliary.remote.util.RemoteCacheRequestFactory;
 import org.apache.commons.jcs.auxiliary.remote.value.RemoteCacheRequest;
 import org.apache.commons.jcs.auxiliary.remote.value.RemoteCacheResponse;
 import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 /** Unit tests for the adaptor. */
@@ -187,4 +190,54 @@ public class RemoteCacheServiceAdaptorUnitTest
         assertNotNull( "Should have a result.", result );
         assertEquals( "Wrong cacheName.", cacheName, remoteHttpCacheService.lastRemoveAllCacheName );
     }
+
+    /** Verify that the service is called. */
+    public void testProcessRequest_UpdateMultiple()
+    {
+        // SETUP
+        RemoteCacheServiceAdaptor<String, String> adaptor = new RemoteCacheServiceAdaptor<String, String>();
+
+        MockRemoteCacheService<String, String> remoteHttpCacheService = new MockRemoteCacheService<String, String>();
+        adaptor.setRemoteCacheService( remoteHttpCacheService );
+
+        String cacheName = "test";
+        long requesterId = 2;
+        List<ICacheElement<String, String>> elements = new ArrayList<ICacheElement<String, String>>();
+        elements.add( new CacheElement<String, String>( cacheName, "key1", null ) );
+        elements.add( new CacheElement<String, String>( cacheName, "key2", null ) );
+        RemoteCacheRequest<String, String> request =
+            RemoteCacheRequestFactory.createUpdateMultipleRequest( elements, requesterId );
+
+        // DO WORK
+        RemoteCacheResponse<String> result = adaptor.processRequest( request );
+
+        // VERIFY
+        assertNotNull( "Should have a result.", result );
+        assertEquals( "Wrong objects.", elements, remoteHttpCacheService.updateRequestList );
+    }
+
+    /** Verify that the service is called. */
+    public void testProcessRequest_RemoveMultiple()
+    {
+        // SETUP
+        RemoteCacheServiceAdaptor<String, String> adaptor = new RemoteCacheServiceAdaptor<String, String>();
+
+        MockRemoteCacheService<String, String> remoteHttpCacheService = new MockRemoteCacheService<String, String>();
+        adaptor.setRemoteCacheService( remoteHttpCacheService );
+
+        String cacheName = "test";
+        List<String> keys = new ArrayList<String>();
+        keys.add( "key1" );
+        keys.add( "key2" );
+        long requesterId = 2;
+        RemoteCacheRequest<String, String> request =
+            RemoteCacheRequestFactory.createRemoveMultipleRequest( cacheName, keys, requesterId );
+
+        // DO WORK
+        RemoteCacheResponse<String> result = adaptor.processRequest( request );
+
+        // VERIFY
+        assertNotNull( "Should have a result.", result );
+        assertEquals( "Wrong key.", "key2", remoteHttpCacheService.lastRemoveKey );
+    }
 }
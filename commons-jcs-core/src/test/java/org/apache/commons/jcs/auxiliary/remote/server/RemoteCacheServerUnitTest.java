@@ -19,6 +19,7 @@ package org.apache.commons.jcs.auxiliary.remote.server;
  * under the License.
  */
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -254,6 +255,84 @@ public class RemoteCacheServerUnitTest
         server.shutdown();
     }
 
+    /**
+     * Put from several threads at once into two regions and verify that every item reaches the
+     * cache and the listener of its region.
+     * <p>
+     * @throws Exception
+     */
+    public void testConcurrentPutsToTwoRegions()
+        throws Exception
+    {
+        // SETUP
+        IRemoteCacheServerAttributes rcsa = new RemoteCacheServerAttributes();
+        rcsa.setConfigFileName( "/TestRemoteCacheServer.ccf" );
+        final RemoteCacheServer<String, Long> server = new RemoteCacheServer<String, Long>( rcsa );
+
+        final String[] cacheNames = { "testConcurrentPutsToTwoRegions1", "testConcurrentPutsToTwoRegions2" };
+        MockRemoteCacheListener<String, Long> listener1 = new MockRemoteCacheListener<String, Long>();
+        MockRemoteCacheListener<String, Long> listener2 = new MockRemoteCacheListener<String, Long>();
+        server.addCacheListener( cacheNames[0], listener1 );
+        server.addCacheListener( cacheNames[1], listener2 );
+
+        final int numThreads = 4;
+        final int numToPut = 50;
+        final List<Exception> errors = Collections.synchronizedList( new LinkedList<Exception>() );
+
+        // DO WORK
+        Thread[] threads = new Thread[numThreads];
+        for ( int t = 0; t < numThreads; t++ )
+        {
+            final int threadNum = t;
+            threads[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for ( int i = 0; i < numToPut; i++ )
+                        {
+                            String cacheName = cacheNames[i % 2];
+                            String key = threadNum + ":" + i;
+                            server.update( new CacheElement<String, Long>( cacheName, key, Long.valueOf( i ) ), 9999 );
+                        }
+                    }
+                    catch ( Exception e )
+                    {
+                        errors.add( e );
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for ( int t = 0; t < numThreads; t++ )
+        {
+            threads[t].join();
+        }
+
+        SleepUtil.sleepAtLeast( 200 );
+        Thread.yield();
+        SleepUtil.sleepAtLeast( 200 );
+
+        // VERIFY
+        assertTrue( "Should not have failed: " + errors, errors.isEmpty() );
+        int expectedPerRegion = numThreads * numToPut / 2;
+        assertEquals( "Wrong number of items put to listener 1.", expectedPerRegion, listener1.putItems.size() );
+        assertEquals( "Wrong number of items put to listener 2.", expectedPerRegion, listener2.putItems.size() );
+        for ( int t = 0; t < numThreads; t++ )
+        {
+            for ( int i = 0; i < numToPut; i++ )
+            {
+                ICacheElement<String, Long> element = server.get( cacheNames[i % 2], t + ":" + i );
+                assertNotNull( "Should have item " + t + ":" + i, element );
+                assertEquals( "Wrong value.", Long.valueOf( i ), element.getVal() );
+            }
+        }
+
+        server.shutdown();
+    }
+
     /**
      * Register a listener and then verify that it is called when we put using a different listener
      * id. The updates should come from a cluster listener and local cluster consistency should be
@@ -23,9 +23,12 @@ import junit.framework.TestCase;
 import org.apache.commons.jcs.auxiliary.remote.value.RemoteCacheRequest;
 import org.apache.commons.jcs.auxiliary.remote.value.RemoteRequestType;
 import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 /** Unit tests for the request creator. */
@@ -141,4 +144,46 @@ public class RemoteCacheRequestFactoryUnitTest
         assertEquals( "Wrong cacheName", cacheName, result.getCacheName() );
         assertEquals( "Wrong type", RemoteRequestType.UPDATE, result.getRequestType() );
     }
+
+    /** Simple test */
+    public void testCreateUpdateMultipleRequest_Normal()
+    {
+        // SETUP
+        String cacheName = "test";
+        long requesterId = 2;
+
+        List<ICacheElement<Serializable, Serializable>> elements = new ArrayList<ICacheElement<Serializable, Serializable>>();
+        elements.add( new CacheElement<Serializable, Serializable>( cacheName, "key1", null ) );
+        elements.add( new CacheElement<Serializable, Serializable>( cacheName, "key2", null ) );
+
+        // DO WORK
+        RemoteCacheRequest<Serializable, Serializable> result =
+            RemoteCacheRequestFactory.createUpdateMultipleRequest( elements, requesterId );
+
+        // VERIFY
+        assertNotNull( "Should have a result", result );
+        assertEquals( "Wrong cacheName", cacheName, result.getCacheName() );
+        assertEquals( "Wrong elements", elements, result.getCacheElements() );
+        assertEquals( "Wrong type", RemoteRequestType.UPDATE_MULTIPLE, result.getRequestType() );
+    }
+
+    /** Simple test */
+    public void testCreateRemoveMultipleRequest_Normal()
+    {
+        // SETUP
+        String cacheName = "test";
+        List<Serializable> keys = new ArrayList<Serializable>();
+        keys.add( "key1" );
+        long requesterId = 2;
+
+        // DO WORK
+        RemoteCacheRequest<Serializable, Serializable> result =
+            RemoteCacheRequestFactory.createRemoveMultipleRequest( cacheName, keys, requesterId );
+
+        // VERIFY
+        assertNotNull( "Should have a result", result );
+        assertEquals( "Wrong cacheName", cacheName, result.getCacheName() );
+        assertEquals( "Wrong keys", keys, result.getKeyList() );
+        assertEquals( "Wrong type", RemoteRequestType.REMOVE_MULTIPLE, result.getRequestType() );
+    }
 }
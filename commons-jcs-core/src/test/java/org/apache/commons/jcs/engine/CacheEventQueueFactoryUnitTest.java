@@ -64,4 +64,22 @@ public class CacheEventQueueFactoryUnitTest
         assertNotNull( "Should have a result", result );
         assertTrue( "Wrong type", result instanceof PooledCacheEventQueue );
     }
+
+    /** Test create with batching configured */
+    public void testCreateCacheEventQueue_Batched()
+    {
+        // SETUP
+        ICacheListener<String, String> listener = new MockRemoteCacheListener<String, String>();
+        long listenerId = 1;
+
+        CacheEventQueueFactory<String, String> factory = new CacheEventQueueFactory<String, String>();
+
+        // DO WORK
+        ICacheEventQueue<String, String> result = factory.createCacheEventQueue( listener, listenerId, "cacheName", "threadPoolName", QueueType.SINGLE, 25, 300 );
+
+        // VERIFY
+        CacheEventQueue<String, String> queue = (CacheEventQueue<String, String>) result;
+        assertEquals( "Wrong batch size", 25, queue.getMaxBatchSize() );
+        assertEquals( "Wrong batch delay", 300, queue.getMaxBatchDelayMicros() );
+    }
 }
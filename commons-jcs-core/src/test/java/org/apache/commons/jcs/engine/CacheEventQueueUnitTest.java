@@ -0,0 +1,183 @@
+package org.apache.commons.jcs.engine;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.commons.jcs.auxiliary.remote.MockRemoteCacheListener;
+
+/** Unit tests for batching in the event queues. */
+public class CacheEventQueueUnitTest
+    extends TestCase
+{
+    /**
+     * Puts that come in while the queue waits for a batch should reach the listener in one call,
+     * in order.
+     * <p>
+     * @throws Exception
+     */
+    public void testPutsAreBatched()
+        throws Exception
+    {
+        // SETUP
+        MockRemoteCacheListener<String, String> listener = new MockRemoteCacheListener<String, String>();
+        CacheEventQueue<String, String> queue = new CacheEventQueue<String, String>( listener, 1, "testCache" );
+        queue.setMaxBatchDelayMicros( 500000 );
+
+        // DO WORK
+        for ( int i = 0; i < 10; i++ )
+        {
+            queue.addPutEvent( new CacheElement<String, String>( "testCache", "key" + i, "value" + i ) );
+        }
+        waitFor( listener, 10, 0 );
+
+        // VERIFY
+        assertEquals( "Wrong number of puts", 10, listener.putCount );
+        assertEquals( "Should be one batch", 1, listener.putMultipleCount );
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( "Wrong order", "key" + i, listener.putItems.get( i ).getKey() );
+        }
+    }
+
+    /**
+     * A remove ends a run of puts, so puts and removes are not reordered.
+     * <p>
+     * @throws Exception
+     */
+    public void testRunsOfDifferentKinds()
+        throws Exception
+    {
+        // SETUP
+        MockRemoteCacheListener<String, String> listener = new MockRemoteCacheListener<String, String>();
+        CacheEventQueue<String, String> queue = new CacheEventQueue<String, String>( listener, 1, "testCache" );
+        queue.setMaxBatchDelayMicros( 500000 );
+
+        // DO WORK
+        queue.addPutEvent( new CacheElement<String, String>( "testCache", "key1", "value1" ) );
+        queue.addPutEvent( new CacheElement<String, String>( "testCache", "key2", "value2" ) );
+        queue.addRemoveEvent( "key1" );
+        queue.addRemoveEvent( "key2" );
+        queue.addPutEvent( new CacheElement<String, String>( "testCache", "key3", "value3" ) );
+        waitFor( listener, 3, 2 );
+
+        // VERIFY
+        assertEquals( "Wrong number of puts", 3, listener.putCount );
+        assertEquals( "Wrong number of removes", 2, listener.removeCount );
+        assertEquals( "Wrong number of put batches", 1, listener.putMultipleCount );
+        assertEquals( "Wrong number of remove batches", 1, listener.removeMultipleCount );
+        assertEquals( "Wrong order", "key2", listener.removedKeys.get( 1 ) );
+    }
+
+    /**
+     * A max batch size of 1 hands every event over on its own.
+     * <p>
+     * @throws Exception
+     */
+    public void testBatchingOff()
+        throws Exception
+    {
+        // SETUP
+        MockRemoteCacheListener<String, String> listener = new MockRemoteCacheListener<String, String>();
+        CacheEventQueue<String, String> queue = new CacheEventQueue<String, String>( listener, 1, "testCache" );
+        queue.setMaxBatchSize( 1 );
+        queue.setMaxBatchDelayMicros( 500000 );
+
+        // DO WORK
+        for ( int i = 0; i < 5; i++ )
+        {
+            queue.addPutEvent( new CacheElement<String, String>( "testCache", "key" + i, "value" + i ) );
+        }
+        waitFor( listener, 5, 0 );
+
+        // VERIFY
+        assertEquals( "Wrong number of puts", 5, listener.putCount );
+        assertEquals( "Should not batch", 0, listener.putMultipleCount );
+    }
+
+    /**
+     * The pooled queue batches the puts that pile up, too.
+     * <p>
+     * @throws Exception
+     */
+    public void testPooledPutsAreBatched()
+        throws Exception
+    {
+        // SETUP
+        MockRemoteCacheListener<String, String> listener = new MockRemoteCacheListener<String, String>();
+        PooledCacheEventQueue<String, String> queue =
+            new PooledCacheEventQueue<String, String>( listener, 1, "testCache", 3, 500, null );
+        queue.setMaxBatchDelayMicros( 500000 );
+
+        // DO WORK
+        for ( int i = 0; i < 10; i++ )
+        {
+            queue.addPutEvent( new CacheElement<String, String>( "testCache", "key" + i, "value" + i ) );
+        }
+        waitFor( listener, 10, 0 );
+
+        // VERIFY
+        assertEquals( "Wrong number of puts", 10, listener.putCount );
+        assertEquals( "Should be one batch", 1, listener.putMultipleCount );
+        assertTrue( "Should be empty", queue.isEmpty() );
+    }
+
+    /**
+     * A remove all goes through the same drainer as the puts around it, so the listener sees it
+     * between them.
+     * <p>
+     * @throws Exception
+     */
+    public void testPooledRemoveAllIsNotReordered()
+        throws Exception
+    {
+        // SETUP
+        MockRemoteCacheListener<String, String> listener = new MockRemoteCacheListener<String, String>();
+        PooledCacheEventQueue<String, String> queue =
+            new PooledCacheEventQueue<String, String>( listener, 1, "testCache", 3, 500, null );
+        queue.setMaxBatchDelayMicros( 100000 );
+
+        // DO WORK
+        queue.addPutEvent( new CacheElement<String, String>( "testCache", "key1", "value1" ) );
+        queue.addRemoveAllEvent();
+        queue.addPutEvent( new CacheElement<String, String>( "testCache", "key2", "value2" ) );
+        waitFor( listener, 2, 0 );
+
+        // VERIFY
+        assertEquals( "Wrong order", "[put:key1, removeAll, put:key2]", listener.events.toString() );
+        assertEquals( "Should not batch across the remove all", 0, listener.putMultipleCount );
+    }
+
+    /**
+     * Waits up to 5 seconds for the listener to see the events.
+     * <p>
+     * @param listener
+     * @param puts
+     * @param removes
+     * @throws InterruptedException
+     */
+    private void waitFor( MockRemoteCacheListener<String, String> listener, int puts, int removes )
+        throws InterruptedException
+    {
+        for ( int i = 0; i < 100 && ( listener.putCount < puts || listener.removeCount < removes ); i++ )
+        {
+            Thread.sleep( 50 );
+        }
+    }
+}
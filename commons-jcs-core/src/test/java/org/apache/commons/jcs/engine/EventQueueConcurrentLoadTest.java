@@ -27,6 +27,7 @@ import org.apache.commons.jcs.engine.behavior.ICacheListener;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * This test case is designed to makes sure there are no deadlocks in the event queue. The time to
@@ -336,6 +337,35 @@ public class EventQueueConcurrentLoadTest
 
         }
 
+        /**
+         * @param items
+         * @throws IOException
+         */
+        @Override
+        public void handlePutMultiple( List<ICacheElement<K, V>> items )
+            throws IOException
+        {
+            synchronized ( this )
+            {
+                putCount += items.size();
+            }
+        }
+
+        /**
+         * @param cacheName
+         * @param keys
+         * @throws IOException
+         */
+        @Override
+        public void handleRemoveMultiple( String cacheName, List<K> keys )
+            throws IOException
+        {
+            synchronized ( this )
+            {
+                removeCount += keys.size();
+            }
+        }
+
         /**
          * @param cacheName
          * @throws IOException
@@ -26,13 +26,21 @@ import org.apache.commons.jcs.engine.CacheElement;
 import org.apache.commons.jcs.engine.CompositeCacheAttributes;
 import org.apache.commons.jcs.engine.ElementAttributes;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElementRemapper;
 import org.apache.commons.jcs.engine.behavior.ICacheType.CacheType;
 import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes;
 import org.apache.commons.jcs.engine.behavior.IElementAttributes;
 import org.apache.commons.jcs.engine.memory.MockMemoryCache;
+import org.apache.commons.jcs.utils.timing.SleepUtil;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Tests that directly engage the composite cache.
@@ -242,4 +250,852 @@ public class CompositeCacheUnitTest
         // VERIFY
         assertEquals( "Wrong number of calls", 1, diskMock.getMatchingCallCount );
     }
+
+    /**
+     * Verify that concurrent misses for the same key result in a single auxiliary lookup.
+     * <p>
+     * @throws Exception
+     */
+    public void testGet_ConcurrentMissesCoalesced()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testGet_ConcurrentMissesCoalesced";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 100 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, attr );
+
+        MockAuxiliaryCache<String, Integer> diskMock = new MockAuxiliaryCache<String, Integer>();
+        diskMock.cacheType = CacheType.DISK_CACHE;
+        diskMock.getDelayMillis = 500;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        // DO WORK
+        int numThreads = 10;
+        Thread[] threads = new Thread[numThreads];
+        for ( int i = 0; i < numThreads; i++ )
+        {
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    cache.get( "key" );
+                }
+            };
+            threads[i].start();
+        }
+        for ( int i = 0; i < numThreads; i++ )
+        {
+            threads[i].join();
+        }
+
+        // VERIFY
+        assertEquals( "Wrong number of calls", 1, diskMock.getCallCount.get() );
+        assertEquals( "Wrong number of misses", numThreads, cache.getMissCountNotFound() );
+    }
+
+    /**
+     * Verify that misses for different keys each go to the auxiliary.
+     * <p>
+     * @throws Exception
+     */
+    public void testGet_ConcurrentMissesDifferentKeys()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testGet_ConcurrentMissesDifferentKeys";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 100 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, attr );
+
+        MockAuxiliaryCache<String, Integer> diskMock = new MockAuxiliaryCache<String, Integer>();
+        diskMock.cacheType = CacheType.DISK_CACHE;
+        diskMock.getDelayMillis = 100;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        // DO WORK
+        int numThreads = 10;
+        Thread[] threads = new Thread[numThreads];
+        for ( int i = 0; i < numThreads; i++ )
+        {
+            final String key = "key" + i;
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    cache.get( key );
+                }
+            };
+            threads[i].start();
+        }
+        for ( int i = 0; i < numThreads; i++ )
+        {
+            threads[i].join();
+        }
+
+        // VERIFY
+        assertEquals( "Wrong number of calls", numThreads, diskMock.getCallCount.get() );
+    }
+
+    /**
+     * Verify that an element found in an auxiliary is not copied to memory over a put made while
+     * the lookup was running, and does not bring back a key removed meanwhile.
+     * <p>
+     * @throws Exception
+     */
+    public void testGet_AuxiliaryCopyRacesUpdateAndRemove()
+        throws Exception
+    {
+        // SETUP
+        final String cacheName = "testGet_AuxiliaryCopyRacesUpdateAndRemove";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 100 );
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+        MockAuxiliaryCache<String, Integer> diskMock = createAuxWithElements( cacheName, CacheType.DISK_CACHE, "1", "2" );
+        diskMock.getDelayMillis = 300;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        // DO WORK
+        Thread updated = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                cache.get( "1" );
+            }
+        };
+        Thread removed = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                cache.get( "2" );
+            }
+        };
+        updated.start();
+        removed.start();
+        Thread.sleep( 100 );
+        cache.update( new CacheElement<String, Integer>( cacheName, "1", Integer.valueOf( 10 ) ) );
+        cache.remove( "2" );
+        diskMock.getMultipleElements.remove( "2" );
+        updated.join();
+        removed.join();
+
+        // VERIFY
+        assertEquals( "The put should win", Integer.valueOf( 10 ), cache.getMemoryCache().getQuiet( "1" ).getVal() );
+        assertNull( "The removed key should stay removed", cache.getMemoryCache().getQuiet( "2" ) );
+    }
+
+    /**
+     * A get made under the key lock must not wait for a lookup that needs the same lock to finish.
+     * <p>
+     * @throws Exception
+     */
+    public void testGet_UnderKeyLockWhileLookupInFlight()
+        throws Exception
+    {
+        // SETUP
+        final String cacheName = "testGet_UnderKeyLockWhileLookupInFlight";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 100 );
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+        MockAuxiliaryCache<String, Integer> diskMock = createAuxWithElements( cacheName, CacheType.DISK_CACHE, "1" );
+        diskMock.getDelayMillis = 300;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        // DO WORK
+        Thread lookup = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                cache.get( "1" );
+            }
+        };
+        final AtomicReference<ICacheElement<String, Integer>> underLock = new AtomicReference<ICacheElement<String, Integer>>();
+        Thread invoke = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    underLock.set( cache.callUnderKeyLock( "1", new Callable<ICacheElement<String, Integer>>()
+                    {
+                        @Override
+                        public ICacheElement<String, Integer> call()
+                        {
+                            return cache.get( "1" );
+                        }
+                    } ) );
+                }
+                catch ( Exception e )
+                {
+                    // the assertions below fail
+                }
+            }
+        };
+        lookup.start();
+        Thread.sleep( 100 );
+        invoke.start();
+        invoke.join( 5000 );
+        lookup.join( 5000 );
+
+        // VERIFY
+        assertFalse( "The get under the key lock should not hang", invoke.isAlive() );
+        assertFalse( "The lookup in flight should not hang", lookup.isAlive() );
+        assertNotNull( "The get under the key lock should find the element", underLock.get() );
+    }
+
+    /**
+     * Verify that concurrent updates are all applied and counted.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdate_Concurrent()
+        throws Exception
+    {
+        // SETUP
+        final String cacheName = "testUpdate_Concurrent";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 10000 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, attr );
+
+        // DO WORK
+        final int numThreads = 8;
+        final int numPerThread = 500;
+        Thread[] threads = new Thread[numThreads];
+        for ( int i = 0; i < numThreads; i++ )
+        {
+            final int offset = i * numPerThread;
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for ( int j = offset; j < offset + numPerThread; j++ )
+                        {
+                            cache.update( new CacheElement<String, Integer>( cacheName, String.valueOf( j ), Integer.valueOf( j ) ) );
+                        }
+                    }
+                    catch ( IOException e )
+                    {
+                        fail( e.getMessage() );
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for ( int i = 0; i < numThreads; i++ )
+        {
+            threads[i].join();
+        }
+
+        // VERIFY
+        assertEquals( "Wrong update count", numThreads * numPerThread, cache.getUpdateCount() );
+        assertEquals( "Wrong size", numThreads * numPerThread, cache.getSize() );
+        for ( int j = 0; j < numThreads * numPerThread; j++ )
+        {
+            assertEquals( "Wrong value", Integer.valueOf( j ), cache.get( String.valueOf( j ) ).getVal() );
+        }
+    }
+
+    /**
+     * Verify that with an off-heap tier, memory overflow goes to the tier, only the tier's
+     * overflow reaches the disk, and a get moves the element back to memory.
+     * <p>
+     * @throws Exception
+     */
+    public void testSpool_OffHeapTier()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testSpool_OffHeapTier";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 10 );
+        cattr.setSpoolChunkSize( 1 );
+        cattr.setOffHeapMaxBytes( 20 * 4096 );
+        cattr.setOffHeapBlockSizeBytes( 4096 );
+
+        IElementAttributes attr = new ElementAttributes();
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, attr );
+
+        MockAuxiliaryCache<String, Integer> diskMock = new MockAuxiliaryCache<String, Integer>();
+        diskMock.cacheType = CacheType.DISK_CACHE;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        // DO WORK
+        for ( int i = 0; i < 30; i++ )
+        {
+            cache.update( new CacheElement<String, Integer>( cacheName, String.valueOf( i ), Integer.valueOf( i ) ) );
+        }
+
+        // VERIFY
+        assertEquals( "Wrong memory size", 10, cache.getMemoryCache().getSize() );
+        assertEquals( "Wrong off-heap size", 20, cache.getOffHeapCache().getSize() );
+        assertEquals( "Nothing should reach the disk yet", 0, diskMock.updateCount.get() );
+
+        ICacheElement<String, Integer> element = cache.get( "0" );
+        assertEquals( "Wrong value", Integer.valueOf( 0 ), element.getVal() );
+        assertEquals( "Wrong off-heap hit count", 1, cache.getHitCountOffHeap() );
+        assertEquals( "Disk should not be asked", 0, diskMock.getCallCount.get() );
+        assertNotNull( "Should be back in memory", cache.getMemoryCache().getQuiet( "0" ) );
+
+        cache.update( new CacheElement<String, Integer>( cacheName, "30", Integer.valueOf( 30 ) ) );
+        cache.update( new CacheElement<String, Integer>( cacheName, "31", Integer.valueOf( 31 ) ) );
+        assertTrue( "Tier overflow should reach the disk", diskMock.updateCount.get() > 0 );
+
+        assertTrue( "Should remove from the tier", cache.remove( "5" ) );
+        assertNull( "Removed", cache.getOffHeapCache().get( "5" ) );
+    }
+
+    /**
+     * Verify that a spool that finishes after a newer put of the same key does not leave the old
+     * element in the off-heap tier.
+     * <p>
+     * @throws Exception
+     */
+    public void testSpool_OffHeapTierAfterNewerPut()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testSpool_OffHeapTierAfterNewerPut";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 10 );
+        cattr.setOffHeapMaxBytes( 20 * 4096 );
+        cattr.setOffHeapBlockSizeBytes( 4096 );
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+
+        ICacheElement<String, Integer> old = new CacheElement<String, Integer>( cacheName, "1", Integer.valueOf( 1 ) );
+        cache.update( old );
+        cache.update( new CacheElement<String, Integer>( cacheName, "1", Integer.valueOf( 2 ) ) );
+
+        // DO WORK
+        cache.spoolToDisk( old );
+
+        // VERIFY
+        assertNull( "The old element should not stay off-heap", cache.getOffHeapCache().get( "1" ) );
+        assertEquals( "Wrong value", Integer.valueOf( 2 ), cache.get( "1" ).getVal() );
+    }
+
+    /**
+     * Verify that without a fan-out pool a later auxiliary is only asked for the keys the earlier
+     * ones did not have.
+     * <p>
+     * @throws IOException
+     */
+    public void testGetMultiple_SequentialCascade()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testCacheName";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 0 );
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+        MockAuxiliaryCache<String, Integer> diskMock = createAuxWithElements( cacheName, CacheType.DISK_CACHE, "1" );
+        MockAuxiliaryCache<String, Integer> remoteMock = createAuxWithElements( cacheName, CacheType.REMOTE_CACHE, "1", "2" );
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock, remoteMock };
+        cache.setAuxCaches( aux );
+
+        Set<String> keys = new HashSet<String>();
+        keys.add( "1" );
+        keys.add( "2" );
+        keys.add( "3" );
+
+        // DO WORK
+        Map<String, ICacheElement<String, Integer>> result = cache.getMultiple( keys );
+
+        // VERIFY
+        assertEquals( "Wrong number found.", 2, result.size() );
+        assertSame( "Disk should win.", diskMock.getMultipleElements.get( "1" ), result.get( "1" ) );
+        assertEquals( "Wrong keys asked of remote.", 2, remoteMock.lastGetMultipleKeys.size() );
+        assertFalse( "Remote should not be asked for 1.", remoteMock.lastGetMultipleKeys.contains( "1" ) );
+    }
+
+    /**
+     * Verify that with a fan-out pool each auxiliary is asked once, the remote only for the keys
+     * the disk did not have.
+     * <p>
+     * @throws IOException
+     */
+    public void testGetMultiple_FanOut()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testCacheName";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 0 );
+        cattr.setAuxiliaryFanOutPoolName( "aux_fan_out_test" );
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+        MockAuxiliaryCache<String, Integer> diskMock = createAuxWithElements( cacheName, CacheType.DISK_CACHE, "1" );
+        MockAuxiliaryCache<String, Integer> remoteMock = createAuxWithElements( cacheName, CacheType.REMOTE_CACHE, "1", "2" );
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock, remoteMock };
+        cache.setAuxCaches( aux );
+
+        Set<String> keys = new HashSet<String>();
+        keys.add( "1" );
+        keys.add( "2" );
+        keys.add( "3" );
+
+        // DO WORK
+        Map<String, ICacheElement<String, Integer>> result = cache.getMultiple( keys );
+
+        // VERIFY
+        assertEquals( "Wrong number found.", 2, result.size() );
+        assertSame( "Disk should win.", diskMock.getMultipleElements.get( "1" ), result.get( "1" ) );
+        assertSame( "Wrong element from remote.", remoteMock.getMultipleElements.get( "2" ), result.get( "2" ) );
+        assertEquals( "Disk should be called once.", 1, diskMock.getMultipleCallCount.get() );
+        assertEquals( "Remote should be called once.", 1, remoteMock.getMultipleCallCount.get() );
+        assertEquals( "Remote should only be asked for the missing keys.", 2, remoteMock.lastGetMultipleKeys.size() );
+        assertFalse( "Remote should not be asked for 1.", remoteMock.lastGetMultipleKeys.contains( "1" ) );
+    }
+
+    /**
+     * Verify that with a fan-out pool a key the disk only has expired is looked up remotely.
+     * <p>
+     * @throws IOException
+     */
+    public void testGetMultiple_FanOutExpiredCascades()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testCacheName";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 0 );
+        cattr.setAuxiliaryFanOutPoolName( "aux_fan_out_test" );
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+        MockAuxiliaryCache<String, Integer> diskMock = createAuxWithElements( cacheName, CacheType.DISK_CACHE, "1" );
+        ElementAttributes expired = new ElementAttributes();
+        expired.setIsEternal( false );
+        expired.setMaxLife( 1 );
+        expired.setCreateTime( System.currentTimeMillis() - 10000 );
+        diskMock.getMultipleElements.get( "1" ).setElementAttributes( expired );
+        MockAuxiliaryCache<String, Integer> remoteMock = createAuxWithElements( cacheName, CacheType.REMOTE_CACHE, "1" );
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock, remoteMock };
+        cache.setAuxCaches( aux );
+
+        Set<String> keys = new HashSet<String>();
+        keys.add( "1" );
+
+        // DO WORK
+        Map<String, ICacheElement<String, Integer>> result = cache.getMultiple( keys );
+
+        // VERIFY
+        assertSame( "Remote should supply the key.", remoteMock.getMultipleElements.get( "1" ), result.get( "1" ) );
+        assertEquals( "Wrong expired count.", 1, cache.getMissCountExpired() );
+    }
+
+    /**
+     * Verify that with a fan-out pool an auxiliary that does not answer in time counts as a miss.
+     * <p>
+     * @throws IOException
+     */
+    public void testGetMultiple_FanOutTimeout()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testCacheName";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 0 );
+        cattr.setAuxiliaryFanOutPoolName( "aux_fan_out_test" );
+        cattr.setAuxiliaryFanOutTimeoutMillis( 100 );
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+        MockAuxiliaryCache<String, Integer> diskMock = createAuxWithElements( cacheName, CacheType.DISK_CACHE, "1" );
+        MockAuxiliaryCache<String, Integer> remoteMock = createAuxWithElements( cacheName, CacheType.REMOTE_CACHE, "2" );
+        remoteMock.getMultipleDelayMillis = 2000;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock, remoteMock };
+        cache.setAuxCaches( aux );
+
+        Set<String> keys = new HashSet<String>();
+        keys.add( "1" );
+        keys.add( "2" );
+
+        // DO WORK
+        long start = System.currentTimeMillis();
+        Map<String, ICacheElement<String, Integer>> result = cache.getMultiple( keys );
+        long took = System.currentTimeMillis() - start;
+        SleepUtil.sleepAtLeast( 2500 );
+
+        // VERIFY
+        assertTrue( "Should not wait for the remote, took " + took, took < 1500 );
+        assertEquals( "Only the disk should answer.", 1, result.size() );
+        assertEquals( "Wrong miss count.", 1, cache.getMissCountNotFound() );
+        assertFalse( "The late auxiliary should not be interrupted", remoteMock.getMultipleInterrupted );
+    }
+
+    /**
+     * Verify that localOnly gets skip the remote auxiliary when fanning out.
+     * <p>
+     * @throws IOException
+     */
+    public void testGetMultiple_FanOutLocalOnly()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testCacheName";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 0 );
+        cattr.setAuxiliaryFanOutPoolName( "aux_fan_out_test" );
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+        MockAuxiliaryCache<String, Integer> diskMock = createAuxWithElements( cacheName, CacheType.DISK_CACHE, "1" );
+        MockAuxiliaryCache<String, Integer> remoteMock = createAuxWithElements( cacheName, CacheType.REMOTE_CACHE, "2" );
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock, remoteMock };
+        cache.setAuxCaches( aux );
+
+        Set<String> keys = new HashSet<String>();
+        keys.add( "1" );
+        keys.add( "2" );
+
+        // DO WORK
+        Map<String, ICacheElement<String, Integer>> result = cache.localGetMultiple( keys );
+
+        // VERIFY
+        assertEquals( "Wrong number found.", 1, result.size() );
+        assertEquals( "Remote should not be called.", 0, remoteMock.getMultipleCallCount.get() );
+    }
+
+    /**
+     * Verify that updateMultiple puts all the elements in memory and sends each auxiliary the
+     * elements it accepts in one call, skipping remote caches for local updates.
+     * <p>
+     * @throws IOException
+     */
+    public void testUpdateMultiple()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testCacheName";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 100 );
+        cattr.setUseDisk( true );
+        cattr.setDiskUsagePattern( ICompositeCacheAttributes.DiskUsagePattern.UPDATE );
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+        MockAuxiliaryCache<String, Integer> diskMock = createAuxWithElements( cacheName, CacheType.DISK_CACHE );
+        MockAuxiliaryCache<String, Integer> remoteMock = createAuxWithElements( cacheName, CacheType.REMOTE_CACHE );
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock, remoteMock };
+        cache.setAuxCaches( aux );
+
+        List<ICacheElement<String, Integer>> elements = new ArrayList<ICacheElement<String, Integer>>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            ElementAttributes attr = new ElementAttributes();
+            // odd elements may not go to disk
+            attr.setIsSpool( i % 2 == 0 );
+            elements.add( new CacheElement<String, Integer>( cacheName, String.valueOf( i ), Integer.valueOf( i ), attr ) );
+        }
+
+        // DO WORK
+        cache.localUpdateMultiple( elements );
+
+        // VERIFY
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( "Wrong value in memory.", Integer.valueOf( i ), cache.localGet( String.valueOf( i ) ).getVal() );
+        }
+        assertEquals( "Disk should be called once.", 1, diskMock.updateMultipleCallCount.get() );
+        assertEquals( "Disk should get the spoolable elements.", 5, diskMock.lastUpdateMultipleElements.size() );
+        assertEquals( "Disk should not get single updates.", 0, diskMock.updateCount.get() );
+        assertEquals( "Remote should not be called.", 0, remoteMock.updateMultipleCallCount.get() );
+        assertEquals( "Wrong update count.", 10, cache.getUpdateCount() );
+    }
+
+    /**
+     * Verify that an update racing updateMultiple on one of its keys is not overwritten on disk by
+     * the older value of the batch.
+     * <p>
+     * @throws Exception
+     */
+    public void testUpdateMultiple_AuxiliariesKeepKeyOrder()
+        throws Exception
+    {
+        // SETUP
+        final String cacheName = "testCacheName";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 100 );
+        cattr.setUseDisk( true );
+        cattr.setDiskUsagePattern( ICompositeCacheAttributes.DiskUsagePattern.UPDATE );
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+        MockAuxiliaryCache<String, Integer> diskMock = createAuxWithElements( cacheName, CacheType.DISK_CACHE );
+        diskMock.updateMultipleDelayMillis = 500;
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        final List<ICacheElement<String, Integer>> elements = new ArrayList<ICacheElement<String, Integer>>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            elements.add( new CacheElement<String, Integer>( cacheName, String.valueOf( i ), Integer.valueOf( i ) ) );
+        }
+
+        Thread batch = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    cache.updateMultiple( elements );
+                }
+                catch ( IOException e )
+                {
+                    fail( e.getMessage() );
+                }
+            }
+        };
+
+        // DO WORK
+        batch.start();
+        Thread.sleep( 200 );
+        cache.update( new CacheElement<String, Integer>( cacheName, "1", Integer.valueOf( 100 ) ) );
+        batch.join();
+
+        // VERIFY
+        assertEquals( "Disk should be called once.", 1, diskMock.updateMultipleCallCount.get() );
+        assertEquals( "The later update should win in memory", Integer.valueOf( 100 ),
+                      cache.getMemoryCache().getQuiet( "1" ).getVal() );
+        assertEquals( "The later update should win on disk", Integer.valueOf( 100 ),
+                      diskMock.writtenValues.get( "1" ) );
+    }
+
+    /**
+     * Verify that removeMultiple clears memory and calls each auxiliary once.
+     * <p>
+     * @throws IOException
+     */
+    public void testRemoveMultiple()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testCacheName";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 100 );
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+        MockAuxiliaryCache<String, Integer> diskMock = createAuxWithElements( cacheName, CacheType.DISK_CACHE );
+        MockAuxiliaryCache<String, Integer> remoteMock = createAuxWithElements( cacheName, CacheType.REMOTE_CACHE );
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock, remoteMock };
+        cache.setAuxCaches( aux );
+
+        Set<String> keys = new HashSet<String>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            String key = String.valueOf( i );
+            cache.update( new CacheElement<String, Integer>( cacheName, key, Integer.valueOf( i ), new ElementAttributes() ) );
+            if ( i < 5 )
+            {
+                keys.add( key );
+            }
+        }
+
+        // DO WORK
+        cache.removeMultiple( keys );
+
+        // VERIFY
+        for ( int i = 0; i < 10; i++ )
+        {
+            ICacheElement<String, Integer> element = cache.localGet( String.valueOf( i ) );
+            if ( i < 5 )
+            {
+                assertNull( "Should be removed " + i, element );
+            }
+            else
+            {
+                assertNotNull( "Should be kept " + i, element );
+            }
+        }
+        assertEquals( "Disk should be called once.", 1, diskMock.removeMultipleCallCount.get() );
+        assertEquals( "Remote should be called once.", 1, remoteMock.removeMultipleCallCount.get() );
+        assertEquals( "Wrong keys sent to remote.", keys, new HashSet<String>( remoteMock.lastRemoveMultipleKeys ) );
+    }
+
+    /**
+     * Verify that concurrent computes of one key see each other's results and that a null result
+     * removes the key.
+     * <p>
+     * @throws Exception
+     */
+    public void testCompute()
+        throws Exception
+    {
+        // SETUP
+        String cacheName = "testCacheName";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 100 );
+
+        final CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+        final ICacheElementRemapper<String, Integer> increment = new ICacheElementRemapper<String, Integer>()
+        {
+            @Override
+            public ICacheElement<String, Integer> remap( String key, ICacheElement<String, Integer> current )
+            {
+                int value = current == null ? 1 : current.getVal().intValue() + 1;
+                return new CacheElement<String, Integer>( "testCacheName", key, Integer.valueOf( value ), new ElementAttributes() );
+            }
+        };
+        final int threads = 4;
+        final int increments = 500;
+
+        // DO WORK
+        Thread[] workers = new Thread[threads];
+        for ( int i = 0; i < threads; i++ )
+        {
+            workers[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for ( int j = 0; j < increments; j++ )
+                        {
+                            cache.compute( "counter", increment );
+                        }
+                    }
+                    catch ( IOException e )
+                    {
+                        fail( e.getMessage() );
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        for ( Thread worker : workers )
+        {
+            worker.join();
+        }
+
+        // VERIFY
+        assertEquals( "Wrong count", threads * increments, cache.get( "counter" ).getVal().intValue() );
+
+        // DO WORK
+        ICacheElement<String, Integer> result = cache.compute( "counter", new ICacheElementRemapper<String, Integer>()
+        {
+            @Override
+            public ICacheElement<String, Integer> remap( String key, ICacheElement<String, Integer> current )
+            {
+                return null;
+            }
+        } );
+
+        // VERIFY
+        assertNull( "Should return null", result );
+        assertNull( "Should be removed", cache.get( "counter" ) );
+    }
+
+    /**
+     * Verify that putIfAbsent and replace only store when their condition holds.
+     * <p>
+     * @throws IOException
+     */
+    public void testPutIfAbsentAndReplace()
+        throws IOException
+    {
+        // SETUP
+        String cacheName = "testCacheName";
+        ICompositeCacheAttributes cattr = new CompositeCacheAttributes();
+        cattr.setCacheName( cacheName );
+        cattr.setMaxObjects( 100 );
+        cattr.setUseDisk( true );
+        cattr.setDiskUsagePattern( ICompositeCacheAttributes.DiskUsagePattern.UPDATE );
+
+        CompositeCache<String, Integer> cache = new CompositeCache<String, Integer>( cattr, new ElementAttributes() );
+        MockAuxiliaryCache<String, Integer> diskMock = createAuxWithElements( cacheName, CacheType.DISK_CACHE );
+        @SuppressWarnings("unchecked")
+        AuxiliaryCache<String, Integer>[] aux = new AuxiliaryCache[] { diskMock };
+        cache.setAuxCaches( aux );
+
+        // DO WORK
+        boolean replacedAbsent = cache.replace( new CacheElement<String, Integer>( cacheName, "key", Integer.valueOf( 0 ), new ElementAttributes() ) );
+        ICacheElement<String, Integer> first = cache.putIfAbsent( new CacheElement<String, Integer>( cacheName, "key", Integer.valueOf( 1 ), new ElementAttributes() ) );
+        ICacheElement<String, Integer> second = cache.putIfAbsent( new CacheElement<String, Integer>( cacheName, "key", Integer.valueOf( 2 ), new ElementAttributes() ) );
+        int updatesAfterPutIfAbsent = diskMock.updateCount.get();
+        boolean replacedWrong = cache.replace( new CacheElement<String, Integer>( cacheName, "key", Integer.valueOf( 3 ), new ElementAttributes() ), Integer.valueOf( 2 ) );
+        boolean replacedRight = cache.replace( new CacheElement<String, Integer>( cacheName, "key", Integer.valueOf( 4 ), new ElementAttributes() ), Integer.valueOf( 1 ) );
+
+        // VERIFY
+        assertFalse( "Should not replace a missing key", replacedAbsent );
+        assertNull( "Should store the first element", first );
+        assertEquals( "Should return the cached element", Integer.valueOf( 1 ), second.getVal() );
+        assertFalse( "Should not replace a different value", replacedWrong );
+        assertTrue( "Should replace the expected value", replacedRight );
+        assertEquals( "Wrong value", Integer.valueOf( 4 ), cache.get( "key" ).getVal() );
+        assertEquals( "A refused write should not reach the auxiliary", updatesAfterPutIfAbsent + 1, diskMock.updateCount.get() );
+    }
+
+    /**
+     * Creates a mock auxiliary whose getMultiple finds the given keys.
+     * <p>
+     * @param cacheName
+     * @param cacheType
+     * @param keys
+     * @return MockAuxiliaryCache
+     */
+    private MockAuxiliaryCache<String, Integer> createAuxWithElements( String cacheName, CacheType cacheType,
+                                                                      String... keys )
+    {
+        MockAuxiliaryCache<String, Integer> mock = new MockAuxiliaryCache<String, Integer>();
+        mock.cacheType = cacheType;
+        for ( String key : keys )
+        {
+            mock.getMultipleElements.put( key, new CacheElement<String, Integer>( cacheName, key, Integer.valueOf( key ) ) );
+        }
+        return mock;
+    }
 }
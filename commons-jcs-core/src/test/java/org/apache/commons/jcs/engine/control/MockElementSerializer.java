@@ -23,6 +23,8 @@ import org.apache.commons.jcs.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs.utils.serialization.StandardSerializer;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /** For mocking. */
 public class MockElementSerializer
@@ -55,6 +57,21 @@ public class MockElementSerializer
         return serializer.deSerialize( bytes, loader );
     }
 
+    /**
+     * @param buffer
+     * @return Object
+     * @throws IOException
+     * @throws ClassNotFoundException
+     *
+     */
+    @Override
+    public <T> T deSerializeFrom( ByteBuffer buffer, ClassLoader loader )
+        throws IOException, ClassNotFoundException
+    {
+        deSerializeCount++;
+        return serializer.deSerializeFrom( buffer, loader );
+    }
+
     /**
      * @param obj
      * @return byte[]
@@ -69,6 +86,20 @@ public class MockElementSerializer
         return serializer.serialize( obj );
     }
 
+    /**
+     * @param obj
+     * @param out
+     * @throws IOException
+     *
+     */
+    @Override
+    public <T> void serializeTo( T obj, OutputStream out )
+        throws IOException
+    {
+        serializeCount++;
+        serializer.serializeTo( obj, out );
+    }
+
     /**
      * @param testProperty
      */
@@ -0,0 +1,159 @@
+package org.apache.commons.jcs.engine.memory.offheap;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+
+/**
+ * Tests for the off-heap tier.
+ */
+public class OffHeapCacheUnitTest
+    extends TestCase
+{
+    /**
+     * Verify that elements spanning several blocks come back intact.
+     */
+    public void testUpdateGet()
+    {
+        // SETUP
+        OffHeapCache<String, String> cache = new OffHeapCache<String, String>( "testUpdateGet", 64 * 1024, 64 );
+        StringBuilder big = new StringBuilder();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            big.append( i );
+        }
+
+        // DO WORK
+        List<ICacheElement<String, String>> evicted = cache.update( createElement( "small", "value" ) );
+        cache.update( createElement( "big", big.toString() ) );
+
+        // VERIFY
+        assertTrue( "Nothing should be evicted.", evicted.isEmpty() );
+        assertEquals( "value", cache.get( "small" ).getVal() );
+        assertEquals( big.toString(), cache.get( "big" ).getVal() );
+        assertNull( cache.get( "none" ) );
+        assertEquals( "Wrong size.", 2, cache.getSize() );
+        assertTrue( "Should use more than one block per element.", cache.getBytesUsed() > 2 * 64 );
+    }
+
+    /**
+     * Fill the tier past its byte limit and verify the least recently used elements are handed
+     * back.
+     */
+    public void testEvictionLeastRecentlyUsed()
+    {
+        // SETUP
+        OffHeapCache<String, String> cache = new OffHeapCache<String, String>( "testEviction", 8 * 4096, 4096 );
+        for ( int i = 0; i < 8; i++ )
+        {
+            assertTrue( cache.update( createElement( "key" + i, "value" + i ) ).isEmpty() );
+        }
+        assertNotNull( cache.get( "key0" ) );
+
+        // DO WORK
+        List<ICacheElement<String, String>> evicted = cache.update( createElement( "key8", "value8" ) );
+
+        // VERIFY
+        assertEquals( "Wrong number evicted.", 1, evicted.size() );
+        assertEquals( "Should evict the least recently used.", "key1", evicted.get( 0 ).getKey() );
+        assertEquals( "value1", evicted.get( 0 ).getVal() );
+        assertNotNull( "Recently read element should stay.", cache.get( "key0" ) );
+        assertTrue( "Should not exceed the limit.", cache.getBytesUsed() <= 8 * 4096 );
+    }
+
+    /**
+     * An element larger than the whole tier is returned straight away.
+     */
+    public void testTooLarge()
+    {
+        // SETUP
+        OffHeapCache<String, String> cache = new OffHeapCache<String, String>( "testTooLarge", 1024, 256 );
+        StringBuilder big = new StringBuilder();
+        for ( int i = 0; i < 2000; i++ )
+        {
+            big.append( 'x' );
+        }
+        ICacheElement<String, String> element = createElement( "big", big.toString() );
+
+        // DO WORK
+        List<ICacheElement<String, String>> evicted = cache.update( element );
+
+        // VERIFY
+        assertEquals( "Element should be returned.", 1, evicted.size() );
+        assertSame( element, evicted.get( 0 ) );
+        assertEquals( "Nothing stored.", 0, cache.getSize() );
+    }
+
+    /**
+     * Verify take, partial removal, getMultiple and removeAll.
+     */
+    public void testRemoval()
+    {
+        // SETUP
+        OffHeapCache<String, String> cache = new OffHeapCache<String, String>( "testRemoval", 64 * 1024, 128 );
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.update( createElement( "root:" + i, "value" + i ) );
+        }
+        cache.update( createElement( "other", "value" ) );
+
+        // DO WORK
+        ICacheElement<String, String> taken = cache.take( "root:0" );
+        boolean removed = cache.remove( "root:" );
+
+        // VERIFY
+        assertEquals( "value0", taken.getVal() );
+        assertTrue( removed );
+        assertEquals( "Only the other key should remain.", 1, cache.getSize() );
+
+        Set<String> keys = new HashSet<String>();
+        keys.add( "other" );
+        keys.add( "root:1" );
+        Map<String, ICacheElement<String, String>> found = cache.getMultiple( keys, false );
+        assertEquals( "Wrong number found.", 1, found.size() );
+        assertTrue( found.containsKey( "other" ) );
+
+        cache.removeAll();
+        assertEquals( 0, cache.getSize() );
+        assertEquals( 0, cache.getBytesUsed() );
+        assertTrue( "Space should be reusable.", cache.update( createElement( "again", "value" ) ).isEmpty() );
+    }
+
+    /**
+     * @param key
+     * @param value
+     * @return an element
+     */
+    private ICacheElement<String, String> createElement( String key, String value )
+    {
+        ICacheElement<String, String> element = new CacheElement<String, String>( "test", key, value );
+        element.setElementAttributes( new ElementAttributes() );
+        return element;
+    }
+}
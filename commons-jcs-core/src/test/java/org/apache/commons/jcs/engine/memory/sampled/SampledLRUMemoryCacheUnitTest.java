@@ -0,0 +1,401 @@
+package org.apache.commons.jcs.engine.memory.sampled;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.commons.jcs.JCS;
+import org.apache.commons.jcs.access.CacheAccess;
+import org.apache.commons.jcs.access.exception.CacheException;
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.control.CompositeCacheManager;
+import org.apache.commons.jcs.engine.stats.behavior.IStatElement;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for the sampled LRU implementation.
+ */
+public class SampledLRUMemoryCacheUnitTest
+    extends TestCase
+{
+    /** Test setup */
+    @Override
+    public void setUp()
+    {
+        JCS.setConfigFilename( "/TestSampledLRUCache.ccf" );
+    }
+
+    /**
+     * Verify that the sampled lru gets used by a non-defined region when it is set as the default in the
+     * default region.
+     * <p>
+     * @throws CacheException
+     */
+    public void testLoadFromCCF()
+        throws CacheException
+    {
+        CacheAccess<String, String> cache = JCS.getInstance( "testLoadFromCCF" );
+        String memoryCacheName = cache.getCacheAttributes().getMemoryCacheName();
+        assertTrue( "Cache name should have SampledLRU in it.", memoryCacheName.indexOf( "SampledLRUMemoryCache" ) != -1 );
+    }
+
+    /**
+     * put twice as many as the max.  verify that the second half is in the cache.
+     * <p>
+     * @throws CacheException
+     */
+    public void testPutGetThroughHub()
+        throws CacheException
+    {
+        CacheAccess<String, String> cache = JCS.getInstance( "testPutGetThroughHub" );
+
+        int max = cache.getCacheAttributes().getMaxObjects();
+        int items = max * 2;
+
+        for ( int i = 0; i < items; i++ )
+        {
+            cache.put( i + ":key", "myregion" + " data " + i );
+        }
+
+        // Test that first items are not in the cache
+        for ( int i = max -1; i >= 0; i-- )
+        {
+            String value = cache.get( i + ":key" );
+            assertNull( "Should not have value for key [" + i + ":key" + "] in the cache." + cache.getStats(), value );
+        }
+
+        // Test that last items are in cache
+        // skip 2 for the buffer.
+        for ( int i = max + 2; i < items; i++ )
+        {
+            String value = cache.get( i + ":key" );
+            assertEquals( "myregion" + " data " + i, value );
+        }
+
+        // Test that getMultiple returns all the items remaining in cache and none of the missing ones
+        Set<String> keys = new HashSet<String>();
+        for ( int i = 0; i < items; i++ )
+        {
+            keys.add( i + ":key" );
+        }
+
+        Map<String, ICacheElement<String, String>> elements = cache.getCacheElements( keys );
+        for ( int i = max-1; i >= 0; i-- )
+        {
+            assertNull( "Should not have value for key [" + i + ":key" + "] in the cache." + cache.getStats(), elements.get( i + ":key" ) );
+        }
+        for ( int i = max + 2; i < items; i++ )
+        {
+            ICacheElement<String, String> element = elements.get( i + ":key" );
+            assertNotNull( "element " + i + ":key is missing", element );
+            assertEquals( "value " + i + ":key", "myregion" + " data " + i, element.getVal() );
+        }
+    }
+
+    /**
+     * Put twice as many as the max, twice. verify that the second half is in the cache.
+     * <p>
+     * @throws CacheException
+     */
+    public void testPutGetThroughHubTwice()
+        throws CacheException
+    {
+        CacheAccess<String, String> cache = JCS.getInstance( "testPutGetThroughHubTwice" );
+
+        int max = cache.getCacheAttributes().getMaxObjects();
+        int items = max * 2;
+
+        for ( int i = 0; i < items; i++ )
+        {
+            cache.put( i + ":key", "myregion" + " data " + i );
+        }
+
+        for ( int i = 0; i < items; i++ )
+        {
+            cache.put( i + ":key", "myregion" + " data " + i );
+        }
+
+        // Test that first items are not in the cache
+        for ( int i = max -1; i >= 0; i-- )
+        {
+            String value = cache.get( i + ":key" );
+            assertNull( "Should not have value for key [" + i + ":key" + "] in the cache.", value );
+        }
+
+        // Test that last items are in cache
+        // skip 2 for the buffer.
+        for ( int i = max + 2; i < items; i++ )
+        {
+            String value = cache.get( i + ":key" );
+            assertEquals( "myregion" + " data " + i, value );
+        }
+
+    }
+
+    /**
+     * put the max and remove each. verify that they are all null.
+     * <p>
+     * @throws CacheException
+     */
+    public void testPutRemoveThroughHub()
+        throws CacheException
+    {
+        CacheAccess<String, String> cache = JCS.getInstance( "testPutRemoveThroughHub" );
+
+        int max = cache.getCacheAttributes().getMaxObjects();
+        int items = max * 2;
+
+        for ( int i = 0; i < items; i++ )
+        {
+            cache.put( i + ":key", "myregion" + " data " + i );
+        }
+
+        for ( int i = 0; i < items; i++ )
+        {
+            cache.remove( i + ":key" );
+        }
+
+        // Test that first items are not in the cache
+        for ( int i = max; i >= 0; i-- )
+        {
+            String value = cache.get( i + ":key" );
+            assertNull( "Should not have value for key [" + i + ":key" + "] in the cache.", value );
+        }
+    }
+
+    /**
+     * put the max and clear. verify that no elements remain.
+     * <p>
+     * @throws CacheException
+     */
+    public void testClearThroughHub()
+        throws CacheException
+    {
+        CacheAccess<String, String> cache = JCS.getInstance( "testClearThroughHub" );
+
+        int max = cache.getCacheAttributes().getMaxObjects();
+        int items = max * 2;
+
+        for ( int i = 0; i < items; i++ )
+        {
+            cache.put( i + ":key", "myregion" + " data " + i );
+        }
+
+        cache.clear();
+
+        // Test that first items are not in the cache
+        for ( int i = max; i >= 0; i-- )
+        {
+            String value = cache.get( i + ":key" );
+            assertNull( "Should not have value for key [" + i + ":key" + "] in the cache.", value );
+        }
+    }
+
+    /**
+     * Get stats.
+     * <p>
+     * @throws CacheException
+     */
+    public void testGetStatsThroughHub()
+        throws CacheException
+    {
+        CacheAccess<String, String> cache = JCS.getInstance( "testGetStatsThroughHub" );
+
+        int max = cache.getCacheAttributes().getMaxObjects();
+        int items = max * 2;
+
+        for ( int i = 0; i < items; i++ )
+        {
+            cache.put( i + ":key", "myregion" + " data " + i );
+        }
+
+        String stats = cache.getStats();
+
+        //System.out.println( stats );
+
+        // TODO improve stats check
+        assertTrue( "Should have 200 puts" + stats, stats.indexOf( "200" ) != -1 );
+    }
+
+    /**
+     * Put half the max and clear. get the key array and verify that it has the correct number of
+     * items.
+     * <p>
+     * @throws Exception
+     */
+    public void testGetKeyArray()
+        throws Exception
+    {
+        CompositeCacheManager cacheMgr = CompositeCacheManager.getUnconfiguredInstance();
+        cacheMgr.configure( "/TestSampledLRUCache.ccf" );
+        CompositeCache<String, String> cache = cacheMgr.getCache( "testGetKeyArray" );
+
+        SampledLRUMemoryCache<String, String> mru = new SampledLRUMemoryCache<String, String>();
+        mru.initialize( cache );
+
+        int max = cache.getCacheAttributes().getMaxObjects();
+        int items = max / 2;
+
+        for ( int i = 0; i < items; i++ )
+        {
+            ICacheElement<String, String> ice = new CacheElement<String, String>( cache.getCacheName(), i + ":key", cache.getCacheName() + " data " + i );
+            ice.setElementAttributes( cache.getElementAttributes() );
+            mru.update( ice );
+        }
+
+        Set<String> keys = mru.getKeySet();
+
+        assertEquals( "Wrong number of keys.", items, keys.size() );
+    }
+
+    /**
+     * Add a few keys with the delimiter. Remove them.
+     * <p>
+     * @throws CacheException
+     */
+    public void testRemovePartialThroughHub()
+        throws CacheException
+    {
+        CacheAccess<String, String> cache = JCS.getInstance( "testRemovePartialThroughHub" );
+
+        int max = cache.getCacheAttributes().getMaxObjects();
+        int items = max / 2;
+
+        cache.put( "test", "data" );
+
+        String root = "myroot";
+
+        for ( int i = 0; i < items; i++ )
+        {
+            cache.put( root + ":" + i + ":key", "myregion" + " data " + i );
+        }
+
+        // Test that last items are in cache
+        for ( int i = 0; i < items; i++ )
+        {
+            String value = cache.get( root + ":" + i + ":key" );
+            assertEquals( "myregion" + " data " + i, value );
+        }
+
+        // remove partial
+        cache.remove( root + ":" );
+
+        for ( int i = 0; i < items; i++ )
+        {
+            assertNull( "Should have been removed by partial loop.", cache.get( root + ":" + i + ":key" ) );
+        }
+
+        assertNotNull( "Other item should be in the cache.", cache.get( "test" ) );
+    }
+
+    /**
+     * Read the first half of the items, then put more. The items that were read should get a
+     * second chance and stay in memory while the others are spooled.
+     * <p>
+     * @throws Exception
+     */
+    public void testReferencedItemsSurvive()
+        throws Exception
+    {
+        CompositeCacheManager cacheMgr = CompositeCacheManager.getUnconfiguredInstance();
+        cacheMgr.configure( "/TestSampledLRUCache.ccf" );
+        CompositeCache<String, String> cache = cacheMgr.getCache( "testReferencedItemsSurvive" );
+
+        SampledLRUMemoryCache<String, String> mem = new SampledLRUMemoryCache<String, String>();
+        mem.initialize( cache );
+
+        int max = cache.getCacheAttributes().getMaxObjects();
+
+        // SETUP
+        for ( int i = 0; i < max; i++ )
+        {
+            ICacheElement<String, String> ice = new CacheElement<String, String>( cache.getCacheName(), i + ":key", "data " + i );
+            ice.setElementAttributes( cache.getElementAttributes() );
+            mem.update( ice );
+        }
+        for ( int i = 0; i < max / 2; i++ )
+        {
+            assertNotNull( mem.get( i + ":key" ) );
+        }
+
+        // DO WORK
+        for ( int i = max; i < max + max / 4; i++ )
+        {
+            ICacheElement<String, String> ice = new CacheElement<String, String>( cache.getCacheName(), i + ":key", "data " + i );
+            ice.setElementAttributes( cache.getElementAttributes() );
+            mem.update( ice );
+        }
+
+        // VERIFY
+        assertTrue( "Should not exceed max. " + mem.getSize(), mem.getSize() <= max );
+        for ( int i = 0; i < max / 2; i++ )
+        {
+            assertNotNull( "Referenced item " + i + " should still be in memory.", mem.get( i + ":key" ) );
+        }
+        assertNull( "Unreferenced item should have been spooled.", mem.get( ( max / 2 ) + ":key" ) );
+    }
+
+    /**
+     * Verify that freeElements spools the requested number and that the clock does not keep
+     * growing when the same keys are updated over and over.
+     * <p>
+     * @throws Exception
+     */
+    public void testFreeElementsAndRepeatedUpdates()
+        throws Exception
+    {
+        CompositeCacheManager cacheMgr = CompositeCacheManager.getUnconfiguredInstance();
+        cacheMgr.configure( "/TestSampledLRUCache.ccf" );
+        CompositeCache<String, String> cache = cacheMgr.getCache( "testFreeElementsAndRepeatedUpdates" );
+
+        SampledLRUMemoryCache<String, String> mem = new SampledLRUMemoryCache<String, String>();
+        mem.initialize( cache );
+
+        // SETUP
+        for ( int n = 0; n < 100; n++ )
+        {
+            for ( int i = 0; i < 10; i++ )
+            {
+                ICacheElement<String, String> ice = new CacheElement<String, String>( cache.getCacheName(), i + ":key", "data " + n );
+                ice.setElementAttributes( cache.getElementAttributes() );
+                mem.update( ice );
+            }
+        }
+
+        // DO WORK
+        int freed = mem.freeElements( 4 );
+
+        // VERIFY
+        assertEquals( "Wrong number freed.", 4, freed );
+        assertEquals( "Wrong size.", 6, mem.getSize() );
+        for ( IStatElement<?> stat : mem.getStatistics().getStatElements() )
+        {
+            if ( "Clock Size".equals( stat.getName() ) )
+            {
+                int clockSize = ( (Integer) stat.getData() ).intValue();
+                assertTrue( "Clock should have been purged. " + clockSize, clockSize < 100 );
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.apache.commons.jcs.engine.memory.shrinking;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.ElementAttributesUtils;
+
+/**
+ * Tests for the expiration wheel.
+ */
+public class ExpirationWheelUnitTest
+    extends TestCase
+{
+    /**
+     * Keys should come out on the first tick after their deadline, whatever level they were put on.
+     */
+    public void testAdvanceReturnsDueKeys()
+    {
+        // SETUP
+        ExpirationWheel<String> wheel = new ExpirationWheel<String>( 1000, 1, 0 );
+        wheel.schedule( "a", 500 );
+        wheel.schedule( "b", 5000 );
+        wheel.schedule( "c", 100000 );
+        wheel.schedule( "d", 10000000 );
+
+        // DO WORK & VERIFY
+        assertTrue( "Nothing should be due.", wheel.advance( 999 ).isEmpty() );
+        assertEquals( "[a]", wheel.advance( 1000 ).toString() );
+        assertTrue( "b is not due.", wheel.advance( 5999 ).isEmpty() );
+        assertEquals( "[b]", wheel.advance( 6000 ).toString() );
+        assertTrue( "c is not due.", wheel.advance( 100999 ).isEmpty() );
+        assertEquals( "[c]", wheel.advance( 101000 ).toString() );
+        assertTrue( "d is not due.", wheel.advance( 10000999 ).isEmpty() );
+        assertEquals( "[d]", wheel.advance( 10001000 ).toString() );
+        assertEquals( "Wrong size", 0, wheel.size() );
+    }
+
+    /**
+     * Verify replacing, cancelling and conditional scheduling.
+     */
+    public void testScheduleReplaceAndCancel()
+    {
+        // SETUP
+        ExpirationWheel<String> wheel = new ExpirationWheel<String>( 1000, 4, 0 );
+        wheel.schedule( "a", 1000 );
+        wheel.schedule( "b", 1000 );
+        wheel.schedule( "c", 1000 );
+        wheel.schedule( "e", 1000 );
+
+        // DO WORK
+        wheel.schedule( "a", 50000 );
+        wheel.cancel( "b" );
+        wheel.scheduleIfAbsent( "c", 50000 );
+        wheel.scheduleIfAbsent( "d", 1000 );
+        wheel.schedule( "e", Long.MAX_VALUE );
+
+        // VERIFY
+        assertEquals( "Wrong size", 3, wheel.size() );
+        List<String> due = wheel.advance( 2000 );
+        assertEquals( "Wrong number due " + due, 2, due.size() );
+        assertTrue( due.contains( "c" ) );
+        assertTrue( due.contains( "d" ) );
+        assertEquals( "[a]", wheel.advance( 51000 ).toString() );
+
+        wheel.schedule( "f", 60000 );
+        wheel.clear();
+        assertEquals( "Wrong size", 0, wheel.size() );
+        assertTrue( wheel.advance( 100000 ).isEmpty() );
+    }
+
+    /**
+     * Schedule random deadlines and advance in random steps. Every key must be returned exactly
+     * once, not before its deadline and at the first advance that covers the tick after it.
+     */
+    public void testRandomDeadlines()
+    {
+        // SETUP
+        Random random = new Random( 42 );
+        ExpirationWheel<Integer> wheel = new ExpirationWheel<Integer>( 10, 8, 0 );
+        Map<Integer, Long> deadlines = new HashMap<Integer, Long>();
+        for ( int i = 0; i < 5000; i++ )
+        {
+            long deadline = random.nextInt( 4 ) == 0 ? random.nextInt( 10000000 ) : random.nextInt( 20000 );
+            wheel.schedule( Integer.valueOf( i ), deadline );
+            deadlines.put( Integer.valueOf( i ), Long.valueOf( deadline ) );
+        }
+
+        // DO WORK
+        Set<Integer> seen = new HashSet<Integer>();
+        long now = 0;
+        while ( seen.size() < deadlines.size() )
+        {
+            long previous = now;
+            now += random.nextInt( 2 ) == 0 ? random.nextInt( 50 ) : random.nextInt( 100000 );
+            for ( Integer key : wheel.advance( now ) )
+            {
+                // VERIFY
+                assertTrue( "Returned twice " + key, seen.add( key ) );
+                long dueAt = ( deadlines.get( key ).longValue() / 10 + 1 ) * 10;
+                assertTrue( "Too early " + key, dueAt <= now );
+                assertTrue( "Too late " + key, dueAt > previous );
+            }
+        }
+        assertEquals( "Wrong size", 0, wheel.size() );
+    }
+
+    /**
+     * The deadline is the earliest of max life, idle time and memory idle time.
+     */
+    public void testGetDeadline()
+    {
+        // SETUP
+        ElementAttributes attributes = new ElementAttributes();
+        attributes.setIsEternal( false );
+        attributes.setMaxLife( 100 );
+        attributes.setIdleTime( 50 );
+        ElementAttributesUtils.setLastAccessTime( attributes, attributes.getCreateTime() + 10000 );
+        long createTime = attributes.getCreateTime();
+
+        // DO WORK & VERIFY
+        assertEquals( "Idle time should win", createTime + 60000, ExpirationWheel.getDeadline( attributes, -1 ) );
+        assertEquals( "Memory idle time should win", createTime + 15000,
+                      ExpirationWheel.getDeadline( attributes, 5000 ) );
+        attributes.setIdleTime( -1 );
+        assertEquals( "Max life should win", createTime + 100000, ExpirationWheel.getDeadline( attributes, -1 ) );
+        attributes.setIsEternal( true );
+        assertEquals( "Eternal should never be due", Long.MAX_VALUE, ExpirationWheel.getDeadline( attributes, -1 ) );
+    }
+}
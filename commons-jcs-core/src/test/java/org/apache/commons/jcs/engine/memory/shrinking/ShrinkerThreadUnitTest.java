@@ -31,6 +31,8 @@ import org.apache.commons.jcs.engine.control.event.behavior.ElementEventType;
 import org.apache.commons.jcs.engine.memory.MockMemoryCache;
 
 import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * This tests the functionality of the shrinker thread.
@@ -333,4 +335,91 @@ public class ShrinkerThreadUnitTest
         //assertEquals( "Event handler ExceededIdleTimeBackground called the wrong number of times.", 3, handler.getExceededIdleTimeBackgroundCount() );
         assertEquals( "Wrong number of elements remain.", 7, memory.getSize() );
     }
+
+    /**
+     * Put 10 items through the composite cache while the shrinker is scheduled. The shrinker should
+     * find the idle ones through the expiration wheel and respect the spool limit.
+     * <p>
+     * @throws Exception
+     */
+    public void testShrinkDueFromExpirationWheel()
+        throws Exception
+    {
+        // SETUP
+        CompositeCacheAttributes cacheAttr = new CompositeCacheAttributes();
+        cacheAttr.setCacheName("testRegion");
+        cacheAttr.setMemoryCacheName("org.apache.commons.jcs.engine.memory.MockMemoryCache");
+        cacheAttr.setUseMemoryShrinker( true );
+        cacheAttr.setShrinkerIntervalSeconds( 3600 );
+        cacheAttr.setMaxMemoryIdleTimeSeconds( 1 );
+        cacheAttr.setMaxSpoolPerRun( 3 );
+
+        CompositeCache<String, String> cache = new CompositeCache<String, String>(cacheAttr, new ElementAttributes());
+        MockMemoryCache<String, String> memory = (MockMemoryCache<String, String>)cache.getMemoryCache();
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        cache.setScheduledExecutorService( scheduler );
+        assertNotNull( "The region should have an expiration wheel.", cache.getExpirationWheel() );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            ICacheElement<String, String> element = new CacheElement<String, String>( "testRegion", "key" + i, "value" );
+            ElementAttributes elementAttr = new ElementAttributes();
+            elementAttr.setIsEternal( false );
+            elementAttr.setMaxLife( 100 );
+            element.setElementAttributes( elementAttr );
+            cache.update( element );
+        }
+        assertEquals( "All items should be scheduled.", 10, cache.getExpirationWheel().size() );
+
+        ShrinkerThread<String, String> shrinker = new ShrinkerThread<String, String>( cache );
+        shrinker.run();
+        assertEquals( "Nothing should be due yet.", 0, memory.waterfallCallCount );
+
+        Thread.sleep( 2100 );
+
+        // DO WORK
+        shrinker.run();
+
+        // VERIFY
+        scheduler.shutdownNow();
+        assertEquals( "Waterfall called the wrong number of times.", 3, memory.waterfallCallCount );
+        assertEquals( "Wrong number of elements remain.", 7, memory.getSize() );
+        assertEquals( "The rest should be scheduled again.", 7, cache.getExpirationWheel().size() );
+    }
+
+    /**
+     * Put more items than fit in memory while the shrinker is scheduled. The evicted ones should
+     * leave the expiration wheel with memory.
+     * <p>
+     * @throws Exception
+     */
+    public void testEvictedItemsLeaveExpirationWheel()
+        throws Exception
+    {
+        // SETUP
+        CompositeCacheAttributes cacheAttr = new CompositeCacheAttributes();
+        cacheAttr.setCacheName("testEvictedItemsLeaveExpirationWheel");
+        cacheAttr.setMemoryCacheName("org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache");
+        cacheAttr.setMaxObjects( 10 );
+        cacheAttr.setUseMemoryShrinker( true );
+        cacheAttr.setShrinkerIntervalSeconds( 3600 );
+        cacheAttr.setMaxMemoryIdleTimeSeconds( 7200 );
+
+        CompositeCache<String, String> cache = new CompositeCache<String, String>(cacheAttr, new ElementAttributes());
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        cache.setScheduledExecutorService( scheduler );
+
+        // DO WORK
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.update( new CacheElement<String, String>( "testEvictedItemsLeaveExpirationWheel", "key" + i, "value" ) );
+        }
+
+        // VERIFY
+        scheduler.shutdownNow();
+        assertEquals( "Only the items in memory should be scheduled.", cache.getMemoryCache().getSize(),
+                      cache.getExpirationWheel().size() );
+        assertTrue( "Memory should be bounded.", cache.getMemoryCache().getSize() <= 10 );
+    }
 }
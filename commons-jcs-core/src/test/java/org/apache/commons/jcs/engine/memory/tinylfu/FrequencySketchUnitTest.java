@@ -0,0 +1,76 @@
+package org.apache.commons.jcs.engine.memory.tinylfu;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the count-min sketch.
+ */
+public class FrequencySketchUnitTest
+    extends TestCase
+{
+    /**
+     * Verify that increments are counted and saturate at fifteen.
+     */
+    public void testIncrementAndSaturate()
+    {
+        // SETUP
+        FrequencySketch sketch = new FrequencySketch( 512 );
+
+        // DO WORK
+        for ( int i = 0; i < 5; i++ )
+        {
+            sketch.increment( "five" );
+        }
+        for ( int i = 0; i < 100; i++ )
+        {
+            sketch.increment( "many" );
+        }
+
+        // VERIFY
+        assertEquals( "Wrong frequency.", 5, sketch.frequency( "five" ) );
+        assertEquals( "Should saturate.", 15, sketch.frequency( "many" ) );
+        assertEquals( "Unseen key.", 0, sketch.frequency( "never" ) );
+    }
+
+    /**
+     * Verify that the counters are halved once the sample size is reached.
+     */
+    public void testReset()
+    {
+        // SETUP
+        FrequencySketch sketch = new FrequencySketch( 64 );
+        for ( int i = 0; i < 15; i++ )
+        {
+            sketch.increment( "hot" );
+        }
+
+        // DO WORK
+        for ( int i = 0; i < 10 * 64; i++ )
+        {
+            sketch.increment( "key:" + i );
+        }
+
+        // VERIFY
+        int frequency = sketch.frequency( "hot" );
+        assertTrue( "Should have been halved, was " + frequency, frequency < 15 && frequency >= 7 );
+    }
+}
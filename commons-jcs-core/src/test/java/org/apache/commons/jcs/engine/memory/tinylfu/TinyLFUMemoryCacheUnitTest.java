@@ -0,0 +1,314 @@
+package org.apache.commons.jcs.engine.memory.tinylfu;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.JCS;
+import org.apache.commons.jcs.access.CacheAccess;
+import org.apache.commons.jcs.access.exception.CacheException;
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.control.CompositeCacheManager;
+import org.apache.commons.jcs.engine.memory.behavior.IMemoryCache;
+import org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache;
+
+/**
+ * Tests for the W-TinyLFU memory cache.
+ */
+public class TinyLFUMemoryCacheUnitTest
+    extends TestCase
+{
+    /** Test setup */
+    @Override
+    public void setUp()
+    {
+        JCS.setConfigFilename( "/TestTinyLFUCache.ccf" );
+    }
+
+    /**
+     * Verify that the TinyLFU gets used by a non-defined region when it is set as the default in
+     * the default region.
+     * <p>
+     * @throws CacheException
+     */
+    public void testLoadFromCCF()
+        throws CacheException
+    {
+        CacheAccess<String, String> cache = JCS.getInstance( "testLoadFromCCF" );
+        String memoryCacheName = cache.getCacheAttributes().getMemoryCacheName();
+        assertTrue( "Cache name should have TinyLFU in it.", memoryCacheName.indexOf( "TinyLFUMemoryCache" ) != -1 );
+    }
+
+    /**
+     * Put twice as many as the max. Verify the size is bounded and that items read often are
+     * retained.
+     * <p>
+     * @throws CacheException
+     */
+    public void testPutGetThroughHub()
+        throws CacheException
+    {
+        CacheAccess<String, String> cache = JCS.getInstance( "testPutGetThroughHub" );
+
+        int max = cache.getCacheAttributes().getMaxObjects();
+        int items = max * 2;
+
+        // SETUP
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.put( i + ":key", "myregion" + " data " + i );
+        }
+        for ( int n = 0; n < 5; n++ )
+        {
+            for ( int i = 0; i < 10; i++ )
+            {
+                assertEquals( "myregion" + " data " + i, cache.get( i + ":key" ) );
+            }
+        }
+
+        // DO WORK
+        for ( int i = 10; i < items; i++ )
+        {
+            cache.put( i + ":key", "myregion" + " data " + i );
+        }
+
+        // VERIFY
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( "Frequent item should be retained.", "myregion" + " data " + i, cache.get( i + ":key" ) );
+        }
+
+        CompositeCache<String, String> hub = CompositeCacheManager.getInstance().getCache( "testPutGetThroughHub" );
+        assertTrue( "Should not exceed max. " + hub.getMemoryCache().getSize(), hub.getMemoryCache().getSize() <= max );
+    }
+
+    /**
+     * Put items, remove some partially and the rest singly, verify that they are all gone.
+     * <p>
+     * @throws CacheException
+     */
+    public void testRemoveThroughHub()
+        throws CacheException
+    {
+        CacheAccess<String, String> cache = JCS.getInstance( "testRemoveThroughHub" );
+
+        int items = cache.getCacheAttributes().getMaxObjects() / 2;
+
+        // SETUP
+        cache.put( "test", "data" );
+        for ( int i = 0; i < items; i++ )
+        {
+            cache.put( "myroot:" + i + ":key", "myregion" + " data " + i );
+            cache.get( "myroot:" + i + ":key" );
+        }
+
+        // DO WORK
+        cache.remove( "myroot:" );
+
+        // VERIFY
+        for ( int i = 0; i < items; i++ )
+        {
+            assertNull( "Should have been removed by partial loop.", cache.get( "myroot:" + i + ":key" ) );
+        }
+        assertNotNull( "Other item should be in the cache.", cache.get( "test" ) );
+
+        cache.remove( "test" );
+        assertNull( "Should have been removed.", cache.get( "test" ) );
+    }
+
+    /**
+     * Verify the key set, freeElements and removeAll keep map and segments consistent.
+     * <p>
+     * @throws Exception
+     */
+    public void testFreeElementsAndRemoveAll()
+        throws Exception
+    {
+        CompositeCache<String, String> cache = getCompositeCache( "testFreeElementsAndRemoveAll" );
+        TinyLFUMemoryCache<String, String> mem = new TinyLFUMemoryCache<String, String>();
+        mem.initialize( cache );
+
+        int max = cache.getCacheAttributes().getMaxObjects();
+
+        // SETUP
+        for ( int i = 0; i < max; i++ )
+        {
+            mem.update( createElement( cache, i + ":key" ) );
+            mem.get( i + ":key" );
+        }
+        Set<String> keys = mem.getKeySet();
+        assertEquals( "Wrong number of keys.", max, keys.size() );
+
+        // DO WORK
+        int freed = mem.freeElements( 10 );
+
+        // VERIFY
+        assertEquals( "Wrong number freed.", 10, freed );
+        assertEquals( "Wrong size.", max - 10, mem.getSize() );
+
+        mem.removeAll();
+        assertEquals( "Wrong size after removeAll.", 0, mem.getSize() );
+        assertEquals( "Nothing left to free.", 0, mem.freeElements( 10 ) );
+    }
+
+    /**
+     * Replay a trace with a small hot set interrupted by scans of one-off keys. LRU loses the
+     * hot set on every scan, TinyLFU should not.
+     * <p>
+     * @throws Exception
+     */
+    public void testScanResistanceComparedToLRU()
+        throws Exception
+    {
+        CompositeCache<String, String> cache = getCompositeCache( "testScanResistanceComparedToLRU" );
+        int max = cache.getCacheAttributes().getMaxObjects();
+
+        // SETUP
+        List<String> trace = new ArrayList<String>();
+        int scanKey = 0;
+        for ( int round = 0; round < 20; round++ )
+        {
+            for ( int n = 0; n < 3; n++ )
+            {
+                for ( int i = 0; i < max / 2; i++ )
+                {
+                    trace.add( "hot:" + i );
+                }
+            }
+            for ( int i = 0; i < max * 2; i++ )
+            {
+                trace.add( "scan:" + scanKey++ );
+            }
+        }
+
+        TinyLFUMemoryCache<String, String> tinyLfu = new TinyLFUMemoryCache<String, String>();
+        tinyLfu.initialize( cache );
+        LRUMemoryCache<String, String> lru = new LRUMemoryCache<String, String>();
+        lru.initialize( cache );
+
+        // DO WORK
+        double tinyLfuRate = replay( tinyLfu, cache, trace );
+        double lruRate = replay( lru, cache, trace );
+
+        // VERIFY
+        assertTrue( "TinyLFU hit rate " + tinyLfuRate + " should beat LRU " + lruRate, tinyLfuRate > lruRate );
+    }
+
+    /**
+     * Replay a seeded, skewed trace with periodic scans. Most accesses go to a few popular keys,
+     * which TinyLFU keeps through the scans while LRU lets them go.
+     * <p>
+     * @throws Exception
+     */
+    public void testSkewedHitRateComparedToLRU()
+        throws Exception
+    {
+        CompositeCache<String, String> cache = getCompositeCache( "testSkewedHitRateComparedToLRU" );
+        int max = cache.getCacheAttributes().getMaxObjects();
+
+        // SETUP
+        // the cube of a uniform value favors the low keys, roughly like a zipf distribution
+        List<String> trace = new ArrayList<String>();
+        Random random = new Random( 42 );
+        int scanKey = 0;
+        for ( int i = 0; i < max * 400; i++ )
+        {
+            if ( i % ( max * 40 ) < max * 2 )
+            {
+                trace.add( "scan:" + scanKey++ );
+            }
+            else
+            {
+                double u = random.nextDouble();
+                trace.add( "key:" + (int) ( u * u * u * max * 20 ) );
+            }
+        }
+
+        TinyLFUMemoryCache<String, String> tinyLfu = new TinyLFUMemoryCache<String, String>();
+        tinyLfu.initialize( cache );
+        LRUMemoryCache<String, String> lru = new LRUMemoryCache<String, String>();
+        lru.initialize( cache );
+
+        // DO WORK
+        double tinyLfuRate = replay( tinyLfu, cache, trace );
+        double lruRate = replay( lru, cache, trace );
+
+        // VERIFY
+        assertTrue( "TinyLFU hit rate " + tinyLfuRate + " should not be below LRU " + lruRate,
+                    tinyLfuRate >= lruRate );
+    }
+
+    /**
+     * Runs the trace against the memory cache, putting each miss.
+     * <p>
+     * @param mem
+     * @param cache
+     * @param trace
+     * @return the hit rate
+     * @throws Exception
+     */
+    static double replay( IMemoryCache<String, String> mem, CompositeCache<String, String> cache, List<String> trace )
+        throws Exception
+    {
+        int hits = 0;
+        for ( String key : trace )
+        {
+            if ( mem.get( key ) != null )
+            {
+                hits++;
+            }
+            else
+            {
+                mem.update( createElement( cache, key ) );
+            }
+        }
+        return (double) hits / trace.size();
+    }
+
+    /**
+     * @param name
+     * @return a region configured from the test ccf
+     */
+    static CompositeCache<String, String> getCompositeCache( String name )
+    {
+        CompositeCacheManager cacheMgr = CompositeCacheManager.getUnconfiguredInstance();
+        cacheMgr.configure( "/TestTinyLFUCache.ccf" );
+        return cacheMgr.getCache( name );
+    }
+
+    /**
+     * @param cache
+     * @param key
+     * @return an element for the region
+     */
+    static ICacheElement<String, String> createElement( CompositeCache<String, String> cache, String key )
+    {
+        ICacheElement<String, String> ice = new CacheElement<String, String>( cache.getCacheName(), key, "data " + key );
+        ice.setElementAttributes( cache.getElementAttributes() );
+        return ice;
+    }
+}
@@ -0,0 +1,109 @@
+package org.apache.commons.jcs.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the buffer pool and the stream writing into pooled buffers.
+ */
+public class ByteBufferPoolUnitTest
+    extends TestCase
+{
+    /**
+     * A released buffer should be handed out again for a request of the same size class.
+     */
+    public void testReuse()
+    {
+        // SETUP
+        ByteBufferPool pool = new ByteBufferPool( 4096, 1024 * 1024, false );
+        ByteBuffer first = pool.acquire( 1000 );
+        assertEquals( "Wrong capacity", 1024, first.capacity() );
+        assertEquals( "Wrong limit", 1000, first.limit() );
+        first.putInt( 42 );
+
+        // DO WORK
+        pool.release( first );
+        ByteBuffer second = pool.acquire( 600 );
+
+        // VERIFY
+        assertSame( "Should be reused", first, second );
+        assertEquals( "Should be cleared", 0, second.position() );
+        assertEquals( "Wrong limit", 600, second.limit() );
+        assertEquals( "Nothing idle", 0, pool.getIdleBytes() );
+    }
+
+    /**
+     * Buffers above the largest size class and beyond the idle limit are not kept.
+     */
+    public void testLimits()
+    {
+        // SETUP
+        ByteBufferPool pool = new ByteBufferPool( 4096, 8192, false );
+
+        // DO WORK
+        ByteBuffer huge = pool.acquire( 10000 );
+        pool.release( huge );
+        pool.release( pool.acquire( 4096 ) );
+        pool.release( pool.acquire( 4096 ) );
+        ByteBuffer a = pool.acquire( 4096 );
+        ByteBuffer b = pool.acquire( 4096 );
+        ByteBuffer c = pool.acquire( 4096 );
+        pool.release( a );
+        pool.release( b );
+        pool.release( c );
+
+        // VERIFY
+        assertEquals( "Wrong capacity", 10000, huge.capacity() );
+        assertEquals( "Idle bytes should be capped", 8192, pool.getIdleBytes() );
+    }
+
+    /**
+     * The stream should move to larger buffers and keep what was written.
+     */
+    public void testOutputStreamGrows()
+    {
+        // SETUP
+        ByteBufferPool pool = new ByteBufferPool( 1024, 1024 * 1024, true );
+        ByteBufferOutputStream out = new ByteBufferOutputStream( pool, 16 );
+        out.writeInt( 0 );
+
+        // DO WORK
+        byte[] chunk = new byte[100];
+        for ( int i = 0; i < 50; i++ )
+        {
+            chunk[0] = (byte) i;
+            out.write( chunk, 0, chunk.length );
+        }
+        out.putInt( 0, out.size() );
+
+        // VERIFY
+        ByteBuffer written = out.getByteBuffer();
+        assertEquals( "Wrong size", 5004, written.remaining() );
+        assertEquals( "Wrong header", 5004, written.getInt() );
+        for ( int i = 0; i < 50; i++ )
+        {
+            assertEquals( "Wrong chunk start", i, written.get( 4 + i * 100 ) );
+        }
+        out.release();
+    }
+}
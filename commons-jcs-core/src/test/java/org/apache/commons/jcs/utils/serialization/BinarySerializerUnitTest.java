@@ -0,0 +1,342 @@
+package org.apache.commons.jcs.utils.serialization;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jcs.engine.CacheElement;
+import org.apache.commons.jcs.engine.CacheElementSerialized;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.apache.commons.jcs.engine.ElementAttributesUtils;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.control.group.GroupAttrName;
+import org.apache.commons.jcs.engine.control.group.GroupId;
+import org.apache.commons.jcs.io.ByteBufferOutputStream;
+import org.apache.commons.jcs.io.ByteBufferPool;
+
+/**
+ * Tests the binary serializer.
+ */
+public class BinarySerializerUnitTest
+    extends TestCase
+{
+    /**
+     * Values with built in codecs, and some without, should come back equal.
+     * <p>
+     * @throws Exception
+     */
+    public void testBuiltInTypesBackAndForth()
+        throws Exception
+    {
+        // SETUP
+        BinarySerializer serializer = new BinarySerializer();
+        List<Object> values = new ArrayList<Object>();
+        values.add( null );
+        values.add( "" );
+        values.add( "plain ascii" );
+        values.add( "gr\u00fc\u00dfe \u20ac \ud83d\ude00" );
+        values.add( Integer.valueOf( Integer.MIN_VALUE ) );
+        values.add( Integer.valueOf( -1 ) );
+        values.add( Integer.valueOf( Integer.MAX_VALUE ) );
+        values.add( Long.valueOf( Long.MIN_VALUE ) );
+        values.add( Long.valueOf( 1234567890123L ) );
+        values.add( Boolean.TRUE );
+        values.add( Double.valueOf( Math.PI ) );
+        values.add( Float.valueOf( -2.5f ) );
+        values.add( Short.valueOf( (short) -300 ) );
+        values.add( Byte.valueOf( (byte) 7 ) );
+        values.add( Character.valueOf( '\u00e9' ) );
+        values.add( new GroupId( "region", "group" ) );
+        values.add( new GroupAttrName<String>( new GroupId( "region", "group" ), "attr" ) );
+        // no codec, standard serialization
+        values.add( new ArrayList<String>( Arrays.asList( "a", "b" ) ) );
+
+        for ( Object before : values )
+        {
+            // DO WORK
+            Object after = serializer.deSerialize( serializer.serialize( before ), null );
+
+            // VERIFY
+            assertEquals( "Wrong value", before, after );
+        }
+
+        byte[] bytes = { 1, 2, 3 };
+        assertTrue( "Wrong bytes", Arrays.equals( bytes, (byte[]) serializer.deSerialize( serializer.serialize( bytes ), null ) ) );
+    }
+
+    /**
+     * The element envelope should keep key, value and all attributes and be much smaller than the
+     * standard serialized form.
+     * <p>
+     * @throws Exception
+     */
+    public void testCacheElementBackAndForth()
+        throws Exception
+    {
+        // SETUP
+        BinarySerializer serializer = new BinarySerializer();
+        ElementAttributes attr = new ElementAttributes();
+        attr.setIsEternal( false );
+        attr.setIsLateral( false );
+        attr.setMaxLife( 300 );
+        attr.setIdleTime( 20 );
+        attr.setSize( 42 );
+        ElementAttributesUtils.setLastAccessTime( attr, attr.getCreateTime() + 5000 );
+        ICacheElement<String, String> before = new CacheElement<String, String>( "testRegion", "key", "value", attr );
+
+        // DO WORK
+        byte[] serialized = serializer.serialize( before );
+        ICacheElement<String, String> after = serializer.deSerialize( serialized, null );
+
+        // VERIFY
+        assertEquals( "Wrong cache name", "testRegion", after.getCacheName() );
+        assertEquals( "Wrong key", "key", after.getKey() );
+        assertEquals( "Wrong value", "value", after.getVal() );
+        IElementAttributes afterAttr = after.getElementAttributes();
+        assertFalse( afterAttr.getIsEternal() );
+        assertFalse( afterAttr.getIsLateral() );
+        assertTrue( afterAttr.getIsSpool() );
+        assertTrue( afterAttr.getIsRemote() );
+        assertEquals( 300, afterAttr.getMaxLife() );
+        assertEquals( 20, afterAttr.getIdleTime() );
+        assertEquals( 42, afterAttr.getSize() );
+        assertEquals( attr.getCreateTime(), afterAttr.getCreateTime() );
+        assertEquals( attr.getLastAccessTime(), afterAttr.getLastAccessTime() );
+
+        int standardSize = new StandardSerializer().serialize( before ).length;
+        assertTrue( "Should be much smaller than " + standardSize + " but is " + serialized.length,
+                    serialized.length * 4 < standardSize );
+    }
+
+    /**
+     * Elements with a serialized value, as used by the remote cache.
+     * <p>
+     * @throws Exception
+     */
+    public void testCacheElementSerializedBackAndForth()
+        throws Exception
+    {
+        // SETUP
+        BinarySerializer serializer = new BinarySerializer();
+        byte[] value = serializer.serialize( "value" );
+        CacheElementSerialized<Integer, String> before =
+            new CacheElementSerialized<Integer, String>( "testRegion", Integer.valueOf( 5 ), value, new ElementAttributes() );
+
+        // DO WORK
+        CacheElementSerialized<Integer, String> after = serializer.deSerialize( serializer.serialize( before ), null );
+
+        // VERIFY
+        assertEquals( "Wrong key", Integer.valueOf( 5 ), after.getKey() );
+        assertTrue( "Wrong value", Arrays.equals( value, after.getSerializedValue() ) );
+    }
+
+    /**
+     * Register a codec through the configuration setter and verify it is used.
+     * <p>
+     * @throws Exception
+     */
+    public void testCustomCodec()
+        throws Exception
+    {
+        // SETUP
+        BinarySerializer serializer = new BinarySerializer();
+        serializer.setCodecs( "40:" + PointCodec.class.getName() + ", bogus, 41:no.such.Class" );
+        Point before = new Point( 3, -4 );
+
+        // DO WORK
+        byte[] serialized = serializer.serialize( before );
+        Point after = serializer.deSerialize( serialized, null );
+
+        // VERIFY
+        assertEquals( "Wrong x", 3, after.x );
+        assertEquals( "Wrong y", -4, after.y );
+        assertEquals( "Format, id and two small ints", 4, serialized.length );
+
+        try
+        {
+            serializer.registerCodec( 40, new PointCodec() );
+            fail( "Id should be taken" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+        try
+        {
+            serializer.registerCodec( 5, new PointCodec() );
+            fail( "Id should be reserved" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+
+        try
+        {
+            new BinarySerializer().deSerialize( serialized, null );
+            fail( "A serializer without the codec cannot read the data" );
+        }
+        catch ( IOException e )
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Data written by the standard serializer should still be readable.
+     * <p>
+     * @throws Exception
+     */
+    public void testReadsStandardSerializedData()
+        throws Exception
+    {
+        // SETUP
+        byte[] legacy = new StandardSerializer().serialize( "legacy" );
+
+        // DO WORK
+        String after = new BinarySerializer().deSerialize( legacy, null );
+
+        // VERIFY
+        assertEquals( "Wrong value", "legacy", after );
+    }
+
+    /**
+     * Reading from a buffer should consume exactly the serialized bytes, also from direct buffers.
+     * <p>
+     * @throws Exception
+     */
+    public void testDeSerializeFromBuffer()
+        throws Exception
+    {
+        // SETUP
+        BinarySerializer serializer = new BinarySerializer();
+        byte[] first = serializer.serialize( "first" );
+        byte[] second = serializer.serialize( Long.valueOf( 2 ) );
+        ByteBuffer buffer = ByteBuffer.allocateDirect( first.length + second.length );
+        buffer.put( first ).put( second ).flip();
+
+        // DO WORK
+        String one = serializer.deSerializeFrom( buffer, null );
+        Long two = serializer.deSerializeFrom( buffer, null );
+
+        // VERIFY
+        assertEquals( "first", one );
+        assertEquals( Long.valueOf( 2 ), two );
+        assertFalse( "Buffer should be consumed", buffer.hasRemaining() );
+    }
+
+    /**
+     * A buffer that grew beyond the limit should not affect later results.
+     * <p>
+     * @throws Exception
+     */
+    public void testLargeValueAfterSmall()
+        throws Exception
+    {
+        // SETUP
+        BinarySerializer serializer = new BinarySerializer();
+        serializer.setMaxPooledBufferSize( 2048 );
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < 10000; i++ )
+        {
+            sb.append( i );
+        }
+        String big = sb.toString();
+
+        // DO WORK & VERIFY
+        assertEquals( "small", serializer.deSerialize( serializer.serialize( "small" ), null ) );
+        assertEquals( big, serializer.deSerialize( serializer.serialize( big ), null ) );
+        assertEquals( "small again", serializer.deSerialize( serializer.serialize( "small again" ), null ) );
+    }
+
+    /** A type for the custom codec test */
+    public static class Point
+    {
+        /** coordinates */
+        final int x, y;
+
+        /**
+         * @param x
+         * @param y
+         */
+        Point( int x, int y )
+        {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /** Codec for points */
+    public static class PointCodec
+        implements IBinaryCodec<Point>
+    {
+        @Override
+        public Class<Point> getType()
+        {
+            return Point.class;
+        }
+
+        @Override
+        public void write( Point obj, BinaryOutput out )
+        {
+            out.writeVarInt( obj.x );
+            out.writeVarInt( obj.y );
+        }
+
+        @Override
+        public Point read( BinaryInput in )
+            throws IOException
+        {
+            int x = in.readVarInt();
+            return new Point( x, in.readVarInt() );
+        }
+    }
+
+    /**
+     * Serialize into a pooled stream behind a header and read it back.
+     * <p>
+     * @throws Exception
+     */
+    public void testSerializeTo()
+        throws Exception
+    {
+        // SETUP
+        BinarySerializer serializer = new BinarySerializer();
+        ByteBufferOutputStream out = new ByteBufferOutputStream( ByteBufferPool.getInstance(), 16 );
+        out.writeInt( 0 );
+
+        // DO WORK
+        serializer.serializeTo( "value", out );
+        out.putInt( 0, out.size() - 4 );
+
+        // VERIFY
+        ByteBuffer written = out.getByteBuffer();
+        assertEquals( "Wrong header", written.remaining() - 4, written.getInt() );
+        assertEquals( "Wrong value", "value", serializer.deSerializeFrom( written, null ) );
+        out.release();
+    }
+}
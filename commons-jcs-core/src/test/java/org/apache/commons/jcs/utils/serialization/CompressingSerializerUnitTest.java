@@ -21,7 +21,12 @@ package org.apache.commons.jcs.utils.serialization;
 
 import junit.framework.TestCase;
 
+import org.apache.commons.jcs.io.ByteBufferOutputStream;
+import org.apache.commons.jcs.io.ByteBufferPool;
+import org.apache.commons.jcs.utils.zip.FrameCompressor;
+
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Tests the compressing serializer.
@@ -116,4 +121,115 @@ public class CompressingSerializerUnitTest
         assertTrue( "Compressed should be smaller. compressed size = " + compressed.length + "nonCompressed size = "
             + nonCompressed.length, compressed.length < nonCompressed.length );
     }
+
+    /**
+     * Verify that an object can be read straight from a direct buffer, and that only the remaining
+     * bytes are used.
+     *<p>
+     * @throws Exception
+     */
+    public void testDeSerializeFromByteBuffer()
+        throws Exception
+    {
+        // SETUP
+        CompressingSerializer serializer = new CompressingSerializer();
+
+        String before = "adsfdsafdsafdsafdsafdsafdsafdsagfdsafdsafdsfdsafdsafsa333 31231";
+        byte[] serialized = serializer.serialize( before );
+        ByteBuffer buffer = ByteBuffer.allocateDirect( serialized.length + 10 );
+        buffer.position( 10 );
+        buffer.put( serialized );
+        buffer.position( 10 );
+
+        // DO WORK
+        String after = (String) serializer.deSerializeFrom( buffer, null );
+
+        // VERIFY
+        assertEquals( "Before and after should be the same.", before, after );
+    }
+
+    /**
+     * Verify that the streamed compressed form can be read by both deserialize methods.
+     * <p>
+     * @throws Exception
+     */
+    public void testSerializeToPooledStream()
+        throws Exception
+    {
+        // SETUP
+        CompressingSerializer serializer = new CompressingSerializer();
+        String before = "adsfdsafdsafdsafdsafdsafdsafdsagfdsafdsafdsfdsafdsafsa333 31231adsfdsafdsafdsafdsafdsafdsafdsagfdsafdsafdsfdsafdsafsa333 31231";
+        ByteBufferOutputStream out = new ByteBufferOutputStream( ByteBufferPool.getInstance(), 16 );
+
+        // DO WORK
+        serializer.serializeTo( before, out );
+
+        // VERIFY
+        ByteBuffer written = out.getByteBuffer();
+        byte[] bytes = new byte[written.remaining()];
+        written.duplicate().get( bytes );
+        assertEquals( "Wrong value from bytes", before, serializer.deSerialize( bytes, null ) );
+        assertEquals( "Wrong value from buffer", before, serializer.deSerializeFrom( written, null ) );
+        out.release();
+    }
+
+    /**
+     * Verify that the lz4 codec round trips, stores small values raw and still reads values written
+     * as a plain deflate stream.
+     * <p>
+     * @throws Exception
+     */
+    public void testLZ4Codec()
+        throws Exception
+    {
+        // SETUP
+        CompressingSerializer plain = new CompressingSerializer();
+        CompressingSerializer serializer = new CompressingSerializer();
+        serializer.setCodec( "lz4" );
+        serializer.setCompressionThreshold( 128 );
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < 100; i++ )
+        {
+            sb.append( "dsafdsafdsaf" ).append( i % 7 );
+        }
+        String large = sb.toString();
+        String small = "small";
+
+        // DO WORK
+        byte[] largeBytes = serializer.serialize( large );
+        byte[] smallBytes = serializer.serialize( small );
+
+        // VERIFY
+        assertTrue( "Large value should compress", largeBytes.length < serializer.serializeObject( large ).length );
+        assertEquals( "Small value should be raw", FrameCompressor.HEADER_LENGTH
+            + serializer.serializeObject( small ).length, smallBytes.length );
+        assertEquals( "Wrong large value", large, serializer.deSerialize( largeBytes, null ) );
+        assertEquals( "Wrong small value", small, serializer.deSerializeFrom( ByteBuffer.wrap( smallBytes ), null ) );
+        assertEquals( "Plain stream not read", large, serializer.deSerialize( plain.serialize( large ), null ) );
+        assertEquals( "Frame not read by default serializer", large, plain.deSerialize( largeBytes, null ) );
+    }
+
+    /**
+     * Verify that a dictionary makes small similar values smaller.
+     * <p>
+     * @throws Exception
+     */
+    public void testDictionary()
+        throws Exception
+    {
+        // SETUP
+        CompressingSerializer serializer = new CompressingSerializer();
+        serializer.setCodec( "lz4" );
+        CompressingSerializer withDictionary = new CompressingSerializer();
+        withDictionary.setCodec( "lz4" );
+        withDictionary.setDictionary( serializer.serializeObject( "customer:0000:name:xxxxxxxx:country:xx" ) );
+        String value = "customer:4711:name:Jane Doe:country:NL";
+
+        // DO WORK
+        byte[] bytes = withDictionary.serialize( value );
+
+        // VERIFY
+        assertTrue( "Dictionary should help", bytes.length < serializer.serialize( value ).length );
+        assertEquals( "Wrong value", value, withDictionary.deSerialize( bytes, null ) );
+    }
 }
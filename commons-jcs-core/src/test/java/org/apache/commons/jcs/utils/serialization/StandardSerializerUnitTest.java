@@ -19,8 +19,13 @@ package org.apache.commons.jcs.utils.serialization;
  * under the License.
  */
 
+import java.nio.ByteBuffer;
+
 import junit.framework.TestCase;
 
+import org.apache.commons.jcs.io.ByteBufferOutputStream;
+import org.apache.commons.jcs.io.ByteBufferPool;
+
 /**
  * Tests the standard serializer.
  *<p>
@@ -99,4 +104,58 @@ public class StandardSerializerUnitTest
         // VERIFY
         assertEquals( "Before and after should be the same.", before, after );
     }
+
+    /**
+     * Verify that an object can be read straight from a direct buffer, and that only the remaining
+     * bytes are used.
+     *<p>
+     * @throws Exception
+     */
+    public void testDeSerializeFromByteBuffer()
+        throws Exception
+    {
+        // SETUP
+        StandardSerializer serializer = new StandardSerializer();
+
+        String before = "adsfdsafdsafdsafdsafdsafdsafdsagfdsafdsafdsfdsafdsafsa333 31231";
+        byte[] serialized = serializer.serialize( before );
+        ByteBuffer buffer = ByteBuffer.allocateDirect( serialized.length + 10 );
+        buffer.position( 10 );
+        buffer.put( serialized );
+        buffer.position( 10 );
+
+        // DO WORK
+        String after = (String) serializer.deSerializeFrom( buffer, null );
+
+        // VERIFY
+        assertEquals( "Before and after should be the same.", before, after );
+    }
+
+    /**
+     * Serialize into a pooled buffer that has to grow and read it back.
+     *<p>
+     * @throws Exception
+     */
+    public void testSerializeToPooledStream()
+        throws Exception
+    {
+        // SETUP
+        StandardSerializer serializer = new StandardSerializer();
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            sb.append( "value " ).append( i );
+        }
+        String before = sb.toString();
+        ByteBufferOutputStream out = new ByteBufferOutputStream( ByteBufferPool.getInstance(), 64 );
+
+        // DO WORK
+        serializer.serializeTo( before, out );
+
+        // VERIFY
+        ByteBuffer written = out.getByteBuffer();
+        assertEquals( "Should be the same bytes as serialize.", ByteBuffer.wrap( serializer.serialize( before ) ), written );
+        assertEquals( "Before and after should be the same.", before, serializer.deSerializeFrom( written, null ) );
+        out.release();
+    }
 }
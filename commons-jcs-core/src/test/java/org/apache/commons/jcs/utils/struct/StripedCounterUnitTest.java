@@ -0,0 +1,85 @@
+package org.apache.commons.jcs.utils.struct;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the striped counter.
+ */
+public class StripedCounterUnitTest
+    extends TestCase
+{
+    /**
+     * Verify that increments from many threads are all counted.
+     * <p>
+     * @throws Exception
+     */
+    public void testConcurrentIncrements()
+        throws Exception
+    {
+        // SETUP
+        final StripedCounter counter = new StripedCounter( 4 );
+        final int numThreads = 8;
+        final int numIncrements = 10000;
+
+        // DO WORK
+        Thread[] threads = new Thread[numThreads];
+        for ( int i = 0; i < numThreads; i++ )
+        {
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for ( int j = 0; j < numIncrements; j++ )
+                    {
+                        counter.increment();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for ( int i = 0; i < numThreads; i++ )
+        {
+            threads[i].join();
+        }
+
+        // VERIFY
+        assertEquals( "Wrong count", numThreads * numIncrements, counter.get() );
+    }
+
+    /**
+     * Verify that set replaces the value.
+     */
+    public void testSet()
+    {
+        // SETUP
+        StripedCounter counter = new StripedCounter();
+        counter.add( 5 );
+
+        // DO WORK
+        counter.set( 2 );
+        counter.increment();
+
+        // VERIFY
+        assertEquals( "Wrong count", 3, counter.get() );
+    }
+}
@@ -0,0 +1,95 @@
+package org.apache.commons.jcs.utils.struct;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the striped lock.
+ */
+public class StripedLockUnitTest
+    extends TestCase
+{
+    /**
+     * Verify that the same key always maps to the same lock.
+     */
+    public void testSameKeySameLock()
+    {
+        // SETUP
+        StripedLock locks = new StripedLock( 16 );
+
+        // DO WORK
+        // VERIFY
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertSame( "Wrong lock for key " + i, locks.getLock( "key" + i ), locks.getLock( new String( "key" + i ) ) );
+        }
+        assertSame( "Wrong lock for null", locks.getLock( null ), locks.getLock( null ) );
+    }
+
+    /**
+     * Verify that the number of locks is rounded up to a power of two and keys are spread.
+     */
+    public void testSpread()
+    {
+        // SETUP
+        StripedLock locks = new StripedLock( 10 );
+
+        // DO WORK
+        Set<Object> used = new HashSet<Object>();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            used.add( locks.getLock( Integer.valueOf( i ) ) );
+        }
+
+        // VERIFY
+        assertEquals( "Wrong number of locks", 16, locks.size() );
+        assertEquals( "Keys not spread over all locks", 16, used.size() );
+    }
+
+    /**
+     * Verify that getLocks returns each lock once, in the same order for the same keys.
+     */
+    public void testGetLocks()
+    {
+        // SETUP
+        StripedLock locks = new StripedLock( 16 );
+        List<String> keys = Arrays.asList( "a", "b", "c", "d", "e", "f", "g", "h", "a" );
+
+        // DO WORK
+        List<Lock> forward = locks.getLocks( keys );
+        List<String> reversed = Arrays.asList( "h", "g", "f", "e", "d", "c", "b", "a" );
+        List<Lock> backward = locks.getLocks( reversed );
+
+        // VERIFY
+        assertEquals( "Locks should not repeat", new HashSet<Lock>( forward ).size(), forward.size() );
+        assertEquals( "Order should not depend on the keys", forward, backward );
+        for ( String key : keys )
+        {
+            assertTrue( "Missing lock for " + key, forward.contains( locks.getLock( key ) ) );
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.apache.commons.jcs.utils.zip;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/** Unit tests for the frame compressor and its codecs. */
+public class FrameCompressorUnitTest
+    extends TestCase
+{
+    /**
+     * Verify that the lz4 codec restores data of several shapes, including long runs, overlapping
+     * matches, incompressible data and blocks too short to hold a match.
+     * <p>
+     * @throws IOException
+     */
+    public void testLZ4RoundTrip()
+        throws IOException
+    {
+        // SETUP
+        FrameCompressor compressor = new FrameCompressor( new LZ4Codec(), 0 );
+        Random random = new Random( 17 );
+        byte[] noise = new byte[70000];
+        random.nextBytes( noise );
+        byte[] run = new byte[100000];
+        Arrays.fill( run, (byte) 'a' );
+        StringBuilder text = new StringBuilder();
+        for ( int i = 0; i < 2000; i++ )
+        {
+            text.append( "<entry key=\"" ).append( i % 10 ).append( "\" type=\"string\">value</entry>" );
+        }
+
+        byte[][] inputs = { new byte[0], "abc".getBytes( "UTF-8" ), "abcdabcdabcdabcd".getBytes( "UTF-8" ),
+            text.toString().getBytes( "UTF-8" ), noise, run };
+
+        for ( int i = 0; i < inputs.length; i++ )
+        {
+            // DO WORK
+            byte[] frame = compressor.compress( inputs[i] );
+
+            // VERIFY
+            assertTrue( "Wrong data for input " + i, Arrays.equals( inputs[i], compressor.decompress( frame ) ) );
+        }
+        assertTrue( "Text should compress", compressor.compress( inputs[3] ).length < inputs[3].length / 4 );
+        assertTrue( "A run should compress", compressor.compress( run ).length < 1000 );
+    }
+
+    /**
+     * Verify that data below the threshold and data that does not compress is stored raw.
+     * <p>
+     * @throws IOException
+     */
+    public void testStoredRaw()
+        throws IOException
+    {
+        // SETUP
+        FrameCompressor compressor = new FrameCompressor( new LZ4Codec(), 100 );
+        byte[] small = new byte[99];
+        byte[] noise = new byte[1000];
+        new Random( 3 ).nextBytes( noise );
+
+        // DO WORK
+        byte[] smallFrame = compressor.compress( small );
+        byte[] noiseFrame = compressor.compress( noise );
+
+        // VERIFY
+        assertEquals( "Small data should be raw", FrameCompressor.HEADER_LENGTH + small.length, smallFrame.length );
+        assertEquals( "Noise should be raw", FrameCompressor.HEADER_LENGTH + noise.length, noiseFrame.length );
+        assertTrue( "Wrong small data", Arrays.equals( small, compressor.decompress( smallFrame ) ) );
+        assertTrue( "Wrong noise", Arrays.equals( noise, compressor.decompress( noiseFrame ) ) );
+    }
+
+    /**
+     * Verify that a dictionary helps small values, and that the frames need the same dictionary.
+     * <p>
+     * @throws IOException
+     */
+    public void testDictionary()
+        throws IOException
+    {
+        // SETUP
+        byte[] dictionary = "{\"customerId\":0,\"firstName\":\"\",\"lastName\":\"\",\"country\":\"\"}"
+            .getBytes( "UTF-8" );
+        byte[] value = "{\"customerId\":4711,\"firstName\":\"Jane\",\"lastName\":\"Doe\",\"country\":\"NL\"}"
+            .getBytes( "UTF-8" );
+        FrameCompressor plain = new FrameCompressor( new LZ4Codec(), 0 );
+
+        ICompressionCodec[] codecs = { new LZ4Codec( dictionary ), new DeflateCodec( 9, dictionary ) };
+        for ( int i = 0; i < codecs.length; i++ )
+        {
+            FrameCompressor compressor = new FrameCompressor( codecs[i], 0 );
+
+            // DO WORK
+            byte[] frame = compressor.compress( value );
+
+            // VERIFY
+            assertTrue( "Dictionary should help codec " + i, frame.length < plain.compress( value ).length );
+            assertTrue( "Wrong data for codec " + i, Arrays.equals( value, compressor.decompress( frame ) ) );
+            try
+            {
+                plain.decompress( frame );
+                fail( "A frame with a dictionary should not be read without it" );
+            }
+            catch ( IOException e )
+            {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Verify that frames of another codec without dictionary are read, from heap and direct buffers.
+     * <p>
+     * @throws IOException
+     */
+    public void testReadsOtherCodec()
+        throws IOException
+    {
+        // SETUP
+        byte[] value = "abcabcabcabcabcabcabcabcabcabcabcabcabcabc".getBytes( "UTF-8" );
+        FrameCompressor deflate = new FrameCompressor( new DeflateCodec(), 0 );
+        FrameCompressor lz4 = new FrameCompressor( new LZ4Codec(), 0 );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        deflate.compressTo( value, 0, value.length, out );
+        byte[] frame = out.toByteArray();
+        ByteBuffer direct = ByteBuffer.allocateDirect( frame.length );
+        direct.put( frame );
+        direct.flip();
+
+        // DO WORK
+        byte[] fromArray = lz4.decompress( frame );
+        ByteBuffer fromBuffer = lz4.decompress( direct );
+
+        // VERIFY
+        assertTrue( "Wrong data from array", Arrays.equals( value, fromArray ) );
+        byte[] bytes = new byte[fromBuffer.remaining()];
+        fromBuffer.get( bytes );
+        assertTrue( "Wrong data from buffer", Arrays.equals( value, bytes ) );
+        assertFalse( "Frame should be consumed", direct.hasRemaining() );
+    }
+
+    /**
+     * Verify that a truncated frame is reported.
+     * <p>
+     * @throws IOException
+     */
+    public void testTruncated()
+        throws IOException
+    {
+        // SETUP
+        FrameCompressor compressor = new FrameCompressor( new LZ4Codec(), 0 );
+        byte[] value = new byte[500];
+        Arrays.fill( value, (byte) 7 );
+        byte[] frame = compressor.compress( value );
+
+        try
+        {
+            // DO WORK
+            compressor.decompress( Arrays.copyOf( frame, frame.length - 1 ) );
+
+            // VERIFY
+            fail( "A truncated frame should fail" );
+        }
+        catch ( IOException e )
+        {
+            // expected
+        }
+    }
+}
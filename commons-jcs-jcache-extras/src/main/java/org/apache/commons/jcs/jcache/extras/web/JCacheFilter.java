@@ -36,9 +36,12 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.Arrays;
@@ -47,6 +50,11 @@ import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import static java.util.Collections.list;
@@ -55,8 +63,13 @@ import static javax.servlet.http.HttpServletResponse.SC_OK;
 public class JCacheFilter implements Filter
 {
     private Cache<PageKey, Page> cache;
+    private Cache<PageKey, Page> largeCache; // bodies above spillThreshold, meant to be a disk backed region
     private CachingProvider provider;
     private CacheManager manager;
+    private boolean precompressed;
+    private int spillThreshold;
+    private long coalesceTimeout;
+    private final ConcurrentMap<PageKey, Rendering> renderings = new ConcurrentHashMap<PageKey, Rendering>();
 
     @Override
     public void init(final FilterConfig filterConfig) throws ServletException
@@ -85,7 +98,22 @@ public class JCacheFilter implements Filter
         {
             cacheName = JCacheFilter.class.getName();
         }
-        cache = manager.getCache(cacheName);
+        cache = cache(cacheName, properties);
+
+        // gzip the body once and serve it to every client, inflating it for the ones not accepting gzip
+        precompressed = "true".equals(properties.getProperty("precompressed", "false"));
+        coalesceTimeout = Long.parseLong(properties.getProperty("coalesce-timeout", "30000"));
+        spillThreshold = Integer.parseInt(properties.getProperty("spill-threshold", "-1"));
+        if (spillThreshold >= 0)
+        {
+            // configure this region with a disk auxiliary to keep large pages off the heap
+            largeCache = cache(properties.getProperty("large-cache-name", cacheName + ".large"), properties);
+        }
+    }
+
+    private Cache<PageKey, Page> cache(final String cacheName, final Properties properties)
+    {
+        Cache<PageKey, Page> cache = manager.getCache(cacheName);
         if (cache == null)
         {
             final MutableConfiguration<PageKey, Page> configuration = new MutableConfiguration<PageKey, Page>()
@@ -109,6 +137,7 @@ public class JCacheFilter implements Filter
             configuration.setStatisticsEnabled("true".equals(properties.getProperty("statistics-enabled", "false")));
             cache = manager.createCache(cacheName, configuration);
         }
+        return cache;
     }
 
     @Override
@@ -131,37 +160,18 @@ public class JCacheFilter implements Filter
         final HttpServletResponse httpServletResponse = HttpServletResponse.class.cast(servletResponse);
         checkResponse(httpServletResponse);
 
-        final PageKey key = new PageKey(key(servletRequest), gzip);
-        Page page = cache.get(key);
+        final PageKey key = new PageKey(key(servletRequest), precompressed || gzip);
+        Page page = get(key);
         if (page == null)
         {
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            final InMemoryResponse response;
-            if (gzip)
-            {
-                response = new InMemoryResponse(httpServletResponse, new GZIPOutputStream(baos));
-            }
-            else
-            {
-                response = new InMemoryResponse(httpServletResponse, baos);
-            }
-            filterChain.doFilter(servletRequest, response);
-            response.flushBuffer();
-
-            page = new Page(
-                    response.getStatus(),
-                    response.getContentType(),
-                    response.getContentLength(),
-                    response.getCookies(),
-                    response.getHeaders(),
-                    baos.toByteArray());
-            cache.put(key, page);
+            page = renderOnce(key, servletRequest, httpServletResponse, filterChain);
         }
 
         if (page.status == SC_OK) {
             checkResponse(httpServletResponse);
 
-            if (gzip)
+            final boolean inflate = key.gzip && !gzip;
+            if (key.gzip && gzip)
             {
                 httpServletResponse.setHeader("Content-Encoding", "gzip");
             }
@@ -197,20 +207,112 @@ public class JCacheFilter implements Filter
                     }
                 }
             }
-            httpServletResponse.setContentLength(page.out.length);
-            final BufferedOutputStream bos = new BufferedOutputStream(httpServletResponse.getOutputStream());
-            if (page.out.length != 0)
+
+            // the stored array goes straight to the container, no intermediate buffer
+            final OutputStream out = httpServletResponse.getOutputStream();
+            if (inflate)
             {
-                bos.write(page.out);
+                httpServletResponse.setContentLength(page.rawLength);
+                final InputStream in = new GZIPInputStream(new ByteArrayInputStream(page.out));
+                try
+                {
+                    final byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) >= 0)
+                    {
+                        out.write(buffer, 0, read);
+                    }
+                }
+                finally
+                {
+                    in.close();
+                }
             }
             else
             {
-                bos.write(new byte[0]);
+                httpServletResponse.setContentLength(page.out.length);
+                out.write(page.out);
+            }
+            out.flush();
+        }
+    }
+
+    private Page get(final PageKey key)
+    {
+        Page page = cache.get(key);
+        if (page == null && largeCache != null)
+        {
+            page = largeCache.get(key);
+        }
+        return page;
+    }
+
+    /**
+     * Renders the page unless another request is already rendering it, in which case its page is
+     * reused. This way an expired landing page costs one rendering and not one per pending request.
+     */
+    private Page renderOnce(final PageKey key, final ServletRequest servletRequest, final HttpServletResponse httpServletResponse,
+                            final FilterChain filterChain) throws IOException, ServletException
+    {
+        final Rendering rendering = new Rendering();
+        final Rendering inFlight = renderings.putIfAbsent(key, rendering);
+        if (inFlight != null)
+        {
+            final Page page = inFlight.await(coalesceTimeout);
+            if (page != null && page.status == SC_OK)
+            {
+                return page;
             }
-            bos.flush();
+            // failed, not cacheable or too slow: this request renders for itself
+            return render(key, servletRequest, httpServletResponse, filterChain);
+        }
+
+        try
+        {
+            final Page page = render(key, servletRequest, httpServletResponse, filterChain);
+            rendering.page = page;
+            return page;
+        }
+        finally
+        {
+            renderings.remove(key, rendering);
+            rendering.done.countDown();
         }
     }
 
+    private Page render(final PageKey key, final ServletRequest servletRequest, final HttpServletResponse httpServletResponse,
+                        final FilterChain filterChain) throws IOException, ServletException
+    {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final GZIPOutputStream gzipStream = key.gzip ? new GZIPOutputStream(baos) : null;
+        final CountingOutputStream body = new CountingOutputStream(gzipStream != null ? gzipStream : baos);
+        final InMemoryResponse response = new InMemoryResponse(httpServletResponse, body);
+        filterChain.doFilter(servletRequest, response);
+        response.flushBuffer();
+        if (gzipStream != null)
+        {
+            gzipStream.finish();
+        }
+
+        final Page page = new Page(
+                response.getStatus(),
+                response.getContentType(),
+                response.getContentLength(),
+                response.getCookies(),
+                response.getHeaders(),
+                baos.toByteArray(),
+                body.count);
+        if (largeCache != null && page.out.length > spillThreshold)
+        {
+            largeCache.put(key, page);
+        }
+        else
+        {
+            cache.put(key, page);
+        }
+        return page;
+    }
+
     protected String key(final ServletRequest servletRequest)
     {
         if (HttpServletRequest.class.isInstance(servletRequest))
@@ -235,6 +337,10 @@ public class JCacheFilter implements Filter
         {
             cache.close();
         }
+        if (largeCache != null && !largeCache.isClosed())
+        {
+            largeCache.close();
+        }
         if (!manager.isClosed())
         {
             manager.close();
@@ -290,11 +396,20 @@ public class JCacheFilter implements Filter
         private final Collection<Cookie> cookies;
         private final Map<String, List<Serializable>> headers;
         private final byte[] out;
+        private final int rawLength; // length of out once inflated when it is gzipped
 
         public Page(final int status,
                     final String contentType, final int contentLength,
                     final Collection<Cookie> cookies, final Map<String, List<Serializable>> headers,
                     final byte[] out)
+        {
+            this(status, contentType, contentLength, cookies, headers, out, out.length);
+        }
+
+        public Page(final int status,
+                    final String contentType, final int contentLength,
+                    final Collection<Cookie> cookies, final Map<String, List<Serializable>> headers,
+                    final byte[] out, final int rawLength)
         {
             this.status = status;
             this.contentType = contentType;
@@ -302,6 +417,7 @@ public class JCacheFilter implements Filter
             this.cookies = cookies;
             this.headers = headers;
             this.out = out;
+            this.rawLength = rawLength;
         }
 
         @Override
@@ -318,6 +434,7 @@ public class JCacheFilter implements Filter
 
             final Page page = Page.class.cast(o);
             return contentLength == page.contentLength
+                    && rawLength == page.rawLength
                     && status == page.status
                     && !(contentType != null ? !contentType.equals(page.contentType) : page.contentType != null)
                     && cookies.equals(page.cookies)
@@ -335,7 +452,54 @@ public class JCacheFilter implements Filter
             result = 31 * result + cookies.hashCode();
             result = 31 * result + headers.hashCode();
             result = 31 * result + Arrays.hashCode(out);
+            result = 31 * result + rawLength;
             return result;
         }
     }
+
+    private static class Rendering
+    {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Page page;
+
+        private Page await(final long timeout)
+        {
+            try
+            {
+                if (done.await(timeout, TimeUnit.MILLISECONDS))
+                {
+                    return page;
+                }
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream
+    {
+        private int count;
+
+        private CountingOutputStream(final OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(final int b) throws IOException
+        {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException
+        {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
 }
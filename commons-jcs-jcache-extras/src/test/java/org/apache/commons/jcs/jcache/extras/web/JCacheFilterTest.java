@@ -32,7 +32,9 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -105,6 +107,40 @@ public class JCacheFilterTest
         }
     }
 
+    @Test
+    public void testFilterPrecompressed() throws Exception
+    {
+        Hello.COUNTER.set(0);
+        final Tomcat tomcat = new Tomcat();
+        tomcat.setPort(0);
+        try {
+            tomcat.getEngine();
+            tomcat.start();
+            final Context ctx = tomcat.addContext("/sample", docBase.getAbsolutePath());
+            Tomcat.addServlet(ctx, "hello", Hello.class.getName());
+            ctx.addServletMapping("/", "hello");
+            final FilterDef filterDef = addJcsFilter(ctx);
+            filterDef.addInitParameter("cache-name", "precompressed");
+            filterDef.addInitParameter("precompressed", "true");
+            StandardContext.class.cast(ctx).filterStart();
+
+            final URL url = new URL("http://localhost:" + tomcat.getConnector().getLocalPort() + "/sample/");
+            final URLConnection gzip = url.openConnection();
+            gzip.setRequestProperty("Accept-Encoding", "gzip");
+            assertEquals("gzip", gzip.getHeaderField("Content-Encoding"));
+            assertEquals("hello", IOUtils.toString(new GZIPInputStream(gzip.getInputStream())));
+            assertEquals(1, Hello.COUNTER.get());
+
+            // same stored body, inflated for a client not accepting gzip
+            final URLConnection plain = url.openConnection();
+            assertEquals(null, plain.getHeaderField("Content-Encoding"));
+            assertEquals("hello", IOUtils.toString(plain.getInputStream()));
+            assertEquals(1, Hello.COUNTER.get());
+        } finally {
+            stop(tomcat);
+        }
+    }
+
     private void stop(final Tomcat tomcat) throws LifecycleException {
         if (LifecycleState.STARTED.equals(tomcat.getServer().getState())) {
             tomcat.stop();
@@ -112,7 +148,7 @@ public class JCacheFilterTest
         }
     }
 
-    private void addJcsFilter(final Context ctx) {
+    private FilterDef addJcsFilter(final Context ctx) {
         final FilterDef filterDef = new FilterDef();
         filterDef.setFilterName("jcs");
         filterDef.setFilterClass(JCacheFilter.class.getName());
@@ -122,6 +158,7 @@ public class JCacheFilterTest
         filterMap.setFilterName(filterDef.getFilterName());
         filterMap.addURLPattern("/*");
         ctx.addFilterMap(filterMap);
+        return filterDef;
     }
 
     public static class Hello extends HttpServlet {
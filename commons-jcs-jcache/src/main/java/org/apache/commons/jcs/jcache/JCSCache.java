@@ -23,17 +23,28 @@ import static org.apache.commons.jcs.jcache.serialization.Serializations.copy;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.cache.Cache;
 import javax.cache.CacheException;
@@ -59,6 +70,7 @@ import javax.management.ObjectName;
 import org.apache.commons.jcs.engine.CacheElement;
 import org.apache.commons.jcs.engine.ElementAttributes;
 import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.ICacheElementRemapper;
 import org.apache.commons.jcs.engine.behavior.IElementAttributes;
 import org.apache.commons.jcs.engine.behavior.IElementSerializer;
 import org.apache.commons.jcs.engine.control.CompositeCache;
@@ -85,7 +97,10 @@ public class JCSCache<K, V> implements Cache<K, V>
     private final Map<CacheEntryListenerConfiguration<K, V>, JCSListener<K, V>> listeners = new ConcurrentHashMap<CacheEntryListenerConfiguration<K, V>, JCSListener<K, V>>();
     private final Statistics statistics = new Statistics();
     private final ExecutorService pool;
+    private final ExecutorService invokePool; // helps the invokeAll caller, which works too
+    private final int invokeParallelism;
     private final IElementSerializer serializer; // using json/xml should work as well -> don't force Serializable
+    private final ThreadLocal<List<Runnable>> deferredEvents = new ThreadLocal<List<Runnable>>(); // set while invoke holds a key lock
 
 
     public JCSCache(final ClassLoader classLoader, final JCSCachingManager mgr,
@@ -109,6 +124,11 @@ public class JCSCache<K, V> implements Cache<K, V>
         final DaemonThreadFactory threadFactory = new DaemonThreadFactory("JCS-JCache-" + cacheName + "-");
         pool = poolSize > 0 ? Executors.newFixedThreadPool(poolSize, threadFactory) : Executors.newCachedThreadPool(threadFactory);
 
+        invokeParallelism = Integer.parseInt(property(properties, cacheName, "invoke.parallelism",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        invokePool = invokeParallelism > 1 ?
+                Executors.newFixedThreadPool(invokeParallelism - 1, new DaemonThreadFactory("JCS-JCache-invoke-" + cacheName + "-")) : null;
+
         try
         {
             serializer = IElementSerializer.class.cast(classLoader.loadClass(property(properties, "serializer", cacheName, StandardSerializer.class.getName())).newInstance());
@@ -179,6 +199,9 @@ public class JCSCache<K, V> implements Cache<K, V>
         }
     }
 
+    // below that a partition does not pay for its hand-off to another thread
+    private static final int MIN_KEYS_PER_INVOKE_PARTITION = 64;
+
     private static String property(final Properties properties, final String cacheName, final String name, final String defaultValue)
     {
         return properties.getProperty(cacheName + "." + name, properties.getProperty(name, defaultValue));
@@ -253,14 +276,14 @@ public class JCSCache<K, V> implements Cache<K, V>
         return element;
     }
 
-    private void touch(final K key, final ICacheElement<K, V> element)
+    private void touch(final ICacheElement<K, V> element)
     {
         if (config.isStoreByValue())
         {
-            final K copy = copy(serializer, manager.getClassLoader(), key);
+            // the stored key already is a private copy, no need to serialize it again
             try
             {
-                delegate.update(new CacheElement<K, V>(name, copy, element.getVal(), element.getElementAttributes()));
+                delegate.update(new CacheElement<K, V>(name, element.getKey(), element.getVal(), element.getElementAttributes()));
             }
             catch (final IOException e)
             {
@@ -278,27 +301,24 @@ public class JCSCache<K, V> implements Cache<K, V>
             assertNotNull(k, "key");
         }
 
-        final long now = Times.now(false);
+        final Set<K> cacheKeys = new HashSet<K>(keys);
+        final Map<K, ICacheElement<K, V>> elements = delegate.getMultiple(cacheKeys);
         final Map<K, V> result = new HashMap<K, V>();
-        for (final K key : keys) {
-            assertNotNull(key, "key");
-
-            final ICacheElement<K, V> elt = delegate.get(key);
-            V val = elt != null ? elt.getVal() : null;
+        final Set<K> misses = new HashSet<K>();
+        for (final K key : cacheKeys)
+        {
+            final ICacheElement<K, V> elt = elements.get(key);
+            final V val = elt != null ? elt.getVal() : null;
             if (val == null && config.isReadThrough())
             {
-                val = doLoad(key, false, now, false);
-                if (val != null)
-                {
-                    result.put(key, val);
-                }
+                misses.add(key);
             }
             else if (elt != null)
             {
                 final Duration expiryForAccess = expiryPolicy.getExpiryForAccess();
                 if (isNotZero(expiryForAccess))
                 {
-                    touch(key, elt);
+                    touch(elt);
                     result.put(key, val);
                 }
                 else
@@ -307,6 +327,68 @@ public class JCSCache<K, V> implements Cache<K, V>
                 }
             }
         }
+        if (!misses.isEmpty())
+        {
+            result.putAll(doLoadMultiple(misses, Collections.<K> emptySet(), false));
+        }
+        return result;
+    }
+
+    /**
+     * Loads all the given keys with a single CacheLoader.loadAll call and stores the loaded values
+     * with a single update of the underlying region.
+     * <p>
+     * @param keys the keys to load
+     * @param existingKeys the keys already cached, they get the update expiry instead of the creation one
+     * @param propagateLoadException whether a loader failure is rethrown or ignored
+     * @return the non null loaded values
+     */
+    private Map<K, V> doLoadMultiple(final Set<K> keys, final Set<K> existingKeys, final boolean propagateLoadException)
+    {
+        Map<K, V> loaded = null;
+        try
+        {
+            loaded = loader.loadAll(keys);
+        }
+        catch (final CacheLoaderException e)
+        {
+            if (propagateLoadException)
+            {
+                throw e;
+            }
+        }
+
+        final Map<K, V> result = new HashMap<K, V>();
+        if (loaded == null)
+        {
+            return result;
+        }
+
+        final List<ICacheElement<K, V>> elements = new ArrayList<ICacheElement<K, V>>(keys.size());
+        for (final K key : keys)
+        {
+            final V v = loaded.get(key);
+            if (v != null)
+            {
+                result.put(key, v);
+                final Duration duration = existingKeys.contains(key) ? expiryPolicy.getExpiryForUpdate() : expiryPolicy.getExpiryForCreation();
+                if (isNotZero(duration))
+                {
+                    elements.add(updateElement(key, v, duration));
+                }
+            }
+        }
+        if (!elements.isEmpty())
+        {
+            try
+            {
+                delegate.updateMultiple(elements);
+            }
+            catch (final IOException e)
+            {
+                throw new CacheException(e);
+            }
+        }
         return result;
     }
 
@@ -324,70 +406,209 @@ public class JCSCache<K, V> implements Cache<K, V>
         assertNotClosed();
         assertNotNull(key, "key");
         assertNotNull(rawValue, "value");
+        doPut(key, rawValue, PutCondition.ALWAYS, null);
+    }
 
-        final ICacheElement<K, V> oldElt = delegate.get(key);
-        final V old = oldElt != null ? oldElt.getVal() : null;
+    /**
+     * Puts the value if the condition holds for the current value of the key. The condition is
+     * checked and the write done while the lock of the key is held.
+     *
+     * @return the remapper, telling the previous value and whether the value was stored
+     */
+    private PutRemapper doPut(final K key, final V rawValue, final PutCondition condition, final V expected)
+    {
+        final boolean statisticsEnabled = config.isStatisticsEnabled();
+        final long start = Times.now(!statisticsEnabled);
 
         final boolean storeByValue = config.isStoreByValue();
         final V value = storeByValue ? copy(serializer, manager.getClassLoader(), rawValue) : rawValue;
+        final K jcsKey = storeByValue ? copy(serializer, manager.getClassLoader(), key) : key;
+
+        if (condition == PutCondition.ALWAYS)
+        {
+            writer.write(new JCSEntry<K, V>(jcsKey, value));
+        }
 
-        final boolean created = old == null;
-        final Duration duration = created ? expiryPolicy.getExpiryForCreation() : expiryPolicy.getExpiryForUpdate();
-        if (isNotZero(duration))
+        // created vs updated is decided under the key lock, no read is needed beforehand
+        final PutRemapper remapper = new PutRemapper(value, condition, expected);
+        final ICacheElement<K, V> element;
+        try
+        {
+            element = delegate.compute(jcsKey, remapper);
+        }
+        catch (final IOException e)
         {
-            final boolean statisticsEnabled = config.isStatisticsEnabled();
-            final long start = Times.now(false);
+            throw new CacheException(e);
+        }
 
-            final K jcsKey = storeByValue ? copy(serializer, manager.getClassLoader(), key) : key;
-            final ICacheElement<K, V> element = updateElement(jcsKey, value, created ? null : duration); // reuse it to create basic structure
-            if (created && duration != null) { // set maxLife
-                final IElementAttributes copy = element.getElementAttributes();
-                copy.setTimeFactorForMilliseconds(1);
-                final boolean eternal = duration.isEternal();
-                copy.setIsEternal(eternal);
-                if (!eternal)
-                {
-                    copy.setIsEternal(false);
-                    element.getElementAttributes().setMaxLife(duration.getTimeUnit().toMillis(duration.getDurationAmount()));
-                }
-                element.setElementAttributes(copy);
+        if (!remapper.applied)
+        {
+            return remapper;
+        }
+
+        final V old = remapper.previous;
+        if (element == null)
+        {
+            if (old != null)
+            {
+                fire(EventType.EXPIRED, Arrays.<CacheEntryEvent<? extends K, ? extends V>> asList(new JCSCacheEntryEvent<K, V>(this,
+                        EventType.REMOVED, null, key, old)));
             }
-            writer.write(new JCSEntry<K, V>(jcsKey, value));
-            try
+            return remapper;
+        }
+
+        if (old == null)
+        {
+            fire(EventType.CREATED, Arrays.<CacheEntryEvent<? extends K, ? extends V>> asList(new JCSCacheEntryEvent<K, V>(this,
+                    EventType.CREATED, null, key, value)));
+        }
+        else
+        {
+            fire(EventType.UPDATED, Arrays.<CacheEntryEvent<? extends K, ? extends V>> asList(new JCSCacheEntryEvent<K, V>(this,
+                    EventType.UPDATED, old, key, value)));
+        }
+
+        if (statisticsEnabled)
+        {
+            statistics.increasePuts(1);
+            statistics.addPutTime(Times.now(false) - start);
+        }
+        return remapper;
+    }
+
+    /**
+     * When a put applies, depending on the value currently cached.
+     */
+    private enum PutCondition
+    {
+        ALWAYS, IF_ABSENT, IF_PRESENT, IF_EQUAL
+    }
+
+    /**
+     * Builds the element stored by put from the current one: a creation gets the creation expiry
+     * and an update the update expiry. A zero expiry stores nothing, and removes the current
+     * element when there is one. Conditional puts call the writer here, once they know they apply.
+     */
+    private class PutRemapper implements ICacheElementRemapper<K, V>
+    {
+        private final V value;
+        private final PutCondition condition;
+        private final V expected;
+        private V previous;
+        private boolean applied;
+
+        private PutRemapper(final V value, final PutCondition condition, final V expected)
+        {
+            this.value = value;
+            this.condition = condition;
+            this.expected = expected;
+        }
+
+        @Override
+        public ICacheElement<K, V> remap(final K key, final ICacheElement<K, V> current)
+        {
+            previous = current != null ? current.getVal() : null;
+            switch (condition)
             {
-                delegate.update(element);
+                case IF_ABSENT:
+                    if (previous != null)
+                    {
+                        return current;
+                    }
+                    break;
+                case IF_PRESENT:
+                    if (previous == null)
+                    {
+                        return current;
+                    }
+                    break;
+                case IF_EQUAL:
+                    if (previous == null || !previous.equals(expected))
+                    {
+                        return accessed(current);
+                    }
+                    break;
+                default:
+                    break;
             }
-            catch (final IOException e)
+
+            applied = true;
+            if (condition != PutCondition.ALWAYS)
             {
-                throw new CacheException(e);
+                writer.write(new JCSEntry<K, V>(key, value));
             }
-            for (final JCSListener<K, V> listener : listeners.values())
+
+            final boolean created = previous == null;
+            final Duration duration = created ? expiryPolicy.getExpiryForCreation() : expiryPolicy.getExpiryForUpdate();
+            if (!isNotZero(duration))
             {
-                if (created)
-                {
-                    listener.onCreated(Arrays.<CacheEntryEvent<? extends K, ? extends V>> asList(new JCSCacheEntryEvent<K, V>(this,
-                            EventType.CREATED, null, key, value)));
-                }
-                else
-                {
-                    listener.onUpdated(Arrays.<CacheEntryEvent<? extends K, ? extends V>> asList(new JCSCacheEntryEvent<K, V>(this,
-                            EventType.UPDATED, old, key, value)));
-                }
+                return null;
             }
+            return putElement(key, value, created, duration);
+        }
+    }
+
+    /**
+     * Removes the key if its current value equals the expected one, calling the writer first.
+     */
+    private class RemoveRemapper implements ICacheElementRemapper<K, V>
+    {
+        private final V expected;
+        private V previous;
+        private boolean applied;
 
-            if (statisticsEnabled)
+        private RemoveRemapper(final V expected)
+        {
+            this.expected = expected;
+        }
+
+        @Override
+        public ICacheElement<K, V> remap(final K key, final ICacheElement<K, V> current)
+        {
+            previous = current != null ? current.getVal() : null;
+            if (previous == null || !previous.equals(expected))
             {
-                statistics.increasePuts(1);
-                statistics.addPutTime(System.currentTimeMillis() - start);
+                return accessed(current);
             }
+            applied = true;
+            writer.delete(key);
+            return null;
         }
-        else
+    }
+
+    /**
+     * @return the element to keep after a read that did not modify it, carrying the access expiry
+     */
+    private ICacheElement<K, V> accessed(final ICacheElement<K, V> current)
+    {
+        if (current == null)
         {
-            if (!created)
+            return null;
+        }
+        final Duration expiryForAccess = expiryPolicy.getExpiryForAccess();
+        if (expiryForAccess != null && (!current.getElementAttributes().getIsEternal() || !expiryForAccess.isEternal()))
+        {
+            return updateElement(current.getKey(), current.getVal(), expiryForAccess);
+        }
+        return current;
+    }
+
+    private ICacheElement<K, V> putElement(final K jcsKey, final V value, final boolean created, final Duration duration)
+    {
+        final ICacheElement<K, V> element = updateElement(jcsKey, value, created ? null : duration); // reuse it to create basic structure
+        if (created && duration != null) { // set maxLife
+            final IElementAttributes copy = element.getElementAttributes();
+            copy.setTimeFactorForMilliseconds(1);
+            final boolean eternal = duration.isEternal();
+            copy.setIsEternal(eternal);
+            if (!eternal)
             {
-                expires(key);
+                copy.setIsEternal(false);
+                element.getElementAttributes().setMaxLife(duration.getTimeUnit().toMillis(duration.getDurationAmount()));
             }
+            element.setElementAttributes(copy);
         }
+        return element;
     }
 
     private static boolean isNotZero(final Duration duration)
@@ -399,11 +620,8 @@ public class JCSCache<K, V> implements Cache<K, V>
     {
         final ICacheElement<K, V> elt = delegate.get(cacheKey);
         delegate.remove(cacheKey);
-        for (final JCSListener<K, V> listener : listeners.values())
-        {
-            listener.onExpired(Arrays.<CacheEntryEvent<? extends K, ? extends V>> asList(new JCSCacheEntryEvent<K, V>(this,
-                    EventType.REMOVED, null, cacheKey, elt.getVal())));
-        }
+        fire(EventType.EXPIRED, Arrays.<CacheEntryEvent<? extends K, ? extends V>> asList(new JCSCacheEntryEvent<K, V>(this,
+                EventType.REMOVED, null, cacheKey, elt.getVal())));
     }
 
     @Override
@@ -412,9 +630,8 @@ public class JCSCache<K, V> implements Cache<K, V>
         assertNotClosed();
         assertNotNull(key, "key");
         assertNotNull(value, "value");
-        final long getStart = Times.now(false);
-        final V v = doGetControllingExpiry(getStart, key, false, false, true, false);
-        put(key, value);
+        final V v = doPut(key, value, PutCondition.ALWAYS, null).previous;
+        countLookup(v);
         return v;
     }
 
@@ -422,23 +639,122 @@ public class JCSCache<K, V> implements Cache<K, V>
     public void putAll(final Map<? extends K, ? extends V> map)
     {
         assertNotClosed();
-        final TempStateCacheView<K, V> view = new TempStateCacheView<K, V>(this);
+        assertNotNull(map, "map");
+        for (final Map.Entry<? extends K, ? extends V> e : map.entrySet())
+        {
+            assertNotNull(e.getKey(), "key");
+            assertNotNull(e.getValue(), "value");
+        }
+
+        final boolean statisticsEnabled = config.isStatisticsEnabled();
+        final long start = Times.now(!statisticsEnabled);
+        final boolean storeByValue = config.isStoreByValue();
+
+        final Map<K, V> values = new HashMap<K, V>(map.size());
+        final Map<K, K> jcsKeys = new HashMap<K, K>(map.size());
+        final Collection<Cache.Entry<? extends K, ? extends V>> entries = new ArrayList<Cache.Entry<? extends K, ? extends V>>(map.size());
         for (final Map.Entry<? extends K, ? extends V> e : map.entrySet())
         {
-            view.put(e.getKey(), e.getValue());
+            final K key = e.getKey();
+            final V value = storeByValue ? copy(serializer, manager.getClassLoader(), e.getValue()) : e.getValue();
+            final K jcsKey = storeByValue ? copy(serializer, manager.getClassLoader(), key) : key;
+            values.put(key, value);
+            jcsKeys.put(key, jcsKey);
+            entries.add(new JCSEntry<K, V>(jcsKey, value));
+        }
+
+        // the writer removes the entries it wrote, on failure only these ones are cached
+        CacheWriterException writerException = null;
+        try
+        {
+            @SuppressWarnings("unchecked") // the writer accepts super types of K and V so it can read our entries
+            final CacheWriter<K, V> entryWriter = (CacheWriter<K, V>) writer;
+            entryWriter.writeAll(entries);
+        }
+        catch (final CacheWriterException e)
+        {
+            writerException = e;
+            for (final Cache.Entry<? extends K, ? extends V> entry : entries)
+            {
+                jcsKeys.remove(entry.getKey());
+            }
+        }
+
+        final Map<K, ICacheElement<K, V>> existing = delegate.getMultiple(jcsKeys.keySet());
+        final List<ICacheElement<K, V>> elements = new ArrayList<ICacheElement<K, V>>(jcsKeys.size());
+        final List<CacheEntryEvent<? extends K, ? extends V>> createdEvents = new ArrayList<CacheEntryEvent<? extends K, ? extends V>>();
+        final List<CacheEntryEvent<? extends K, ? extends V>> updatedEvents = new ArrayList<CacheEntryEvent<? extends K, ? extends V>>();
+        final List<K> expired = new ArrayList<K>();
+        for (final Map.Entry<K, K> e : jcsKeys.entrySet())
+        {
+            final K key = e.getKey();
+            final V value = values.get(key);
+            final ICacheElement<K, V> oldElt = existing.get(key);
+            final V old = oldElt != null ? oldElt.getVal() : null;
+
+            final boolean created = old == null;
+            final Duration duration = created ? expiryPolicy.getExpiryForCreation() : expiryPolicy.getExpiryForUpdate();
+            if (isNotZero(duration))
+            {
+                elements.add(putElement(e.getValue(), value, created, duration));
+                if (created)
+                {
+                    createdEvents.add(new JCSCacheEntryEvent<K, V>(this, EventType.CREATED, null, key, value));
+                }
+                else
+                {
+                    updatedEvents.add(new JCSCacheEntryEvent<K, V>(this, EventType.UPDATED, old, key, value));
+                }
+            }
+            else if (!created)
+            {
+                expired.add(key);
+            }
+        }
+
+        if (!elements.isEmpty())
+        {
+            try
+            {
+                delegate.updateMultiple(elements);
+            }
+            catch (final IOException e)
+            {
+                throw new CacheException(e);
+            }
+        }
+        for (final K key : expired)
+        {
+            expires(key);
+        }
+        if (!createdEvents.isEmpty())
+        {
+            fire(EventType.CREATED, createdEvents);
+        }
+        if (!updatedEvents.isEmpty())
+        {
+            fire(EventType.UPDATED, updatedEvents);
+        }
+
+        if (statisticsEnabled && !elements.isEmpty())
+        {
+            statistics.increasePuts(elements.size());
+            statistics.addPutTime(Times.now(false) - start);
+        }
+
+        if (writerException != null)
+        {
+            throw writerException;
         }
-        view.merge();
     }
 
     @Override
     public boolean putIfAbsent(final K key, final V value)
     {
-        if (!containsKey(key))
-        {
-            put(key, value);
-            return true;
-        }
-        return false;
+        assertNotClosed();
+        assertNotNull(key, "key");
+        assertNotNull(value, "value");
+        return doPut(key, value, PutCondition.IF_ABSENT, null).applied;
     }
 
     @Override
@@ -458,11 +774,8 @@ public class JCSCache<K, V> implements Cache<K, V>
 
         final V value = v != null && v.getVal() != null ? v.getVal() : null;
         boolean remove = v != null;
-        for (final JCSListener<K, V> listener : listeners.values())
-        {
-            listener.onRemoved(Arrays.<CacheEntryEvent<? extends K, ? extends V>> asList(new JCSCacheEntryEvent<K, V>(this,
-                    EventType.REMOVED, null, key, value)));
-        }
+        fire(EventType.REMOVED, Arrays.<CacheEntryEvent<? extends K, ? extends V>> asList(new JCSCacheEntryEvent<K, V>(this,
+                EventType.REMOVED, null, key, value)));
         if (remove && statisticsEnabled)
         {
             statistics.increaseRemovals(1);
@@ -477,30 +790,34 @@ public class JCSCache<K, V> implements Cache<K, V>
         assertNotClosed();
         assertNotNull(key, "key");
         assertNotNull(oldValue, "oldValue");
-        final long getStart = Times.now(false);
-        final V v = doGetControllingExpiry(getStart, key, false, false, false, false);
-        final boolean found = v != null;
-        if (found)
+
+        final boolean statisticsEnabled = config.isStatisticsEnabled();
+        final long start = Times.now(!statisticsEnabled);
+
+        final RemoveRemapper remapper = new RemoveRemapper(oldValue);
+        try
         {
-            if (v.equals(oldValue))
-            {
-                remove(key);
-                return true;
-            }
-            final Duration expiryForAccess = expiryPolicy.getExpiryForAccess();
-            if (expiryForAccess != null)
-            {
-                try
-                {
-                    delegate.update(updateElement(key, v, expiryForAccess));
-                }
-                catch (final IOException e)
-                {
-                    throw new CacheException(e);
-                }
-            }
+            delegate.compute(key, remapper);
         }
-        return false;
+        catch (final IOException e)
+        {
+            throw new CacheException(e);
+        }
+
+        countLookup(remapper.previous);
+        if (!remapper.applied)
+        {
+            return false;
+        }
+
+        fire(EventType.REMOVED, Arrays.<CacheEntryEvent<? extends K, ? extends V>> asList(new JCSCacheEntryEvent<K, V>(this,
+                EventType.REMOVED, null, key, remapper.previous)));
+        if (statisticsEnabled)
+        {
+            statistics.increaseRemovals(1);
+            statistics.addRemoveTime(Times.now(false) - start);
+        }
+        return true;
     }
 
     @Override
@@ -572,45 +889,9 @@ public class JCSCache<K, V> implements Cache<K, V>
         assertNotNull(key, "key");
         assertNotNull(oldValue, "oldValue");
         assertNotNull(newValue, "newValue");
-        final boolean statisticsEnabled = config.isStatisticsEnabled();
-        final ICacheElement<K, V> elt = delegate.get(key);
-        if (elt != null)
-        {
-            V value = elt.getVal();
-            if (value != null && statisticsEnabled)
-            {
-                statistics.increaseHits(1);
-            }
-            if (value == null && config.isReadThrough())
-            {
-                value = doLoad(key, false, Times.now(false), false);
-            }
-            if (value != null && value.equals(oldValue))
-            {
-                put(key, newValue);
-                return true;
-            }
-            else if (value != null)
-            {
-                final Duration expiryForAccess = expiryPolicy.getExpiryForAccess();
-                if (expiryForAccess != null && (!elt.getElementAttributes().getIsEternal() || !expiryForAccess.isEternal()))
-                {
-                    try
-                    {
-                        delegate.update(updateElement(key, elt.getVal(), expiryForAccess));
-                    }
-                    catch (final IOException e)
-                    {
-                        throw new CacheException(e);
-                    }
-                }
-            }
-        }
-        else if (statisticsEnabled)
-        {
-            statistics.increaseMisses(1);
-        }
-        return false;
+        final PutRemapper remapper = doPut(key, newValue, PutCondition.IF_EQUAL, oldValue);
+        countLookup(remapper.previous);
+        return remapper.applied;
     }
 
     @Override
@@ -619,21 +900,9 @@ public class JCSCache<K, V> implements Cache<K, V>
         assertNotClosed();
         assertNotNull(key, "key");
         assertNotNull(value, "value");
-        boolean statisticsEnabled = config.isStatisticsEnabled();
-        if (containsKey(key))
-        {
-            if (statisticsEnabled)
-            {
-                statistics.increaseHits(1);
-            }
-            put(key, value);
-            return true;
-        }
-        else if (statisticsEnabled)
-        {
-            statistics.increaseMisses(1);
-        }
-        return false;
+        final PutRemapper remapper = doPut(key, value, PutCondition.IF_PRESENT, null);
+        countLookup(remapper.previous);
+        return remapper.applied;
     }
 
     @Override
@@ -642,29 +911,71 @@ public class JCSCache<K, V> implements Cache<K, V>
         assertNotClosed();
         assertNotNull(key, "key");
         assertNotNull(value, "value");
+        final V previous = doPut(key, value, PutCondition.IF_PRESENT, null).previous;
+        countLookup(previous);
+        return previous;
+    }
 
-        final boolean statisticsEnabled = config.isStatisticsEnabled();
+    /**
+     * Hands the events to the listeners, or keeps them until the running invoke released its key lock.
+     */
+    private void fire(final EventType type, final List<CacheEntryEvent<? extends K, ? extends V>> events)
+    {
+        if (listeners.isEmpty())
+        {
+            return;
+        }
+        final List<Runnable> deferred = deferredEvents.get();
+        if (deferred != null)
+        {
+            deferred.add(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    dispatch(type, events);
+                }
+            });
+            return;
+        }
+        dispatch(type, events);
+    }
 
-        final ICacheElement<K, V> elt = delegate.get(key);
-        if (elt != null)
+    private void dispatch(final EventType type, final List<CacheEntryEvent<? extends K, ? extends V>> events)
+    {
+        for (final JCSListener<K, V> listener : listeners.values())
         {
-            V oldValue = elt.getVal();
-            if (oldValue == null && config.isReadThrough())
+            switch (type)
             {
-                oldValue = doLoad(key, false, Times.now(false), false);
+                case CREATED:
+                    listener.onCreated(events);
+                    break;
+                case UPDATED:
+                    listener.onUpdated(events);
+                    break;
+                case REMOVED:
+                    listener.onRemoved(events);
+                    break;
+                default:
+                    listener.onExpired(events);
+                    break;
             }
-            else if (statisticsEnabled)
+        }
+    }
+
+    private void countLookup(final V found)
+    {
+        if (config.isStatisticsEnabled())
+        {
+            if (found != null)
             {
                 statistics.increaseHits(1);
             }
-            put(key, value);
-            return oldValue;
-        }
-        else if (statisticsEnabled)
-        {
-            statistics.increaseMisses(1);
+            else
+            {
+                statistics.increaseMisses(1);
+            }
         }
-        return null;
     }
 
     @Override
@@ -674,7 +985,52 @@ public class JCSCache<K, V> implements Cache<K, V>
         assertNotNull(keys, "keys");
         for (final K k : keys)
         {
-            remove(k);
+            assertNotNull(k, "key");
+        }
+
+        final boolean statisticsEnabled = config.isStatisticsEnabled();
+        final long start = Times.now(!statisticsEnabled);
+
+        // the writer removes the keys it deleted, on failure only these ones are evicted
+        final Set<K> cacheKeys = new HashSet<K>(keys);
+        final Set<K> notDeleted = new HashSet<K>(keys);
+        CacheWriterException writerException = null;
+        try
+        {
+            writer.deleteAll(notDeleted);
+        }
+        catch (final CacheWriterException e)
+        {
+            writerException = e;
+            cacheKeys.removeAll(notDeleted);
+        }
+
+        if (!cacheKeys.isEmpty())
+        {
+            final Map<K, ICacheElement<K, V>> existing = delegate.getMultiple(cacheKeys);
+            delegate.removeMultiple(cacheKeys);
+
+            if (!listeners.isEmpty())
+            {
+                final List<CacheEntryEvent<? extends K, ? extends V>> events = new ArrayList<CacheEntryEvent<? extends K, ? extends V>>(cacheKeys.size());
+                for (final K key : cacheKeys)
+                {
+                    final ICacheElement<K, V> v = existing.get(key);
+                    events.add(new JCSCacheEntryEvent<K, V>(this, EventType.REMOVED, null, key, v != null ? v.getVal() : null));
+                }
+                fire(EventType.REMOVED, events);
+            }
+
+            if (statisticsEnabled && !existing.isEmpty())
+            {
+                statistics.increaseRemovals(existing.size());
+                statistics.addRemoveTime(Times.now(false) - start);
+            }
+        }
+
+        if (writerException != null)
+        {
+            throw writerException;
         }
     }
 
@@ -682,10 +1038,7 @@ public class JCSCache<K, V> implements Cache<K, V>
     public void removeAll()
     {
         assertNotClosed();
-        for (final K k : delegate.getKeySet())
-        {
-            remove(k);
-        }
+        removeAll(new HashSet<K>(delegate.getKeySet()));
     }
 
     @Override
@@ -732,19 +1085,15 @@ public class JCSCache<K, V> implements Cache<K, V>
     {
         try
         {
-            final long now = Times.now(false);
-            for (final K k : keys)
+            final Set<K> toLoad = new HashSet<K>(keys);
+            final Set<K> existingKeys = new HashSet<K>(delegate.getMultiple(toLoad).keySet());
+            if (!replaceExistingValues)
             {
-                if (replaceExistingValues)
-                {
-                    doLoad(k, containsKey(k), now, completionListener != null);
-                    continue;
-                }
-                else if (containsKey(k))
-                {
-                    continue;
-                }
-                doGetControllingExpiry(now, k, true, true, false, completionListener != null);
+                toLoad.removeAll(existingKeys);
+            }
+            if (!toLoad.isEmpty())
+            {
+                doLoadMultiple(toLoad, existingKeys, completionListener != null);
             }
         }
         catch (final RuntimeException e)
@@ -764,10 +1113,50 @@ public class JCSCache<K, V> implements Cache<K, V>
     @Override
     public <T> T invoke(final K key, final EntryProcessor<K, V, T> entryProcessor, final Object... arguments) throws EntryProcessorException
     {
-        final TempStateCacheView<K, V> view = new TempStateCacheView<K, V>(this);
-        final T t = doInvoke(view, key, entryProcessor, arguments);
-        view.merge();
-        return t;
+        assertNotClosed();
+        assertNotNull(entryProcessor, "entryProcessor");
+        assertNotNull(key, "key");
+        // listeners are called once the key lock is released, the outermost invoke of the thread fires them
+        final List<Runnable> events = deferredEvents.get() == null ? new ArrayList<Runnable>() : null;
+        if (events != null)
+        {
+            deferredEvents.set(events);
+        }
+        try
+        {
+            // the processor and the merge of its changes run as one step for the key,
+            // loader and writer calls made by them included
+            return delegate.callUnderKeyLock(key, new Callable<T>()
+            {
+                @Override
+                public T call()
+                {
+                    final TempStateCacheView<K, V> view = new TempStateCacheView<K, V>(JCSCache.this);
+                    final T t = doInvoke(view, key, entryProcessor, arguments);
+                    view.merge();
+                    return t;
+                }
+            });
+        }
+        catch (final RuntimeException e)
+        {
+            throw e;
+        }
+        catch (final Exception e)
+        {
+            return throwEntryProcessorException(e);
+        }
+        finally
+        {
+            if (events != null)
+            {
+                deferredEvents.remove();
+                for (final Runnable event : events)
+                {
+                    event.run();
+                }
+            }
+        }
     }
 
     private <T> T doInvoke(final TempStateCacheView<K, V> view, final K key, final EntryProcessor<K, V, T> entryProcessor,
@@ -812,7 +1201,88 @@ public class JCSCache<K, V> implements Cache<K, V>
     {
         assertNotClosed();
         assertNotNull(entryProcessor, "entryProcessor");
-        final Map<K, EntryProcessorResult<T>> results = new HashMap<K, EntryProcessorResult<T>>();
+        final Map<K, EntryProcessorResult<T>> results = new ConcurrentHashMap<K, EntryProcessorResult<T>>();
+
+        final int partitions = Math.min(invokeParallelism, keys.size() / MIN_KEYS_PER_INVOKE_PARTITION);
+        if (partitions <= 1)
+        {
+            invokeAll(keys, entryProcessor, arguments, results);
+            return results;
+        }
+
+        // keys are split by lock stripe, so two partitions never wait for the same key lock
+        final List<List<K>> byStripe = new ArrayList<List<K>>(partitions);
+        for (int i = 0; i < partitions; i++)
+        {
+            byStripe.add(new ArrayList<K>(keys.size() / partitions + 1));
+        }
+        for (final K k : keys)
+        {
+            byStripe.get(delegate.getKeyLockStripe(k) % partitions).add(k);
+        }
+        final Queue<List<K>> queue = new ConcurrentLinkedQueue<List<K>>(byStripe);
+
+        // the caller works on the partitions as well, so a busy pool only means less parallelism
+        final Runnable worker = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                List<K> partition;
+                while ((partition = queue.poll()) != null)
+                {
+                    invokeAll(partition, entryProcessor, arguments, results);
+                }
+            }
+        };
+        final List<Future<?>> helpers = new ArrayList<Future<?>>(partitions - 1);
+        try
+        {
+            for (int i = 1; i < partitions; i++)
+            {
+                helpers.add(invokePool.submit(worker));
+            }
+        }
+        catch (final RejectedExecutionException e)
+        {
+            // closing, the caller does the rest
+        }
+        worker.run();
+
+        boolean interrupted = false;
+        for (final Future<?> helper : helpers)
+        {
+            if (helper.cancel(false)) // never started, nothing left for it anyway
+            {
+                continue;
+            }
+            try
+            {
+                helper.get();
+            }
+            catch (final InterruptedException e)
+            {
+                interrupted = true;
+            }
+            catch (final ExecutionException e)
+            {
+                throw new CacheException(e.getCause());
+            }
+            catch (final CancellationException e)
+            {
+                // no-op
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+        return results;
+    }
+
+    private <T> void invokeAll(final Collection<? extends K> keys, final EntryProcessor<K, V, T> entryProcessor,
+            final Object[] arguments, final Map<K, EntryProcessorResult<T>> results)
+    {
         for (final K k : keys)
         {
             try
@@ -842,7 +1312,6 @@ public class JCSCache<K, V> implements Cache<K, V>
                 });
             }
         }
-        return results;
     }
 
     @Override
@@ -924,6 +1393,10 @@ public class JCSCache<K, V> implements Cache<K, V>
         for (final Runnable task : pool.shutdownNow()) {
             task.run();
         }
+        if (invokePool != null)
+        {
+            invokePool.shutdownNow();
+        }
 
         manager.release(getName());
         closed = true;
@@ -18,12 +18,27 @@
  */
 package org.apache.commons.jcs.jcache.serialization;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.apache.commons.jcs.engine.behavior.IElementSerializer;
 
 public class Serializations
 {
+    // exact classes only, a subclass could be mutable
+    private static final Set<Class<?>> IMMUTABLES = new HashSet<Class<?>>(Arrays.<Class<?>> asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigInteger.class, BigDecimal.class));
+
     public static <K> K copy(final IElementSerializer serializer, final ClassLoader loader, final K key)
     {
+        if (key == null || IMMUTABLES.contains(key.getClass()) || key instanceof Enum<?>)
+        {
+            return key; // a copy would be equal and could not diverge
+        }
         try
         {
             return serializer.deSerialize(serializer.serialize(key), loader);
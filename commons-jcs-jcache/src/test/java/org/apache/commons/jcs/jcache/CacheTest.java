@@ -39,10 +39,19 @@ import javax.cache.expiry.ExpiryPolicy;
 import javax.cache.integration.CacheLoader;
 import javax.cache.integration.CacheLoaderException;
 import javax.cache.integration.CacheWriter;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorResult;
+import javax.cache.processor.MutableEntry;
 import javax.cache.spi.CachingProvider;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -309,4 +318,254 @@ public class CacheTest
         assertEquals("super", cache.get("lazilyLoaded"));
         cachingProvider.close();
     }
+
+    @Test
+    public void bulk()
+    {
+        final AtomicInteger loadAllCalls = new AtomicInteger();
+        final AtomicInteger writeAllCalls = new AtomicInteger();
+        final AtomicInteger deleteAllCalls = new AtomicInteger();
+        final Map<Object, Object> store = new HashMap<Object, Object>();
+        final CacheLoader<Object, Object> loader = new CacheLoader<Object, Object>()
+        {
+            @Override
+            public Object load(final Object key) throws CacheLoaderException
+            {
+                throw new UnsupportedOperationException("only bulk loading is expected");
+            }
+
+            @Override
+            public Map<Object, Object> loadAll(final Iterable<?> keys) throws CacheLoaderException
+            {
+                loadAllCalls.incrementAndGet();
+                final Map<Object, Object> loaded = new HashMap<Object, Object>();
+                for (final Object key : keys)
+                {
+                    loaded.put(key, "loaded-" + key);
+                }
+                return loaded;
+            }
+        };
+        final CacheWriter<Object, Object> writer = new CacheWriter<Object, Object>()
+        {
+            @Override
+            public void write(final Cache.Entry<?, ?> entry)
+            {
+                throw new UnsupportedOperationException("only bulk writing is expected");
+            }
+
+            @Override
+            public void writeAll(final Collection<Cache.Entry<?, ?>> entries)
+            {
+                writeAllCalls.incrementAndGet();
+                for (final Iterator<Cache.Entry<?, ?>> it = entries.iterator(); it.hasNext();)
+                {
+                    final Cache.Entry<?, ?> entry = it.next();
+                    store.put(entry.getKey(), entry.getValue());
+                    it.remove();
+                }
+            }
+
+            @Override
+            public void delete(final Object key)
+            {
+                throw new UnsupportedOperationException("only bulk deletion is expected");
+            }
+
+            @Override
+            public void deleteAll(final Collection<?> keys)
+            {
+                deleteAllCalls.incrementAndGet();
+                for (final Iterator<?> it = keys.iterator(); it.hasNext();)
+                {
+                    store.remove(it.next());
+                    it.remove();
+                }
+            }
+        };
+
+        final CachingProvider cachingProvider = Caching.getCachingProvider();
+        final CacheManager cacheManager = cachingProvider.getCacheManager();
+        cacheManager.createCache("default", new MutableConfiguration<Object, Object>()
+                .setReadThrough(true)
+                .setWriteThrough(true)
+                .setCacheLoaderFactory(new Factory<CacheLoader<Object, Object>>()
+                {
+                    @Override
+                    public CacheLoader<Object, Object> create()
+                    {
+                        return loader;
+                    }
+                })
+                .setCacheWriterFactory(new Factory<CacheWriter<Object, Object>>()
+                {
+                    @Override
+                    public CacheWriter<Object, Object> create()
+                    {
+                        return writer;
+                    }
+                }));
+        final Cache<String, String> cache = cacheManager.getCache("default");
+
+        final Map<String, String> values = new HashMap<String, String>();
+        for (int i = 0; i < 5; i++)
+        {
+            values.put("key" + i, "value" + i);
+        }
+        cache.putAll(values);
+        assertEquals(1, writeAllCalls.get());
+        assertEquals(5, store.size());
+
+        final Set<String> keys = new HashSet<String>(values.keySet());
+        keys.add("missing1");
+        keys.add("missing2");
+        final Map<String, String> all = cache.getAll(keys);
+        assertEquals(1, loadAllCalls.get());
+        assertEquals(7, all.size());
+        assertEquals("value3", all.get("key3"));
+        assertEquals("loaded-missing1", all.get("missing1"));
+        assertEquals("loaded-missing2", cache.get("missing2"));
+
+        cache.removeAll(keys);
+        assertEquals(1, deleteAllCalls.get());
+        assertTrue(store.isEmpty());
+        for (final String key : keys)
+        {
+            assertFalse(cache.containsKey(key));
+        }
+        cachingProvider.close();
+    }
+
+    @Test
+    public void invokeAll()
+    {
+        final CachingProvider cachingProvider = Caching.getCachingProvider();
+        final Properties properties = new Properties();
+        properties.setProperty("invoke.parallelism", "4");
+        final CacheManager cacheManager = cachingProvider.getCacheManager(
+                cachingProvider.getDefaultURI(), cachingProvider.getDefaultClassLoader(), properties);
+        cacheManager.createCache("default", new MutableConfiguration<Object, Object>());
+        final Cache<String, Integer> cache = cacheManager.getCache("default");
+
+        // enough keys to be split across threads, few enough entries to stay in memory
+        final Set<String> keys = new HashSet<String>();
+        for (int i = 0; i < 1000; i++)
+        {
+            keys.add("key" + i);
+            if (i % 20 == 0)
+            {
+                cache.put("key" + i, i);
+            }
+        }
+
+        final Map<String, EntryProcessorResult<Integer>> results = cache.invokeAll(keys, new EntryProcessor<String, Integer, Integer>()
+        {
+            @Override
+            public Integer process(final MutableEntry<String, Integer> entry, final Object... arguments)
+            {
+                if (!entry.exists())
+                {
+                    return -1;
+                }
+                final Integer next = entry.getValue() + 1;
+                entry.setValue(next);
+                return next;
+            }
+        });
+
+        assertEquals(1000, results.size());
+        for (int i = 0; i < 1000; i++)
+        {
+            final Integer expected = i % 20 == 0 ? i + 1 : -1;
+            assertEquals(expected, results.get("key" + i).get());
+            if (i % 20 == 0)
+            {
+                assertEquals(expected, cache.get("key" + i));
+            }
+        }
+        cachingProvider.close();
+    }
+
+    @Test
+    public void invokeFiresListenersOutsideOfTheKeyLock()
+    {
+        final CachingProvider cachingProvider = Caching.getCachingProvider();
+        final CacheManager cacheManager = cachingProvider.getCacheManager();
+        cacheManager.createCache("default", new MutableConfiguration<Object, Object>());
+        final Cache<String, String> cache = cacheManager.getCache("default");
+        final AtomicBoolean putFromListener = new AtomicBoolean();
+        cache.registerCacheEntryListener(new CacheEntryListenerConfiguration<String, String>()
+        {
+            @Override
+            public Factory<CacheEntryListener<? super String, ? super String>> getCacheEntryListenerFactory()
+            {
+                return new Factory<CacheEntryListener<? super String, ? super String>>()
+                {
+                    @Override
+                    public CacheEntryListener<? super String, ? super String> create()
+                    {
+                        return new CacheEntryCreatedListener<String, String>()
+                        {
+                            @Override
+                            public void onCreated(Iterable<CacheEntryEvent<? extends String, ? extends String>> cacheEntryEvents)
+                                    throws CacheEntryListenerException
+                            {
+                                // another thread waits for the key lock, it would never get it if the listener held it
+                                final Thread other = new Thread()
+                                {
+                                    @Override
+                                    public void run()
+                                    {
+                                        cache.put("foo", "other");
+                                    }
+                                };
+                                other.start();
+                                try
+                                {
+                                    other.join(10000);
+                                }
+                                catch (final InterruptedException e)
+                                {
+                                    Thread.currentThread().interrupt();
+                                }
+                                putFromListener.set(!other.isAlive());
+                            }
+                        };
+                    }
+                };
+            }
+
+            @Override
+            public boolean isOldValueRequired()
+            {
+                return false;
+            }
+
+            @Override
+            public Factory<CacheEntryEventFilter<? super String, ? super String>> getCacheEntryEventFilterFactory()
+            {
+                return null;
+            }
+
+            @Override
+            public boolean isSynchronous()
+            {
+                return true;
+            }
+        });
+
+        cache.invoke("foo", new EntryProcessor<String, String, Object>()
+        {
+            @Override
+            public Object process(final MutableEntry<String, String> entry, final Object... arguments)
+            {
+                entry.setValue("bar");
+                return null;
+            }
+        });
+
+        assertTrue(putFromListener.get());
+        assertEquals("other", cache.get("foo"));
+        cachingProvider.close();
+    }
 }